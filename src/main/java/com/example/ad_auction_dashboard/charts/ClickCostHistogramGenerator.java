@@ -1,18 +1,17 @@
 package com.example.ad_auction_dashboard.charts;
 
 import com.example.ad_auction_dashboard.logic.CampaignMetrics;
-import com.example.ad_auction_dashboard.logic.ClickLog;
-import com.example.ad_auction_dashboard.logic.LogDate;
+import com.example.ad_auction_dashboard.logic.ColumnarCampaign;
+import com.example.ad_auction_dashboard.logic.SegmentPredicate;
 import com.example.ad_auction_dashboard.logic.TimeFilteredMetrics;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
 
 public class ClickCostHistogramGenerator implements HistogramGenerator {
 
@@ -23,11 +22,12 @@ public class ClickCostHistogramGenerator implements HistogramGenerator {
         LocalDateTime end,
         int binCount) {
 
-        // Get all click logs
-        ClickLog[] clickLogs = metrics.getClickLogs();
+        // Read the click columns shared with the rest of the dashboard rather than copying the logs
+        ColumnarCampaign columns = metrics.getColumns();
+        int clicks = columns.getClickCount();
         Map<String, Integer> histogramData = new LinkedHashMap<>();
 
-        if (clickLogs == null || clickLogs.length == 0) {
+        if (clicks == 0) {
             // Return empty map with placeholder bin if no data
             histogramData.put("No data available", 0);
             return histogramData;
@@ -37,19 +37,15 @@ public class ClickCostHistogramGenerator implements HistogramGenerator {
         float minCost = Float.MAX_VALUE;
         float maxCost = Float.MIN_VALUE;
         List<Float> validCosts = new ArrayList<>();
+        long from = firstSecond(start);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
 
-        for (ClickLog log : clickLogs) {
-            // Skip if date is outside our range
-            LogDate logDate = log.getDate();
-            if (logDate == null || !logDate.getExists()) continue;
-
-            LocalDateTime logDateTime = LocalDateTime.of(
-                logDate.getYear(), logDate.getMonth(), logDate.getDay(),
-                logDate.getHour(), logDate.getMinute(), logDate.getSecond());
-
-            if (logDateTime.isBefore(start) || logDateTime.isAfter(end)) continue;
+        for (int i = 0; i < clicks; i++) {
+            // Skip if date is outside our range (the n/a and invalid sentinels are below any range)
+            long date = columns.getClickDate(i);
+            if (date < from || date > to) continue;
 
-            float cost = log.getClickCost();
+            float cost = columns.getClickCost(i);
             if (cost < 0) continue; // Skip invalid costs
 
             validCosts.add(cost);
@@ -122,11 +118,12 @@ public class ClickCostHistogramGenerator implements HistogramGenerator {
         LocalDateTime end,
         int binCount) {
 
-        // Get all click logs
-        ClickLog[] clickLogs = metrics.getClickLogs();
+        // Read the click columns shared with the rest of the dashboard rather than copying the logs
+        ColumnarCampaign columns = metrics.getColumns();
+        int clicks = columns.getClickCount();
         Map<String, Integer> histogramData = new LinkedHashMap<>();
 
-        if (clickLogs == null || clickLogs.length == 0) {
+        if (clicks == 0) {
             // Return empty map with placeholder bin if no data
             histogramData.put("No data available", 0);
             return histogramData;
@@ -136,42 +133,26 @@ public class ClickCostHistogramGenerator implements HistogramGenerator {
         float minCost = Float.MAX_VALUE;
         float maxCost = Float.MIN_VALUE;
         List<Float> validCosts = new ArrayList<>();
-
-        // Get the filtered user IDs from timeFilteredMetrics
-        Set<String> filteredUserIds = new HashSet<>();
-        for (int i = 0; i < clickLogs.length; i++) {
-            ClickLog log = clickLogs[i];
-            if (log == null || log.getId() == null) continue;
-
-            LogDate logDate = log.getDate();
-            if (logDate == null || !logDate.getExists()) continue;
-
-            LocalDateTime logDateTime = LocalDateTime.of(
-                logDate.getYear(), logDate.getMonth(), logDate.getDay(),
-                logDate.getHour(), logDate.getMinute(), logDate.getSecond());
-
-            if (logDateTime.isBefore(start) || logDateTime.isAfter(end)) continue;
-
-            filteredUserIds.add(log.getId());
+        long from = firstSecond(start);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        // Users with an impression in the selected segment, none of them needed with no filters
+        SegmentPredicate segment = timeFilteredMetrics.getSegmentFilter();
+        BitSet segmentUsers = null;
+        if (!segment.isAll()) {
+            segmentUsers = new BitSet(columns.getUserCount());
+            segment.addUsers(columns, 0, columns.getImpressionCount(), segmentUsers);
         }
 
-        // Now filter the clicks using the TimeFilteredMetrics filter logic
-        for (ClickLog log : clickLogs) {
+        // Filter the clicks using the TimeFilteredMetrics segment filter
+        for (int i = 0; i < clicks; i++) {
             // Skip if date is outside our range
-            LogDate logDate = log.getDate();
-            if (logDate == null || !logDate.getExists()) continue;
-
-            LocalDateTime logDateTime = LocalDateTime.of(
-                logDate.getYear(), logDate.getMonth(), logDate.getDay(),
-                logDate.getHour(), logDate.getMinute(), logDate.getSecond());
+            long date = columns.getClickDate(i);
+            if (date < from || date > to) continue;
 
-            if (logDateTime.isBefore(start) || logDateTime.isAfter(end)) continue;
+            // Check if user passes the filters of the TimeFilteredMetrics
+            if (segmentUsers != null && !segmentUsers.get(columns.getClickUser(i))) continue;
 
-            // Check if user passes filters using the public TimeFilteredMetrics method
-            String userId = log.getId();
-            if (!timeFilteredMetrics.userPassesFilters(userId)) continue;
-
-            float cost = log.getClickCost();
+            float cost = columns.getClickCost(i);
             if (cost < 0) continue; // Skip invalid costs
 
             validCosts.add(cost);
@@ -239,6 +220,11 @@ public class ClickCostHistogramGenerator implements HistogramGenerator {
         return histogramData;
     }
 
+    // Click dates are whole seconds, so the first one not before start
+    private static long firstSecond(LocalDateTime start) {
+        return start.toEpochSecond(ZoneOffset.UTC) + (start.getNano() > 0 ? 1 : 0);
+    }
+
     @Override
     public String getTitle() {
         return "Distribution of Click Costs";
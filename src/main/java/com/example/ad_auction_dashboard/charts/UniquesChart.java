@@ -31,7 +31,12 @@ public class UniquesChart implements Chart {
         lineChart.setTitle("Uniques Over Time");
 
         XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Uniques");
+        if (timeFilteredMetrics.isApproximateUniques()) {
+            series.setName(String.format("Uniques (\u2248, HyperLogLog \u00b1%.1f%%)",
+                timeFilteredMetrics.getUniquesError() * 100));
+        } else {
+            series.setName("Uniques (exact)");
+        }
 
         // Get time-bucketed data using the granularity parameter
         Map<String, TimeFilteredMetrics.ComputedMetrics> metricsByTime =
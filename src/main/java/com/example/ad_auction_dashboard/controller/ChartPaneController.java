@@ -73,9 +73,7 @@ public class ChartPaneController {
 
         // Initialize TimeFilteredMetrics with data from campaignMetrics
         this.timeFilteredMetrics = new TimeFilteredMetrics(
-            campaignMetrics.getImpressionLogs(),
-            campaignMetrics.getServerLogs(),
-            campaignMetrics.getClickLogs(),
+            campaignMetrics.getColumns(),
             campaignMetrics.getBouncePagesThreshold(),
             campaignMetrics.getBounceSecondsThreshold()
         );
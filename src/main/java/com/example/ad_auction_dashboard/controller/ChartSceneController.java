@@ -12,7 +12,9 @@ import com.example.ad_auction_dashboard.charts.ImpressionsChart;
 import com.example.ad_auction_dashboard.charts.TotalCostChart;
 import com.example.ad_auction_dashboard.charts.UniquesChart;
 import com.example.ad_auction_dashboard.charts.BounceChart;
+import com.example.ad_auction_dashboard.logic.Campaign;
 import com.example.ad_auction_dashboard.logic.CampaignMetrics;
+import com.example.ad_auction_dashboard.logic.LogDirectoryWatcher;
 import com.example.ad_auction_dashboard.logic.LogoutHandler;
 import com.example.ad_auction_dashboard.logic.TimeFilteredMetrics;
 
@@ -22,6 +24,9 @@ import com.itextpdf.text.Image;
 import com.itextpdf.text.PageSize;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.opencsv.CSVWriter;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.SnapshotParameters;
@@ -64,6 +69,7 @@ import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
@@ -143,6 +149,8 @@ public class ChartSceneController {
 
     private CampaignMetrics campaignMetrics;
     private TimeFilteredMetrics timeFilteredMetrics;
+    private Timeline liveRefresh;
+    private volatile boolean liveRefreshRunning = false;
     private final Map<String, Chart> chartRegistry = new LinkedHashMap<>(); // LinkedHashMap to maintain insertion order
 
     // Current granularity selection
@@ -389,12 +397,11 @@ public class ChartSceneController {
 
         // Create TimeFilteredMetrics instance
         this.timeFilteredMetrics = new TimeFilteredMetrics(
-            metrics.getImpressionLogs(),
-            metrics.getServerLogs(),
-            metrics.getClickLogs(),
+            metrics.getColumns(),
             metrics.getBouncePagesThreshold(),
             metrics.getBounceSecondsThreshold()
         );
+        UserSession.getInstance().applyUniquesMode(timeFilteredMetrics);
 
         // Get campaign date boundaries
         LocalDateTime campaignStart = metrics.getCampaignStartDate();
@@ -408,26 +415,87 @@ public class ChartSceneController {
             startDatePicker.setValue(startDate);
             endDatePicker.setValue(endDate);
 
-            // Set date range constraints for both pickers
-            startDatePicker.setDayCellFactory(picker -> new DateCell() {
-                @Override
-                public void updateItem(LocalDate date, boolean empty) {
-                    super.updateItem(date, empty);
-                    setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
-                }
-            });
-
-            endDatePicker.setDayCellFactory(picker -> new DateCell() {
-                @Override
-                public void updateItem(LocalDate date, boolean empty) {
-                    super.updateItem(date, empty);
-                    setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
-                }
-            });
+            restrictDatePickers(startDate, endDate);
         }
 
         // Show initial charts
         updateCharts();
+
+        startLiveRefresh();
+    }
+
+    // Set date range constraints for both pickers
+    private void restrictDatePickers(LocalDate startDate, LocalDate endDate) {
+        startDatePicker.setDayCellFactory(picker -> new DateCell() {
+            @Override
+            public void updateItem(LocalDate date, boolean empty) {
+                super.updateItem(date, empty);
+                setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
+            }
+        });
+
+        endDatePicker.setDayCellFactory(picker -> new DateCell() {
+            @Override
+            public void updateItem(LocalDate date, boolean empty) {
+                super.updateItem(date, empty);
+                setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
+            }
+        });
+    }
+
+    /**
+     * If the campaign is being followed from a log folder, periodically merges the newly
+     * appended logs into the metrics and redraws the charts
+     */
+    private void startLiveRefresh() {
+        LogDirectoryWatcher watcher = UserSession.getInstance().getLiveWatcher();
+        if (watcher == null || liveRefresh != null) return;
+        watcher.setErrorListener(e -> Platform.runLater(
+            () -> showAlert("Error reading appended logs: " + e.getMessage())));
+
+        liveRefresh = new Timeline(new KeyFrame(Duration.millis(watcher.getRefreshIntervalMs()),
+            e -> refreshLiveLogs(watcher)));
+        liveRefresh.setCycleCount(Animation.INDEFINITE);
+        liveRefresh.play();
+    }
+
+    private void refreshLiveLogs(LogDirectoryWatcher watcher) {
+        // Stop once this scene has been left or the folder is no longer followed
+        if (primaryChartContainer.getScene() == null || primaryChartContainer.getScene().getWindow() == null
+            || watcher != UserSession.getInstance().getLiveWatcher()) {
+            liveRefresh.stop();
+            return;
+        }
+        if (liveRefreshRunning) return;
+        Campaign appended = watcher.takeAppended();
+        if (appended == null) return;
+
+        liveRefreshRunning = true;
+        LocalDateTime previousStart = campaignMetrics.getCampaignStartDate();
+        LocalDateTime previousEnd = campaignMetrics.getCampaignEndDate();
+        new Thread(() -> {
+            // The columns are shared with the campaign metrics, so the append goes through them
+            // while holding the filtered metrics' lock, which their queries take too
+            timeFilteredMetrics.appendLogs(campaignMetrics, appended.getImpressionLogs(), appended.getServerLogs(),
+                appended.getClickLogs());
+
+            Platform.runLater(() -> {
+                liveRefreshRunning = false;
+                LocalDateTime campaignStart = campaignMetrics.getCampaignStartDate();
+                LocalDateTime campaignEnd = campaignMetrics.getCampaignEndDate();
+                if (campaignStart == null || campaignEnd == null) return;
+
+                // A range that covered the whole campaign keeps covering it as the campaign grows
+                if (previousStart == null || Objects.equals(startDatePicker.getValue(), previousStart.toLocalDate())) {
+                    startDatePicker.setValue(campaignStart.toLocalDate());
+                }
+                if (previousEnd == null || Objects.equals(endDatePicker.getValue(), previousEnd.toLocalDate())) {
+                    endDatePicker.setValue(campaignEnd.toLocalDate());
+                }
+                restrictDatePickers(campaignStart.toLocalDate(), campaignEnd.toLocalDate());
+                updateCharts();
+            });
+        }, "live-chart-refresh").start();
     }
 
     /**
@@ -291,9 +291,7 @@ public class HistogramController {
 
         // Create TimeFilteredMetrics for filtering
         this.timeFilteredMetrics = new TimeFilteredMetrics(
-            metrics.getImpressionLogs(),
-            metrics.getServerLogs(),
-            metrics.getClickLogs(),
+            metrics.getColumns(),
             metrics.getBouncePagesThreshold(),
             metrics.getBounceSecondsThreshold()
         );
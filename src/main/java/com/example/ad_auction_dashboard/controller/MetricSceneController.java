@@ -4,23 +4,31 @@ import com.example.ad_auction_dashboard.logic.Campaign;
 import com.example.ad_auction_dashboard.logic.CampaignComparisonDialog;
 import com.example.ad_auction_dashboard.logic.CampaignDatabase;
 import com.example.ad_auction_dashboard.logic.CampaignMetrics;
+import com.example.ad_auction_dashboard.logic.FileHandler;
 import com.example.ad_auction_dashboard.logic.FullCampaignComparisonView;
+import com.example.ad_auction_dashboard.logic.LogDirectoryWatcher;
 import com.example.ad_auction_dashboard.logic.LogoutHandler;
+import com.example.ad_auction_dashboard.logic.PreviewMetrics;
 import com.example.ad_auction_dashboard.logic.SaveCampaignDialog;
 import com.example.ad_auction_dashboard.logic.TimeFilteredMetrics;
 import com.example.ad_auction_dashboard.logic.UserSession;
 import com.example.ad_auction_dashboard.viewer.AdminPanelScene;
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
+import javafx.animation.KeyFrame;
 import javafx.animation.ScaleTransition;
+import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
@@ -39,6 +47,7 @@ import javafx.scene.shape.Circle;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Popup;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
@@ -74,6 +83,8 @@ public class MetricSceneController {
 
     @FXML
     private Label userWelcomeLabel;
+    @FXML
+    private Label previewLabel;
 
     @FXML
     private Button logoutBtn;
@@ -119,9 +130,15 @@ public class MetricSceneController {
 
     // Add a field for TimeFilteredMetrics
     private TimeFilteredMetrics timeFilteredMetrics;
+    private Timeline liveRefresh;
+    // Filtering, charts and saving would work on the sampled rows, so a preview only shows totals
+    private boolean previewMode = false;
+    private volatile boolean liveRefreshRunning = false;
 
     @FXML
     private Button saveToDatabaseBtn;
+    @FXML
+    private Button appendLogsButton;
 
     @FXML
     public void initialize() {
@@ -261,12 +278,11 @@ public class MetricSceneController {
 
         // Create TimeFilteredMetrics for filtering
         this.timeFilteredMetrics = new TimeFilteredMetrics(
-            metrics.getImpressionLogs(),
-            metrics.getServerLogs(),
-            metrics.getClickLogs(),
+            metrics.getColumns(),
             metrics.getBouncePagesThreshold(),
             metrics.getBounceSecondsThreshold()
         );
+        UserSession.getInstance().applyUniquesMode(timeFilteredMetrics);
 
         // Save metrics in UserSession
         UserSession.getInstance().setCurrentCampaignMetrics(metrics);
@@ -279,33 +295,155 @@ public class MetricSceneController {
             if (campaignStart != null && campaignEnd != null) {
                 startDatePicker.setValue(campaignStart.toLocalDate());
                 endDatePicker.setValue(campaignEnd.toLocalDate());
-                LocalDate startDate = campaignStart.toLocalDate();
-                LocalDate endDate = campaignEnd.toLocalDate();
-                // Set date range constraints for both pickers
-                startDatePicker.setDayCellFactory(picker -> new DateCell() {
-                    @Override
-                    public void updateItem(LocalDate date, boolean empty) {
-                        super.updateItem(date, empty);
-                        setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
-                    }
-                });
-
-                endDatePicker.setDayCellFactory(picker -> new DateCell() {
-                    @Override
-                    public void updateItem(LocalDate date, boolean empty) {
-                        super.updateItem(date, empty);
-                        setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
-                    }
-                });
+                restrictDatePickers(campaignStart.toLocalDate(), campaignEnd.toLocalDate());
             }
         }
 
-        // Get filter values from UserSession if available
-        applyFilterSettingsFromSession();
+        if (metrics instanceof PreviewMetrics) {
+            showPreviewNotice((PreviewMetrics) metrics);
+        } else {
+            // Get filter values from UserSession if available
+            applyFilterSettingsFromSession();
+        }
 
         updateUI();
 
+        startLiveRefresh();
+    }
 
+    private void showPreviewNotice(PreviewMetrics preview) {
+        previewMode = true;
+        toggleControls(false);
+        toggleFilters(false);
+        if (previewLabel != null) {
+            previewLabel.setText(String.format("Preview: estimated from a %.0f%% sample", preview.getSampleFraction() * 100));
+            previewLabel.setVisible(true);
+            previewLabel.setManaged(true);
+        }
+    }
+
+    // Set date range constraints for both pickers
+    private void restrictDatePickers(LocalDate startDate, LocalDate endDate) {
+        startDatePicker.setDayCellFactory(picker -> new DateCell() {
+            @Override
+            public void updateItem(LocalDate date, boolean empty) {
+                super.updateItem(date, empty);
+                setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
+            }
+        });
+
+        endDatePicker.setDayCellFactory(picker -> new DateCell() {
+            @Override
+            public void updateItem(LocalDate date, boolean empty) {
+                super.updateItem(date, empty);
+                setDisable(empty || date.isBefore(startDate) || date.isAfter(endDate));
+            }
+        });
+    }
+
+    /**
+     * If the campaign is being followed from a log folder, periodically merges the newly
+     * appended logs into the metrics and refreshes the display
+     */
+    private void startLiveRefresh() {
+        LogDirectoryWatcher watcher = UserSession.getInstance().getLiveWatcher();
+        if (watcher == null || liveRefresh != null) return;
+        watcher.setErrorListener(e -> Platform.runLater(
+            () -> showAlert("Error reading appended logs: " + e.getMessage())));
+
+        liveRefresh = new Timeline(new KeyFrame(Duration.millis(watcher.getRefreshIntervalMs()),
+            e -> refreshLiveLogs(watcher)));
+        liveRefresh.setCycleCount(Animation.INDEFINITE);
+        liveRefresh.play();
+    }
+
+    private void refreshLiveLogs(LogDirectoryWatcher watcher) {
+        // Stop once this scene has been left or the folder is no longer followed
+        if (impressionsText.getScene() == null || impressionsText.getScene().getWindow() == null
+            || watcher != UserSession.getInstance().getLiveWatcher()) {
+            liveRefresh.stop();
+            return;
+        }
+        if (liveRefreshRunning) return;
+        Campaign appended = watcher.takeAppended();
+        if (appended == null) return;
+
+        liveRefreshRunning = true;
+        LocalDateTime previousStart = metrics.getCampaignStartDate();
+        LocalDateTime previousEnd = metrics.getCampaignEndDate();
+        new Thread(() -> {
+            // The columns are shared with the campaign metrics, so the append goes through them
+            // while holding the filtered metrics' lock, which their queries take too
+            timeFilteredMetrics.appendLogs(metrics, appended.getImpressionLogs(), appended.getServerLogs(),
+                appended.getClickLogs());
+
+            Platform.runLater(() -> {
+                liveRefreshRunning = false;
+                showAppendedLogs(previousStart, previousEnd);
+            });
+        }, "live-metrics-refresh").start();
+    }
+
+    // Widens the date pickers to the grown campaign and shows the metrics with the new logs
+    private void showAppendedLogs(LocalDateTime previousStart, LocalDateTime previousEnd) {
+        LocalDateTime campaignStart = metrics.getCampaignStartDate();
+        LocalDateTime campaignEnd = metrics.getCampaignEndDate();
+        if (campaignStart == null || campaignEnd == null) return;
+
+        // A range that covered the whole campaign keeps covering it as the campaign grows
+        if (previousStart == null || Objects.equals(startDatePicker.getValue(), previousStart.toLocalDate())) {
+            startDatePicker.setValue(campaignStart.toLocalDate());
+        }
+        if (previousEnd == null || Objects.equals(endDatePicker.getValue(), previousEnd.toLocalDate())) {
+            endDatePicker.setValue(campaignEnd.toLocalDate());
+        }
+        restrictDatePickers(campaignStart.toLocalDate(), campaignEnd.toLocalDate());
+        applyFilters();
+    }
+
+    // Event handler for adding another zip of logs (e.g. the next day's) to the campaign. Only the
+    // new logs are read, and for a saved campaign only they are inserted into the database.
+    @FXML
+    private void handleAppendLogs(ActionEvent event) {
+        if (metrics == null || timeFilteredMetrics == null) return;
+        if (!UserSession.getInstance().isEditor()) {
+            showAlert("You need at least Editor permissions to append logs");
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Append Logs");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("ZIP Files", "*.zip"));
+        File selected = fileChooser.showOpenDialog(appendLogsButton.getScene().getWindow());
+        if (selected == null) return;
+
+        int campaignId = UserSession.getInstance().getSavedCampaignId();
+        LocalDateTime previousStart = metrics.getCampaignStartDate();
+        LocalDateTime previousEnd = metrics.getCampaignEndDate();
+        toggleControls(true);
+        new Thread(() -> {
+            Campaign appended = new FileHandler().openZip(selected.getAbsolutePath());
+            boolean saved = true;
+            if (appended != null) {
+                timeFilteredMetrics.appendLogs(metrics, appended.getImpressionLogs(), appended.getServerLogs(),
+                    appended.getClickLogs());
+                if (campaignId >= 0) {
+                    saved = CampaignDatabase.appendLogs(campaignId, metrics, appended.getImpressionLogs(),
+                        appended.getClickLogs(), appended.getServerLogs());
+                }
+            }
+            boolean appendSaved = saved;
+            Platform.runLater(() -> {
+                toggleControls(false);
+                if (appended == null) {
+                    showAlert("Error reading logs from: " + selected.getName());
+                    return;
+                }
+                showAppendedLogs(previousStart, previousEnd);
+                if (!appendSaved) {
+                    showAlert("The logs were added to the campaign but could not be saved to the database.");
+                }
+            });
+        }, "append-logs").start();
     }
 
     private void applyFilters() {
@@ -400,7 +538,7 @@ public class MetricSceneController {
         // Update all metric text fields with filtered values
         impressionsText.setText(String.valueOf(timeFilteredMetrics.getNumberOfImpressions()));
         clicksText.setText(String.valueOf(timeFilteredMetrics.getNumberOfClicks()));
-        uniquesText.setText(String.valueOf(timeFilteredMetrics.getNumberOfUniques()));
+        showUniques(timeFilteredMetrics.getNumberOfUniques(), timeFilteredMetrics.getUniquesError());
         bouncesText.setText(String.valueOf(timeFilteredMetrics.getNumberOfBounces()));
         conversionsText.setText(String.valueOf(timeFilteredMetrics.getNumberOfConversions()));
         totalCostText.setText(String.format("%.6f", timeFilteredMetrics.getTotalCost()));
@@ -470,11 +608,15 @@ public class MetricSceneController {
 
     private void updateUI() {
         if (metrics == null) return;
+        if (metrics instanceof PreviewMetrics) {
+            updateUIWithEstimates((PreviewMetrics) metrics);
+            return;
+        }
 
         // Update the Text nodes with metric values
         impressionsText.setText(String.valueOf(metrics.getNumberOfImpressions()));
         clicksText.setText(String.valueOf(metrics.getNumberOfClicks()));
-        uniquesText.setText(String.valueOf(metrics.getNumberOfUniques()));
+        showUniques(metrics.getNumberOfUniques(), 0);
         bouncesText.setText(String.valueOf(metrics.getNumberOfBounces()));
         conversionsText.setText(String.valueOf(metrics.getNumberOfConversions()));
         totalCostText.setText(String.format("%.6f", metrics.getTotalCost()));
@@ -485,6 +627,43 @@ public class MetricSceneController {
         bounceRateText.setText(String.format("%.6f", metrics.getBounceRate()));
     }
 
+    // Estimated values are marked as approximate, with their 95% confidence interval on hover
+    private void updateUIWithEstimates(PreviewMetrics preview) {
+        showEstimate(impressionsText, preview.getImpressionsEstimate(), "%.0f");
+        showEstimate(clicksText, preview.getClicksEstimate(), "%.0f");
+        uniquesText.setText("\u2248" + preview.getNumberOfUniques());
+        showEstimate(bouncesText, preview.getBouncesEstimate(), "%.0f");
+        showEstimate(conversionsText, preview.getConversionsEstimate(), "%.0f");
+        showEstimate(totalCostText, preview.getTotalCostEstimate(), "%.6f");
+        showEstimate(ctrText, preview.getCTREstimate(), "%.6f");
+        showEstimate(cpcText, preview.getCPCEstimate(), "%.6f");
+        showEstimate(cpaText, preview.getCPAEstimate(), "%.6f");
+        showEstimate(cpmText, preview.getCPMEstimate(), "%.6f");
+        showEstimate(bounceRateText, preview.getBounceRateEstimate(), "%.6f");
+    }
+
+    // Uniques say whether they were counted exactly or estimated, and to what error
+    private void showUniques(int uniques, double error) {
+        if (error == 0) {
+            uniquesText.setText(String.valueOf(uniques));
+            Tooltip.install(uniquesText, new Tooltip("Exact count"));
+            return;
+        }
+        uniquesText.setText("\u2248" + uniques);
+        Tooltip.install(uniquesText, new Tooltip(String.format(
+            "HyperLogLog estimate, standard error \u00b1%.1f%%", error * 100)));
+    }
+
+    private void showEstimate(Text text, PreviewMetrics.Estimate estimate, String format) {
+        if (estimate.isExact()) {
+            text.setText(String.format(format, estimate.getValue()));
+            return;
+        }
+        text.setText("\u2248" + String.format(format, estimate.getValue()));
+        Tooltip.install(text, new Tooltip("95% confidence interval: " + String.format(format, estimate.getLower())
+            + " to " + String.format(format, estimate.getUpper())));
+    }
+
     // Transition back to the Main Menu (StartScene)
     @FXML
     private void handleMainMenu(ActionEvent event) {
@@ -577,6 +756,7 @@ public class MetricSceneController {
                         // This will automatically recalculate bounce-related metrics
                         new Thread(() -> {
                             metrics.setBounceCriteria(newPagesThreshold, newSecondsThreshold);
+                            timeFilteredMetrics.setBounceCriteria(newPagesThreshold, newSecondsThreshold);
 
                             // Update the UI to show the new values
                             Platform.runLater(this::updateUI);
@@ -596,6 +776,38 @@ public class MetricSceneController {
         }
     }
 
+    /**
+     * Handles the Uniques Mode button click.
+     * Lets the user choose between exact uniques and HyperLogLog estimates of a given error,
+     * which filtered totals and the uniques chart then use. Whole-campaign totals stay exact.
+     */
+    @FXML
+    private void handleChangeUniques(ActionEvent event) {
+        String[] modes = {"Exact", "Approximate (\u00b12%)", "Approximate (\u00b11%)", "Approximate (\u00b10.5%)"};
+        double[] errorTargets = {0, 0.02, 0.01, 0.005};
+        double current = UserSession.getInstance().getUniquesErrorTarget();
+        String selected = modes[0];
+        for (int i = 0; i < modes.length; i++) {
+            if (errorTargets[i] == current) selected = modes[i];
+        }
+
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(selected, modes);
+        dialog.getDialogPane().getStylesheets().add(UserSession.getInstance().getCurrentStyle());
+        dialog.getDialogPane().getStyleClass().add("bounce-dialog");
+        dialog.setTitle("Uniques Settings");
+        dialog.setHeaderText("Count uniques exactly or estimate them");
+        dialog.setContentText("Mode:");
+
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+        double errorTarget = errorTargets[Arrays.asList(modes).indexOf(result.get())];
+        UserSession.getInstance().setUniquesErrorTarget(errorTarget);
+        new Thread(() -> {
+            UserSession.getInstance().applyUniquesMode(timeFilteredMetrics);
+            Platform.runLater(this::applyFilterSettingsFromSession);
+        }).start();
+    }
+
     @FXML
     private void handleHistogramView(ActionEvent event) {
         UserSession.getInstance().setCurrentStyle(this.currentStyle);
@@ -747,12 +959,14 @@ public class MetricSceneController {
         mainMenuButton.setDisable(bool);
         adminPanelBtn.setDisable(bool);
         logoutBtn.setDisable(bool);
-        chartsViewButton.setDisable(bool);
-        histogramButton.setDisable(bool);
-        saveToDatabaseBtn.setDisable(bool);
+        chartsViewButton.setDisable(bool || previewMode);
+        histogramButton.setDisable(bool || previewMode);
+        saveToDatabaseBtn.setDisable(bool || previewMode);
+        appendLogsButton.setDisable(bool || previewMode);
     }
 
     public void toggleFilters(Boolean bool){
+        bool = bool || previewMode;
         contextFilterComboBox.setDisable(bool);
         genderFilterComboBox.setDisable(bool);
         ageFilterComboBox.setDisable(bool);
@@ -3,10 +3,17 @@ package com.example.ad_auction_dashboard.controller;
 import com.example.ad_auction_dashboard.Multimedia;
 import com.example.ad_auction_dashboard.logic.Campaign;
 import com.example.ad_auction_dashboard.logic.CampaignMetrics;
+import com.example.ad_auction_dashboard.logic.CampaignPreview;
+import com.example.ad_auction_dashboard.logic.ColumnarCampaign;
 import com.example.ad_auction_dashboard.logic.FileHandler;
+import com.example.ad_auction_dashboard.logic.IngestionJob;
+import com.example.ad_auction_dashboard.logic.LogDirectoryWatcher;
 import com.example.ad_auction_dashboard.logic.LoadCampaignDialog;
 import com.example.ad_auction_dashboard.logic.LogoutHandler;
+import com.example.ad_auction_dashboard.logic.OffHeapCampaign;
+import com.example.ad_auction_dashboard.logic.PreviewMetrics;
 import com.example.ad_auction_dashboard.logic.UserSession;
+import com.example.ad_auction_dashboard.logic.ValidationReport;
 import com.example.ad_auction_dashboard.viewer.AdminPanelScene;
 
 import java.awt.*;
@@ -26,9 +33,11 @@ import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
@@ -39,9 +48,12 @@ import javafx.scene.shape.Circle;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import java.io.File;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -67,6 +79,15 @@ public class StartSceneController {
     @FXML
     private Button logoutBtn;
 
+    @FXML
+    private Button cancelLoadBtn;
+
+    @FXML
+    private Button watchFolderBtn;
+
+    @FXML
+    private Button previewZipBtn;
+
     @FXML
     private Label userWelcomeLabel;
 
@@ -89,6 +110,17 @@ public class StartSceneController {
 
     private Campaign campaign;
 
+    // A fully loaded ZIP or watched folder is kept as columns only, a preview as a Campaign
+    private ColumnarCampaign campaignColumns;
+
+    private volatile IngestionJob loadJob;
+
+    // Share of each log read by "Preview ZIP"
+    private static final double PREVIEW_FRACTION = 0.01;
+
+    // Set when the loaded campaign came from a watched folder, started once the campaign is created
+    private LogDirectoryWatcher folderWatcher;
+
     @FXML
     public void initialize() {
         UserSession session = UserSession.getInstance();
@@ -103,6 +135,10 @@ public class StartSceneController {
             // Viewers can't import ZIP files
             loadZipBtn.setDisable(true);
             loadZipBtn.setVisible(false);
+            watchFolderBtn.setDisable(true);
+            watchFolderBtn.setVisible(false);
+            previewZipBtn.setDisable(true);
+            previewZipBtn.setVisible(false);
 
             // Show alternative button for loading from database
             loadFromDbBtn.setVisible(true);
@@ -197,31 +233,165 @@ public class StartSceneController {
     // Event handler for loading a ZIP file and creating the campaign
     @FXML
     private void handleLoadZip(ActionEvent event) {
+        File selected = chooseZip("Load ZIP File");
+        if (selected != null) {
+            loadZip(selected, false);
+        }
+    }
+
+    // Event handler for a quick approximate look at a ZIP before loading all of it
+    @FXML
+    private void handlePreviewZip(ActionEvent event) {
+        File selected = chooseZip("Preview ZIP File");
+        if (selected != null) {
+            loadZip(selected, true);
+        }
+    }
+
+    private File chooseZip(String title) {
         FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Load ZIP File");
+        fileChooser.setTitle(title);
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("ZIP Files", "*.zip"));
         fileChooser.setInitialDirectory(new File(System.getProperty("user.home") + File.separator + "Documents"));
-        File selected = fileChooser.showOpenDialog(loadZipBtn.getScene().getWindow());
-        if (selected != null) {
-            FileHandler fileHandler = new FileHandler();
-            fileHandler.setStartScene(this);
-            startLoadAnimation();
-            new Thread(() -> {
-                toggleControls(true);
-                campaign = fileHandler.openZip(selected.getAbsolutePath());
-                if (campaign != null) {
-                    statusText.setText("Campaign loaded from: " + selected.getName());
+        return fileChooser.showOpenDialog(loadZipBtn.getScene().getWindow());
+    }
+
+    private void loadZip(File selected, boolean preview) {
+        FileHandler fileHandler = new FileHandler();
+        IngestionJob job = new IngestionJob(Platform::runLater, this::updatePopup);
+        loadJob = job;
+        startLoadAnimation();
+        toggleControls(true);
+        cancelLoadBtn.setDisable(false);
+        cancelLoadBtn.setVisible(true);
+        new Thread(() -> {
+            CampaignPreview sampled = preview
+                ? fileHandler.openZipPreview(selected.getAbsolutePath(), PREVIEW_FRACTION, job, new Random())
+                : null;
+            ColumnarCampaign loadedColumns = preview ? null : fileHandler.openZipColumnar(selected.getAbsolutePath(), job);
+            Platform.runLater(() -> {
+                campaign = sampled;
+                campaignColumns = loadedColumns;
+                closeFolderWatcher();
+                if (sampled != null) {
+                    statusText.setText(String.format("Preview of: %s (%.0f%% sample, approximate)",
+                        selected.getName(), PREVIEW_FRACTION * 100));
+                } else if (loadedColumns != null) {
+                    // The rows and throughput of each log stay in the status label the progress was in
+                    statusText.setText("Campaign loaded from: " + selected.getName()
+                        + (loadedColumns instanceof OffHeapCampaign ? " (stored off the heap)" : "")
+                        + "\n" + job.getSummary());
+                    showValidationReport(job.getValidationReport());
+                } else if (job.isCancelled()) {
+                    statusText.setText("Loading cancelled.");
                 } else {
                     statusText.setText("Error loading campaign from ZIP.");
                 }
+                loadJob = null;
+                cancelLoadBtn.setVisible(false);
                 toggleControls(false);
-                Platform.runLater(this::stopLoadAnimation);
+                stopLoadAnimation();
+            });
+        }).start();
+    }
+
+    // Shows what the load rejected, once, instead of a line on stderr for every bad field
+    private void showValidationReport(ValidationReport report) {
+        if (!report.hasRejections()) return;
+        TextArea details = new TextArea(report.getSummary());
+        details.setEditable(false);
+        details.setWrapText(false);
+        details.setPrefColumnCount(70);
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Invalid Log Rows");
+        alert.setHeaderText("Some rows in the loaded logs have invalid values.");
+        alert.getDialogPane().setContent(details);
+        alert.initOwner(statusText.getScene().getWindow());
+        alert.show();
+    }
+
+    // Event handler for following a folder of CSV logs that keeps being appended to
+    @FXML
+    private void handleWatchFolder(ActionEvent event) {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Watch Log Folder");
+        directoryChooser.setInitialDirectory(new File(System.getProperty("user.home") + File.separator + "Documents"));
+        File selected = directoryChooser.showDialog(watchFolderBtn.getScene().getWindow());
+        if (selected != null) {
+            startLoadAnimation();
+            toggleControls(true);
+            new Thread(() -> {
+                LogDirectoryWatcher watcher = new LogDirectoryWatcher(selected.toPath());
+                Campaign loaded = null;
+                String error = null;
+                try {
+                    // The first read takes everything already in the folder
+                    loaded = watcher.readAppended();
+                } catch (IOException e) {
+                    error = e.getMessage();
+                }
+                // Kept as columns, which the lines appended later are added to without copying the rest
+                ColumnarCampaign initial = loaded == null ? null : ColumnarCampaign.from(loaded);
+                String readError = error;
+                Platform.runLater(() -> {
+                    closeFolderWatcher();
+                    campaign = null;
+                    campaignColumns = initial;
+                    if (initial != null) {
+                        folderWatcher = watcher;
+                        statusText.setText("Watching logs in: " + selected.getName());
+                    } else if (readError != null) {
+                        statusText.setText("Error reading log folder: " + readError);
+                    } else {
+                        statusText.setText("No logs found in: " + selected.getName());
+                    }
+                    toggleControls(false);
+                    stopLoadAnimation();
+                });
             }).start();
         }
     }
 
-    public void updatePopup(String logType, int count) {
-        statusText.setText("Loading " + logType + " Log Number: " + count);
+    private void closeFolderWatcher() {
+        if (folderWatcher != null) {
+            try {
+                folderWatcher.close();
+            } catch (IOException e) {
+                statusText.setText("Error closing log folder watcher: " + e.getMessage());
+            }
+            folderWatcher = null;
+        }
+    }
+
+    // Stops the running ZIP load, the partially read logs are thrown away
+    @FXML
+    private void handleCancelLoad(ActionEvent event) {
+        IngestionJob job = loadJob;
+        if (job != null) {
+            job.cancel();
+            cancelLoadBtn.setDisable(true);
+            statusText.setText("Cancelling...");
+        }
+    }
+
+    // Called on the FX thread with the latest progress of every log in the ZIP
+    public void updatePopup(List<IngestionJob.Progress> progress) {
+        if (progress.isEmpty() || loadJob == null || loadJob.isCancelled()) return;
+        StringBuilder status = new StringBuilder("Loading logs");
+        for (IngestionJob.Progress log : progress) {
+            status.append("\n").append(log.getLogType()).append(": ");
+            if (log.getFraction() >= 0) {
+                status.append(String.format("%.0f%%, ", log.getFraction() * 100));
+            }
+            status.append(String.format("%,d rows, %,.0f rows/s", log.getRows(), log.getRowsPerSecond()));
+            if (log.isDone()) {
+                status.append(", done");
+            } else if (log.getEtaSeconds() >= 0) {
+                status.append(String.format(", %.0f s left", log.getEtaSeconds()));
+            }
+        }
+        statusText.setText(status.toString());
     }
     public void updatePopup(String logType){
         statusText.setText("Loading all " + logType + " logs from the database!");
@@ -325,14 +495,34 @@ public class StartSceneController {
     // Event handler for switching to the campaign screen
     @FXML
     private void handleCreateCampaign(ActionEvent event) {
-        if (campaign == null) {
+        if (campaign == null && campaignColumns == null) {
             statusText.setText("Please load a ZIP file first.");
             return;
         }
+        // Started first, so a folder that cannot be followed is reported rather than opened as a
+        // live campaign that never refreshes
+        if (folderWatcher != null) {
+            try {
+                folderWatcher.start();
+            } catch (IOException e) {
+                closeFolderWatcher();
+                statusText.setText("Error watching log folder: " + e.getMessage()
+                    + "\nCreate the campaign again to open it without live updates.");
+                return;
+            }
+        }
         toggleControls(true);
         statusText.setText("Campaign created. Switching scene...");
-        CampaignMetrics metrics = new CampaignMetrics(campaign);
+        CampaignMetrics metrics = campaignColumns != null
+            ? new CampaignMetrics(campaignColumns)
+            : campaign instanceof CampaignPreview
+            ? new PreviewMetrics((CampaignPreview) campaign)
+            : new CampaignMetrics(campaign);
         UserSession.getInstance().setCurrentStyle(currentStyle);
+        // A campaign from a watched folder keeps receiving the lines appended to its logs
+        UserSession.getInstance().setLiveWatcher(folderWatcher);
+        UserSession.getInstance().setSavedCampaignId(-1);
+        folderWatcher = null;
         statusText.getScene().setCursor(Cursor.WAIT);
         new Thread(() -> {
             try {
@@ -366,10 +556,15 @@ public class StartSceneController {
         LoadCampaignDialog.showDialog(stage, this);
     }
 
-    public void createCampaignFromData(Campaign campaign) {
+    /**
+     * Opens a campaign loaded from the database, whose logs appended later are saved under its ID
+     */
+    public void createCampaignFromData(Campaign campaign, int campaignId) {
         statusText.setText("Campaign loaded. Switching to metrics view...");
         CampaignMetrics metrics = new CampaignMetrics(campaign);
         UserSession.getInstance().setCurrentStyle(currentStyle);
+        UserSession.getInstance().setLiveWatcher(null);
+        UserSession.getInstance().setSavedCampaignId(campaignId);
         statusText.getScene().setCursor(Cursor.WAIT);
         new Thread(() -> {
             try {
@@ -431,6 +626,8 @@ public class StartSceneController {
         logoutBtn.setDisable(bool);
         adminPanelBtn.setDisable(bool);
         loadZipBtn.setDisable(bool);
+        watchFolderBtn.setDisable(bool);
+        previewZipBtn.setDisable(bool);
         loadFromDbBtn.setDisable(bool);
         createCampaignBtn.setDisable(bool);
     }
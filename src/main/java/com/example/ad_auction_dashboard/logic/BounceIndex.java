@@ -0,0 +1,106 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.Arrays;
+
+/**
+ * The pages viewed and seconds on site of every server visit, for counting bounces under any
+ * criteria without going back to the logs or their dates.
+ *
+ * Visits are also counted in a grid of (pages, seconds) cells, the last row and column holding
+ * everything above them. From its cumulative sums, the visits with at most P pages or at most S
+ * seconds are count(pages <= P) + count(seconds <= S) - count(both), three lookups for any
+ * criteria inside the grid, which the default and any usual criteria are. Criteria outside it
+ * are counted from the visits, still without a date.
+ */
+final class BounceIndex {
+
+    // Grid of a whole campaign, up to 30 pages and 510 seconds
+    private static final int PAGE_CELLS = 32;
+    private static final int SECOND_CELLS = 512;
+
+    // Seconds of a visit without both dates, which is never a bounce
+    private static final int NO_VISIT = Integer.MIN_VALUE;
+
+    private int visits;
+    private int[] pages = new int[16];
+    private int[] seconds = new int[16];
+
+    // Visits per cell, row by pages and column by seconds
+    private final int[] cells = new int[PAGE_CELLS * SECOND_CELLS];
+    // Cumulative sums of the cells, worked out again after visits are added
+    private int[] sums;
+
+    /**
+     * Adds the next server visit
+     * @param entry the entry date in epoch seconds, or a LogDate sentinel; likewise exit
+     */
+    void add(int pagesViewed, long entry, long exit) {
+        if (visits == pages.length) {
+            int capacity = visits * 2;
+            pages = Arrays.copyOf(pages, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+        }
+        if (ColumnarCampaign.isDate(entry) && ColumnarCampaign.isDate(exit)) {
+            int onSite = (int) Math.max(NO_VISIT + 1, Math.min(exit - entry, Integer.MAX_VALUE));
+            pages[visits] = pagesViewed;
+            seconds[visits] = onSite;
+            cells[cell(pagesViewed, onSite)]++;
+            sums = null;
+        } else {
+            seconds[visits] = NO_VISIT;
+        }
+        visits++;
+    }
+
+    /**
+     * @return the visits with both dates and at most the given pages or seconds
+     */
+    int countBounces(int pagesThreshold, int secondsThreshold) {
+        if (pagesThreshold >= 0 && pagesThreshold < PAGE_CELLS - 1
+            && secondsThreshold >= 0 && secondsThreshold < SECOND_CELLS - 1) {
+            int[] cumulative = cumulativeSums();
+            return cumulative[at(pagesThreshold, SECOND_CELLS - 1)]
+                + cumulative[at(PAGE_CELLS - 1, secondsThreshold)]
+                - cumulative[at(pagesThreshold, secondsThreshold)];
+        }
+        int bounces = 0;
+        for (int i = 0; i < visits; i++) {
+            if (seconds[i] != NO_VISIT && (pages[i] <= pagesThreshold || seconds[i] <= secondsThreshold)) {
+                bounces++;
+            }
+        }
+        return bounces;
+    }
+
+    int getVisits() {
+        return visits;
+    }
+
+    // sums[p][s] is the number of visits in cells up to p pages and up to s seconds
+    private int[] cumulativeSums() {
+        if (sums == null) {
+            int[] cumulative = new int[cells.length];
+            for (int p = 0; p < PAGE_CELLS; p++) {
+                int row = 0;
+                for (int s = 0; s < SECOND_CELLS; s++) {
+                    row += cells[at(p, s)];
+                    cumulative[at(p, s)] = row + (p == 0 ? 0 : cumulative[at(p - 1, s)]);
+                }
+            }
+            sums = cumulative;
+        }
+        return sums;
+    }
+
+    // Negative values go in the first cell and values past the grid in the last, which keeps
+    // the counts exact for any threshold inside the grid
+    private int cell(int pagesViewed, int onSite) {
+        int p = Math.max(0, Math.min(pagesViewed, PAGE_CELLS - 1));
+        int s = Math.max(0, Math.min(onSite, SECOND_CELLS - 1));
+        return at(p, s);
+    }
+
+    private int at(int p, int s) {
+        return p * SECOND_CELLS + s;
+    }
+}
@@ -1,11 +1,25 @@
 package com.example.ad_auction_dashboard.logic;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The logs of a campaign as objects. Appended logs go into spare room at the end of each log,
+ * which grows by half again when it runs out, so appending a day's logs copies only those
+ * logs however long the campaign has run. The log getters trim the spare room off first.
+ */
 public class Campaign {
 
     private ImpressionLog[] impressionLogs;
     private ClickLog[] clickLogs;
     private ServerLog[] serverLogs;
 
+    // Logs held at the start of each array, the rest being room for appended logs
+    private int impressionCount;
+    private int clickCount;
+    private int serverCount;
+
     public Campaign(ImpressionLog[] impressionLogs, ClickLog[] clickLogs, ServerLog[] serverLogs){
         this.setImpressionLogs(impressionLogs);
         this.setClickLogs(clickLogs);
@@ -14,25 +28,84 @@ public class Campaign {
 
     public void setImpressionLogs(ImpressionLog[] impressionLogs) {
         this.impressionLogs = impressionLogs;
+        this.impressionCount = impressionLogs == null ? 0 : impressionLogs.length;
     }
 
     public ImpressionLog[] getImpressionLogs() {
+        impressionLogs = trimmed(impressionLogs, impressionCount);
         return impressionLogs;
     }
 
     public void setClickLogs(ClickLog[] clickLogs) {
         this.clickLogs = clickLogs;
+        this.clickCount = clickLogs == null ? 0 : clickLogs.length;
     }
 
     public ClickLog[] getClickLogs() {
+        clickLogs = trimmed(clickLogs, clickCount);
         return clickLogs;
     }
 
     public void setServerLogs(ServerLog[] serverLogs) {
         this.serverLogs = serverLogs;
+        this.serverCount = serverLogs == null ? 0 : serverLogs.length;
     }
 
     public ServerLog[] getServerLogs() {
+        serverLogs = trimmed(serverLogs, serverCount);
         return serverLogs;
     }
+
+    /**
+     * Read-only views of the logs held so far, without trimming or copying them
+     */
+    public List<ImpressionLog> getImpressionLogView() {
+        return view(impressionLogs, impressionCount);
+    }
+
+    public List<ClickLog> getClickLogView() {
+        return view(clickLogs, clickCount);
+    }
+
+    public List<ServerLog> getServerLogView() {
+        return view(serverLogs, serverCount);
+    }
+
+    /**
+     * Adds newly received logs after the ones already in the campaign
+     */
+    public void appendLogs(ImpressionLog[] newImpressionLogs, ClickLog[] newClickLogs, ServerLog[] newServerLogs) {
+        if (newImpressionLogs != null && newImpressionLogs.length > 0) {
+            impressionLogs = grown(impressionLogs, impressionCount, newImpressionLogs);
+            impressionCount += newImpressionLogs.length;
+        }
+        if (newClickLogs != null && newClickLogs.length > 0) {
+            clickLogs = grown(clickLogs, clickCount, newClickLogs);
+            clickCount += newClickLogs.length;
+        }
+        if (newServerLogs != null && newServerLogs.length > 0) {
+            serverLogs = grown(serverLogs, serverCount, newServerLogs);
+            serverCount += newServerLogs.length;
+        }
+    }
+
+    // The logs with the new ones copied in after the first count, in a larger array if they do not fit
+    private static <T> T[] grown(T[] logs, int count, T[] newLogs) {
+        if (logs == null) return newLogs.clone();
+        int required = count + newLogs.length;
+        if (required > logs.length) {
+            logs = Arrays.copyOf(logs, Math.max(required, logs.length + (logs.length >> 1)));
+        }
+        System.arraycopy(newLogs, 0, logs, count, newLogs.length);
+        return logs;
+    }
+
+    private static <T> T[] trimmed(T[] logs, int count) {
+        return logs == null || logs.length == count ? logs : Arrays.copyOf(logs, count);
+    }
+
+    private static <T> List<T> view(T[] logs, int count) {
+        return logs == null ? Collections.emptyList()
+            : Collections.unmodifiableList(Arrays.asList(logs).subList(0, count));
+    }
 }
@@ -10,6 +10,8 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -109,9 +111,9 @@ public class CampaignDatabase {
                 savePrecomputedMetrics(conn, campaignId, campaignMetrics);
 
                 // Insert log data
-                insertImpressionLogs(conn, campaignMetrics.getImpressionLogs(), campaignId);
-                insertClickLogs(conn, campaignMetrics.getClickLogs(), campaignId);
-                insertServerLogs(conn, campaignMetrics.getServerLogs(), campaignId);
+                insertImpressionLogs(conn, campaignMetrics.getImpressionLogView(), campaignId);
+                insertClickLogs(conn, campaignMetrics.getClickLogView(), campaignId);
+                insertServerLogs(conn, campaignMetrics.getServerLogView(), campaignId);
 
                 // Grant access to the user who created the campaign
                 assignCampaignToUserInternal(conn, campaignId, userId, userId);
@@ -142,6 +144,85 @@ public class CampaignDatabase {
         }
     }
 
+    /**
+     * Append newly received logs to a saved campaign. Only the new rows are inserted;
+     * the stored date range and precomputed metrics are replaced with those of the
+     * metrics object, which should already have had the same logs appended.
+     *
+     * @param campaignId The ID of the saved campaign
+     * @param campaignMetrics The campaign metrics after appendLogs
+     * @param newImpressionLogs The impression logs to add
+     * @param newClickLogs The click logs to add
+     * @param newServerLogs The server logs to add
+     * @return True if successful, false otherwise
+     */
+    public static boolean appendLogs(int campaignId, CampaignMetrics campaignMetrics, ImpressionLog[] newImpressionLogs,
+                                     ClickLog[] newClickLogs, ServerLog[] newServerLogs) {
+        if (!ensureDatabaseInitialized()) {
+            return false;
+        }
+
+        try (Connection conn = getConnection()) {
+            // Begin transaction
+            conn.setAutoCommit(false);
+
+            try {
+                insertImpressionLogs(conn, listOf(newImpressionLogs), campaignId);
+                insertClickLogs(conn, listOf(newClickLogs), campaignId);
+                insertServerLogs(conn, listOf(newServerLogs), campaignId);
+
+                updateCampaignDates(conn, campaignId, campaignMetrics);
+                savePrecomputedMetrics(conn, campaignId, campaignMetrics);
+
+                conn.commit();
+
+                System.out.println("Logs appended successfully to campaign ID: " + campaignId);
+                return true;
+            } catch (SQLException e) {
+                // Rollback on error
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    System.err.println("Error rolling back transaction: " + ex.getMessage());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error appending logs: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static void updateCampaignDates(Connection conn, int campaignId, CampaignMetrics campaignMetrics) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "UPDATE Campaigns SET start_date = ?, end_date = ? WHERE campaign_id = ?")) {
+
+            LocalDateTime startDate = campaignMetrics.getCampaignStartDate();
+            LocalDateTime endDate = campaignMetrics.getCampaignEndDate();
+
+            if (startDate != null) {
+                stmt.setTimestamp(1, Timestamp.valueOf(startDate));
+            } else {
+                stmt.setNull(1, Types.TIMESTAMP);
+            }
+
+            if (endDate != null) {
+                stmt.setTimestamp(2, Timestamp.valueOf(endDate));
+            } else {
+                stmt.setNull(2, Types.TIMESTAMP);
+            }
+
+            stmt.setInt(3, campaignId);
+
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("Campaign not found with ID: " + campaignId);
+            }
+        }
+    }
+
     /**
      * Grant access to a campaign to all admin users
      *
@@ -276,7 +357,7 @@ public class CampaignDatabase {
             Campaign campaign = new Campaign(impressionLogs, clickLogs, serverLogs);
             System.out.println("Campaign loaded successfully with ID: " + campaignId);
             Platform.runLater(() -> {startSceneController.stopLoadAnimation();
-                startSceneController.createCampaignFromData(campaign);});
+                startSceneController.createCampaignFromData(campaign, campaignId);});
             return campaign;
         } catch (Exception e) {
             System.err.println("Error loading campaign: " + e.getMessage());
@@ -1089,8 +1170,12 @@ public class CampaignDatabase {
         }
     }
 
-    private static void insertImpressionLogs(Connection conn, ImpressionLog[] logs, int campaignId) throws SQLException {
-        if (logs == null || logs.length == 0) {
+    private static <T> List<T> listOf(T[] logs) {
+        return logs == null ? Collections.emptyList() : Arrays.asList(logs);
+    }
+
+    private static void insertImpressionLogs(Connection conn, List<ImpressionLog> logs, int campaignId) throws SQLException {
+        if (logs.isEmpty()) {
             return;
         }
 
@@ -1127,8 +1212,8 @@ public class CampaignDatabase {
         }
     }
 
-    private static void insertClickLogs(Connection conn, ClickLog[] logs, int campaignId) throws SQLException {
-        if (logs == null || logs.length == 0) {
+    private static void insertClickLogs(Connection conn, List<ClickLog> logs, int campaignId) throws SQLException {
+        if (logs.isEmpty()) {
             return;
         }
 
@@ -1161,8 +1246,8 @@ public class CampaignDatabase {
         }
     }
 
-    private static void insertServerLogs(Connection conn, ServerLog[] logs, int campaignId) throws SQLException {
-        if (logs == null || logs.length == 0) {
+    private static void insertServerLogs(Connection conn, List<ServerLog> logs, int campaignId) throws SQLException {
+        if (logs.isEmpty()) {
             return;
         }
 
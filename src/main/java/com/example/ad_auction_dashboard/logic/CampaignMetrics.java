@@ -1,11 +1,14 @@
 package com.example.ad_auction_dashboard.logic;
 
 import java.text.SimpleDateFormat;
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 
 public class CampaignMetrics {
     // Cached metric fields
@@ -20,38 +23,120 @@ public class CampaignMetrics {
     private double cpa;   // cost-per-acquisition
     private double cpm;   // cost-per-thousand impressions
     private double bounceRate;
-    private int bouncePagesThreshold = 1;
-    private int bounceSecondsThreshold = 4;
-    private final ImpressionLog[] imps;
-    private final ServerLog[] srv;
-    private final ClickLog[] cls;
 
-    private final LocalDateTime campaignStart;
-    private final LocalDateTime getCampaignEnd;
+    private LocalDateTime campaignStart;
+    private LocalDateTime getCampaignEnd;
+
+    // Every count, sum, unique user and date the metrics come from, each batch of logs added
+    // in one pass per log. It keeps the users seen so that appended clicks only need checking
+    // against them, and the bounce criteria.
+    private final MetricsAccumulator totals = new MetricsAccumulator();
 
 
     // Possibly store references if needed
     private Campaign campaign;
 
+    // The logs as columns: the source of every metric for a columnar campaign, otherwise
+    // built from the log objects the first time getColumns is called
+    private ColumnarCampaign columns;
+    private final boolean columnar;
+
+    // Columnar campaigns with at least this many rows are aggregated on the common pool
+    private static final long PARALLEL_THRESHOLD_ROWS = 1L << 20;
+    // Where the columns are aggregated, or null to aggregate them on the calling thread
+    private final ForkJoinPool pool;
+
     public CampaignMetrics(Campaign campaign) {
         this.campaign = campaign;
-         this.imps = campaign.getImpressionLogs();
-         this.srv = campaign.getServerLogs();
-         this.cls = campaign.getClickLogs();
-         this.campaignStart = getCampaignStartDate();
-         this.getCampaignEnd = getCampaignEndDate();
-         computeAllMetrics();
+        this.columnar = false;
+        this.pool = null;
+         totals.addLogs(campaign.getImpressionLogs(), campaign.getClickLogs(), campaign.getServerLogs());
+         takeTotals();
+    }
+
+    /**
+     * Computes the metrics straight from columns, e.g. those of FileHandler.openZipColumnar,
+     * so no log objects exist for the campaign unless the log getters are called. Campaigns of
+     * a million rows or more are aggregated in parallel on the common ForkJoinPool.
+     */
+    public CampaignMetrics(ColumnarCampaign columns) {
+        this(columns, rowCount(columns) >= PARALLEL_THRESHOLD_ROWS ? ForkJoinPool.commonPool() : null);
+    }
+
+    /**
+     * Computes the metrics from columns split into ranges aggregated on the given pool, as are
+     * any logs appended later. The total cost is summed over the same ranges in the same order
+     * whatever the parallelism of the pool, so it is the same on any machine.
+     * @param pool the pool to aggregate on, or null to aggregate on the calling thread
+     */
+    public CampaignMetrics(ColumnarCampaign columns, ForkJoinPool pool) {
+        this.columns = columns;
+        this.columnar = true;
+        this.pool = pool;
+        addColumns(0, 0, 0);
+        takeTotals();
+    }
+
+    private static long rowCount(ColumnarCampaign columns) {
+        return (long) columns.getImpressionCount() + columns.getClickCount() + columns.getServerLogCount();
+    }
+
+    private void addColumns(int impFrom, int clickFrom, int serverFrom) {
+        if (pool == null) {
+            totals.addColumns(columns, impFrom, clickFrom, serverFrom);
+        } else {
+            totals.addColumns(columns, impFrom, clickFrom, serverFrom, pool);
+        }
     }
 
-    private void computeAllMetrics() {
+    /**
+     * Merges a delta of new logs (e.g. the next day's files) into the campaign.
+     * Only the new logs are scanned; totals, uniques, bounces, conversions and the
+     * campaign date range are updated from them and the rates are recomputed.
+     */
+    public synchronized void appendLogs(ImpressionLog[] newImps, ClickLog[] newCls, ServerLog[] newSrv) {
+        newImps = newImps == null ? new ImpressionLog[0] : newImps;
+        newCls = newCls == null ? new ClickLog[0] : newCls;
+        newSrv = newSrv == null ? new ServerLog[0] : newSrv;
+
+        if (columnar) {
+            int impFrom = columns.getImpressionCount();
+            int clickFrom = columns.getClickCount();
+            int serverFrom = columns.getServerLogCount();
+            columns.appendLogs(newImps, newCls, newSrv);
+            addColumns(impFrom, clickFrom, serverFrom);
+            takeTotals();
+            return;
+        }
+        if (columns != null) {
+            columns.appendLogs(newImps, newCls, newSrv);
+        }
 
+        // The campaign grows its logs in place, so only the new logs are copied
+        campaign.appendLogs(newImps, newCls, newSrv);
+
+        totals.addLogs(newImps, newCls, newSrv);
+        takeTotals();
+    }
+
+    /**
+     * Copies the totals of the accumulator into the metrics and recomputes the rates from them
+     */
+    private void takeTotals() {
+        this.numberOfImpressions = totals.getImpressions();
+        this.numberOfClicks = totals.getClicks();
+        this.numberOfUniques = totals.getUniques();
+        this.numberOfBounces = totals.getBounces();
+        this.numberOfConversions = totals.getConversions();
+        this.totalCost = totals.getTotalCost();
+        if (totals.hasDates()) {
+            this.campaignStart = ColumnarCampaign.toLocalDateTime(totals.getFirstSecond());
+            this.getCampaignEnd = ColumnarCampaign.toLocalDateTime(totals.getLastSecond());
+        }
+        computeRates();
+    }
 
-        this.numberOfImpressions = calculateImpressions(imps);
-        this.numberOfClicks = calculateClicks(cls);
-        this.numberOfUniques = calculateUniques(cls);
-        calculateNumBounces(srv);
-        calculateConversion(srv);
-        this.totalCost = calculateTotalCost(imps,cls);
+    private void computeRates() {
         this.ctr = calculateCTR(numberOfImpressions,numberOfClicks);
         this.cpc = calculateCPC(totalCost,numberOfClicks);
         this.cpa = calculateCPA(numberOfConversions, totalCost);
@@ -60,85 +145,10 @@ public class CampaignMetrics {
 
     }
 
-    private int calculateImpressions(ImpressionLog[] imps){
-        if (imps == null) return 0;
-        return imps.length;
-
-    }
-
-    private int calculateClicks(ClickLog[] cls){
-        if (cls == null) return 0;
-        return cls.length;    }
-
-    private int calculateUniques(ClickLog[] cls){
-        if (cls==null) return 0;
-
-        Set<String> uniqueUserIds = new HashSet<>();
-        for (ClickLog c : cls){
-            uniqueUserIds.add(c.getId());
-        }
-
-        return  uniqueUserIds.size();
-    }
-
-
-    private void calculateNumBounces(ServerLog[] srv ){
-
-        if (srv==null) return;
-
-        for (ServerLog s: srv){
-            LogDate entryLd = s.getEntryDate();
-            LogDate exitLd  = s.getExitDate();
-
-            if (entryLd == null || exitLd == null || !entryLd.getExists() || !exitLd.getExists()) {
-                continue;
-            }
-
-            // Convert LogDate objects to LocalDateTime
-            LocalDateTime entry = LocalDateTime.of(
-                entryLd.getYear(), entryLd.getMonth(), entryLd.getDay(),
-                entryLd.getHour(), entryLd.getMinute(), entryLd.getSecond()
-            );
-            LocalDateTime exit = LocalDateTime.of(
-                exitLd.getYear(), exitLd.getMonth(), exitLd.getDay(),
-                exitLd.getHour(), exitLd.getMinute(), exitLd.getSecond()
-            );
-
-            // Calculate the difference in seconds
-            long diffSeconds = Duration.between(entry, exit).getSeconds();
-
-
-            if (s.getPagesViewed() <= bouncePagesThreshold || diffSeconds <= bounceSecondsThreshold ){
-                this.numberOfBounces++;
-            }
-        }
-    }
-
     // Recompute only the bounce-related metrics
     public void recomputeBounceMetrics() {
-        // Reset bounce count
-        this.numberOfBounces = 0;
-        if (srv != null) {
-            for (ServerLog s : srv) {
-                LogDate entryLd = s.getEntryDate();
-                LogDate exitLd  = s.getExitDate();
-                if (entryLd == null || exitLd == null || !entryLd.getExists() || !exitLd.getExists()) {
-                    continue;
-                }
-                LocalDateTime entry = LocalDateTime.of(
-                    entryLd.getYear(), entryLd.getMonth(), entryLd.getDay(),
-                    entryLd.getHour(), entryLd.getMinute(), entryLd.getSecond()
-                );
-                LocalDateTime exit = LocalDateTime.of(
-                    exitLd.getYear(), exitLd.getMonth(), exitLd.getDay(),
-                    exitLd.getHour(), exitLd.getMinute(), exitLd.getSecond()
-                );
-                long diffSeconds = Duration.between(entry, exit).getSeconds();
-                if (s.getPagesViewed() <= bouncePagesThreshold || diffSeconds <= bounceSecondsThreshold) {
-                    this.numberOfBounces++;
-                }
-            }
-        }
+        // Counted from the bounce index of the metrics, so no log is read again
+        this.numberOfBounces = totals.getBounces();
         // Update bounce rate (assuming bounce rate = bounces / clicks)
         if (this.numberOfClicks != 0) {
             this.bounceRate = (double) this.numberOfBounces / this.numberOfClicks;
@@ -152,37 +162,11 @@ public class CampaignMetrics {
         if (pagesThreshold < 0 || secondsThreshold < 0) {
             throw new IllegalArgumentException("Bounce criteria must be non-negative.");
         }
-        this.bouncePagesThreshold = pagesThreshold;
-        this.bounceSecondsThreshold = secondsThreshold;
+        totals.setBounceCriteria(pagesThreshold, secondsThreshold);
         // If desired, recompute bounce metrics immediately:
         recomputeBounceMetrics();
     }
 
-    private void calculateConversion(ServerLog[] srv){
-
-        if (srv == null) return;
-        for (ServerLog s: srv){
-            if (s.getConversion()){
-                this.numberOfConversions++;
-            }
-        }
-    }
-
-    private double calculateTotalCost(ImpressionLog[] imps, ClickLog[] cls){
-        double totalCost=0;
-
-        if (imps == null && cls ==null) return 0;
-
-        for (ImpressionLog i: imps){
-            totalCost += i.getImpressionCost();
-        }
-        for (ClickLog c : cls){
-            totalCost += c.getClickCost();
-        }
-
-        return totalCost ;
-    }
-
     private double calculateCTR(int imps, int cls){
         if (imps ==0) return 0;
 
@@ -215,97 +199,11 @@ public class CampaignMetrics {
     }
 
     public LocalDateTime getCampaignStartDate() {
-        LocalDateTime earliest = null;
-
-        // Check impressions
-        if (imps != null) {
-            for (ImpressionLog imp : imps) {
-                LogDate ld = imp.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime dt = LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(),
-                        ld.getHour(), ld.getMinute(), ld.getSecond());
-                    if (earliest == null || dt.isBefore(earliest)) {
-                        earliest = dt;
-                    }
-                }
-            }
-        }
-
-        // Check clicks
-        if (cls != null) {
-            for (ClickLog cl : cls) {
-                LogDate ld = cl.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime dt = LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(),
-                        ld.getHour(), ld.getMinute(), ld.getSecond());
-                    if (earliest == null || dt.isBefore(earliest)) {
-                        earliest = dt;
-                    }
-                }
-            }
-        }
-
-        // Check server logs (using entry date)
-        if (srv != null) {
-            for (ServerLog s : srv) {
-                LogDate ld = s.getEntryDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime dt = LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(),
-                        ld.getHour(), ld.getMinute(), ld.getSecond());
-                    if (earliest == null || dt.isBefore(earliest)) {
-                        earliest = dt;
-                    }
-                }
-            }
-        }
-        return earliest;
+        return campaignStart;
     }
 
     public LocalDateTime getCampaignEndDate() {
-        LocalDateTime latest = null;
-
-        // Check impressions
-        if (imps != null) {
-            for (ImpressionLog imp : imps) {
-                LogDate ld = imp.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime dt = LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(),
-                        ld.getHour(), ld.getMinute(), ld.getSecond());
-                    if (latest == null || dt.isAfter(latest)) {
-                        latest = dt;
-                    }
-                }
-            }
-        }
-
-        // Check clicks
-        if (cls != null) {
-            for (ClickLog cl : cls) {
-                LogDate ld = cl.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime dt = LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(),
-                        ld.getHour(), ld.getMinute(), ld.getSecond());
-                    if (latest == null || dt.isAfter(latest)) {
-                        latest = dt;
-                    }
-                }
-            }
-        }
-
-        // Check server logs (using entry date)
-        if (srv != null) {
-            for (ServerLog s : srv) {
-                LogDate ld = s.getEntryDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime dt = LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(),
-                        ld.getHour(), ld.getMinute(), ld.getSecond());
-                    if (latest == null || dt.isAfter(latest)) {
-                        latest = dt;
-                    }
-                }
-            }
-        }
-        return latest;
+        return getCampaignEnd;
     }
 
     public int getNumberOfImpressions() {
@@ -352,23 +250,85 @@ public class CampaignMetrics {
         return bounceRate;
     }
 
+    /**
+     * A copy of the impression logs. Use getImpressionLogView, or getColumns to read the rows
+     * without creating any objects, rather than copying every log to read through it.
+     */
     public ImpressionLog[] getImpressionLogs() {
+        if (columnar) return columns.toImpressionLogs();
+        ImpressionLog[] imps = campaign.getImpressionLogs();
         return imps == null ? null : imps.clone();
     }
     public ClickLog[] getClickLogs() {
+        if (columnar) return columns.toClickLogs();
+        ClickLog[] cls = campaign.getClickLogs();
         return cls == null ? null : cls.clone();
     }
 
     public ServerLog[] getServerLogs() {
+        if (columnar) return columns.toServerLogs();
+        ServerLog[] srv = campaign.getServerLogs();
         return srv == null ? null : srv.clone();
     }
 
+    /**
+     * A read-only view of the impression logs loaded so far, without copying them: the log
+     * array itself, or for a columnar campaign a list making the log of a row as it is read
+     */
+    public List<ImpressionLog> getImpressionLogView() {
+        if (columnar) return new RowView<>(columns.getImpressionCount(), columns::toImpressionLog);
+        return campaign.getImpressionLogView();
+    }
+
+    public List<ClickLog> getClickLogView() {
+        if (columnar) return new RowView<>(columns.getClickCount(), columns::toClickLog);
+        return campaign.getClickLogView();
+    }
+
+    public List<ServerLog> getServerLogView() {
+        if (columnar) return new RowView<>(columns.getServerLogCount(), columns::toServerLog);
+        return campaign.getServerLogView();
+    }
+
+    // The rows of a log as an unmodifiable list, the same size however many rows are appended later
+    private static final class RowView<T> extends AbstractList<T> implements RandomAccess {
+        private final int size;
+        private final IntFunction<T> row;
+
+        RowView(int size, IntFunction<T> row) {
+            this.size = size;
+            this.row = row;
+        }
+
+        @Override
+        public T get(int index) {
+            return row.apply(Objects.checkIndex(index, size));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * The campaign as columns, shared by everything built on these metrics (TimeFilteredMetrics
+     * in particular) rather than each scene copying the logs again. Logs appended through
+     * appendLogs are added to them too.
+     */
+    public synchronized ColumnarCampaign getColumns() {
+        if (columns == null) {
+            columns = ColumnarCampaign.of(campaign.getImpressionLogs(), campaign.getClickLogs(), campaign.getServerLogs());
+        }
+        return columns;
+    }
+
     public int getBouncePagesThreshold(){
-        return bouncePagesThreshold;
+        return totals.getBouncePagesThreshold();
     }
 
     public int getBounceSecondsThreshold(){
-        return bounceSecondsThreshold;
+        return totals.getBounceSecondsThreshold();
     }
 
 }
@@ -0,0 +1,50 @@
+package com.example.ad_auction_dashboard.logic;
+
+/**
+ * A campaign holding a uniform random sample of each log rather than every row, as read by
+ * FileHandler.openZipPreview. Every row is still counted while the zip is streamed, so the
+ * full size of each log is known exactly and PreviewMetrics can scale the sample up to it.
+ */
+public class CampaignPreview extends Campaign {
+
+    private final double sampleFraction;
+    private final long totalImpressions;
+    private final long totalClicks;
+    private final long totalServerLogs;
+
+    public CampaignPreview(ImpressionLog[] impressionLogs, ClickLog[] clickLogs, ServerLog[] serverLogs,
+                           long totalImpressions, long totalClicks, long totalServerLogs, double sampleFraction) {
+        super(impressionLogs, clickLogs, serverLogs);
+        this.totalImpressions = totalImpressions;
+        this.totalClicks = totalClicks;
+        this.totalServerLogs = totalServerLogs;
+        this.sampleFraction = sampleFraction;
+    }
+
+    /**
+     * The fraction of each log that was asked for, the sample sizes themselves are the array lengths
+     */
+    public double getSampleFraction() {
+        return sampleFraction;
+    }
+
+    public long getTotalImpressions() {
+        return totalImpressions;
+    }
+
+    public long getTotalClicks() {
+        return totalClicks;
+    }
+
+    public long getTotalServerLogs() {
+        return totalServerLogs;
+    }
+
+    /**
+     * A preview is a fixed sample, so appended logs would no longer be sampled uniformly
+     */
+    @Override
+    public void appendLogs(ImpressionLog[] newImpressionLogs, ClickLog[] newClickLogs, ServerLog[] newServerLogs) {
+        throw new UnsupportedOperationException("Logs cannot be appended to a campaign preview");
+    }
+}
@@ -0,0 +1,513 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Binary columnar snapshot of a campaign, written by FileHandler.saveSnapshot and reopened by
+ * FileHandler.openSnapshot without any text or timestamp parsing.
+ *
+ * The file is a header (magic, version) followed by the impression, click and server tables.
+ * Each table is a row count and its columns, each column being a byte length followed by its
+ * bytes, so every column is memory-mapped on its own when the snapshot is read:
+ *  - dates: a varint per row holding the zigzag delta from the previous epoch second plus 3,
+ *    or 0 for a missing date, 1 for "n/a" and 2 for a date kept field by field in the column
+ *    of exceptions that follows (dates the setters only partly accepted)
+ *  - ids: a long per row, or -1 for an id that is not a plain number, kept in its exceptions column
+ *  - demographics: a byte per row indexing the enum names written at the start of the column
+ *  - costs as raw float bits, pages viewed as ints and conversions as 0 (null), 1 (No) or 2 (Yes)
+ * A snapshot is only ever written to a temporary file and then moved into place, so a failed
+ * save never leaves a half written snapshot behind.
+ */
+final class CampaignSnapshot {
+
+    private static final int MAGIC = 0x41445350; // "ADSP"
+    private static final int VERSION = 1;
+
+    private static final int DATE_MISSING = 0;
+    private static final int DATE_NOT_AVAILABLE = 1;
+    private static final int DATE_EXCEPTION = 2;
+    private static final int DATE_DELTA_OFFSET = 3;
+    private static final long ID_EXCEPTION = -1;
+    private static final byte NO_ENUM = -1;
+    private static final String MAX_LONG = Long.toString(Long.MAX_VALUE);
+
+    private CampaignSnapshot() {
+    }
+
+    static void write(Campaign campaign, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION);
+            writeFully(channel, header.flip());
+
+            writeImpressions(channel, withoutNulls(campaign.getImpressionLogs(), new ImpressionLog[0]));
+            writeClicks(channel, withoutNulls(campaign.getClickLogs(), new ClickLog[0]));
+            writeServerLogs(channel, withoutNulls(campaign.getServerLogs(), new ServerLog[0]));
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Campaign read(Path path) throws IOException {
+        try (SnapshotReader reader = new SnapshotReader(path)) {
+            ByteBuffer header = reader.next(8);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a campaign snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            return new Campaign(readImpressions(reader), readClicks(reader), readServerLogs(reader));
+        }
+    }
+
+    private static void writeImpressions(FileChannel channel, ImpressionLog[] logs) throws IOException {
+        int rows = logs.length;
+        DateEncoder dates = new DateEncoder(rows);
+        IdEncoder ids = new IdEncoder(rows);
+        EnumEncoder genders = new EnumEncoder(ImpressionLog.Gender.class, rows);
+        EnumEncoder ages = new EnumEncoder(ImpressionLog.Age.class, rows);
+        EnumEncoder incomes = new EnumEncoder(ImpressionLog.Income.class, rows);
+        EnumEncoder contexts = new EnumEncoder(ImpressionLog.Context.class, rows);
+        Column costs = new Column(rows * 4);
+        for (ImpressionLog log : logs) {
+            dates.add(log.getDate());
+            ids.add(log.getId());
+            genders.add(log.getGenderValue());
+            ages.add(log.getAgeValue());
+            incomes.add(log.getIncomeValue());
+            contexts.add(log.getContextValue());
+            costs.putFloat(log.getImpressionCost());
+        }
+
+        writeRowCount(channel, rows);
+        dates.writeTo(channel);
+        ids.writeTo(channel);
+        genders.writeTo(channel);
+        ages.writeTo(channel);
+        incomes.writeTo(channel);
+        contexts.writeTo(channel);
+        costs.writeTo(channel);
+    }
+
+    private static ImpressionLog[] readImpressions(SnapshotReader reader) throws IOException {
+        int rows = reader.next(4).getInt();
+        DateDecoder dates = new DateDecoder(reader);
+        IdDecoder ids = new IdDecoder(reader);
+        EnumDecoder<ImpressionLog.Gender> genders = new EnumDecoder<>(reader, ImpressionLog.Gender.class);
+        EnumDecoder<ImpressionLog.Age> ages = new EnumDecoder<>(reader, ImpressionLog.Age.class);
+        EnumDecoder<ImpressionLog.Income> incomes = new EnumDecoder<>(reader, ImpressionLog.Income.class);
+        EnumDecoder<ImpressionLog.Context> contexts = new EnumDecoder<>(reader, ImpressionLog.Context.class);
+        ByteBuffer costs = reader.nextColumn();
+
+        ImpressionLog[] logs = new ImpressionLog[rows];
+        for (int i = 0; i < rows; i++) {
+            logs[i] = new ImpressionLog(dates.next(), ids.next(), genders.next(), ages.next(),
+                incomes.next(), contexts.next(), costs.getFloat());
+        }
+        return logs;
+    }
+
+    private static void writeClicks(FileChannel channel, ClickLog[] logs) throws IOException {
+        int rows = logs.length;
+        DateEncoder dates = new DateEncoder(rows);
+        IdEncoder ids = new IdEncoder(rows);
+        Column costs = new Column(rows * 4);
+        for (ClickLog log : logs) {
+            dates.add(log.getDate());
+            ids.add(log.getId());
+            costs.putFloat(log.getClickCost());
+        }
+
+        writeRowCount(channel, rows);
+        dates.writeTo(channel);
+        ids.writeTo(channel);
+        costs.writeTo(channel);
+    }
+
+    private static ClickLog[] readClicks(SnapshotReader reader) throws IOException {
+        int rows = reader.next(4).getInt();
+        DateDecoder dates = new DateDecoder(reader);
+        IdDecoder ids = new IdDecoder(reader);
+        ByteBuffer costs = reader.nextColumn();
+
+        ClickLog[] logs = new ClickLog[rows];
+        for (int i = 0; i < rows; i++) {
+            logs[i] = new ClickLog(dates.next(), ids.next(), costs.getFloat());
+        }
+        return logs;
+    }
+
+    private static void writeServerLogs(FileChannel channel, ServerLog[] logs) throws IOException {
+        int rows = logs.length;
+        DateEncoder entryDates = new DateEncoder(rows);
+        IdEncoder ids = new IdEncoder(rows);
+        DateEncoder exitDates = new DateEncoder(rows);
+        Column pages = new Column(rows * 4);
+        Column conversions = new Column(rows);
+        for (ServerLog log : logs) {
+            entryDates.add(log.getEntryDate());
+            ids.add(log.getId());
+            exitDates.add(log.getExitDate());
+            pages.putInt(log.getPagesViewed());
+            Boolean conversion = log.getConversion();
+            conversions.putByte(conversion == null ? 0 : conversion ? 2 : 1);
+        }
+
+        writeRowCount(channel, rows);
+        entryDates.writeTo(channel);
+        ids.writeTo(channel);
+        exitDates.writeTo(channel);
+        pages.writeTo(channel);
+        conversions.writeTo(channel);
+    }
+
+    private static ServerLog[] readServerLogs(SnapshotReader reader) throws IOException {
+        int rows = reader.next(4).getInt();
+        DateDecoder entryDates = new DateDecoder(reader);
+        IdDecoder ids = new IdDecoder(reader);
+        DateDecoder exitDates = new DateDecoder(reader);
+        ByteBuffer pages = reader.nextColumn();
+        ByteBuffer conversions = reader.nextColumn();
+
+        ServerLog[] logs = new ServerLog[rows];
+        for (int i = 0; i < rows; i++) {
+            byte conversion = conversions.get();
+            logs[i] = new ServerLog(entryDates.next(), ids.next(), exitDates.next(), pages.getInt(),
+                conversion == 0 ? null : conversion == 2);
+        }
+        return logs;
+    }
+
+    private static <T> T[] withoutNulls(T[] logs, T[] empty) {
+        if (logs == null) return empty;
+        for (T log : logs) {
+            if (log == null) {
+                return Arrays.stream(logs).filter(Objects::nonNull).toArray(size -> Arrays.copyOf(empty, size));
+            }
+        }
+        return logs;
+    }
+
+    private static void writeRowCount(FileChannel channel, int rows) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(4).putInt(rows).flip());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A column being written, grown as needed and written out with its length in front
+     */
+    private static final class Column {
+        private byte[] bytes;
+        private int size;
+
+        Column(int capacity) {
+            this.bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void putByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void putFloat(float value) {
+            putInt(Float.floatToRawIntBits(value));
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            putInt(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            writeFully(channel, ByteBuffer.allocate(8).putLong(size).flip());
+            writeFully(channel, ByteBuffer.wrap(bytes, 0, size));
+        }
+    }
+
+    private static final class DateEncoder {
+        private final Column column;
+        private final Column exceptions = new Column(64);
+        private long previous = 0;
+
+        DateEncoder(int rows) {
+            this.column = new Column(rows * 2);
+        }
+
+        void add(LogDate date) {
+            if (date == null) {
+                column.putVarLong(DATE_MISSING);
+                return;
+            }
+            long epochSecond = date.toEpochSecond();
+            if (epochSecond == LogDate.NOT_AVAILABLE && date.getYear() == -1 && date.getMonth() == -1
+                && date.getDay() == -1 && date.getHour() == -1 && date.getMinute() == -1 && date.getSecond() == -1) {
+                column.putVarLong(DATE_NOT_AVAILABLE);
+            } else if (epochSecond == LogDate.NOT_AVAILABLE || epochSecond == LogDate.INVALID) {
+                column.putVarLong(DATE_EXCEPTION);
+                exceptions.putInt(date.getYear());
+                exceptions.putInt(date.getMonth());
+                exceptions.putInt(date.getDay());
+                exceptions.putInt(date.getHour());
+                exceptions.putInt(date.getMinute());
+                exceptions.putInt(date.getSecond());
+                exceptions.putByte(date.getExists() ? 1 : 0);
+                exceptions.putByte(date.getInvalid() ? 1 : 0);
+            } else {
+                column.putVarLong(zigzag(epochSecond - previous) + DATE_DELTA_OFFSET);
+                previous = epochSecond;
+            }
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            column.writeTo(channel);
+            exceptions.writeTo(channel);
+        }
+    }
+
+    private static final class DateDecoder {
+        private final ByteBuffer column;
+        private final ByteBuffer exceptions;
+        private long previous = 0;
+
+        DateDecoder(SnapshotReader reader) throws IOException {
+            this.column = reader.nextColumn();
+            this.exceptions = reader.nextColumn();
+        }
+
+        LogDate next() {
+            long code = getVarLong(column);
+            if (code == DATE_MISSING) {
+                return null;
+            } else if (code == DATE_NOT_AVAILABLE) {
+                return LogDate.fromEpochSecond(LogDate.NOT_AVAILABLE);
+            } else if (code == DATE_EXCEPTION) {
+                return LogDate.restore(exceptions.getInt(), exceptions.getInt(), exceptions.getInt(),
+                    exceptions.getInt(), exceptions.getInt(), exceptions.getInt(),
+                    exceptions.get() == 1, exceptions.get() == 1);
+            }
+            previous += unzigzag(code - DATE_DELTA_OFFSET);
+            return LogDate.fromEpochSecond(previous);
+        }
+    }
+
+    private static final class IdEncoder {
+        private final Column column;
+        private final Column exceptions = new Column(64);
+
+        IdEncoder(int rows) {
+            this.column = new Column(rows * 8);
+        }
+
+        void add(String id) {
+            if (isPlainNumber(id)) {
+                column.putLong(Long.parseLong(id));
+            } else {
+                column.putLong(ID_EXCEPTION);
+                exceptions.putString(id);
+            }
+        }
+
+        // True if the id is exactly Long.toString of some non-negative long, so it can be stored as one
+        private static boolean isPlainNumber(String id) {
+            int length = id == null ? 0 : id.length();
+            if (length == 0 || length > MAX_LONG.length() || (length > 1 && id.charAt(0) == '0')) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9') return false;
+            }
+            return length < MAX_LONG.length() || id.compareTo(MAX_LONG) <= 0;
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            column.writeTo(channel);
+            exceptions.writeTo(channel);
+        }
+    }
+
+    private static final class IdDecoder {
+        private final ByteBuffer column;
+        private final ByteBuffer exceptions;
+
+        IdDecoder(SnapshotReader reader) throws IOException {
+            this.column = reader.nextColumn();
+            this.exceptions = reader.nextColumn();
+        }
+
+        String next() {
+            long id = column.getLong();
+            return id == ID_EXCEPTION ? getString(exceptions) : Long.toString(id);
+        }
+    }
+
+    private static final class EnumEncoder {
+        private final Column column;
+
+        EnumEncoder(Class<? extends Enum<?>> type, int rows) {
+            this.column = new Column(rows + 64);
+            // The dictionary maps each code back to an enum by name, so reordering an enum keeps old snapshots readable
+            Enum<?>[] constants = type.getEnumConstants();
+            column.putByte(constants.length);
+            for (Enum<?> constant : constants) {
+                column.putString(constant.name());
+            }
+        }
+
+        void add(Enum<?> value) {
+            column.putByte(value == null ? NO_ENUM : value.ordinal());
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            column.writeTo(channel);
+        }
+    }
+
+    private static final class EnumDecoder<E extends Enum<E>> {
+        private final ByteBuffer column;
+        private final E[] dictionary;
+
+        @SuppressWarnings("unchecked")
+        EnumDecoder(SnapshotReader reader, Class<E> type) throws IOException {
+            this.column = reader.nextColumn();
+            int size = column.get() & 0xFF;
+            this.dictionary = (E[]) java.lang.reflect.Array.newInstance(type, size);
+            for (int i = 0; i < size; i++) {
+                String name = getString(column);
+                try {
+                    dictionary[i] = Enum.valueOf(type, name);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown " + type.getSimpleName() + " in snapshot: " + name);
+                }
+            }
+        }
+
+        E next() {
+            byte code = column.get();
+            return code == NO_ENUM ? null : dictionary[code];
+        }
+    }
+
+    /**
+     * Walks the file from the start, mapping each column in turn instead of copying it
+     */
+    private static final class SnapshotReader implements Closeable {
+        private final FileChannel channel;
+        private final long fileSize;
+        private long position = 0;
+
+        SnapshotReader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+        }
+
+        ByteBuffer next(int size) throws IOException {
+            ByteBuffer buffer = map(size);
+            position += size;
+            return buffer;
+        }
+
+        ByteBuffer nextColumn() throws IOException {
+            long length = next(8).getLong();
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt snapshot column at byte " + position);
+            }
+            return next((int) length);
+        }
+
+        private ByteBuffer map(int size) throws IOException {
+            if (position + size > fileSize) {
+                throw new IOException("Snapshot is truncated at byte " + position);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
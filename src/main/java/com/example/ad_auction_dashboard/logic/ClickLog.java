@@ -12,6 +12,13 @@ public class ClickLog implements LogFile {
 
     }
 
+    // Used by LogCsvTokenizer, which has already validated every field
+    ClickLog(LogDate date, String id, float clickCost){
+        this.date = date;
+        this.id = id;
+        this.clickCost = clickCost;
+    }
+
     public void setDate(String date) {
         this.date = LogFile.convertDate(date);
     }
@@ -0,0 +1,602 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A campaign stored column by column in primitive arrays rather than as one object per row.
+ * An ImpressionLog with its LogDate, boxed fields and id string takes well over 150 bytes and
+ * the same impression here takes 20 bytes:
+ *  - dates as epoch seconds, with LogDate.NOT_AVAILABLE for "n/a" and LogDate.INVALID for
+ *    anything else that is not a real date
+ *  - users as dense ordinals into one UserIdDictionary shared by all three logs
+ *  - gender, age, income and context packed into one int, the segment a SegmentPredicate tests
+ *  - costs as floats, pages viewed as shorts and conversions as one bit per server log
+ *
+ * Rows are only ever added, under the campaign's lock. CampaignMetrics and TimeFilteredMetrics
+ * read the columns through the row accessors without taking it or creating any objects. The
+ * row counts and column arrays are volatile, and an append fills its rows and swaps in any
+ * grown arrays before it writes the count, so a reader that reads a count first sees every
+ * row below it complete, in whichever arrays it then reads. Rows past the count read may be
+ * half written, and sortByTime moves rows, so it must not run alongside readers.
+ *
+ * Campaigns are sorted by date as they are built (see sortByTime), so a time range is a slice
+ * of each log that a binary search finds. Rows appended later may be out of order, so each log
+ * also tracks how many of its first rows are in date order.
+ * OffHeapCampaign keeps the same columns outside the heap, behind the same accessors.
+ */
+public class ColumnarCampaign {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Enum codes by display value, in ordinal order, the invalid value displaying as ""
+    private static final String[] GENDERS = {"Male", "Female", ""};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54", ""};
+    private static final String[] INCOMES = {"Low", "Medium", "High", ""};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Media", "Blog", "Hobbies", "Travel", ""};
+
+    private static final ImpressionLog.Gender[] GENDER_VALUES = ImpressionLog.Gender.values();
+    private static final ImpressionLog.Age[] AGE_VALUES = ImpressionLog.Age.values();
+    private static final ImpressionLog.Income[] INCOME_VALUES = ImpressionLog.Income.values();
+    private static final ImpressionLog.Context[] CONTEXT_VALUES = ImpressionLog.Context.values();
+
+    private final UserIdDictionary users = new UserIdDictionary();
+
+    // Impression columns
+    private volatile int impressionCount;
+    private volatile long[] impressionDates;
+    private volatile int[] impressionUsers;
+    private volatile int[] segments;
+    private volatile float[] impressionCosts;
+
+    // Click columns
+    private volatile int clickCount;
+    private volatile long[] clickDates;
+    private volatile int[] clickUsers;
+    private volatile float[] clickCosts;
+
+    // Server log columns
+    private volatile int serverCount;
+    private volatile long[] entryDates;
+    private volatile int[] serverUsers;
+    private volatile long[] exitDates;
+    private volatile short[] pagesViewed;
+    // One bit per row in words of 64, as a BitSet would reallocate its words under a reader
+    private volatile long[] conversions;
+
+    // How many rows at the start of each log are in date order, extended as they are asked for
+    private int sortedImpressions;
+    private int sortedClicks;
+    private int sortedServerLogs;
+
+    public ColumnarCampaign() {
+        this(INITIAL_CAPACITY);
+    }
+
+    // A subclass storing its rows elsewhere starts the arrays empty
+    ColumnarCampaign(int initialCapacity) {
+        impressionDates = new long[initialCapacity];
+        impressionUsers = new int[initialCapacity];
+        segments = new int[initialCapacity];
+        impressionCosts = new float[initialCapacity];
+        clickDates = new long[initialCapacity];
+        clickUsers = new int[initialCapacity];
+        clickCosts = new float[initialCapacity];
+        entryDates = new long[initialCapacity];
+        serverUsers = new int[initialCapacity];
+        exitDates = new long[initialCapacity];
+        pagesViewed = new short[initialCapacity];
+        conversions = new long[words(initialCapacity)];
+    }
+
+    /**
+     * Copies the logs of a campaign into columns
+     */
+    public static ColumnarCampaign from(Campaign campaign) {
+        return of(campaign.getImpressionLogs(), campaign.getClickLogs(), campaign.getServerLogs());
+    }
+
+    public static ColumnarCampaign of(ImpressionLog[] imps, ClickLog[] cls, ServerLog[] srv) {
+        ColumnarCampaign columns = new ColumnarCampaign();
+        columns.appendLogs(imps, cls, srv);
+        columns.sortByTime();
+        return columns;
+    }
+
+    /**
+     * Adds logs after the rows already stored, skipping null entries
+     */
+    public synchronized void appendLogs(ImpressionLog[] imps, ClickLog[] cls, ServerLog[] srv) {
+        if (imps != null) {
+            ensureImpressionCapacity(getImpressionCount() + imps.length);
+            for (ImpressionLog imp : imps) {
+                if (imp == null) continue;
+                addImpression(epochSecond(imp.getDate()), users.ordinal(imp.getId()),
+                    SegmentPredicate.segment(imp), imp.getImpressionCost());
+            }
+        }
+        if (cls != null) {
+            ensureClickCapacity(getClickCount() + cls.length);
+            for (ClickLog click : cls) {
+                if (click == null) continue;
+                addClick(epochSecond(click.getDate()), users.ordinal(click.getId()), click.getClickCost());
+            }
+        }
+        if (srv != null) {
+            ensureServerCapacity(getServerLogCount() + srv.length);
+            for (ServerLog server : srv) {
+                if (server == null) continue;
+                addServerLog(epochSecond(server.getEntryDate()), users.ordinal(server.getId()), epochSecond(server.getExitDate()),
+                    server.getPagesViewed(), Boolean.TRUE.equals(server.getConversion()));
+            }
+        }
+    }
+
+    /**
+     * Adds the rows of another set of columns after the rows already stored, mapping its
+     * users onto this dictionary. Used to join the columns of zip entries parsed separately,
+     * the other columns must not be used afterwards: a log with no rows here yet takes over
+     * the other's arrays rather than copying them, so joining never holds a log twice.
+     */
+    synchronized void appendColumns(ColumnarCampaign other) {
+        int[] userMap = mapUsers(other);
+
+        int imps = other.impressionCount;
+        if (impressionCount == 0) {
+            impressionDates = other.impressionDates;
+            impressionUsers = remap(other.impressionUsers, imps, userMap);
+            segments = other.segments;
+            impressionCosts = other.impressionCosts;
+        } else {
+            ensureImpressionCapacity(impressionCount + imps);
+            System.arraycopy(other.impressionDates, 0, impressionDates, impressionCount, imps);
+            System.arraycopy(remap(other.impressionUsers, imps, userMap), 0, impressionUsers, impressionCount, imps);
+            System.arraycopy(other.segments, 0, segments, impressionCount, imps);
+            System.arraycopy(other.impressionCosts, 0, impressionCosts, impressionCount, imps);
+        }
+        impressionCount += imps;
+
+        int clicks = other.clickCount;
+        if (clickCount == 0) {
+            clickDates = other.clickDates;
+            clickUsers = remap(other.clickUsers, clicks, userMap);
+            clickCosts = other.clickCosts;
+        } else {
+            ensureClickCapacity(clickCount + clicks);
+            System.arraycopy(other.clickDates, 0, clickDates, clickCount, clicks);
+            System.arraycopy(remap(other.clickUsers, clicks, userMap), 0, clickUsers, clickCount, clicks);
+            System.arraycopy(other.clickCosts, 0, clickCosts, clickCount, clicks);
+        }
+        clickCount += clicks;
+
+        int servers = other.serverCount;
+        if (serverCount == 0) {
+            entryDates = other.entryDates;
+            serverUsers = remap(other.serverUsers, servers, userMap);
+            exitDates = other.exitDates;
+            pagesViewed = other.pagesViewed;
+            conversions = other.conversions;
+        } else {
+            ensureServerCapacity(serverCount + servers);
+            System.arraycopy(other.entryDates, 0, entryDates, serverCount, servers);
+            System.arraycopy(remap(other.serverUsers, servers, userMap), 0, serverUsers, serverCount, servers);
+            System.arraycopy(other.exitDates, 0, exitDates, serverCount, servers);
+            System.arraycopy(other.pagesViewed, 0, pagesViewed, serverCount, servers);
+            long[] converted = conversions;
+            for (int i = 0; i < servers; i++) {
+                if (isSet(other.conversions, i)) set(converted, serverCount + i);
+            }
+        }
+        serverCount += servers;
+    }
+
+    /**
+     * Adds the users of other columns to this dictionary
+     * @return the ordinal here of each of their ordinals
+     */
+    int[] mapUsers(ColumnarCampaign other) {
+        int[] userMap = new int[other.users.size()];
+        for (int user = 0; user < userMap.length; user++) {
+            userMap[user] = users.ordinal(other.users, user);
+        }
+        return userMap;
+    }
+
+    // Rewrites the users of the other columns in place, their arrays being discarded anyway
+    private static int[] remap(int[] users, int rows, int[] userMap) {
+        for (int i = 0; i < rows; i++) {
+            users[i] = userMap[users[i]];
+        }
+        return users;
+    }
+
+    void addImpression(long date, int user, int segment, float cost) {
+        int row = impressionCount;
+        if (row == impressionDates.length) {
+            ensureImpressionCapacity(row + 1);
+        }
+        impressionDates[row] = date;
+        impressionUsers[row] = user;
+        segments[row] = segment;
+        impressionCosts[row] = cost;
+        impressionCount = row + 1;
+    }
+
+    void addClick(long date, int user, float cost) {
+        int row = clickCount;
+        if (row == clickDates.length) {
+            ensureClickCapacity(row + 1);
+        }
+        clickDates[row] = date;
+        clickUsers[row] = user;
+        clickCosts[row] = cost;
+        clickCount = row + 1;
+    }
+
+    /**
+     * @param pages pages viewed, saturated at Short.MAX_VALUE (-1 if invalid, as in ServerLog)
+     */
+    void addServerLog(long entryDate, int user, long exitDate, int pages, boolean conversion) {
+        int row = serverCount;
+        if (row == entryDates.length) {
+            ensureServerCapacity(row + 1);
+        }
+        entryDates[row] = entryDate;
+        serverUsers[row] = user;
+        exitDates[row] = exitDate;
+        pagesViewed[row] = (short) Math.min(pages, Short.MAX_VALUE);
+        if (conversion) {
+            set(conversions, row);
+        }
+        serverCount = row + 1;
+    }
+
+    /**
+     * Reorders each log by date (server logs by entry date), keeping rows with the same date in
+     * their order. The NOT_AVAILABLE and INVALID sentinels are below every date, so those rows
+     * come first. Logs already in order, as they usually are, are left alone. The rows move, so
+     * this must only be called while nothing else is reading the columns.
+     */
+    public synchronized void sortByTime() {
+        if (getTimeSortedImpressions() < getImpressionCount()) {
+            int rows = getImpressionCount();
+            reorderImpressions(orderByTime(rows, this::getImpressionDate), rows);
+            sortedImpressions = getImpressionCount();
+        }
+        if (getTimeSortedClicks() < getClickCount()) {
+            int rows = getClickCount();
+            reorderClicks(orderByTime(rows, this::getClickDate), rows);
+            sortedClicks = getClickCount();
+        }
+        if (getTimeSortedServerLogs() < getServerLogCount()) {
+            int rows = getServerLogCount();
+            reorderServerLogs(orderByTime(rows, this::getEntryDate), rows);
+            sortedServerLogs = getServerLogCount();
+        }
+    }
+
+    /**
+     * @return how many rows at the start of the impression log are in date order, which
+     * is all of them after sortByTime unless older rows were appended since
+     */
+    public synchronized int getTimeSortedImpressions() {
+        sortedImpressions = sortedRows(sortedImpressions, getImpressionCount(), this::getImpressionDate);
+        return sortedImpressions;
+    }
+
+    public synchronized int getTimeSortedClicks() {
+        sortedClicks = sortedRows(sortedClicks, getClickCount(), this::getClickDate);
+        return sortedClicks;
+    }
+
+    public synchronized int getTimeSortedServerLogs() {
+        sortedServerLogs = sortedRows(sortedServerLogs, getServerLogCount(), this::getEntryDate);
+        return sortedServerLogs;
+    }
+
+    private static int sortedRows(int sorted, int rows, IntToLongFunction dates) {
+        if (sorted == 0 && rows > 0) {
+            sorted = 1;
+        }
+        while (sorted < rows && dates.applyAsLong(sorted) >= dates.applyAsLong(sorted - 1)) {
+            sorted++;
+        }
+        return sorted;
+    }
+
+    /**
+     * @return the first of the given rows with a date at or after the epoch second, the rows
+     * being in date order
+     */
+    public static int firstRowFrom(IntToLongFunction dates, int rows, long epochSecond) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dates.applyAsLong(mid) < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The row now at each row of the log once sorted by date, worked out on the heap here and in
+     * mapped scratch columns by OffHeapCampaign
+     */
+    IntUnaryOperator orderByTime(int rows, IntToLongFunction dates) {
+        int[] order = timeOrder(rows, dates);
+        return row -> order[row];
+    }
+
+    // Rows in date order, by a bottom-up merge sort so rows with the same date keep their order
+    static int[] timeOrder(int rows, IntToLongFunction dates) {
+        long[] keys = new long[rows];
+        int[] order = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            keys[i] = dates.applyAsLong(i);
+            order[i] = i;
+        }
+        int[] merged = new int[rows];
+        for (long width = 1; width < rows; width *= 2) {
+            int low = 0;
+            while (low < rows) {
+                int mid = (int) Math.min(low + width, rows);
+                int high = (int) Math.min(low + 2 * width, rows);
+                int a = low, b = mid, k = low;
+                while (a < mid && b < high) {
+                    merged[k++] = keys[order[b]] < keys[order[a]] ? order[b++] : order[a++];
+                }
+                while (a < mid) merged[k++] = order[a++];
+                while (b < high) merged[k++] = order[b++];
+                low = high;
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    // Moves row order(i) of a log to row i, one column at a time so only one is ever copied at once
+
+    void reorderImpressions(IntUnaryOperator order, int rows) {
+        impressionDates = reorder(impressionDates, order, rows);
+        impressionUsers = reorder(impressionUsers, order, rows);
+        segments = reorder(segments, order, rows);
+        impressionCosts = reorder(impressionCosts, order, rows);
+    }
+
+    void reorderClicks(IntUnaryOperator order, int rows) {
+        clickDates = reorder(clickDates, order, rows);
+        clickUsers = reorder(clickUsers, order, rows);
+        clickCosts = reorder(clickCosts, order, rows);
+    }
+
+    void reorderServerLogs(IntUnaryOperator order, int rows) {
+        entryDates = reorder(entryDates, order, rows);
+        serverUsers = reorder(serverUsers, order, rows);
+        exitDates = reorder(exitDates, order, rows);
+        pagesViewed = reorder(pagesViewed, order, rows);
+        long[] converted = conversions;
+        long[] sorted = new long[converted.length];
+        for (int i = 0; i < rows; i++) {
+            if (isSet(converted, order.applyAsInt(i))) set(sorted, i);
+        }
+        conversions = sorted;
+    }
+
+    private static long[] reorder(long[] column, IntUnaryOperator order, int rows) {
+        long[] sorted = new long[column.length];
+        for (int i = 0; i < rows; i++) sorted[i] = column[order.applyAsInt(i)];
+        return sorted;
+    }
+
+    private static int[] reorder(int[] column, IntUnaryOperator order, int rows) {
+        int[] sorted = new int[column.length];
+        for (int i = 0; i < rows; i++) sorted[i] = column[order.applyAsInt(i)];
+        return sorted;
+    }
+
+    private static short[] reorder(short[] column, IntUnaryOperator order, int rows) {
+        short[] sorted = new short[column.length];
+        for (int i = 0; i < rows; i++) sorted[i] = column[order.applyAsInt(i)];
+        return sorted;
+    }
+
+    private static float[] reorder(float[] column, IntUnaryOperator order, int rows) {
+        float[] sorted = new float[column.length];
+        for (int i = 0; i < rows; i++) sorted[i] = column[order.applyAsInt(i)];
+        return sorted;
+    }
+
+    // Ordinal of a user id read by LogCsvTokenizer, without making a String of plain numbers
+    int userOrdinal(byte[] bytes, int start, int end) {
+        return users.ordinal(bytes, start, end);
+    }
+
+    int userOrdinal(String id) {
+        return users.ordinal(id);
+    }
+
+    // Grows by half again, so a column never needs more than 1.5 times its rows while loading
+    private static int grow(int length, int required) {
+        return Math.max(required, length + (length >> 1));
+    }
+
+    void ensureImpressionCapacity(int required) {
+        if (required <= impressionDates.length) return;
+        int capacity = grow(impressionDates.length, required);
+        impressionDates = Arrays.copyOf(impressionDates, capacity);
+        impressionUsers = Arrays.copyOf(impressionUsers, capacity);
+        segments = Arrays.copyOf(segments, capacity);
+        impressionCosts = Arrays.copyOf(impressionCosts, capacity);
+    }
+
+    void ensureClickCapacity(int required) {
+        if (required <= clickDates.length) return;
+        int capacity = grow(clickDates.length, required);
+        clickDates = Arrays.copyOf(clickDates, capacity);
+        clickUsers = Arrays.copyOf(clickUsers, capacity);
+        clickCosts = Arrays.copyOf(clickCosts, capacity);
+    }
+
+    void ensureServerCapacity(int required) {
+        if (required <= entryDates.length) return;
+        int capacity = grow(entryDates.length, required);
+        entryDates = Arrays.copyOf(entryDates, capacity);
+        serverUsers = Arrays.copyOf(serverUsers, capacity);
+        exitDates = Arrays.copyOf(exitDates, capacity);
+        pagesViewed = Arrays.copyOf(pagesViewed, capacity);
+        conversions = Arrays.copyOf(conversions, words(capacity));
+    }
+
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] words, int row) {
+        return (words[row >>> 6] & 1L << row) != 0;
+    }
+
+    private static void set(long[] words, int row) {
+        words[row >>> 6] |= 1L << row;
+    }
+
+    private static long epochSecond(LogDate date) {
+        return date == null ? LogDate.INVALID : date.toEpochSecond();
+    }
+
+    /**
+     * True for an epoch second, false for the NOT_AVAILABLE and INVALID sentinels
+     */
+    public static boolean isDate(long epochSecond) {
+        return epochSecond > LogDate.INVALID;
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Code of a gender, age, income or context display value as used by the filter combo boxes,
+     * "" being the invalid value
+     * @return the code, or -1 if nothing has that value
+     */
+    public static byte genderCode(String gender) { return code(GENDERS, gender); }
+    public static byte ageCode(String age) { return code(AGES, age); }
+    public static byte incomeCode(String income) { return code(INCOMES, income); }
+    public static byte contextCode(String context) { return code(CONTEXTS, context); }
+
+    private static byte code(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) return (byte) i;
+        }
+        return -1;
+    }
+
+    /**
+     * Display value of a code of gender (lane 0), age, income or context (lane 3), in the order
+     * segments pack them, or "" for a code nothing has
+     */
+    static String attributeValue(int lane, int code) {
+        String[] values = lane == 0 ? GENDERS : lane == 1 ? AGES : lane == 2 ? INCOMES : CONTEXTS;
+        return code >= 0 && code < values.length ? values[code] : "";
+    }
+
+    // Row accessors
+
+    public int getImpressionCount() { return impressionCount; }
+    public long getImpressionDate(int row) { return impressionDates[row]; }
+    public int getImpressionUser(int row) { return impressionUsers[row]; }
+    public int getSegment(int row) { return segments[row]; }
+    public float getImpressionCost(int row) { return impressionCosts[row]; }
+
+    public int getClickCount() { return clickCount; }
+    public long getClickDate(int row) { return clickDates[row]; }
+    public int getClickUser(int row) { return clickUsers[row]; }
+    public float getClickCost(int row) { return clickCosts[row]; }
+
+    public int getServerLogCount() { return serverCount; }
+    public long getEntryDate(int row) { return entryDates[row]; }
+    public int getServerUser(int row) { return serverUsers[row]; }
+    public long getExitDate(int row) { return exitDates[row]; }
+    public short getPagesViewed(int row) { return pagesViewed[row]; }
+    public boolean getConversion(int row) { return isSet(conversions, row); }
+
+    public synchronized int getUserCount() { return users.size(); }
+    public synchronized String getUserId(int ordinal) { return users.getId(ordinal); }
+
+    /**
+     * @return the ordinal of a user id, or -1 if it is in none of the logs
+     */
+    public synchronized int findUser(String id) {
+        return users.find(id);
+    }
+
+    public synchronized long getUserDictionaryBytes() {
+        return users.getMemoryBytes();
+    }
+
+    /**
+     * Bytes held by the columns themselves, not counting the user dictionary
+     */
+    public synchronized long getColumnBytes() {
+        return impressionDates.length * 20L + clickDates.length * 16L
+            + entryDates.length * 22L + conversions.length * 8L;
+    }
+
+    // Converting back to log objects, for the parts of the dashboard that still work on them
+
+    public synchronized ImpressionLog[] toImpressionLogs() {
+        ImpressionLog[] logs = new ImpressionLog[getImpressionCount()];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = toImpressionLog(i);
+        }
+        return logs;
+    }
+
+    public synchronized ClickLog[] toClickLogs() {
+        ClickLog[] logs = new ClickLog[getClickCount()];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = toClickLog(i);
+        }
+        return logs;
+    }
+
+    public synchronized ServerLog[] toServerLogs() {
+        ServerLog[] logs = new ServerLog[getServerLogCount()];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = toServerLog(i);
+        }
+        return logs;
+    }
+
+    // Single rows, for reading through a log without making all of its objects at once
+
+    public synchronized ImpressionLog toImpressionLog(int row) {
+        int segment = getSegment(row);
+        return new ImpressionLog(LogDate.fromEpochSecond(getImpressionDate(row)), users.getId(getImpressionUser(row)),
+            GENDER_VALUES[SegmentPredicate.gender(segment)], AGE_VALUES[SegmentPredicate.age(segment)],
+            INCOME_VALUES[SegmentPredicate.income(segment)], CONTEXT_VALUES[SegmentPredicate.context(segment)],
+            getImpressionCost(row));
+    }
+
+    public synchronized ClickLog toClickLog(int row) {
+        return new ClickLog(LogDate.fromEpochSecond(getClickDate(row)), users.getId(getClickUser(row)), getClickCost(row));
+    }
+
+    public synchronized ServerLog toServerLog(int row) {
+        return new ServerLog(LogDate.fromEpochSecond(getEntryDate(row)), users.getId(getServerUser(row)),
+            LogDate.fromEpochSecond(getExitDate(row)), getPagesViewed(row), getConversion(row));
+    }
+
+    public Campaign toCampaign() {
+        return new Campaign(toImpressionLogs(), toClickLogs(), toServerLogs());
+    }
+}
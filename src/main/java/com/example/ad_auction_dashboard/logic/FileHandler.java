@@ -1,23 +1,46 @@
 package com.example.ad_auction_dashboard.logic;
 
-import com.example.ad_auction_dashboard.controller.StartSceneController;
-import javafx.application.Platform;
-
 import java.io.*;
 import java.nio.Buffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 public class FileHandler {
 
-    private com.example.ad_auction_dashboard.controller.StartSceneController startScene;
-    private int count = -1;
-    private String logType = "Impression";
+    // Parsers publish their row count to the ingestion job every 4096 rows
+    private static final long PROGRESS_ROW_MASK = 4095;
+
+    // Single CSVs at least this large are parsed in chunks on the ForkJoinPool
+    private static final long PARALLEL_THRESHOLD_BYTES = 32L << 20;
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+
+    // Compressed bytes read from a .csv.gz at a time by the inflating thread
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    // Previews keep at least this many rows of each log, so small logs are read in full
+    private static final int MIN_PREVIEW_ROWS = 1000;
 
     public static void main(String[] args) {
         FileHandler fileHandler = new FileHandler();
@@ -27,84 +50,101 @@ public class FileHandler {
 
    //process each file line by line rather than entire
     public Campaign openZip(String filePath) {
-        count = 0;
+        return openZip(filePath, new IngestionJob());
+    }
+
+    /**
+     * Opens a campaign zip one entry after another, reporting progress to the given job
+     * @return the campaign, or null if the zip could not be read or the job was cancelled
+     */
+    public Campaign openZip(String filePath, IngestionJob job) {
         List<ImpressionLog> impressionLogs = new ArrayList<>();
         List<ClickLog> clickLogs = new ArrayList<>();
         List<ServerLog> serverLogs = new ArrayList<>();
 
         try (ZipFile zipFile = new ZipFile(filePath)) {
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-            new Thread(() -> {
-                while(count != -1){
-                    try {
-                        startScene.updatePopup(logType, count);
-                        Thread.sleep(100);
-                    } catch (Exception e){
-                        System.err.println(e);
-                    }
-                }
-            }).start();
             while (entries.hasMoreElements()) {
                 ZipEntry entry = entries.nextElement();
+                ParsedEntry parsed = parseEntry(zipFile, entry, job);
+                impressionLogs.addAll(parsed.impressionLogs);
+                clickLogs.addAll(parsed.clickLogs);
+                serverLogs.addAll(parsed.serverLogs);
+            }
+        } catch (CancellationException e) {
+            discardPartialResults(impressionLogs, clickLogs, serverLogs);
+            return null;
+        } catch (Exception e) {
+            System.err.println("Error processing zip file: " + e.getMessage());
+            e.printStackTrace();
+            discardPartialResults(impressionLogs, clickLogs, serverLogs);
+            return null;
+        }
 
-                try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
-
-                    // Read header to determine file type
-                    String header = reader.readLine();
-                    if (header == null) continue;
-                    String line;
-                    switch (header) {
-                        case "Date,ID,Gender,Age,Income,Context,Impression Cost":
-                            logType = "Impression";
-                            // Process impression logs line by line
-                            while ((line = reader.readLine()) != null) {
-                                String[] parts = line.split(",");
-                                if (parts.length == 7) {
-                                    count++;
-                                    impressionLogs.add(new ImpressionLog(
-                                        parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]));
-                                }
-                            }
-                            break;
-
-                        case "Entry Date,ID,Exit Date,Pages Viewed,Conversion":
-                            logType = "Server";
-                            count = 0;
-                            // Process server logs line by line
-                            while ((line = reader.readLine()) != null) {
-                                String[] parts = line.split(",");
-                                if (parts.length == 5) {
-                                    count++;
-                                    serverLogs.add(new ServerLog(
-                                        parts[0], parts[1], parts[2], parts[3], parts[4]));
-                                }
-                            }
-                            break;
-
-                        case "Date,ID,Click Cost":
-                            count = 0;
-                            logType = "Cost";
-                            // Process click logs line by line
-                            while ((line = reader.readLine()) != null) {
-                                String[] parts = line.split(",");
-                                if (parts.length == 3) {
-                                    count++;
-                                    clickLogs.add(new ClickLog(
-                                        parts[0], parts[1], parts[2]));
-                                }
-                            }
-                            break;
-                    }
-                }
+        return new Campaign(
+            impressionLogs.toArray(new ImpressionLog[0]),
+            clickLogs.toArray(new ClickLog[0]),
+            serverLogs.toArray(new ServerLog[0]));
+    }
+
+    public Campaign openZipParallel(String filePath) {
+        return openZipParallel(filePath, new IngestionJob());
+    }
+
+    /**
+     * Opens a campaign zip, decoding and parsing every entry on its own worker thread.
+     * The entries are merged back in zip order once all workers have finished, so the
+     * resulting campaign is identical to the one produced by {@link #openZip(String)}.
+     * @return the campaign, or null if the zip could not be read or the job was cancelled
+     */
+    public Campaign openZipParallel(String filePath, IngestionJob job) {
+        List<ImpressionLog> impressionLogs = new ArrayList<>();
+        List<ClickLog> clickLogs = new ArrayList<>();
+        List<ServerLog> serverLogs = new ArrayList<>();
+        ExecutorService executor = null;
+
+        try (ZipFile zipFile = new ZipFile(filePath)) {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+            if (entries.isEmpty()) {
+                return new Campaign(new ImpressionLog[0], new ClickLog[0], new ServerLog[0]);
+            }
+
+            int workers = Math.min(entries.size(), Runtime.getRuntime().availableProcessors());
+            executor = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "zip-entry-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            List<Future<ParsedEntry>> futures = new ArrayList<>();
+            for (ZipEntry entry : entries) {
+                futures.add(executor.submit(() -> parseEntry(zipFile, entry, job)));
+            }
+
+            // Merge in entry order so the row order matches sequential loading
+            for (Future<ParsedEntry> future : futures) {
+                ParsedEntry parsed = future.get();
+                impressionLogs.addAll(parsed.impressionLogs);
+                clickLogs.addAll(parsed.clickLogs);
+                serverLogs.addAll(parsed.serverLogs);
             }
-            count = -1;
-            logType = "Impression";
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof CancellationException)) {
+                System.err.println("Error processing zip file: " + e.getCause().getMessage());
+                e.getCause().printStackTrace();
+            }
+            discardPartialResults(impressionLogs, clickLogs, serverLogs);
+            return null;
         } catch (Exception e) {
             System.err.println("Error processing zip file: " + e.getMessage());
             e.printStackTrace();
+            discardPartialResults(impressionLogs, clickLogs, serverLogs);
             return null;
+        } finally {
+            if (executor != null) {
+                // Stops the other entries as soon as one fails or the job is cancelled
+                executor.shutdownNow();
+            }
         }
 
         return new Campaign(
@@ -112,24 +152,551 @@ public class FileHandler {
             clickLogs.toArray(new ClickLog[0]),
             serverLogs.toArray(new ServerLog[0]));
     }
+
+    /**
+     * Reads a single zip entry and parses it according to its header row,
+     * publishing bytes read and rows parsed to the job as it goes
+     */
+    private ParsedEntry parseEntry(ZipFile zipFile, ZipEntry entry, IngestionJob job) throws IOException {
+        ParsedEntry parsed = new ParsedEntry();
+        IngestionJob.Progress progress = job.track(entry.getName(), entry.getSize());
+        long rows = 0;
+
+        // The entry is inflated on a pipeline thread while this thread parses it
+        try (LogCsvTokenizer tokenizer = new LogCsvTokenizer(
+            new PipelinedInputStream(progress.count(zipFile.getInputStream(entry))))) {
+            // Read header to determine file type
+            LogCsvTokenizer.LogType type = tokenizer.readHeader();
+            if (type == LogCsvTokenizer.LogType.UNKNOWN) {
+                progress.finish(rows);
+                return parsed;
+            }
+            ValidationReport.Tally tally = job.getValidationReport().newTally(entry.getName(), type);
+            tokenizer.setTally(tally);
+
+            switch (type) {
+                case IMPRESSION:
+                    progress.setLogType("Impression");
+                    // Process impression logs row by row
+                    while (tokenizer.nextRow()) {
+                        if (tokenizer.hasFieldCount(7)) {
+                            parsed.impressionLogs.add(tokenizer.toImpressionLog());
+                            if ((++rows & PROGRESS_ROW_MASK) == 0) progress.setRows(rows);
+                        }
+                    }
+                    break;
+
+                case SERVER:
+                    progress.setLogType("Server");
+                    // Process server logs row by row
+                    while (tokenizer.nextRow()) {
+                        if (tokenizer.hasFieldCount(5)) {
+                            parsed.serverLogs.add(tokenizer.toServerLog());
+                            if ((++rows & PROGRESS_ROW_MASK) == 0) progress.setRows(rows);
+                        }
+                    }
+                    break;
+
+                case CLICK:
+                    progress.setLogType("Click");
+                    // Process click logs row by row
+                    while (tokenizer.nextRow()) {
+                        if (tokenizer.hasFieldCount(3)) {
+                            parsed.clickLogs.add(tokenizer.toClickLog());
+                            if ((++rows & PROGRESS_ROW_MASK) == 0) progress.setRows(rows);
+                        }
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+            // Merged once per entry, so parallel entries never wait on each other while parsing
+            job.getValidationReport().add(tally, 0);
+        }
+        progress.finish(rows);
+        return parsed;
+    }
+
+    public ColumnarCampaign openZipColumnar(String filePath) {
+        return openZipColumnar(filePath, new IngestionJob());
+    }
+
+    /**
+     * Opens a campaign zip straight into columns, so no log objects are ever created for it.
+     * Entries are parsed on their own worker threads into separate columns, which are joined
+     * in zip order once all workers have finished, so the rows are in the same order as openZip
+     * apart from each log then being sorted by date. The columns are stored off the heap when the logs would take too much of it.
+     * @return the columns, or null if the zip could not be read or the job was cancelled
+     */
+    public ColumnarCampaign openZipColumnar(String filePath, IngestionJob job) {
+        return openZipColumnar(filePath, job, false);
+    }
+
+    /**
+     * Opens a campaign zip into an OffHeapCampaign whatever its size
+     */
+    public ColumnarCampaign openZipOffHeap(String filePath, IngestionJob job) {
+        return openZipColumnar(filePath, job, true);
+    }
+
+    private ColumnarCampaign openZipColumnar(String filePath, IngestionJob job, boolean offHeap) {
+        ExecutorService executor = null;
+
+        try (ZipFile zipFile = new ZipFile(filePath)) {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+            boolean storeOffHeap = offHeap || !fitsOnHeap(entries);
+            ColumnarCampaign columns = storeOffHeap ? new OffHeapCampaign() : new ColumnarCampaign();
+            if (entries.isEmpty()) {
+                return columns;
+            }
+
+            int workers = Math.min(entries.size(), Runtime.getRuntime().availableProcessors());
+            executor = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "zip-entry-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            List<Future<ColumnarCampaign>> futures = new ArrayList<>();
+            for (ZipEntry entry : entries) {
+                futures.add(executor.submit(() -> parseEntryColumns(zipFile, entry, job,
+                    storeOffHeap ? new OffHeapCampaign() : new ColumnarCampaign())));
+            }
+            for (Future<ColumnarCampaign> future : futures) {
+                columns.appendColumns(future.get());
+            }
+            columns.sortByTime();
+            return columns;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof CancellationException)) {
+                System.err.println("Error processing zip file: " + e.getCause().getMessage());
+                e.getCause().printStackTrace();
+            }
+            return null;
+        } catch (Exception e) {
+            System.err.println("Error processing zip file: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    // Columns take about a third of the bytes of the CSV rows, and may use a quarter of the heap
+    private static boolean fitsOnHeap(List<? extends ZipEntry> entries) {
+        long csvBytes = 0;
+        for (ZipEntry entry : entries) {
+            csvBytes += Math.max(0, entry.getSize());
+        }
+        return csvBytes / 3 < Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * Reads a single zip entry into columns of its own, the columnar version of parseEntry
+     */
+    private ColumnarCampaign parseEntryColumns(ZipFile zipFile, ZipEntry entry, IngestionJob job,
+                                               ColumnarCampaign columns) throws IOException {
+        IngestionJob.Progress progress = job.track(entry.getName(), entry.getSize());
+        long rows = 0;
+
+        try (LogCsvTokenizer tokenizer = new LogCsvTokenizer(
+            new PipelinedInputStream(progress.count(zipFile.getInputStream(entry))))) {
+            LogCsvTokenizer.LogType type = tokenizer.readHeader();
+            int fields = type == LogCsvTokenizer.LogType.IMPRESSION ? 7
+                : type == LogCsvTokenizer.LogType.CLICK ? 3 : type == LogCsvTokenizer.LogType.SERVER ? 5 : -1;
+            if (fields < 0) {
+                progress.finish(rows);
+                return columns;
+            }
+            progress.setLogType(type == LogCsvTokenizer.LogType.IMPRESSION ? "Impression"
+                : type == LogCsvTokenizer.LogType.CLICK ? "Click" : "Server");
+            ValidationReport.Tally tally = job.getValidationReport().newTally(entry.getName(), type);
+            tokenizer.setTally(tally);
+
+            while (tokenizer.nextRow()) {
+                if (!tokenizer.hasFieldCount(fields)) continue;
+                switch (type) {
+                    case IMPRESSION:
+                        tokenizer.addImpressionTo(columns);
+                        break;
+                    case CLICK:
+                        tokenizer.addClickTo(columns);
+                        break;
+                    default:
+                        tokenizer.addServerLogTo(columns);
+                        break;
+                }
+                if ((++rows & PROGRESS_ROW_MASK) == 0) progress.setRows(rows);
+            }
+            job.getValidationReport().add(tally, 0);
+        }
+        progress.finish(rows);
+        return columns;
+    }
+
+    public CampaignPreview openZipPreview(String filePath, double fraction) {
+        return openZipPreview(filePath, fraction, new IngestionJob(), new Random());
+    }
+
+    /**
+     * Streams through a campaign zip keeping a uniform random sample of about the given fraction
+     * of each log's rows (and at least MIN_PREVIEW_ROWS). Every row is counted, but only the
+     * sampled rows are split and turned into logs, so a preview costs little more than
+     * inflating the zip.
+     * @return the sample with the full row counts, or null if the zip could not be read or the
+     * job was cancelled
+     */
+    public CampaignPreview openZipPreview(String filePath, double fraction, IngestionJob job, Random random) {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Sample fraction must be between 0 and 1.");
+        }
+        List<ImpressionLog> impressionLogs = new ArrayList<>();
+        List<ClickLog> clickLogs = new ArrayList<>();
+        List<ServerLog> serverLogs = new ArrayList<>();
+        long[] totals = new long[LogCsvTokenizer.LogType.values().length];
+
+        try (ZipFile zipFile = new ZipFile(filePath)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                sampleEntry(zipFile, entry, fraction, job, random, impressionLogs, clickLogs, serverLogs, totals);
+            }
+        } catch (CancellationException e) {
+            discardPartialResults(impressionLogs, clickLogs, serverLogs);
+            return null;
+        } catch (Exception e) {
+            System.err.println("Error previewing zip file: " + e.getMessage());
+            e.printStackTrace();
+            discardPartialResults(impressionLogs, clickLogs, serverLogs);
+            return null;
+        }
+
+        return new CampaignPreview(
+            impressionLogs.toArray(new ImpressionLog[0]),
+            clickLogs.toArray(new ClickLog[0]),
+            serverLogs.toArray(new ServerLog[0]),
+            totals[LogCsvTokenizer.LogType.IMPRESSION.ordinal()],
+            totals[LogCsvTokenizer.LogType.CLICK.ordinal()],
+            totals[LogCsvTokenizer.LogType.SERVER.ordinal()],
+            fraction);
+    }
+
+    /**
+     * Reservoir samples one zip entry. The reservoir is sized from the entry's uncompressed size
+     * and the average row length of its first rows, and once it is full rows are chosen with
+     * Li's Algorithm L, which draws how many rows to skip so the skipped rows are never split.
+     */
+    private void sampleEntry(ZipFile zipFile, ZipEntry entry, double fraction, IngestionJob job, Random random,
+                             List<ImpressionLog> impressionLogs, List<ClickLog> clickLogs,
+                             List<ServerLog> serverLogs, long[] totals) throws IOException {
+        IngestionJob.Progress progress = job.track(entry.getName(), entry.getSize());
+        long rows = 0;
+
+        try (LogCsvTokenizer tokenizer = new LogCsvTokenizer(
+            new PipelinedInputStream(progress.count(zipFile.getInputStream(entry))))) {
+            LogCsvTokenizer.LogType type = tokenizer.readHeader();
+            int fields = type == LogCsvTokenizer.LogType.IMPRESSION ? 7
+                : type == LogCsvTokenizer.LogType.CLICK ? 3 : type == LogCsvTokenizer.LogType.SERVER ? 5 : -1;
+            if (fields < 0) {
+                progress.finish(rows);
+                return;
+            }
+            progress.setLogType(type == LogCsvTokenizer.LogType.IMPRESSION ? "Impression"
+                : type == LogCsvTokenizer.LogType.CLICK ? "Click" : "Server");
+            long headerEnd = tokenizer.getPosition();
+
+            // Fill the reservoir, working out its size once the first rows show the row length
+            List<LogFile> reservoir = new ArrayList<>();
+            int capacity = Integer.MAX_VALUE;
+            while (reservoir.size() < capacity && tokenizer.nextRow()) {
+                if (!tokenizer.hasFieldCount(fields)) continue;
+                reservoir.add(toLog(tokenizer, type));
+                rows++;
+                if (rows == MIN_PREVIEW_ROWS) {
+                    double bytesPerRow = (double) (tokenizer.getPosition() - headerEnd) / rows;
+                    long expectedRows = entry.getSize() > 0 ? (long) ((entry.getSize() - headerEnd) / bytesPerRow) : rows;
+                    capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(MIN_PREVIEW_ROWS, (long) Math.ceil(fraction * expectedRows)));
+                }
+            }
+
+            // Algorithm L: the gap to the next sampled row follows the reservoir's acceptance odds
+            if (reservoir.size() == capacity) {
+                double w = Math.exp(Math.log(1 - random.nextDouble()) / capacity);
+                long skip = (long) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - w));
+                boolean more = true;
+                while (more) {
+                    // Skipped rows are never turned into logs, but malformed ones are still left out of the totals
+                    while (skip > 0 && (more = tokenizer.nextRow())) {
+                        if (!tokenizer.hasFieldCount(fields)) continue;
+                        rows++;
+                        skip--;
+                        if ((rows & PROGRESS_ROW_MASK) == 0) progress.setRows(rows);
+                    }
+                    if (!more || !(more = tokenizer.nextRow())) break;
+                    if (!tokenizer.hasFieldCount(fields)) continue;
+                    rows++;
+                    reservoir.set(random.nextInt(capacity), toLog(tokenizer, type));
+                    w *= Math.exp(Math.log(1 - random.nextDouble()) / capacity);
+                    skip = (long) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - w));
+                }
+            }
+
+            totals[type.ordinal()] += rows;
+            for (LogFile log : reservoir) {
+                if (log instanceof ImpressionLog) {
+                    impressionLogs.add((ImpressionLog) log);
+                } else if (log instanceof ClickLog) {
+                    clickLogs.add((ClickLog) log);
+                } else {
+                    serverLogs.add((ServerLog) log);
+                }
+            }
+        }
+        progress.finish(rows);
+    }
+
+    private static LogFile toLog(LogCsvTokenizer tokenizer, LogCsvTokenizer.LogType type) {
+        switch (type) {
+            case IMPRESSION:
+                return tokenizer.toImpressionLog();
+            case CLICK:
+                return tokenizer.toClickLog();
+            default:
+                return tokenizer.toServerLog();
+        }
+    }
+
+    // Drops everything read before a failure or cancellation so none of it outlives the load
+    private void discardPartialResults(List<?>... partialLogs) {
+        for (List<?> logs : partialLogs) {
+            logs.clear();
+        }
+    }
+
+    /**
+     * Logs parsed from one zip entry, kept separate until every entry has been read
+     */
+    private static class ParsedEntry {
+        final List<ImpressionLog> impressionLogs = new ArrayList<>();
+        final List<ClickLog> clickLogs = new ArrayList<>();
+        final List<ServerLog> serverLogs = new ArrayList<>();
+    }
+
+    /**
+     * Writes the campaign to a binary columnar snapshot (see CampaignSnapshot) which
+     * openSnapshot can reopen without parsing the CSVs again
+     * @return true if the snapshot was written
+     */
+    public boolean saveSnapshot(Campaign campaign, String filePath) {
+        try {
+            CampaignSnapshot.write(campaign, Paths.get(filePath));
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error writing campaign snapshot: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reopens a campaign written by saveSnapshot, mapping its columns rather than reading them
+     * @return the campaign, or null if the file is missing or is not a valid snapshot
+     */
+    public Campaign openSnapshot(String filePath) {
+        try {
+            return CampaignSnapshot.read(Paths.get(filePath));
+        } catch (Exception e) {
+            System.err.println("Error reading campaign snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
     public LogFile[] openIndividualCSV(String filePath){
-        String file = readFromCsv(filePath);
-        LogFile[] logs = new LogFile[0];
-        String[] splitFile = splitCsv(file);
-        switch (splitFile[0]){
-            case "Date,ID,Gender,Age,Income,Context,Impression Cost":
-                logs = formatImpressions(splitImpressions(splitFile));
-                break;
-            case "Entry Date,ID,Exit Date,Pages Viewed,Conversion":
-                logs = formatServer(splitServer(splitFile));
-                break;
-            case "Date,ID,Click Cost":
-                logs = formatClick(splitClick(splitFile));
-                break;
+        return openIndividualCSV(filePath, (ValidationReport) null);
+    }
+
+    /**
+     * Parses a single CSV, counting its invalid rows and fields into the given report
+     */
+    public LogFile[] openIndividualCSV(String filePath, ValidationReport report){
+        File file = new File(filePath);
+        return openIndividualCSV(filePath, chunkCountFor(file.length()), report);
+    }
+
+    public LogFile[] openIndividualCSV(String filePath, int chunkCount){
+        return openIndividualCSV(filePath, chunkCount, null);
+    }
+
+    /**
+     * Parses a single CSV in the given number of chunks. The file is split into byte ranges
+     * aligned to line starts, each range is parsed on a ForkJoinPool worker, and the chunks are
+     * concatenated in file order, so the result is identical to a sequential parse.
+     * @param report counts invalid rows and fields, or null to skip validation reporting
+     */
+    public LogFile[] openIndividualCSV(String filePath, int chunkCount, ValidationReport report){
+        if (filePath.endsWith(".gz")) {
+            return openCompressedCSV(filePath, report);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            LogCsvTokenizer.LogType type;
+            long dataStart;
+            try (LogCsvTokenizer header = LogCsvTokenizer.mapRange(channel, 0, size)) {
+                type = header.readHeader();
+                dataStart = header.getHeaderEnd();
+            }
+            IntFunction<LogFile[]> newArray = arrayFor(type);
+            if (newArray == null) {
+                return new LogFile[0];
+            }
+
+            // Chunk boundaries are moved forward to the next line start so no row is split
+            int chunks = Math.max(1, chunkCount);
+            long[] bounds = new long[chunks + 1];
+            bounds[0] = dataStart;
+            bounds[chunks] = size;
+            for (int i = 1; i < chunks; i++) {
+                long target = dataStart + (size - dataStart) * i / chunks;
+                bounds[i] = Math.max(bounds[i - 1], LogCsvTokenizer.nextLineStart(channel, target, size));
+            }
+
+            String source = Paths.get(filePath).getFileName().toString();
+            List<ForkJoinTask<ParsedRange>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                ValidationReport.Tally tally = report == null ? null : report.newChunkTally(source, type);
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseRange(channel, start, end, type, tally)));
+            }
+            List<ParsedRange> parsedChunks = new ArrayList<>();
+            int total = 0;
+            // Chunk line numbers start again at 1, so each is shifted by the lines before it
+            long lineOffset = 1;
+            for (ForkJoinTask<ParsedRange> task : tasks) {
+                ParsedRange chunk = task.join();
+                parsedChunks.add(chunk);
+                total += chunk.logs.size();
+                if (chunk.tally != null) {
+                    report.add(chunk.tally, lineOffset);
+                }
+                lineOffset += chunk.lines;
+            }
+
+            LogFile[] logs = newArray.apply(total);
+            int offset = 0;
+            for (ParsedRange chunk : parsedChunks) {
+                for (LogFile log : chunk.logs) {
+                    logs[offset++] = log;
+                }
+            }
+            return logs;
+        } catch (IOException | UncheckedIOException | InvalidPathException e) {
+            System.err.println(e);
+            return new LogFile[0];
+        }
+    }
+
+    /**
+     * Parses a .csv.gz log. It cannot be mapped or split into chunks, so it is inflated on a
+     * pipeline thread and parsed on this one as the blocks arrive.
+     */
+    private LogFile[] openCompressedCSV(String filePath, ValidationReport report) {
+        try (LogCsvTokenizer tokenizer = new LogCsvTokenizer(new PipelinedInputStream(
+            new GZIPInputStream(new FileInputStream(filePath), GZIP_BUFFER_SIZE)))) {
+            LogCsvTokenizer.LogType type = tokenizer.readHeader();
+            IntFunction<LogFile[]> newArray = arrayFor(type);
+            if (newArray == null) {
+                return new LogFile[0];
+            }
+            ValidationReport.Tally tally = null;
+            if (report != null) {
+                tally = report.newTally(Paths.get(filePath).getFileName().toString(), type);
+                tokenizer.setTally(tally);
+            }
+            LogFile[] parsed;
+            try (Stream<LogFile> logs = tokenizer.records(type)) {
+                parsed = logs.toArray(newArray);
+            }
+            if (tally != null) {
+                report.add(tally, 0);
+            }
+            return parsed;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(e);
+            return new LogFile[0];
+        }
+    }
+
+    // Typed array for the logs of a file, or null if the header was not recognised
+    private static IntFunction<LogFile[]> arrayFor(LogCsvTokenizer.LogType type) {
+        switch (type) {
+            case IMPRESSION:
+                return ImpressionLog[]::new;
+            case SERVER:
+                return ServerLog[]::new;
+            case CLICK:
+                return ClickLog[]::new;
             default:
-                break;
+                return null;
+        }
+    }
+
+    private ParsedRange parseRange(FileChannel channel, long start, long end, LogCsvTokenizer.LogType type,
+                                   ValidationReport.Tally tally) {
+        if (start >= end) {
+            return new ParsedRange(new ArrayList<>(), tally, 0);
+        }
+        try (LogCsvTokenizer tokenizer = LogCsvTokenizer.mapRange(channel, start, end)) {
+            tokenizer.setTally(tally);
+            List<LogFile> parsed;
+            try (Stream<LogFile> logs = tokenizer.records(type)) {
+                parsed = logs.collect(Collectors.toCollection(ArrayList::new));
+            }
+            return new ParsedRange(parsed, tally, tokenizer.getLineNumber());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Logs parsed from one chunk of a CSV, with the number of lines the chunk held
+     */
+    private static class ParsedRange {
+        final List<LogFile> logs;
+        final ValidationReport.Tally tally;
+        final long lines;
+
+        ParsedRange(List<LogFile> logs, ValidationReport.Tally tally, long lines) {
+            this.logs = logs;
+            this.tally = tally;
+            this.lines = lines;
+        }
+    }
+
+    // Small files are parsed in one piece, large ones in several chunks per core
+    private static int chunkCountFor(long fileSize) {
+        if (fileSize < PARALLEL_THRESHOLD_BYTES) {
+            return 1;
+        }
+        return (int) Math.min(ForkJoinPool.commonPool().getParallelism() * 4L, fileSize / MIN_CHUNK_BYTES + 1);
+    }
+
+    /**
+     * Streams the logs of a single CSV straight out of a memory-mapped file.
+     * The caller must close the stream to release the file.
+     */
+    public Stream<LogFile> streamIndividualCSV(String filePath) throws IOException {
+        LogCsvTokenizer tokenizer = LogCsvTokenizer.map(Paths.get(filePath));
+        try {
+            return tokenizer.records(tokenizer.readHeader());
+        } catch (IOException e) {
+            tokenizer.close();
+            throw e;
         }
-        return logs;
     }
 
     public String[] readFromZip(String filePath){
@@ -228,8 +795,4 @@ public class FileHandler {
         }
         return output.toArray(new ServerLog[0]);
     }
-
-    public void setStartScene(StartSceneController startScene) {
-        this.startScene = startScene;
-    }
 }
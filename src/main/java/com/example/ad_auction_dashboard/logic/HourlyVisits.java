@@ -0,0 +1,84 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.Arrays;
+
+/**
+ * The hour, pages viewed and seconds on site of server visits, for counting the bounces of any
+ * run of hours under any criteria.
+ *
+ * The visits are kept whatever the criteria. The bounces of each hour under the criteria last
+ * asked about are summed across the hours when first needed, so a query is the difference of
+ * two sums, and new criteria cost one pass over the visits rather than rebuilding whatever
+ * holds them.
+ */
+final class HourlyVisits {
+
+    private int visits;
+    // Hours are counted from the epoch, which an int holds for any year a LogDate can have
+    private int[] hours = new int[16];
+    private int[] pages = new int[16];
+    private int[] seconds = new int[16];
+    private int firstHour = Integer.MAX_VALUE;
+    private int lastHour = Integer.MIN_VALUE;
+
+    // Bounces in the hours from firstHour up to each index, under the criteria below, worked
+    // out again after visits are added or for other criteria
+    private int[] sums;
+    private int sumsPages;
+    private int sumsSeconds;
+
+    /**
+     * Adds a visit with both dates
+     * @param hour the hour of the entry date, in hours since the epoch or any fixed hour
+     */
+    void add(long hour, int pagesViewed, long onSite) {
+        if (visits == hours.length) {
+            int capacity = visits * 2;
+            hours = Arrays.copyOf(hours, capacity);
+            pages = Arrays.copyOf(pages, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+        }
+        int h = Math.toIntExact(hour);
+        hours[visits] = h;
+        pages[visits] = pagesViewed;
+        seconds[visits] = (int) Math.max(Integer.MIN_VALUE, Math.min(onSite, Integer.MAX_VALUE));
+        visits++;
+        firstHour = Math.min(firstHour, h);
+        lastHour = Math.max(lastHour, h);
+        sums = null;
+    }
+
+    /**
+     * @return the visits in the hours [fromHour, toHour) with at most the given pages or seconds
+     */
+    int bounces(long fromHour, long toHour, int pagesThreshold, int secondsThreshold) {
+        if (visits == 0) return 0;
+        long from = Math.max(fromHour, firstHour);
+        long to = Math.min(toHour, (long) lastHour + 1);
+        if (to <= from) return 0;
+        int[] totals = sums(pagesThreshold, secondsThreshold);
+        return totals[(int) (to - firstHour)] - totals[(int) (from - firstHour)];
+    }
+
+    int getVisits() {
+        return visits;
+    }
+
+    private int[] sums(int pagesThreshold, int secondsThreshold) {
+        if (sums == null || sumsPages != pagesThreshold || sumsSeconds != secondsThreshold) {
+            int[] totals = new int[lastHour - firstHour + 2];
+            for (int i = 0; i < visits; i++) {
+                if (pages[i] <= pagesThreshold || seconds[i] <= secondsThreshold) {
+                    totals[hours[i] - firstHour + 1]++;
+                }
+            }
+            for (int i = 1; i < totals.length; i++) {
+                totals[i] += totals[i - 1];
+            }
+            sums = totals;
+            sumsPages = pagesThreshold;
+            sumsSeconds = secondsThreshold;
+        }
+        return sums;
+    }
+}
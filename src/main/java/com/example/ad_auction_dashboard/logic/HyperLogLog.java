@@ -0,0 +1,143 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch of distinct users (by ordinal), for counting uniques over any range of
+ * time buckets by merging the buckets' sketches rather than their sets of users.
+ *
+ * A sketch of precision p has 2^p registers and a relative standard error of 1.04 / sqrt(2^p).
+ * It starts out sparse, the (register, rank) pairs of the users added in an int array, as most
+ * hours of a campaign have few clicks; once that would outgrow the registers it turns dense.
+ */
+final class HyperLogLog {
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 16;
+
+    private final int precision;
+
+    // Register << 8 | rank of each user added while sparse, duplicates and all
+    private int[] pairs = new int[4];
+    private int pairCount;
+    // The highest rank seen per register, once dense
+    private byte[] registers;
+
+    /**
+     * @throws IllegalArgumentException if the precision is outside [MIN_PRECISION, MAX_PRECISION]
+     */
+    HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be from " + MIN_PRECISION
+                + " to " + MAX_PRECISION + ".");
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * The smallest precision whose standard error is at most the target, or the largest
+     * @throws IllegalArgumentException if the target is not between 0 and 1
+     */
+    static int precisionFor(double errorTarget) {
+        if (!(errorTarget > 0 && errorTarget < 1)) {
+            throw new IllegalArgumentException("Uniques error target must be between 0 and 1.");
+        }
+        int precision = MIN_PRECISION;
+        while (precision < MAX_PRECISION && standardError(precision) > errorTarget) {
+            precision++;
+        }
+        return precision;
+    }
+
+    static double standardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    int getPrecision() {
+        return precision;
+    }
+
+    void add(int user) {
+        long hash = hash(user);
+        int register = (int) (hash >>> (64 - precision));
+        // Leading zeros of the remaining bits plus one, at most 65 - precision
+        int rank = Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1;
+        if (registers != null) {
+            if (rank > registers[register]) registers[register] = (byte) rank;
+            return;
+        }
+        if (pairCount == pairs.length) {
+            if (pairCount * 4 >= 1 << precision) {
+                densify();
+                add(user);
+                return;
+            }
+            pairs = Arrays.copyOf(pairs, pairCount * 2);
+        }
+        pairs[pairCount++] = register << 8 | rank;
+    }
+
+    /**
+     * Adds the users of a sketch of the same precision to this one, which turns dense
+     */
+    void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Sketches of different precisions cannot be merged.");
+        }
+        densify();
+        if (other.registers != null) {
+            for (int i = 0; i < registers.length; i++) {
+                if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+            }
+        } else {
+            for (int i = 0; i < other.pairCount; i++) {
+                setMax(other.pairs[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct users added
+     */
+    int estimate() {
+        densify();
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte rank : registers) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Linear counting is the more accurate for small counts, while registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return (int) Math.round(estimate);
+    }
+
+    private void densify() {
+        if (registers != null) return;
+        registers = new byte[1 << precision];
+        for (int i = 0; i < pairCount; i++) {
+            setMax(pairs[i]);
+        }
+        pairs = null;
+        pairCount = 0;
+    }
+
+    private void setMax(int pair) {
+        int register = pair >>> 8;
+        byte rank = (byte) (pair & 0xFF);
+        if (rank > registers[register]) registers[register] = rank;
+    }
+
+    // The SplitMix64 finalizer, spreading consecutive ordinals over all 64 bits
+    private static long hash(int user) {
+        long z = user + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -22,6 +22,17 @@ public class ImpressionLog implements LogFile {
         this.setImpressionCost(impressionCost);
     }
 
+    // Used by LogCsvTokenizer, which has already validated every field
+    ImpressionLog(LogDate date, String id, Gender gender, Age age, Income income, Context context, float impressionCost){
+        this.date = date;
+        this.id = id;
+        this.gender = gender;
+        this.age = age;
+        this.income = income;
+        this.context = context;
+        this.impressionCost = impressionCost;
+    }
+
     public void setDate(String date) {
         this.date = LogFile.convertDate(date);
     }
@@ -190,6 +201,12 @@ public class ImpressionLog implements LogFile {
         return impressionCost;
     }
 
+    // Raw enum values for CampaignSnapshot, which stores them as dictionary codes
+    Gender getGenderValue() { return gender; }
+    Age getAgeValue() { return age; }
+    Income getIncomeValue() { return income; }
+    Context getContextValue() { return context; }
+
     public String getLogAsString(){
         return this.getDate().getDate() + "," + this.getId() + "," + this.getGender() + "," + this.getAge() + "," + this.getIncome() + "," + this.getContext() + "," + Float.toString(this.getImpressionCost());
     }
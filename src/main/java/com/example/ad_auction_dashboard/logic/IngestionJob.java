@@ -0,0 +1,232 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Tracks a single ingestion run: bytes read against total bytes, rows parsed, rows/sec and ETA
+ * for every log being read. Parsers report into it from any thread and the listener is told
+ * about changes on the given executor (Platform::runLater for the UI). Updates are coalesced,
+ * so there is never more than one pending and they arrive at most every UPDATE_INTERVAL_MS.
+ * Cancelling the job makes the parsers stop at their next read and discard what they have read.
+ * Rows the parsers reject are counted into the job's ValidationReport.
+ */
+public class IngestionJob {
+
+    public static final long UPDATE_INTERVAL_MS = 100;
+
+    private final Executor updateExecutor;
+    private final Consumer<List<Progress>> listener;
+    private final ValidationReport validationReport;
+    private final List<Progress> progress = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    private final long startNanos = System.nanoTime();
+    private volatile long lastUpdateNanos = startNanos - TimeUnit.MILLISECONDS.toNanos(UPDATE_INTERVAL_MS);
+    private volatile boolean cancelled = false;
+
+    /**
+     * A job nobody listens to, for loads that do not need progress reporting
+     */
+    public IngestionJob() {
+        this(Runnable::run, progress -> { });
+    }
+
+    public IngestionJob(Executor updateExecutor, Consumer<List<Progress>> listener) {
+        this(updateExecutor, listener, new ValidationReport());
+    }
+
+    /**
+     * @param validationReport where rejected rows are counted, e.g. one writing a rejected rows file
+     */
+    public IngestionJob(Executor updateExecutor, Consumer<List<Progress>> listener, ValidationReport validationReport) {
+        this.updateExecutor = updateExecutor;
+        this.listener = listener;
+        this.validationReport = validationReport;
+    }
+
+    /**
+     * Starts tracking one input, e.g. a zip entry
+     * @param name shown until the log type is known from the header
+     * @param totalBytes expected size, or -1 if unknown
+     */
+    public Progress track(String name, long totalBytes) {
+        Progress entry = new Progress(this, name, totalBytes);
+        progress.add(entry);
+        changed(true);
+        return entry;
+    }
+
+    public List<Progress> getProgress() {
+        return Collections.unmodifiableList(progress);
+    }
+
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        changed(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the job has been cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Ingestion cancelled");
+        }
+    }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * One line per input with rows, bytes and throughput, for showing once loading has finished
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(String.format("Ingestion %s after %.2f s",
+            cancelled ? "cancelled" : "finished", getElapsedSeconds()));
+        for (Progress entry : progress) {
+            summary.append(String.format("%n  %s: %,d rows, %,d bytes, %,.0f rows/s, %.1f MB/s",
+                entry.getLogType(), entry.getRows(), entry.getBytesRead(),
+                entry.getRowsPerSecond(), entry.getBytesPerSecond() / (1024 * 1024)));
+        }
+        return summary.toString();
+    }
+
+    // Schedules a listener update unless one is already pending or the last one was too recent
+    void changed(boolean force) {
+        long now = System.nanoTime();
+        if (!force && now - lastUpdateNanos < TimeUnit.MILLISECONDS.toNanos(UPDATE_INTERVAL_MS)) {
+            return;
+        }
+        if (updatePending.compareAndSet(false, true)) {
+            lastUpdateNanos = now;
+            updateExecutor.execute(() -> {
+                // Cleared before reading, so a change racing with this update schedules another one
+                updatePending.set(false);
+                listener.accept(getProgress());
+            });
+        }
+    }
+
+    /**
+     * Progress of one input. Each input is written by a single parser thread and read by the UI.
+     */
+    public static class Progress {
+        private final IngestionJob job;
+        private final long totalBytes;
+        private final long startNanos = System.nanoTime();
+        private volatile String logType;
+        private volatile long bytesRead;
+        private volatile long rows;
+        private volatile long endNanos = -1;
+
+        private Progress(IngestionJob job, String name, long totalBytes) {
+            this.job = job;
+            this.logType = name;
+            this.totalBytes = totalBytes;
+        }
+
+        /**
+         * Wraps the raw input so every block read is counted and checked for cancellation
+         */
+        public InputStream count(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    job.checkCancelled();
+                    int b = super.read();
+                    if (b >= 0) {
+                        addBytes(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    job.checkCancelled();
+                    int read = super.read(b, off, len);
+                    if (read > 0) {
+                        addBytes(read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        public void setLogType(String logType) {
+            this.logType = logType;
+            job.changed(true);
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+            job.changed(false);
+        }
+
+        public void finish(long rows) {
+            this.rows = rows;
+            this.endNanos = System.nanoTime();
+            job.changed(true);
+        }
+
+        private void addBytes(long count) {
+            bytesRead += count;
+            job.changed(false);
+        }
+
+        public String getLogType() { return logType; }
+        public long getBytesRead() { return bytesRead; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getRows() { return rows; }
+        public boolean isDone() { return endNanos >= 0; }
+
+        public double getElapsedSeconds() {
+            long end = endNanos >= 0 ? endNanos : System.nanoTime();
+            return Math.max(end - startNanos, 1) / 1e9;
+        }
+
+        public double getRowsPerSecond() {
+            return rows / getElapsedSeconds();
+        }
+
+        public double getBytesPerSecond() {
+            return bytesRead / getElapsedSeconds();
+        }
+
+        /**
+         * @return fraction of the input read, between 0 and 1, or -1 if the size is unknown
+         */
+        public double getFraction() {
+            if (isDone()) return 1;
+            if (totalBytes <= 0) return -1;
+            return Math.min(1.0, (double) bytesRead / totalBytes);
+        }
+
+        /**
+         * @return estimated seconds left at the current byte rate, or -1 if it cannot be estimated
+         */
+        public double getEtaSeconds() {
+            if (isDone()) return 0;
+            double rate = getBytesPerSecond();
+            if (totalBytes <= 0 || bytesRead == 0 || rate <= 0) return -1;
+            return Math.max(0, totalBytes - bytesRead) / rate;
+        }
+    }
+}
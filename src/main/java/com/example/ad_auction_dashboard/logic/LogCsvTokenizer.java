@@ -0,0 +1,703 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streaming tokenizer for the impression, click and server log CSVs.
+ * It works directly on the raw UTF-8 bytes of the input, splits each row on commas in place
+ * and validates fields with hand-written digit/decimal scanners, so rows are turned into log
+ * records without the intermediate Strings and regular expressions of String.split and the
+ * log setters. Field validation gives exactly the same results as those setters.
+ * Input can be a stream (e.g. a zip entry) or a memory-mapped file, in which case line
+ * boundaries are found in the mapped pages and only the current row is copied onto the heap.
+ */
+public class LogCsvTokenizer implements Closeable {
+
+    public enum LogType {
+        IMPRESSION,
+        CLICK,
+        SERVER,
+        UNKNOWN
+    }
+
+    public static final String IMPRESSION_HEADER = "Date,ID,Gender,Age,Income,Context,Impression Cost";
+    public static final String CLICK_HEADER = "Date,ID,Click Cost";
+    public static final String SERVER_HEADER = "Entry Date,ID,Exit Date,Pages Viewed,Conversion";
+
+    private static final byte[] IMPRESSION_HEADER_BYTES = ascii(IMPRESSION_HEADER);
+    private static final byte[] CLICK_HEADER_BYTES = ascii(CLICK_HEADER);
+    private static final byte[] SERVER_HEADER_BYTES = ascii(SERVER_HEADER);
+
+    private static final byte[][] GENDER_VALUES = {ascii("Male"), ascii("Female")};
+    private static final ImpressionLog.Gender[] GENDERS = {ImpressionLog.Gender.Male, ImpressionLog.Gender.Female};
+    private static final byte[][] AGE_VALUES = {ascii("<25"), ascii("25-34"), ascii("35-44"), ascii("45-54"), ascii(">54")};
+    private static final ImpressionLog.Age[] AGES = {
+        ImpressionLog.Age.A, ImpressionLog.Age.B, ImpressionLog.Age.C, ImpressionLog.Age.D, ImpressionLog.Age.E};
+    private static final byte[][] INCOME_VALUES = {ascii("Low"), ascii("Medium"), ascii("High")};
+    private static final ImpressionLog.Income[] INCOMES = {
+        ImpressionLog.Income.Low, ImpressionLog.Income.Medium, ImpressionLog.Income.High};
+    private static final byte[][] CONTEXT_VALUES = {ascii("News"), ascii("Shopping"), ascii("Social Media"),
+        ascii("Media"), ascii("Blog"), ascii("Hobbies"), ascii("Travel")};
+    private static final ImpressionLog.Context[] CONTEXTS = {ImpressionLog.Context.News, ImpressionLog.Context.Shopping,
+        ImpressionLog.Context.Social, ImpressionLog.Context.Media, ImpressionLog.Context.Blog,
+        ImpressionLog.Context.Hobbies, ImpressionLog.Context.Travel};
+    private static final byte[][] CONVERSION_VALUES = {ascii("Yes"), ascii("No")};
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    // Files are mapped a region at a time, each region starting on a line boundary
+    private static final long MAX_REGION_SIZE = 1L << 30;
+    // Only the first seven fields are ever read, the eighth slot just proves a row is too long
+    private static final int MAX_FIELDS = 8;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private int scanned;
+    private boolean eof;
+    // Bytes of the stream dropped from the front of buf so far
+    private long discarded;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long mappedEnd;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private int regionPos;
+
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int lineEnd;
+    private int fieldCount;
+    private long lineNumber;
+    private boolean dateRejected;
+    private ValidationReport.Tally tally;
+
+    public LogCsvTokenizer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LogCsvTokenizer(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[Math.max(bufferSize, 64)];
+        this.channel = null;
+        this.ownsChannel = false;
+        this.mappedEnd = -1;
+    }
+
+    private LogCsvTokenizer(FileChannel channel, long start, long end, boolean ownsChannel) throws IOException {
+        this.in = null;
+        this.buf = new byte[256];
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.mappedEnd = end;
+        mapRegion(start);
+    }
+
+    /**
+     * Opens a tokenizer over a memory-mapped file, so the file is never copied onto the heap
+     */
+    public static LogCsvTokenizer map(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new LogCsvTokenizer(channel, 0, channel.size(), true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a tokenizer over the byte range [start, end) of an already open file, which must
+     * begin and end on line boundaries. The range has no header row, and closing the tokenizer
+     * leaves the channel open so several ranges can be read from it at once.
+     */
+    static LogCsvTokenizer mapRange(FileChannel channel, long start, long end) throws IOException {
+        return new LogCsvTokenizer(channel, start, end, false);
+    }
+
+    /**
+     * Byte offset just past the end of the header row of a mapped file
+     */
+    long getHeaderEnd() {
+        return regionStart + regionPos;
+    }
+
+    /**
+     * Byte offset of the next unread row, from the start of the stream or of the mapped file
+     */
+    public long getPosition() {
+        if (channel != null) {
+            return regionStart + regionPos;
+        }
+        return discarded + pos;
+    }
+
+    /**
+     * Finds where the line containing the given offset ends, i.e. the offset of the next line
+     * start at or after position, or end if there is none
+     */
+    static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        long offset = position - 1;
+        while (offset < end) {
+            window.clear();
+            int read = channel.read(window, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return Math.min(offset + i + 1, end);
+                }
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    /**
+     * Reads the header row and works out which log the rest of the input holds
+     * @return the log type, or UNKNOWN if the input is empty or the header is not recognised
+     */
+    public LogType readHeader() throws IOException {
+        if (!nextLine()) {
+            return LogType.UNKNOWN;
+        }
+        int start = fieldStart[0];
+        int end = lineEnd;
+        if (equalsBytes(start, end, IMPRESSION_HEADER_BYTES)) return LogType.IMPRESSION;
+        if (equalsBytes(start, end, CLICK_HEADER_BYTES)) return LogType.CLICK;
+        if (equalsBytes(start, end, SERVER_HEADER_BYTES)) return LogType.SERVER;
+        return LogType.UNKNOWN;
+    }
+
+    /**
+     * Advances to the next row and splits it into fields
+     * @return false once the input is exhausted
+     */
+    public boolean nextRow() throws IOException {
+        if (!nextLine()) {
+            return false;
+        }
+        splitFields();
+        return true;
+    }
+
+    /**
+     * Number of fields in the current row, counted the same way as String.split(","),
+     * i.e. trailing empty fields are ignored
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * One-based line number of the current row, the header being line 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Counts rejected rows and fields into the given tally from now on, or stops counting if null
+     */
+    public void setTally(ValidationReport.Tally tally) {
+        this.tally = tally;
+    }
+
+    /**
+     * Checks the current row has the given log's number of fields, recording it as rejected if not
+     */
+    public boolean hasFieldCount(int expected) {
+        if (tally == null) {
+            return fieldCount == expected;
+        }
+        tally.countRow();
+        if (fieldCount == expected) {
+            return true;
+        }
+        tally.reject(ValidationReport.Field.COLUMNS.bit(), lineNumber, this::currentRow);
+        return false;
+    }
+
+    public ImpressionLog toImpressionLog() {
+        int gender = match(2, GENDER_VALUES);
+        int age = match(3, AGE_VALUES);
+        int income = match(4, INCOME_VALUES);
+        int context = match(5, CONTEXT_VALUES);
+        LogDate date = parseDate(0);
+        boolean badDate = dateRejected;
+        String id = parseId(1);
+        float cost = parseDecimal(6, Integer.MAX_VALUE);
+        if (tally != null) {
+            int rejected = (badDate ? ValidationReport.Field.DATE.bit() : 0)
+                | (isRejectedId(1, id) ? ValidationReport.Field.ID.bit() : 0)
+                | (gender < 0 ? ValidationReport.Field.GENDER.bit() : 0)
+                | (age < 0 ? ValidationReport.Field.AGE.bit() : 0)
+                | (income < 0 ? ValidationReport.Field.INCOME.bit() : 0)
+                | (context < 0 ? ValidationReport.Field.CONTEXT.bit() : 0)
+                | (cost < 0 ? ValidationReport.Field.COST.bit() : 0);
+            record(rejected);
+        }
+        return new ImpressionLog(
+            date,
+            id,
+            gender < 0 ? ImpressionLog.Gender.Invalid : GENDERS[gender],
+            age < 0 ? ImpressionLog.Age.Invalid : AGES[age],
+            income < 0 ? ImpressionLog.Income.Invalid : INCOMES[income],
+            context < 0 ? ImpressionLog.Context.Invalid : CONTEXTS[context],
+            cost);
+    }
+
+    public ClickLog toClickLog() {
+        LogDate date = parseDate(0);
+        boolean badDate = dateRejected;
+        String id = parseId(1);
+        float cost = parseDecimal(2, 6);
+        if (tally != null) {
+            record((badDate ? ValidationReport.Field.DATE.bit() : 0)
+                | (isRejectedId(1, id) ? ValidationReport.Field.ID.bit() : 0)
+                | (cost < 0 ? ValidationReport.Field.COST.bit() : 0));
+        }
+        return new ClickLog(date, id, cost);
+    }
+
+    /**
+     * Streams the remaining rows as records of the given type, skipping rows that do not have
+     * that log's number of fields. Closing the stream closes the tokenizer.
+     */
+    public Stream<LogFile> records(LogType type) {
+        int fields = type == LogType.IMPRESSION ? 7 : type == LogType.CLICK ? 3 : type == LogType.SERVER ? 5 : -1;
+        Spliterator<LogFile> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super LogFile> action) {
+                if (fields < 0) {
+                    return false;
+                }
+                try {
+                    while (nextRow()) {
+                        if (hasFieldCount(fields)) {
+                            action.accept(type == LogType.IMPRESSION ? toImpressionLog()
+                                : type == LogType.CLICK ? toClickLog() : toServerLog());
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public ServerLog toServerLog() {
+        int conversion = match(4, CONVERSION_VALUES);
+        LogDate entryDate = parseDate(0);
+        boolean badEntryDate = dateRejected;
+        String id = parseId(1);
+        LogDate exitDate = parseDate(2);
+        boolean badExitDate = dateRejected;
+        int pages = parsePages(3);
+        if (tally != null) {
+            record((badEntryDate ? ValidationReport.Field.DATE.bit() : 0)
+                | (isRejectedId(1, id) ? ValidationReport.Field.ID.bit() : 0)
+                | (badExitDate ? ValidationReport.Field.EXIT_DATE.bit() : 0)
+                | (pages < 0 ? ValidationReport.Field.PAGES_VIEWED.bit() : 0)
+                | (conversion < 0 ? ValidationReport.Field.CONVERSION.bit() : 0));
+        }
+        return new ServerLog(
+            entryDate,
+            id,
+            exitDate,
+            pages,
+            conversion < 0 ? null : conversion == 0);
+    }
+
+    /**
+     * Adds the current impression row to the columns without creating a log for it,
+     * validating and recording rejected fields exactly like toImpressionLog
+     */
+    void addImpressionTo(ColumnarCampaign columns) {
+        int gender = match(2, GENDER_VALUES);
+        int age = match(3, AGE_VALUES);
+        int income = match(4, INCOME_VALUES);
+        int context = match(5, CONTEXT_VALUES);
+        long date = parseEpochSecond(0);
+        int user = parseUser(1, columns);
+        float cost = parseDecimal(6, Integer.MAX_VALUE);
+        if (tally != null) {
+            record((date == LogDate.INVALID ? ValidationReport.Field.DATE.bit() : 0)
+                | (!isDigits(1) ? ValidationReport.Field.ID.bit() : 0)
+                | (gender < 0 ? ValidationReport.Field.GENDER.bit() : 0)
+                | (age < 0 ? ValidationReport.Field.AGE.bit() : 0)
+                | (income < 0 ? ValidationReport.Field.INCOME.bit() : 0)
+                | (context < 0 ? ValidationReport.Field.CONTEXT.bit() : 0)
+                | (cost < 0 ? ValidationReport.Field.COST.bit() : 0));
+        }
+        columns.addImpression(date, user, SegmentPredicate.segment(
+            (gender < 0 ? ImpressionLog.Gender.Invalid : GENDERS[gender]).ordinal(),
+            (age < 0 ? ImpressionLog.Age.Invalid : AGES[age]).ordinal(),
+            (income < 0 ? ImpressionLog.Income.Invalid : INCOMES[income]).ordinal(),
+            (context < 0 ? ImpressionLog.Context.Invalid : CONTEXTS[context]).ordinal()),
+            cost);
+    }
+
+    void addClickTo(ColumnarCampaign columns) {
+        long date = parseEpochSecond(0);
+        int user = parseUser(1, columns);
+        float cost = parseDecimal(2, 6);
+        if (tally != null) {
+            record((date == LogDate.INVALID ? ValidationReport.Field.DATE.bit() : 0)
+                | (!isDigits(1) ? ValidationReport.Field.ID.bit() : 0)
+                | (cost < 0 ? ValidationReport.Field.COST.bit() : 0));
+        }
+        columns.addClick(date, user, cost);
+    }
+
+    void addServerLogTo(ColumnarCampaign columns) {
+        int conversion = match(4, CONVERSION_VALUES);
+        long entryDate = parseEpochSecond(0);
+        int user = parseUser(1, columns);
+        long exitDate = parseEpochSecond(2);
+        int pages = parsePages(3);
+        if (tally != null) {
+            record((entryDate == LogDate.INVALID ? ValidationReport.Field.DATE.bit() : 0)
+                | (!isDigits(1) ? ValidationReport.Field.ID.bit() : 0)
+                | (exitDate == LogDate.INVALID ? ValidationReport.Field.EXIT_DATE.bit() : 0)
+                | (pages < 0 ? ValidationReport.Field.PAGES_VIEWED.bit() : 0)
+                | (conversion < 0 ? ValidationReport.Field.CONVERSION.bit() : 0));
+        }
+        columns.addServerLog(entryDate, user, exitDate, pages, conversion == 0);
+    }
+
+    private void record(int rejectedFields) {
+        if (rejectedFields != 0) {
+            tally.reject(rejectedFields, lineNumber, this::currentRow);
+        }
+    }
+
+    // parseId stores anything that is not all digits as "", which an empty field also gives
+    private boolean isRejectedId(int field, String id) {
+        return id.isEmpty() && fieldEnd[field] > fieldStart[field];
+    }
+
+    private String currentRow() {
+        return new String(buf, fieldStart[0], lineEnd - fieldStart[0], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            region = null;
+            if (ownsChannel) {
+                channel.close();
+            }
+        } else {
+            in.close();
+        }
+    }
+
+    // Finds the next line terminator, refilling and growing the buffer as needed
+    private boolean nextLine() throws IOException {
+        if (channel != null) {
+            return nextMappedLine();
+        }
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    setLine(pos, i);
+                    pos = i + 1;
+                    scanned = pos;
+                    return true;
+                }
+            }
+            scanned = limit;
+            if (eof) {
+                if (pos == limit) {
+                    return false;
+                }
+                setLine(pos, limit);
+                pos = limit;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    // Finds the next line terminator in the mapped region, moving the region forward at its end
+    private boolean nextMappedLine() throws IOException {
+        while (true) {
+            int regionLimit = region.limit();
+            for (int i = regionPos; i < regionLimit; i++) {
+                if (region.get(i) == '\n') {
+                    copyLine(regionPos, i);
+                    regionPos = i + 1;
+                    return true;
+                }
+            }
+            if (regionStart + regionLimit >= mappedEnd) {
+                if (regionPos == regionLimit) {
+                    return false;
+                }
+                copyLine(regionPos, regionLimit);
+                regionPos = regionLimit;
+                return true;
+            }
+            if (regionPos == 0) {
+                throw new IOException("Line at byte " + regionStart + " is longer than " + MAX_REGION_SIZE + " bytes");
+            }
+            mapRegion(regionStart + regionPos);
+        }
+    }
+
+    private void mapRegion(long start) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAX_REGION_SIZE, mappedEnd - start));
+        regionStart = start;
+        regionPos = 0;
+    }
+
+    // Only the current row is copied out of the mapping, into a buffer reused for every row
+    private void copyLine(int start, int end) {
+        int length = end - start;
+        if (length > buf.length) {
+            buf = new byte[Math.max(length, buf.length * 2)];
+        }
+        region.get(start, buf, 0, length);
+        setLine(0, length);
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            discarded += pos;
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            scanned -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            byte[] grown = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        int read = in.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void setLine(int start, int end) {
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        lineNumber++;
+        fieldStart[0] = start;
+        lineEnd = end;
+    }
+
+    private void splitFields() {
+        int count = 0;
+        int start = fieldStart[0];
+        int lastNonEmpty = 0;
+        for (int i = start; i <= lineEnd; i++) {
+            if (i == lineEnd || buf[i] == ',') {
+                if (count < MAX_FIELDS) {
+                    fieldStart[count] = start;
+                    fieldEnd[count] = i;
+                }
+                count++;
+                if (i > start) {
+                    lastNonEmpty = count;
+                }
+                start = i + 1;
+            }
+        }
+        // String.split drops trailing empty fields, so a row like "a,b,c,," still has three
+        fieldCount = lastNonEmpty;
+    }
+
+    private long parseEpochSecond(int field) {
+        return LogDate.parseEpochSecond(buf, fieldStart[field], fieldEnd[field]);
+    }
+
+    private LogDate parseDate(int field) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        long epochSecond = LogDate.parseEpochSecond(buf, s, e);
+        dateRejected = epochSecond == LogDate.INVALID;
+        if (epochSecond != LogDate.INVALID) {
+            return LogDate.fromEpochSecond(epochSecond);
+        }
+        if (e - s != 19 || buf[s + 4] != '-' || buf[s + 7] != '-' || buf[s + 10] != ' '
+            || buf[s + 13] != ':' || buf[s + 16] != ':') {
+            return null;
+        }
+        // Well formed but out of range dates are flagged by the validating constructor, as before
+        int year = LogDate.digits(buf, s, 4);
+        int month = LogDate.digits(buf, s + 5, 2);
+        int day = LogDate.digits(buf, s + 8, 2);
+        int hour = LogDate.digits(buf, s + 11, 2);
+        int minute = LogDate.digits(buf, s + 14, 2);
+        int second = LogDate.digits(buf, s + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return null;
+        }
+        return new LogDate(year, month, day, hour, minute, second);
+    }
+
+    // The user of an ID field, "" being the user of anything that is not all digits as in parseId
+    private int parseUser(int field, ColumnarCampaign columns) {
+        return isDigits(field) ? columns.userOrdinal(buf, fieldStart[field], fieldEnd[field]) : columns.userOrdinal("");
+    }
+
+    private boolean isDigits(int field) {
+        for (int i = fieldStart[field]; i < fieldEnd[field]; i++) {
+            if (buf[i] < '0' || buf[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // IDs must be all digits (or empty), anything else is stored as ""
+    private String parseId(int field) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        for (int i = s; i < e; i++) {
+            if (buf[i] < '0' || buf[i] > '9') {
+                return "";
+            }
+        }
+        return new String(buf, s, e - s, StandardCharsets.ISO_8859_1);
+    }
+
+    // Pages viewed must match [1-9]+, anything else is stored as -1
+    private int parsePages(int field) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        if (s == e || e - s > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = s; i < e; i++) {
+            if (buf[i] < '1' || buf[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (buf[i] - '0');
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * Scans a [0-9]+\.[0-9]+ decimal with at most maxFraction fraction digits.
+     * Short decimals are converted with one exact division; Float.parseFloat is only
+     * used when that result could round differently from it.
+     * @return the value, or -1 if the field is not a valid decimal
+     */
+    private float parseDecimal(int field, int maxFraction) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        long mantissa = 0;
+        int i = s;
+        while (i < e && buf[i] >= '0' && buf[i] <= '9') {
+            mantissa = mantissa * 10 + (buf[i] - '0');
+            i++;
+        }
+        int integerDigits = i - s;
+        if (integerDigits == 0 || i == e || buf[i] != '.') {
+            return -1;
+        }
+        int fractionStart = ++i;
+        while (i < e && buf[i] >= '0' && buf[i] <= '9') {
+            mantissa = mantissa * 10 + (buf[i] - '0');
+            i++;
+        }
+        int fractionDigits = i - fractionStart;
+        if (i != e || fractionDigits == 0 || fractionDigits > maxFraction) {
+            return -1;
+        }
+        if (integerDigits + fractionDigits <= 18 && mantissa <= (1L << 53)
+            && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            if (!isFloatTie(value)) {
+                return (float) value;
+            }
+        }
+        return Float.parseFloat(new String(buf, s, e - s, StandardCharsets.ISO_8859_1));
+    }
+
+    // A correctly rounded double only rounds to a different float than the exact decimal
+    // when it lands exactly halfway between two floats (or in the subnormal range)
+    private static boolean isFloatTie(double value) {
+        if (value == 0) {
+            return false;
+        }
+        if (value < Float.MIN_NORMAL) {
+            return true;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        return (bits & 0x1FFFFFFFL) == 0x10000000L;
+    }
+
+    private int match(int field, byte[][] values) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        for (int v = 0; v < values.length; v++) {
+            if (equalsBytes(s, e, values[v])) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    private boolean equalsBytes(int start, int end, byte[] value) {
+        if (end - start != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (buf[start + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.ad_auction_dashboard.logic;
 
-import java.util.Arrays;
 import java.util.Objects;
-import java.util.stream.Stream;
 
 public class LogDate {
 
+    // Sentinels returned by parseEpochSecond and toEpochSecond
+    public static final long NOT_AVAILABLE = Long.MIN_VALUE;
+    public static final long INVALID = Long.MIN_VALUE + 1;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
     private int year = -1;
     private int month = -1;
     private int day = -1;
@@ -29,10 +33,172 @@ public class LogDate {
             setExists(Boolean.FALSE);
         } else {
             this.setInvalid(Boolean.TRUE);
-            System.err.println("Invalid date");
         }
     }
 
+    // Used by fromEpochSecond, whose fields are valid by construction and skip the setters
+    private LogDate(){
+    }
+
+    /**
+     * Creates a LogDate from a value returned by parseEpochSecond
+     * @param epochSecond seconds since 1970-01-01 00:00:00, or NOT_AVAILABLE for "n/a"
+     * @return the date, or null for INVALID, matching LogFile.convertDate
+     */
+    public static LogDate fromEpochSecond(long epochSecond){
+        if (epochSecond == NOT_AVAILABLE){
+            return new LogDate("n/a");
+        } else if (epochSecond == INVALID){
+            return null;
+        }
+        long days = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        // Civil date from a day count (Howard Hinnant's days_from_civil inverse)
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097);
+        long dayOfEra = shifted - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        LogDate logDate = new LogDate();
+        logDate.year = year;
+        logDate.month = month;
+        logDate.day = day;
+        logDate.hour = secondOfDay / 3600;
+        logDate.minute = (secondOfDay / 60) % 60;
+        logDate.second = secondOfDay % 60;
+        return logDate;
+    }
+
+    /**
+     * Recreates a date field for field, including dates the setters only partly accepted,
+     * so that CampaignSnapshot can store dates without an epoch second exactly
+     */
+    static LogDate restore(int year, int month, int day, int hour, int minute, int second,
+                           boolean exists, boolean invalid){
+        LogDate logDate = new LogDate();
+        logDate.year = year;
+        logDate.month = month;
+        logDate.day = day;
+        logDate.hour = hour;
+        logDate.minute = minute;
+        logDate.second = second;
+        logDate.exists = exists;
+        logDate.invalid = invalid;
+        return logDate;
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd HH:mm:ss" timestamp by fixed offsets without allocating anything
+     * @return seconds since 1970-01-01 00:00:00, NOT_AVAILABLE for "n/a", or INVALID if the
+     * text is not a timestamp or describes a date that does not exist
+     */
+    public static long parseEpochSecond(CharSequence date){
+        if (date == null){
+            return INVALID;
+        }
+        int length = date.length();
+        if (length == 3 && date.charAt(0) == 'n' && date.charAt(1) == '/' && date.charAt(2) == 'a'){
+            return NOT_AVAILABLE;
+        }
+        if (!hasTimestampShape(date)){
+            return INVALID;
+        }
+        return toEpochSecond(digits(date, 0, 4), digits(date, 5, 2), digits(date, 8, 2),
+            digits(date, 11, 2), digits(date, 14, 2), digits(date, 17, 2));
+    }
+
+    /**
+     * Byte version of parseEpochSecond for the raw rows read by LogCsvTokenizer
+     */
+    public static long parseEpochSecond(byte[] bytes, int start, int end){
+        int length = end - start;
+        if (length == 3 && bytes[start] == 'n' && bytes[start + 1] == '/' && bytes[start + 2] == 'a'){
+            return NOT_AVAILABLE;
+        }
+        if (length != 19 || bytes[start + 4] != '-' || bytes[start + 7] != '-' || bytes[start + 10] != ' '
+            || bytes[start + 13] != ':' || bytes[start + 16] != ':'){
+            return INVALID;
+        }
+        return toEpochSecond(digits(bytes, start, 4), digits(bytes, start + 5, 2), digits(bytes, start + 8, 2),
+            digits(bytes, start + 11, 2), digits(bytes, start + 14, 2), digits(bytes, start + 17, 2));
+    }
+
+    /**
+     * True if the text has the "yyyy-MM-dd HH:mm:ss" layout, whether or not the values are in range
+     */
+    static boolean hasTimestampShape(CharSequence date){
+        if (date.length() != 19 || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != ' '
+            || date.charAt(13) != ':' || date.charAt(16) != ':'){
+            return false;
+        }
+        return (digits(date, 0, 4) | digits(date, 5, 2) | digits(date, 8, 2)
+            | digits(date, 11, 2) | digits(date, 14, 2) | digits(date, 17, 2)) >= 0;
+    }
+
+    static int digits(CharSequence text, int start, int count){
+        int value = 0;
+        for (int i = start; i < start + count; i++){
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9){
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    static int digits(byte[] bytes, int start, int count){
+        int value = 0;
+        for (int i = start; i < start + count; i++){
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9){
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Packs the fields into an epoch second, or INVALID if any of them is out of range
+    private static long toEpochSecond(int year, int month, int day, int hour, int minute, int second){
+        if (year < 1000 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23
+            || minute < 0 || minute > 59 || second < 0 || second > 59){
+            return INVALID;
+        }
+        if (day > maxDayOfMonth(year, month)){
+            return INVALID;
+        }
+
+        // Day count from a civil date (Howard Hinnant's days_from_civil)
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+
+        return days * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    /**
+     * @return seconds since 1970-01-01 00:00:00, NOT_AVAILABLE for "n/a" dates or INVALID
+     * if any field failed validation
+     */
+    public long toEpochSecond(){
+        if (this.getInvalid()){
+            return INVALID;
+        } else if (!this.getExists()){
+            return NOT_AVAILABLE;
+        }
+        return toEpochSecond(this.getYear(), this.getMonth(), this.getDay(), this.getHour(), this.getMinute(), this.getSecond());
+    }
+
     public String getDate(){
         if (this.getInvalid()){
             return  "";
@@ -46,7 +212,7 @@ public class LogDate {
     private void setYear(int year){
         if (year >= 1000 && year <= 9999){
             this.year = year;
-        } else {setInvalid(Boolean.TRUE);System.err.println("Invalid Year");}
+        } else {setInvalid(Boolean.TRUE);}
     }
     public int getYear(){
         return this.year;
@@ -54,36 +220,38 @@ public class LogDate {
     private void setMonth(int month){
         if (month >= 1 && month <= 12){
             this.month = month;
-        } else {setInvalid(Boolean.TRUE);System.err.println("Invalid Month");}
+        } else {setInvalid(Boolean.TRUE);}
     }
     public int getMonth(){
         return this.month;
     }
     private void setDay(int day){
-        if (day <= 0) {System.err.println("Day Less than 0");}
-        else if (Arrays.asList(1,3,5,7,8,10,12).contains(this.getMonth())){
-            if (day <= 31) {
-                this.day = day;
-            }
-        } else if (Arrays.asList(4,6,9,11).contains(this.getMonth())) {
-            if (day <= 30) {
+        // Invalid values are counted by the ValidationReport of the load rather than printed per row
+        if (day <= 0) {return;}
+        else if (this.getMonth() >= 1 && this.getMonth() <= 12){
+            if (day <= maxDayOfMonth(this.getYear(), this.getMonth())) {
                 this.day = day;
             }
-        } else if (this.getMonth() == 2) {
-            if (this.getYear() % 4 == 0){
-                if (day <= 29){
-                    this.day = day;
-                }
-            } else {
-                if (day <= 28){
-                    this.day = day;
-                }
-            }
         } else {
             setInvalid(Boolean.TRUE);
-            System.err.println("Invalid Large Day");
         }
     }
+
+    private static int maxDayOfMonth(int year, int month){
+        switch (month){
+            case 4: case 6: case 9: case 11:
+                return 30;
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            default:
+                return 31;
+        }
+    }
+
+    // Gregorian leap years, so 1900 and 2100 are not and 2000 is
+    private static boolean isLeapYear(int year){
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
     public int getDay(){
         return this.day;
     }
@@ -92,7 +260,6 @@ public class LogDate {
             this.hour = hour;
         } else {
             setInvalid(Boolean.TRUE);
-            System.err.println("Invalid Hour");
         }
     }
     public int getHour(){
@@ -101,7 +268,7 @@ public class LogDate {
     private void setMinute(int minute){
         if (minute >= 0 && minute <= 59){
             this.minute = minute;
-        } else {setInvalid(Boolean.TRUE);System.err.println("Invalid Minute");}
+        } else {setInvalid(Boolean.TRUE);}
     }
     public int getMinute(){
         return this.minute;
@@ -109,7 +276,7 @@ public class LogDate {
     private void setSecond(int second){
         if (second >= 0 && second <= 59){
             this.second = second;
-        } else {setInvalid(Boolean.TRUE);System.err.println("Invalid Second");}
+        } else {setInvalid(Boolean.TRUE);}
     }
     public int getSecond(){
         return this.second;
@@ -0,0 +1,236 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Live tail of a folder the ad server keeps appending CSV logs to. Every .csv in the folder is
+ * followed from the byte offset it was last read up to, and only complete lines are parsed, so
+ * a row that is still being written is picked up on the next read. Each read maps just the newly
+ * appended bytes, keeping the cost of a refresh proportional to what was appended.
+ *
+ * Once started, a WatchService thread reads the files whenever they change (and at least every
+ * refresh interval, for platforms where file events are slow) and queues the new logs until a
+ * scene collects them with takeAppended and merges them into its campaign. A read that fails is
+ * retried on the next change, and the error goes to the scene's error listener once rather than
+ * on every retry.
+ */
+public class LogDirectoryWatcher implements Closeable {
+
+    public static final long DEFAULT_REFRESH_INTERVAL_MS = 2000;
+
+    private final Path directory;
+    private final long refreshIntervalMs;
+    private final Map<Path, TailState> tails = new HashMap<>();
+    private final Queue<Campaign> appended = new ConcurrentLinkedQueue<>();
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean closed = false;
+    private volatile Consumer<IOException> errorListener;
+    // Message of the last error reported, until a read succeeds again
+    private String reportedError;
+
+    public LogDirectoryWatcher(Path directory) {
+        this(directory, DEFAULT_REFRESH_INTERVAL_MS);
+    }
+
+    public LogDirectoryWatcher(Path directory, long refreshIntervalMs) {
+        this.directory = directory;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getRefreshIntervalMs() {
+        return refreshIntervalMs;
+    }
+
+    /**
+     * Reads every complete line appended to the folder's CSVs since the previous read.
+     * The first read returns the whole of each file.
+     * @return the new logs, or null if nothing has been appended
+     */
+    public synchronized Campaign readAppended() throws IOException {
+        List<ImpressionLog> impressionLogs = new ArrayList<>();
+        List<ClickLog> clickLogs = new ArrayList<>();
+        List<ServerLog> serverLogs = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                TailState tail = tails.computeIfAbsent(file, path -> new TailState());
+                readTail(file, tail, impressionLogs, clickLogs, serverLogs);
+            }
+        }
+
+        if (impressionLogs.isEmpty() && clickLogs.isEmpty() && serverLogs.isEmpty()) {
+            return null;
+        }
+        return new Campaign(
+            impressionLogs.toArray(new ImpressionLog[0]),
+            clickLogs.toArray(new ClickLog[0]),
+            serverLogs.toArray(new ServerLog[0]));
+    }
+
+    private void readTail(Path file, TailState tail, List<ImpressionLog> impressionLogs,
+                          List<ClickLog> clickLogs, List<ServerLog> serverLogs) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < tail.offset) {
+                // The file was truncated or replaced, so start again from its header
+                tail.offset = 0;
+                tail.type = null;
+            }
+            long end = lastLineEnd(channel, tail.offset, size);
+            if (end <= tail.offset) {
+                return;
+            }
+
+            try (LogCsvTokenizer tokenizer = LogCsvTokenizer.mapRange(channel, tail.offset, end)) {
+                if (tail.type == null) {
+                    tail.type = tokenizer.readHeader();
+                }
+                if (tail.type != LogCsvTokenizer.LogType.UNKNOWN) {
+                    try (Stream<LogFile> logs = tokenizer.records(tail.type)) {
+                        logs.forEach(log -> {
+                            if (log instanceof ImpressionLog) {
+                                impressionLogs.add((ImpressionLog) log);
+                            } else if (log instanceof ClickLog) {
+                                clickLogs.add((ClickLog) log);
+                            } else if (log instanceof ServerLog) {
+                                serverLogs.add((ServerLog) log);
+                            }
+                        });
+                    }
+                }
+            }
+            tail.offset = end;
+        }
+    }
+
+    // Position just after the last newline in [start, end), or start if there is none yet
+    private static long lastLineEnd(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(8192);
+        long position = end;
+        while (position > start) {
+            int length = (int) Math.min(block.capacity(), position - start);
+            block.clear().limit(length);
+            while (block.hasRemaining()) {
+                if (channel.read(block, position - length + block.position()) < 0) {
+                    return start;
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return position - length + i + 1;
+                }
+            }
+            position -= length;
+        }
+        return start;
+    }
+
+    /**
+     * Sets what is told of errors reading the folder on the watch thread, replacing any listener
+     * of a scene left before. It is called on the watch thread, or not at all if null.
+     */
+    public void setErrorListener(Consumer<IOException> listener) {
+        this.errorListener = listener;
+    }
+
+    /**
+     * Starts following the folder on a background thread. New logs are queued for takeAppended.
+     */
+    public synchronized void start() throws IOException {
+        if (watchThread != null) return;
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watchThread = new Thread(this::watch, "log-directory-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watch() {
+        while (!closed) {
+            try {
+                WatchKey key = watchService.poll(refreshIntervalMs, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    // Several writes usually arrive together, so they are all handled by one read
+                    key.pollEvents();
+                    key.reset();
+                }
+                Campaign logs = readAppended();
+                if (logs != null) {
+                    appended.add(logs);
+                }
+                reportedError = null;
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException e) {
+                reportError(e);
+            }
+        }
+    }
+
+    // Tells the listener of an error unless it is the one it was last told of
+    private void reportError(IOException e) {
+        String message = String.valueOf(e.getMessage());
+        if (message.equals(reportedError)) return;
+        reportedError = message;
+        Consumer<IOException> listener = errorListener;
+        if (listener != null) {
+            listener.accept(e);
+        }
+    }
+
+    /**
+     * Collects everything read by the watch thread since the previous call
+     * @return the new logs in the order they were appended, or null if there are none
+     */
+    public Campaign takeAppended() {
+        Campaign logs = appended.poll();
+        if (logs == null) {
+            return null;
+        }
+        Campaign next;
+        while ((next = appended.poll()) != null) {
+            logs.appendLogs(next.getImpressionLogs(), next.getClickLogs(), next.getServerLogs());
+        }
+        return logs;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchService.close();
+        }
+    }
+
+    private static final class TailState {
+        long offset = 0;
+        LogCsvTokenizer.LogType type;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * One fixed width column of an OffHeapCampaign, in chunks of CHUNK_ROWS rows each mapped from
+ * a file of its own. Each file is deleted as soon as it is mapped (the mapping keeps its pages),
+ * so nothing is left on disk once the buffers are collected and no file handles stay open.
+ *
+ * The values are outside the heap, so the collector only sees the chunk array and its buffers,
+ * and the operating system pages them to and from the file as needed rather than counting them
+ * against the heap or the direct memory limit.
+ */
+final class MappedColumn {
+
+    static final int CHUNK_SHIFT = 22;
+    static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    // Rows sorted on the heap at a time by timeOrder, before the runs are merged in mapped columns
+    static final int RUN_ROWS = 1 << 16;
+
+    private final Path folder;
+    // log2 of the bytes per row
+    private final int shift;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /**
+     * @param bytesPerRow 1, 2, 4 or 8
+     */
+    MappedColumn(Path folder, int bytesPerRow) {
+        if (Integer.bitCount(bytesPerRow) != 1 || bytesPerRow > Long.BYTES) {
+            throw new IllegalArgumentException("Unsupported column width: " + bytesPerRow);
+        }
+        this.folder = folder;
+        this.shift = Integer.numberOfTrailingZeros(bytesPerRow);
+    }
+
+    long getCapacity() {
+        return (long) chunks.length << CHUNK_SHIFT;
+    }
+
+    /**
+     * Maps chunks until there is room for the given number of rows
+     * @throws UncheckedIOException if a chunk file could not be created or mapped
+     */
+    void reserve(long rows) {
+        if (rows <= getCapacity()) return;
+        int needed = (int) ((rows + CHUNK_MASK) >>> CHUNK_SHIFT);
+        ByteBuffer[] grown = Arrays.copyOf(chunks, needed);
+        for (int i = chunks.length; i < needed; i++) {
+            grown[i] = mapChunk();
+        }
+        // Readers only ever see a complete array, the old one still holding every row they count
+        chunks = grown;
+    }
+
+    private ByteBuffer mapChunk() {
+        try {
+            Files.createDirectories(folder);
+            Path file = Files.createTempFile(folder, "column", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) CHUNK_ROWS << shift)
+                    .order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map column storage in " + folder, e);
+        }
+    }
+
+    /**
+     * Bytes mapped for the column
+     */
+    long getBytes() {
+        return getCapacity() << shift;
+    }
+
+    /**
+     * @return a new column with row order(i) of this one at row i, for the first rows rows
+     */
+    MappedColumn reorder(IntUnaryOperator order, int rows) {
+        MappedColumn sorted = new MappedColumn(folder, 1 << shift);
+        sorted.reserve(rows);
+        switch (shift) {
+            case 0:
+                for (int i = 0; i < rows; i++) sorted.putByte(i, getByte(order.applyAsInt(i)));
+                break;
+            case 1:
+                for (int i = 0; i < rows; i++) sorted.putShort(i, getShort(order.applyAsInt(i)));
+                break;
+            case 2:
+                // Float columns move as their bits
+                for (int i = 0; i < rows; i++) sorted.putInt(i, getInt(order.applyAsInt(i)));
+                break;
+            default:
+                for (int i = 0; i < rows; i++) sorted.putLong(i, getLong(order.applyAsInt(i)));
+                break;
+        }
+        return sorted;
+    }
+
+    /**
+     * Sorts rows by date like ColumnarCampaign.timeOrder, without a heap array per row: runs of
+     * RUN_ROWS rows are sorted on the heap, then merged bottom-up between mapped scratch columns
+     * holding each run's rows and their dates, so every merge pass reads and writes in sequence
+     * @return an int column with the row that goes at each row once sorted
+     */
+    static MappedColumn timeOrder(Path folder, int rows, IntToLongFunction dates) {
+        MappedColumn order = new MappedColumn(folder, Integer.BYTES);
+        MappedColumn keys = new MappedColumn(folder, Long.BYTES);
+        order.reserve(rows);
+        keys.reserve(rows);
+        for (int start = 0; start < rows; start += RUN_ROWS) {
+            int first = start;
+            int length = Math.min(RUN_ROWS, rows - start);
+            int[] run = ColumnarCampaign.timeOrder(length, i -> dates.applyAsLong(first + i));
+            for (int i = 0; i < length; i++) {
+                order.putInt(start + i, start + run[i]);
+                keys.putLong(start + i, dates.applyAsLong(start + run[i]));
+            }
+        }
+        if (rows <= RUN_ROWS) {
+            return order;
+        }
+
+        MappedColumn mergedOrder = new MappedColumn(folder, Integer.BYTES);
+        MappedColumn mergedKeys = new MappedColumn(folder, Long.BYTES);
+        mergedOrder.reserve(rows);
+        mergedKeys.reserve(rows);
+        for (long width = RUN_ROWS; width < rows; width *= 2) {
+            int low = 0;
+            while (low < rows) {
+                int mid = (int) Math.min(low + width, rows);
+                int high = (int) Math.min(low + 2 * width, rows);
+                int a = low, b = mid, k = low;
+                while (a < mid && b < high) {
+                    // Ties take the earlier run's row, so rows with the same date keep their order
+                    int from = keys.getLong(b) < keys.getLong(a) ? b++ : a++;
+                    mergedOrder.putInt(k, order.getInt(from));
+                    mergedKeys.putLong(k++, keys.getLong(from));
+                }
+                for (; a < mid; a++, k++) {
+                    mergedOrder.putInt(k, order.getInt(a));
+                    mergedKeys.putLong(k, keys.getLong(a));
+                }
+                for (; b < high; b++, k++) {
+                    mergedOrder.putInt(k, order.getInt(b));
+                    mergedKeys.putLong(k, keys.getLong(b));
+                }
+                low = high;
+            }
+            MappedColumn swap = order;
+            order = mergedOrder;
+            mergedOrder = swap;
+            swap = keys;
+            keys = mergedKeys;
+            mergedKeys = swap;
+        }
+        return order;
+    }
+
+    long getLong(int row) { return chunks[row >>> CHUNK_SHIFT].getLong((row & CHUNK_MASK) << 3); }
+    int getInt(int row) { return chunks[row >>> CHUNK_SHIFT].getInt((row & CHUNK_MASK) << 2); }
+    float getFloat(int row) { return chunks[row >>> CHUNK_SHIFT].getFloat((row & CHUNK_MASK) << 2); }
+    short getShort(int row) { return chunks[row >>> CHUNK_SHIFT].getShort((row & CHUNK_MASK) << 1); }
+    byte getByte(int row) { return chunks[row >>> CHUNK_SHIFT].get(row & CHUNK_MASK); }
+
+    void putLong(int row, long value) { chunks[row >>> CHUNK_SHIFT].putLong((row & CHUNK_MASK) << 3, value); }
+    void putInt(int row, int value) { chunks[row >>> CHUNK_SHIFT].putInt((row & CHUNK_MASK) << 2, value); }
+    void putFloat(int row, float value) { chunks[row >>> CHUNK_SHIFT].putFloat((row & CHUNK_MASK) << 2, value); }
+    void putShort(int row, short value) { chunks[row >>> CHUNK_SHIFT].putShort((row & CHUNK_MASK) << 1, value); }
+    void putByte(int row, byte value) { chunks[row >>> CHUNK_SHIFT].put(row & CHUNK_MASK, value); }
+}
@@ -0,0 +1,251 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The running totals behind CampaignMetrics: counts, the total cost, the users who clicked and
+ * the first and last timestamps of the campaign, each batch of logs added in a single pass per
+ * log with every total taken from the row while it is being read.
+ *
+ * Dates are compared as epoch seconds rather than made into a LocalDateTime per row, and costs
+ * are summed impressions first and then clicks, as the metrics always have, so the totals match
+ * those of separate passes exactly. Log objects and columns give the same totals. Each visit
+ * goes into a BounceIndex rather than being checked against the bounce criteria, so the bounces
+ * under new criteria are counted without reading the logs again.
+ *
+ * Columns can also be added on a ForkJoinPool, the impressions and clicks split into ranges of
+ * RANGE_ROWS rows whose partial totals are merged in a binary tree over the ranges. The ranges
+ * and the tree depend only on the row counts, so the cost sums come out the same however many
+ * workers the pool has (though they may differ from a sequential pass in the last bits).
+ */
+final class MetricsAccumulator {
+
+    // Rows per range of a parallel pass, each summed sequentially by one worker
+    static final int RANGE_ROWS = 1 << 16;
+
+    private int impressions;
+    private int clicks;
+    private int conversions;
+    private double totalCost;
+    private long firstSecond = Long.MAX_VALUE;
+    private long lastSecond = Long.MIN_VALUE;
+
+    // Users (by ordinal) who clicked; log objects take their ordinals from clickUserIds
+    private final BitSet clickedUsers = new BitSet();
+    private final UserIdDictionary clickUserIds = new UserIdDictionary();
+
+    // Pages and seconds of every visit, from which the bounces are counted under the criteria
+    private final BounceIndex visits = new BounceIndex();
+    private int bouncePagesThreshold = 1;
+    private int bounceSecondsThreshold = 4;
+
+    /**
+     * Adds a batch of log objects, any of which may be null for none
+     */
+    void addLogs(ImpressionLog[] imps, ClickLog[] cls, ServerLog[] srv) {
+        double cost = 0;
+        if (imps != null) {
+            for (ImpressionLog imp : imps) {
+                cost += imp.getImpressionCost();
+                include(epochSecond(imp.getDate()));
+            }
+            impressions += imps.length;
+        }
+        if (cls != null) {
+            for (ClickLog click : cls) {
+                cost += click.getClickCost();
+                clickedUsers.set(clickUserIds.ordinal(click.getId()));
+                include(epochSecond(click.getDate()));
+            }
+            clicks += cls.length;
+        }
+        if (srv != null) {
+            for (ServerLog s : srv) {
+                long entry = epochSecond(s.getEntryDate());
+                visits.add(s.getPagesViewed(), entry, epochSecond(s.getExitDate()));
+                if (s.getConversion()) conversions++;
+                include(entry);
+            }
+        }
+        totalCost += cost;
+    }
+
+    /**
+     * Adds the column rows from the given row of each log onwards
+     */
+    void addColumns(ColumnarCampaign columns, int impFrom, int clickFrom, int serverFrom) {
+        int impTo = columns.getImpressionCount();
+        int clickTo = columns.getClickCount();
+        int serverTo = columns.getServerLogCount();
+
+        double cost = 0;
+        for (int i = impFrom; i < impTo; i++) {
+            cost += columns.getImpressionCost(i);
+            include(columns.getImpressionDate(i));
+        }
+        for (int i = clickFrom; i < clickTo; i++) {
+            cost += columns.getClickCost(i);
+            clickedUsers.set(columns.getClickUser(i));
+            include(columns.getClickDate(i));
+        }
+        addServerColumns(columns, serverFrom, serverTo);
+
+        impressions += impTo - impFrom;
+        clicks += clickTo - clickFrom;
+        totalCost += cost;
+    }
+
+    private void addServerColumns(ColumnarCampaign columns, int from, int to) {
+        for (int i = from; i < to; i++) {
+            long entry = columns.getEntryDate(i);
+            visits.add(columns.getPagesViewed(i), entry, columns.getExitDate(i));
+            if (columns.getConversion(i)) conversions++;
+            include(entry);
+        }
+    }
+
+    /**
+     * Adds the column rows from the given row of each log onwards, as addColumns does, with the
+     * ranges of the impressions and clicks aggregated on the given pool. The server logs, a small
+     * part of any campaign, are added on the calling thread in the meantime.
+     */
+    void addColumns(ColumnarCampaign columns, int impFrom, int clickFrom, int serverFrom, ForkJoinPool pool) {
+        int impTo = columns.getImpressionCount();
+        int clickTo = columns.getClickCount();
+        int serverTo = columns.getServerLogCount();
+
+        RangeTask impressionTask = new RangeTask(columns, IMPRESSIONS, impFrom, impTo);
+        RangeTask clickTask = new RangeTask(columns, CLICKS, clickFrom, clickTo);
+        pool.execute(impressionTask);
+        pool.execute(clickTask);
+        addServerColumns(columns, serverFrom, serverTo);
+        Partial imps = impressionTask.join();
+        Partial clicked = clickTask.join();
+
+        totalCost += imps.cost + clicked.cost;
+        clickedUsers.or(clicked.users);
+        for (Partial partial : new Partial[] {imps, clicked}) {
+            if (partial.firstSecond <= partial.lastSecond) {
+                include(partial.firstSecond);
+                include(partial.lastSecond);
+            }
+        }
+        impressions += impTo - impFrom;
+        clicks += clickTo - clickFrom;
+    }
+
+    private static final int IMPRESSIONS = 0;
+    private static final int CLICKS = 1;
+
+    // The totals of a range of one log
+    private static final class Partial {
+        double cost;
+        final BitSet users = new BitSet();
+        long firstSecond = Long.MAX_VALUE;
+        long lastSecond = Long.MIN_VALUE;
+
+        void include(long date) {
+            if (ColumnarCampaign.isDate(date)) {
+                if (date < firstSecond) firstSecond = date;
+                if (date > lastSecond) lastSecond = date;
+            }
+        }
+
+        // Adds the totals of the range after this one
+        Partial merge(Partial next) {
+            cost += next.cost;
+            users.or(next.users);
+            firstSecond = Math.min(firstSecond, next.firstSecond);
+            lastSecond = Math.max(lastSecond, next.lastSecond);
+            return this;
+        }
+    }
+
+    /**
+     * Aggregates the rows [from, to) of a log, halving the ranges in it until one is left.
+     * The split is always at a range boundary, so every pool sums the same ranges in the same tree.
+     */
+    private static final class RangeTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnarCampaign columns;
+        private final int log;
+        private final int from;
+        private final int to;
+
+        RangeTask(ColumnarCampaign columns, int log, int from, int to) {
+            this.columns = columns;
+            this.log = log;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            int ranges = (int) (((long) to - from + RANGE_ROWS - 1) / RANGE_ROWS);
+            if (ranges <= 1) {
+                return aggregate();
+            }
+            int mid = from + ranges / 2 * RANGE_ROWS;
+            RangeTask first = new RangeTask(columns, log, from, mid);
+            RangeTask second = new RangeTask(columns, log, mid, to);
+            second.fork();
+            Partial partial = first.compute();
+            return partial.merge(second.join());
+        }
+
+        private Partial aggregate() {
+            Partial partial = new Partial();
+            switch (log) {
+                case IMPRESSIONS:
+                    for (int i = from; i < to; i++) {
+                        partial.cost += columns.getImpressionCost(i);
+                        partial.include(columns.getImpressionDate(i));
+                    }
+                    break;
+                default:
+                    for (int i = from; i < to; i++) {
+                        partial.cost += columns.getClickCost(i);
+                        partial.users.set(columns.getClickUser(i));
+                        partial.include(columns.getClickDate(i));
+                    }
+                    break;
+            }
+            return partial;
+        }
+    }
+
+    void setBounceCriteria(int pagesThreshold, int secondsThreshold) {
+        this.bouncePagesThreshold = pagesThreshold;
+        this.bounceSecondsThreshold = secondsThreshold;
+    }
+
+    private void include(long date) {
+        if (ColumnarCampaign.isDate(date)) {
+            if (date < firstSecond) firstSecond = date;
+            if (date > lastSecond) lastSecond = date;
+        }
+    }
+
+    private static long epochSecond(LogDate date) {
+        return date == null ? LogDate.NOT_AVAILABLE : date.toEpochSecond();
+    }
+
+    int getImpressions() { return impressions; }
+    int getClicks() { return clicks; }
+    int getUniques() { return clickedUsers.cardinality(); }
+    int getBounces() { return visits.countBounces(bouncePagesThreshold, bounceSecondsThreshold); }
+    int getConversions() { return conversions; }
+    double getTotalCost() { return totalCost; }
+    int getBouncePagesThreshold() { return bouncePagesThreshold; }
+    int getBounceSecondsThreshold() { return bounceSecondsThreshold; }
+
+    /**
+     * @return true once any log has a date, which firstSecond and lastSecond are then the range of
+     */
+    boolean hasDates() { return firstSecond <= lastSecond; }
+    long getFirstSecond() { return firstSecond; }
+    long getLastSecond() { return lastSecond; }
+}
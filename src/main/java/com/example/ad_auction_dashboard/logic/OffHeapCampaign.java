@@ -0,0 +1,269 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A ColumnarCampaign whose columns are memory-mapped rather than held in arrays on the heap,
+ * for campaigns too big for any heap the dashboard would want to run with. The collector only
+ * ever sees a few chunk buffers per column however many rows are loaded, so it has nothing to
+ * copy or scan when it runs, and the operating system pages the rows in and out of their files.
+ *
+ * Metrics read the same row accessors as for a ColumnarCampaign, the counts and columns being
+ * published to them the same way. Conversions take a byte per row here instead of a bit, and
+ * the user dictionary stays on the heap as it is a few primitive arrays the collector does not
+ * need to scan.
+ */
+public class OffHeapCampaign extends ColumnarCampaign {
+
+    /**
+     * Where the column files are created by default, next to the user and campaign databases
+     */
+    public static final Path DEFAULT_FOLDER = Paths.get(System.getProperty("user.home"), ".ad_auction_dashboard", "columns");
+
+    private final Path folder;
+
+    // Impression columns
+    private volatile int impressionCount;
+    private volatile MappedColumn impressionDates;
+    private volatile MappedColumn impressionUsers;
+    private volatile MappedColumn segments;
+    private volatile MappedColumn impressionCosts;
+
+    // Click columns
+    private volatile int clickCount;
+    private volatile MappedColumn clickDates;
+    private volatile MappedColumn clickUsers;
+    private volatile MappedColumn clickCosts;
+
+    // Server log columns
+    private volatile int serverCount;
+    private volatile MappedColumn entryDates;
+    private volatile MappedColumn serverUsers;
+    private volatile MappedColumn exitDates;
+    private volatile MappedColumn pagesViewed;
+    private volatile MappedColumn conversions;
+
+    public OffHeapCampaign() {
+        this(DEFAULT_FOLDER);
+    }
+
+    /**
+     * @param folder where to create the column files, which is only written to as chunks are
+     *               needed and keeps no files once they are mapped
+     */
+    public OffHeapCampaign(Path folder) {
+        super(0);
+        this.folder = folder;
+        impressionDates = new MappedColumn(folder, Long.BYTES);
+        impressionUsers = new MappedColumn(folder, Integer.BYTES);
+        segments = new MappedColumn(folder, Integer.BYTES);
+        impressionCosts = new MappedColumn(folder, Float.BYTES);
+        clickDates = new MappedColumn(folder, Long.BYTES);
+        clickUsers = new MappedColumn(folder, Integer.BYTES);
+        clickCosts = new MappedColumn(folder, Float.BYTES);
+        entryDates = new MappedColumn(folder, Long.BYTES);
+        serverUsers = new MappedColumn(folder, Integer.BYTES);
+        exitDates = new MappedColumn(folder, Long.BYTES);
+        pagesViewed = new MappedColumn(folder, Short.BYTES);
+        conversions = new MappedColumn(folder, Byte.BYTES);
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Adds the rows of other columns after the rows already stored. As in ColumnarCampaign, a
+     * log with no rows here yet takes over the chunks of another OffHeapCampaign, and any other
+     * columns are copied row by row.
+     */
+    @Override
+    synchronized void appendColumns(ColumnarCampaign other) {
+        int[] userMap = mapUsers(other);
+        OffHeapCampaign part = other instanceof OffHeapCampaign ? (OffHeapCampaign) other : null;
+
+        if (part != null && impressionCount == 0) {
+            remap(part.impressionUsers, part.impressionCount, userMap);
+            impressionDates = part.impressionDates;
+            impressionUsers = part.impressionUsers;
+            segments = part.segments;
+            impressionCosts = part.impressionCosts;
+            impressionCount = part.impressionCount;
+        } else {
+            int imps = other.getImpressionCount();
+            ensureImpressionCapacity(impressionCount + imps);
+            for (int i = 0; i < imps; i++) {
+                addImpression(other.getImpressionDate(i), userMap[other.getImpressionUser(i)], other.getSegment(i),
+                    other.getImpressionCost(i));
+            }
+        }
+
+        if (part != null && clickCount == 0) {
+            remap(part.clickUsers, part.clickCount, userMap);
+            clickDates = part.clickDates;
+            clickUsers = part.clickUsers;
+            clickCosts = part.clickCosts;
+            clickCount = part.clickCount;
+        } else {
+            int clicks = other.getClickCount();
+            ensureClickCapacity(clickCount + clicks);
+            for (int i = 0; i < clicks; i++) {
+                addClick(other.getClickDate(i), userMap[other.getClickUser(i)], other.getClickCost(i));
+            }
+        }
+
+        if (part != null && serverCount == 0) {
+            remap(part.serverUsers, part.serverCount, userMap);
+            entryDates = part.entryDates;
+            serverUsers = part.serverUsers;
+            exitDates = part.exitDates;
+            pagesViewed = part.pagesViewed;
+            conversions = part.conversions;
+            serverCount = part.serverCount;
+        } else {
+            int servers = other.getServerLogCount();
+            ensureServerCapacity(serverCount + servers);
+            for (int i = 0; i < servers; i++) {
+                addServerLog(other.getEntryDate(i), userMap[other.getServerUser(i)], other.getExitDate(i),
+                    other.getPagesViewed(i), other.getConversion(i));
+            }
+        }
+    }
+
+    private static void remap(MappedColumn users, int rows, int[] userMap) {
+        for (int i = 0; i < rows; i++) {
+            users.putInt(i, userMap[users.getInt(i)]);
+        }
+    }
+
+    @Override
+    void addImpression(long date, int user, int segment, float cost) {
+        int row = impressionCount;
+        if (row == impressionDates.getCapacity()) {
+            ensureImpressionCapacity(row + 1);
+        }
+        impressionDates.putLong(row, date);
+        impressionUsers.putInt(row, user);
+        segments.putInt(row, segment);
+        impressionCosts.putFloat(row, cost);
+        impressionCount = row + 1;
+    }
+
+    @Override
+    void addClick(long date, int user, float cost) {
+        int row = clickCount;
+        if (row == clickDates.getCapacity()) {
+            ensureClickCapacity(row + 1);
+        }
+        clickDates.putLong(row, date);
+        clickUsers.putInt(row, user);
+        clickCosts.putFloat(row, cost);
+        clickCount = row + 1;
+    }
+
+    @Override
+    void addServerLog(long entryDate, int user, long exitDate, int pages, boolean conversion) {
+        int row = serverCount;
+        if (row == entryDates.getCapacity()) {
+            ensureServerCapacity(row + 1);
+        }
+        entryDates.putLong(row, entryDate);
+        serverUsers.putInt(row, user);
+        exitDates.putLong(row, exitDate);
+        pagesViewed.putShort(row, (short) Math.min(pages, Short.MAX_VALUE));
+        conversions.putByte(row, (byte) (conversion ? 1 : 0));
+        serverCount = row + 1;
+    }
+
+    // Chunks are mapped whole and never copied, so reserving is all growing takes
+    @Override
+    void ensureImpressionCapacity(int required) {
+        impressionDates.reserve(required);
+        impressionUsers.reserve(required);
+        segments.reserve(required);
+        impressionCosts.reserve(required);
+    }
+
+    @Override
+    void ensureClickCapacity(int required) {
+        clickDates.reserve(required);
+        clickUsers.reserve(required);
+        clickCosts.reserve(required);
+    }
+
+    @Override
+    void ensureServerCapacity(int required) {
+        entryDates.reserve(required);
+        serverUsers.reserve(required);
+        exitDates.reserve(required);
+        pagesViewed.reserve(required);
+        conversions.reserve(required);
+    }
+
+    // The sort order is kept in mapped scratch columns rather than heap arrays as long as the log
+    @Override
+    IntUnaryOperator orderByTime(int rows, IntToLongFunction dates) {
+        return MappedColumn.timeOrder(folder, rows, dates)::getInt;
+    }
+
+    // The reordered columns are mapped from new files, the old ones going once they are collected
+
+    @Override
+    void reorderImpressions(IntUnaryOperator order, int rows) {
+        impressionDates = impressionDates.reorder(order, rows);
+        impressionUsers = impressionUsers.reorder(order, rows);
+        segments = segments.reorder(order, rows);
+        impressionCosts = impressionCosts.reorder(order, rows);
+    }
+
+    @Override
+    void reorderClicks(IntUnaryOperator order, int rows) {
+        clickDates = clickDates.reorder(order, rows);
+        clickUsers = clickUsers.reorder(order, rows);
+        clickCosts = clickCosts.reorder(order, rows);
+    }
+
+    @Override
+    void reorderServerLogs(IntUnaryOperator order, int rows) {
+        entryDates = entryDates.reorder(order, rows);
+        serverUsers = serverUsers.reorder(order, rows);
+        exitDates = exitDates.reorder(order, rows);
+        pagesViewed = pagesViewed.reorder(order, rows);
+        conversions = conversions.reorder(order, rows);
+    }
+
+    // Row accessors
+
+    @Override public int getImpressionCount() { return impressionCount; }
+    @Override public long getImpressionDate(int row) { return impressionDates.getLong(row); }
+    @Override public int getImpressionUser(int row) { return impressionUsers.getInt(row); }
+    @Override public int getSegment(int row) { return segments.getInt(row); }
+    @Override public float getImpressionCost(int row) { return impressionCosts.getFloat(row); }
+
+    @Override public int getClickCount() { return clickCount; }
+    @Override public long getClickDate(int row) { return clickDates.getLong(row); }
+    @Override public int getClickUser(int row) { return clickUsers.getInt(row); }
+    @Override public float getClickCost(int row) { return clickCosts.getFloat(row); }
+
+    @Override public int getServerLogCount() { return serverCount; }
+    @Override public long getEntryDate(int row) { return entryDates.getLong(row); }
+    @Override public int getServerUser(int row) { return serverUsers.getInt(row); }
+    @Override public long getExitDate(int row) { return exitDates.getLong(row); }
+    @Override public short getPagesViewed(int row) { return pagesViewed.getShort(row); }
+    @Override public boolean getConversion(int row) { return conversions.getByte(row) != 0; }
+
+    /**
+     * Bytes mapped for the columns, none of which are on the heap
+     */
+    @Override
+    public synchronized long getColumnBytes() {
+        return impressionDates.getBytes() + impressionUsers.getBytes() + segments.getBytes()
+            + impressionCosts.getBytes()
+            + clickDates.getBytes() + clickUsers.getBytes() + clickCosts.getBytes()
+            + entryDates.getBytes() + serverUsers.getBytes() + exitDates.getBytes()
+            + pagesViewed.getBytes() + conversions.getBytes();
+    }
+}
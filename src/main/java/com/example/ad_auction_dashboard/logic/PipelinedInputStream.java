@@ -0,0 +1,157 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on its own thread so that inflating a zip entry or a .csv.gz file runs
+ * alongside the tokenizer that parses it. The reading thread fills blocks taken from a fixed pool
+ * and queues them for the parser, which hands each block back once it has been consumed, so at
+ * most blockCount blocks are ever in memory and the reader waits whenever the parser falls behind.
+ * Anything the source throws, including a CancellationException from an IngestionJob, is thrown
+ * again from read() on the parsing thread.
+ */
+public class PipelinedInputStream extends InputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int DEFAULT_BLOCK_COUNT = 4;
+
+    private static final Block END = new Block(new byte[0], 0);
+
+    private final BlockingQueue<byte[]> freeBlocks;
+    private final BlockingQueue<Block> filledBlocks;
+    private final Thread reader;
+    private volatile Throwable failure;
+    private volatile boolean closed = false;
+
+    private Block current;
+    private int position;
+
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+    }
+
+    public PipelinedInputStream(InputStream source, int blockSize, int blockCount) {
+        this.freeBlocks = new ArrayBlockingQueue<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            freeBlocks.add(new byte[blockSize]);
+        }
+        // One extra slot so the end marker always fits, even when every block is queued
+        this.filledBlocks = new ArrayBlockingQueue<>(blockCount + 1);
+        this.reader = new Thread(() -> fill(source), "pipelined-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // Runs on the reader thread until the source is exhausted, fails or the stream is closed
+    private void fill(InputStream source) {
+        try (InputStream in = source) {
+            while (!closed) {
+                byte[] block = freeBlocks.take();
+                int length = 0;
+                int read = 0;
+                while (length < block.length && (read = in.read(block, length, block.length - length)) >= 0) {
+                    length += read;
+                }
+                if (length > 0) {
+                    filledBlocks.put(new Block(block, length));
+                }
+                if (read < 0) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed by the parsing thread
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            filledBlocks.offer(END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    // Makes sure current has unread bytes, recycling the finished block; false at the end of the source
+    private boolean nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current != null && current != END) {
+            freeBlocks.offer(current.data);
+        }
+        try {
+            current = filledBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for input");
+        }
+        position = 0;
+        if (current == END) {
+            // Leave the marker in place so later reads see the end too
+            filledBlocks.offer(END);
+            rethrowFailure();
+            return false;
+        }
+        return true;
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause == null) {
+            return;
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IOException(cause);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            // Wakes the reader if it is waiting for a free block or for room in the queue
+            reader.interrupt();
+        }
+    }
+
+    private static final class Block {
+        final byte[] data;
+        final int length;
+
+        Block(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.ad_auction_dashboard.logic;
+
+/**
+ * Metrics for a CampaignPreview. The base class computes everything over the sampled rows and
+ * the getters here scale those values up to the full logs, so the metric scene can show a
+ * preview like any other campaign. Each estimate also has a 95% confidence interval.
+ *
+ * Impressions and clicks are counted over every row while the zip is streamed, so they and the
+ * CTR are exact. Costs, conversions and bounces come from the samples: totals are estimated as
+ * the row count times the sample mean, with the sampling variance corrected for the fraction of
+ * the log that was sampled, and the intervals of ratios of two estimates use the delta method.
+ */
+public class PreviewMetrics extends CampaignMetrics {
+
+    // Two-sided 95% normal quantile
+    private static final double Z_95 = 1.959964;
+
+    private final CampaignPreview preview;
+    private final Estimate impressionCost;
+    private final Estimate clickCost;
+
+    public PreviewMetrics(CampaignPreview preview) {
+        super(preview);
+        this.preview = preview;
+
+        ImpressionLog[] imps = preview.getImpressionLogs();
+        double[] impressionCosts = new double[imps == null ? 0 : imps.length];
+        for (int i = 0; i < impressionCosts.length; i++) {
+            impressionCosts[i] = imps[i].getImpressionCost();
+        }
+        this.impressionCost = estimateTotal(impressionCosts, preview.getTotalImpressions());
+
+        ClickLog[] cls = preview.getClickLogs();
+        double[] clickCosts = new double[cls == null ? 0 : cls.length];
+        for (int i = 0; i < clickCosts.length; i++) {
+            clickCosts[i] = cls[i].getClickCost();
+        }
+        this.clickCost = estimateTotal(clickCosts, preview.getTotalClicks());
+    }
+
+    public double getSampleFraction() {
+        return preview.getSampleFraction();
+    }
+
+    public Estimate getImpressionsEstimate() {
+        return Estimate.exact(preview.getTotalImpressions());
+    }
+
+    public Estimate getClicksEstimate() {
+        return Estimate.exact(preview.getTotalClicks());
+    }
+
+    public Estimate getTotalCostEstimate() {
+        return new Estimate(impressionCost.value + clickCost.value,
+            Math.sqrt(impressionCost.variance + clickCost.variance));
+    }
+
+    public Estimate getConversionsEstimate() {
+        return estimateCount(super.getNumberOfConversions());
+    }
+
+    /**
+     * Follows the bounce criteria, since the base class recounts the sampled bounces when they change
+     */
+    public Estimate getBouncesEstimate() {
+        return estimateCount(super.getNumberOfBounces());
+    }
+
+    public Estimate getCTREstimate() {
+        long impressions = preview.getTotalImpressions();
+        return Estimate.exact(impressions == 0 ? 0 : (double) preview.getTotalClicks() / impressions);
+    }
+
+    public Estimate getCPCEstimate() {
+        return scale(getTotalCostEstimate(), preview.getTotalClicks());
+    }
+
+    public Estimate getCPMEstimate() {
+        return scale(getTotalCostEstimate(), preview.getTotalImpressions() / 1000.0);
+    }
+
+    public Estimate getCPAEstimate() {
+        Estimate cost = getTotalCostEstimate();
+        Estimate conversions = getConversionsEstimate();
+        if (conversions.value == 0) {
+            return Estimate.exact(0);
+        }
+        double cpa = cost.value / conversions.value;
+        double relativeVariance = (cost.value == 0 ? 0 : cost.variance / (cost.value * cost.value))
+            + conversions.variance / (conversions.value * conversions.value);
+        return new Estimate(cpa, cpa * Math.sqrt(relativeVariance));
+    }
+
+    public Estimate getBounceRateEstimate() {
+        return scale(getBouncesEstimate(), preview.getTotalClicks());
+    }
+
+    @Override
+    public int getNumberOfImpressions() {
+        return (int) preview.getTotalImpressions();
+    }
+
+    @Override
+    public int getNumberOfClicks() {
+        return (int) preview.getTotalClicks();
+    }
+
+    /**
+     * Distinct users do not scale with the sample, so this scales the sampled uniques by the click
+     * sampling rate. It is exact when each user clicks once and an overestimate otherwise.
+     */
+    @Override
+    public int getNumberOfUniques() {
+        int sampledClicks = preview.getClickLogs() == null ? 0 : preview.getClickLogs().length;
+        if (sampledClicks == 0) return 0;
+        double scaled = super.getNumberOfUniques() * ((double) preview.getTotalClicks() / sampledClicks);
+        return (int) Math.min(Math.round(scaled), preview.getTotalClicks());
+    }
+
+    @Override
+    public int getNumberOfBounces() {
+        return (int) Math.round(getBouncesEstimate().value);
+    }
+
+    @Override
+    public int getNumberOfConversions() {
+        return (int) Math.round(getConversionsEstimate().value);
+    }
+
+    @Override
+    public double getTotalCost() {
+        return getTotalCostEstimate().value;
+    }
+
+    @Override
+    public double getCTR() {
+        return getCTREstimate().value;
+    }
+
+    @Override
+    public double getCPC() {
+        return getCPCEstimate().value;
+    }
+
+    @Override
+    public double getCPA() {
+        return getCPAEstimate().value;
+    }
+
+    @Override
+    public double getCPM() {
+        return getCPMEstimate().value;
+    }
+
+    @Override
+    public double getBounceRate() {
+        return getBounceRateEstimate().value;
+    }
+
+    // Population total from a sample of values, with the finite population correction
+    private static Estimate estimateTotal(double[] sample, long populationSize) {
+        int n = sample.length;
+        if (n == 0) {
+            return Estimate.exact(0);
+        }
+        double mean = 0;
+        for (double value : sample) {
+            mean += value;
+        }
+        mean /= n;
+        double squares = 0;
+        for (double value : sample) {
+            squares += (value - mean) * (value - mean);
+        }
+        double sampleVariance = n > 1 ? squares / (n - 1) : 0;
+        double correction = Math.max(0, 1 - (double) n / populationSize);
+        double variance = (double) populationSize * populationSize * sampleVariance / n * correction;
+        return new Estimate(populationSize * mean, Math.sqrt(variance));
+    }
+
+    // Server log rows matching a condition, from how many of the sampled rows matched it
+    private Estimate estimateCount(int sampledMatches) {
+        int n = preview.getServerLogs() == null ? 0 : preview.getServerLogs().length;
+        long population = preview.getTotalServerLogs();
+        if (n == 0) {
+            return Estimate.exact(0);
+        }
+        double p = (double) sampledMatches / n;
+        double correction = Math.max(0, 1 - (double) n / population);
+        double variance = p * (1 - p) / n * correction;
+        return new Estimate(population * p, population * Math.sqrt(variance));
+    }
+
+    private static Estimate scale(Estimate estimate, double divisor) {
+        if (divisor == 0) {
+            return Estimate.exact(0);
+        }
+        return new Estimate(estimate.value / divisor, Math.sqrt(estimate.variance) / divisor);
+    }
+
+    /**
+     * A scaled up value with its 95% confidence interval
+     */
+    public static final class Estimate {
+        private final double value;
+        private final double variance;
+
+        private Estimate(double value, double standardError) {
+            this.value = value;
+            this.variance = standardError * standardError;
+        }
+
+        static Estimate exact(double value) {
+            return new Estimate(value, 0);
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public double getStandardError() {
+            return Math.sqrt(variance);
+        }
+
+        /**
+         * Half the width of the 95% confidence interval
+         */
+        public double getMargin() {
+            return Z_95 * getStandardError();
+        }
+
+        // Every estimate here is a count, cost or rate, none of which can be negative
+        public double getLower() {
+            return Math.max(0, value - getMargin());
+        }
+
+        public double getUpper() {
+            return value + getMargin();
+        }
+
+        public boolean isExact() {
+            return variance == 0;
+        }
+    }
+}
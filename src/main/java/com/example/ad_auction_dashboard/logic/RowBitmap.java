@@ -0,0 +1,115 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of row positions, in chunks of 65536 rows as Roaring bitmaps keep them: a
+ * chunk with few rows holds their low 16 bits in a sorted char array, and one with more than
+ * ARRAY_MAX of them, where the array would outgrow it, a bitmap of 1024 words. Rows are added
+ * in increasing order, as the logs are read.
+ */
+final class RowBitmap {
+
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_WORDS = 1 << (CHUNK_BITS - 6);
+
+    // Past this many rows a char array takes more than the bitmap's 8 KB
+    private static final int ARRAY_MAX = 4096;
+
+    // Per chunk, a char[] or a long[], or null for none of its rows
+    private Object[] chunks = new Object[0];
+    private int[] counts = new int[0];
+    private int lastRow = -1;
+
+    /**
+     * @throws IllegalArgumentException if the row is not after the last one added
+     */
+    void add(int row) {
+        if (row <= lastRow) {
+            throw new IllegalArgumentException("Rows must be added in increasing order");
+        }
+        lastRow = row;
+        int chunk = row >>> CHUNK_BITS;
+        if (chunk >= chunks.length) {
+            int capacity = Math.max(chunk + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        char low = (char) row;
+        int count = counts[chunk];
+        if (chunks[chunk] instanceof long[]) {
+            long[] words = (long[]) chunks[chunk];
+            words[low >>> 6] |= 1L << low;
+        } else if (count < ARRAY_MAX) {
+            char[] rows = (char[]) chunks[chunk];
+            if (rows == null) {
+                rows = new char[4];
+            } else if (count == rows.length) {
+                rows = Arrays.copyOf(rows, Math.min(ARRAY_MAX, count * 2));
+            }
+            rows[count] = low;
+            chunks[chunk] = rows;
+        } else {
+            long[] words = new long[CHUNK_WORDS];
+            for (char r : (char[]) chunks[chunk]) {
+                words[r >>> 6] |= 1L << r;
+            }
+            words[low >>> 6] |= 1L << low;
+            chunks[chunk] = words;
+        }
+        counts[chunk] = count + 1;
+    }
+
+    /**
+     * Sets the bits of the rows of one chunk in a 1024-word bitmap of it
+     * @return false if the chunk has no rows
+     */
+    boolean orChunkInto(int chunk, long[] words) {
+        if (chunk >= chunks.length || chunks[chunk] == null) {
+            return false;
+        }
+        Object held = chunks[chunk];
+        if (held instanceof long[]) {
+            long[] bits = (long[]) held;
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                words[i] |= bits[i];
+            }
+        } else {
+            char[] rows = (char[]) held;
+            for (int i = 0, count = counts[chunk]; i < count; i++) {
+                words[rows[i] >>> 6] |= 1L << rows[i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of chunks up to the last one with rows
+     */
+    int getChunkCount() {
+        return lastRow < 0 ? 0 : (lastRow >>> CHUNK_BITS) + 1;
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return an estimate of the bytes held, from array lengths and the usual object headers
+     */
+    long getBytes() {
+        long bytes = 16 + 16 + 8L * chunks.length + 16 + 4L * counts.length;
+        for (Object held : chunks) {
+            if (held instanceof long[]) {
+                bytes += 16 + 8L * ((long[]) held).length;
+            } else if (held != null) {
+                bytes += 16 + 2L * ((char[]) held).length;
+            }
+        }
+        return bytes;
+    }
+}
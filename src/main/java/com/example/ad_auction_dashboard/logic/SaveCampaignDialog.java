@@ -98,6 +98,10 @@ public class SaveCampaignDialog {
                 Platform.runLater(() -> {metricSceneController.toggleControls(false);
                     metricSceneController.stopSaveAnimation();});
                 if (campaignId != -1) {
+                    // Logs appended to the campaign from now on are saved with it
+                    if (UserSession.getInstance().getCurrentCampaignMetrics() == campaignMetrics) {
+                        UserSession.getInstance().setSavedCampaignId(campaignId);
+                    }
                     Platform.runLater(() -> showInfoDialog("Campaign Saved",
                             "Campaign \"" + campaignName + "\" saved successfully with ID: " + campaignId));
                 } else {
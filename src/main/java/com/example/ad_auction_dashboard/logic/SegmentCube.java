@@ -0,0 +1,336 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hourly impressions, clicks, bounces, conversions and costs of a campaign per audience
+ * segment, so that a filtered query over whole hours adds up the cells passing the filters
+ * rather than scanning the rows.
+ *
+ * Impressions are counted in the cell of their own segment. Clicks and server logs belong to a
+ * user, who passes the filters if any of their impressions does, so they are counted under the
+ * set of cells the user's impressions fall in (the user's signature), and pass if any cell of
+ * it does. Users share a small number of signatures as their audience segments hardly vary.
+ *
+ * Each signature keeps its server visits rather than its bounces, so that the bounces under
+ * any criteria are summed from them without building the cube again. For approximate uniques,
+ * each signature also keeps a HyperLogLog sketch of its clicking users per hour, which are
+ * merged for the signatures passing and the hours asked about.
+ *
+ * A user whose signature changes once their clicks are counted, a row from before the first
+ * hour or a new sketch precision leave the cube stale, to be built again from the rows.
+ */
+final class SegmentCube {
+
+    // Same limit as the hourly caches, past which the cube is not used
+    private static final int MAX_HOURS = 1 << 20;
+
+    private long firstHour;
+    private boolean anchored;
+    private boolean stale;
+    // Precision of the sketches of clicking users, or 0 for none
+    private final int sketchPrecision;
+
+    // Cells by segment, and the hourly counts and costs of the impressions in each
+    private final Map<Integer, Integer> cellOf = new HashMap<>();
+    private int[] cellSegments = new int[0];
+    private int[][] impressions = new int[0][];
+    private double[][] impressionCosts = new double[0][];
+
+    // Signatures as the cells they cover, the first being that of users with no impressions
+    private final List<BitSet> signatures = new ArrayList<>();
+    private final Map<BitSet, Integer> signatureOf = new HashMap<>();
+    // The signature a signature becomes with a cell added, keyed by signature << 32 | cell
+    private final Map<Long, Integer> transitions = new HashMap<>();
+    private int[] userSignatures = new int[0];
+    // Users with clicks or server logs counted under their signature so far
+    private final BitSet usersWithRows = new BitSet();
+
+    // Hourly counts and costs of the clicks and server logs of each signature
+    private int[][] clicks = new int[0][];
+    private double[][] clickCosts = new double[0][];
+    private HourlyVisits[] visits = new HourlyVisits[0];
+    private int[][] conversions = new int[0][];
+    private HyperLogLog[][] sketches = new HyperLogLog[0][];
+
+    // Which cells and signatures passed the last filter asked about
+    private SegmentPredicate passingFilter;
+    private boolean[] passingCells;
+    private boolean[] passingSignatures;
+
+    /**
+     * Starts from the hour of the first row added, for a campaign with no dates yet
+     * @param sketchPrecision the precision of the sketches of clicking users, or 0 for none
+     */
+    SegmentCube(int sketchPrecision) {
+        this.sketchPrecision = sketchPrecision;
+        signature(new BitSet());
+    }
+
+    /**
+     * @param firstHour the first hour of the campaign, in hours since the epoch
+     * @param sketchPrecision the precision of the sketches of clicking users, or 0 for none
+     */
+    SegmentCube(long firstHour, int sketchPrecision) {
+        this(sketchPrecision);
+        this.firstHour = firstHour;
+        this.anchored = true;
+    }
+
+    int getSketchPrecision() {
+        return sketchPrecision;
+    }
+
+    /**
+     * True if the cube no longer holds every row added to it and has to be built again
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    void markStale() {
+        stale = true;
+    }
+
+    void addImpression(long date, int user, int segment, float cost) {
+        int cell = cell(segment);
+        int signature = user < userSignatures.length ? userSignatures[user] : 0;
+        if (!signatures.get(signature).get(cell)) {
+            if (usersWithRows.get(user)) {
+                // The user's clicks so far are counted under the old signature, which for a
+                // user with no impressions before is the one that never passes
+                stale = true;
+            }
+            setUserSignature(user, addCell(signature, cell));
+        }
+        int hour = hour(date);
+        if (hour < 0) return;
+        impressions[cell] = grown(impressions[cell], hour);
+        impressionCosts[cell] = grown(impressionCosts[cell], hour);
+        impressions[cell][hour]++;
+        impressionCosts[cell][hour] += cost;
+    }
+
+    void addClick(long date, int user, float cost) {
+        int hour = hour(date);
+        if (hour < 0) return;
+        int signature = user < userSignatures.length ? userSignatures[user] : 0;
+        usersWithRows.set(user);
+        clicks[signature] = grown(clicks[signature], hour);
+        clickCosts[signature] = grown(clickCosts[signature], hour);
+        clicks[signature][hour]++;
+        clickCosts[signature][hour] += cost;
+        if (sketchPrecision > 0) {
+            HyperLogLog[] hours = sketches[signature];
+            if (hours == null || hour >= hours.length) {
+                hours = Arrays.copyOf(hours == null ? new HyperLogLog[0] : hours,
+                    Math.max(hour + 1, hours == null ? 0 : hours.length * 2));
+                sketches[signature] = hours;
+            }
+            if (hours[hour] == null) hours[hour] = new HyperLogLog(sketchPrecision);
+            hours[hour].add(user);
+        }
+    }
+
+    /**
+     * @param exit the exit date in epoch seconds, or a LogDate sentinel, in which case the visit
+     *             is never a bounce
+     */
+    void addVisit(long entry, int user, long exit, int pagesViewed, boolean conversion) {
+        int hour = hour(entry);
+        if (hour < 0) return;
+        int signature = user < userSignatures.length ? userSignatures[user] : 0;
+        boolean visit = ColumnarCampaign.isDate(exit);
+        if (visit || conversion) usersWithRows.set(user);
+        if (visit) {
+            if (visits[signature] == null) visits[signature] = new HourlyVisits();
+            visits[signature].add(hour, pagesViewed, exit - entry);
+        }
+        if (conversion) {
+            conversions[signature] = grown(conversions[signature], hour);
+            conversions[signature][hour]++;
+        }
+    }
+
+    // Totals of the hours [fromHour, toHour), in hours since the epoch, passing a filter
+
+    int impressions(SegmentPredicate filter, long fromHour, long toHour) {
+        return sum(impressions, passingCells(filter), fromHour, toHour);
+    }
+
+    int clicks(SegmentPredicate filter, long fromHour, long toHour) {
+        return sum(clicks, passingSignatures(filter), fromHour, toHour);
+    }
+
+    int bounces(SegmentPredicate filter, long fromHour, long toHour, int pagesThreshold, int secondsThreshold) {
+        boolean[] passing = passingSignatures(filter);
+        int total = 0;
+        for (int i = 0; i < visits.length; i++) {
+            if (visits[i] == null || !passing[i]) continue;
+            total += visits[i].bounces(from(fromHour), to(toHour, MAX_HOURS), pagesThreshold, secondsThreshold);
+        }
+        return total;
+    }
+
+    int conversions(SegmentPredicate filter, long fromHour, long toHour) {
+        return sum(conversions, passingSignatures(filter), fromHour, toHour);
+    }
+
+    double cost(SegmentPredicate filter, long fromHour, long toHour) {
+        return sum(impressionCosts, passingCells(filter), fromHour, toHour)
+            + sum(clickCosts, passingSignatures(filter), fromHour, toHour);
+    }
+
+    /**
+     * Merges the sketches of the clicking users passing a filter in the hours into another
+     */
+    void addUsers(SegmentPredicate filter, long fromHour, long toHour, HyperLogLog merged) {
+        boolean[] passing = passingSignatures(filter);
+        for (int i = 0; i < sketches.length; i++) {
+            HyperLogLog[] hours = sketches[i];
+            if (hours == null || !passing[i]) continue;
+            for (int h = from(fromHour), to = to(toHour, hours.length); h < to; h++) {
+                if (hours[h] != null) merged.merge(hours[h]);
+            }
+        }
+    }
+
+    private int sum(int[][] series, boolean[] passing, long fromHour, long toHour) {
+        int total = 0;
+        for (int i = 0; i < series.length; i++) {
+            int[] hours = series[i];
+            if (hours == null || !passing[i]) continue;
+            for (int h = from(fromHour), to = to(toHour, hours.length); h < to; h++) {
+                total += hours[h];
+            }
+        }
+        return total;
+    }
+
+    private double sum(double[][] series, boolean[] passing, long fromHour, long toHour) {
+        double total = 0;
+        for (int i = 0; i < series.length; i++) {
+            double[] hours = series[i];
+            if (hours == null || !passing[i]) continue;
+            for (int h = from(fromHour), to = to(toHour, hours.length); h < to; h++) {
+                total += hours[h];
+            }
+        }
+        return total;
+    }
+
+    private int from(long fromHour) {
+        return (int) Math.max(0, Math.min(MAX_HOURS, fromHour - firstHour));
+    }
+
+    private int to(long toHour, int length) {
+        return (int) Math.max(0, Math.min(length, toHour - firstHour));
+    }
+
+    private boolean[] passingCells(SegmentPredicate filter) {
+        updatePassing(filter);
+        return passingCells;
+    }
+
+    private boolean[] passingSignatures(SegmentPredicate filter) {
+        updatePassing(filter);
+        return passingSignatures;
+    }
+
+    // Cells and signatures are only ever added, so the passing ones are worked out again when
+    // there are more of them as well as for a new filter
+    private void updatePassing(SegmentPredicate filter) {
+        if (filter == passingFilter && passingCells.length == cellSegments.length
+            && passingSignatures.length == signatures.size()) {
+            return;
+        }
+        boolean[] cells = new boolean[cellSegments.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = filter.test(cellSegments[i]);
+        }
+        boolean[] passing = new boolean[signatures.size()];
+        for (int i = 0; i < passing.length; i++) {
+            BitSet covered = signatures.get(i);
+            for (int cell = covered.nextSetBit(0); cell >= 0 && !passing[i]; cell = covered.nextSetBit(cell + 1)) {
+                passing[i] = cells[cell];
+            }
+        }
+        passingCells = cells;
+        passingSignatures = passing;
+        passingFilter = filter;
+    }
+
+    // Hour index of an epoch second, or -1 if the cube cannot hold it
+    private int hour(long epochSecond) {
+        if (!anchored) {
+            firstHour = Math.floorDiv(epochSecond, 3600);
+            anchored = true;
+        }
+        long hour = Math.floorDiv(epochSecond, 3600) - firstHour;
+        if (hour < 0 || hour >= MAX_HOURS) {
+            stale = true;
+            return -1;
+        }
+        return (int) hour;
+    }
+
+    private int cell(int segment) {
+        Integer cell = cellOf.get(segment);
+        if (cell != null) return cell;
+        int added = cellSegments.length;
+        cellOf.put(segment, added);
+        cellSegments = Arrays.copyOf(cellSegments, added + 1);
+        cellSegments[added] = segment;
+        impressions = Arrays.copyOf(impressions, added + 1);
+        impressionCosts = Arrays.copyOf(impressionCosts, added + 1);
+        return added;
+    }
+
+    private int addCell(int signature, int cell) {
+        long key = (long) signature << 32 | cell;
+        Integer next = transitions.get(key);
+        if (next == null) {
+            BitSet covered = (BitSet) signatures.get(signature).clone();
+            covered.set(cell);
+            next = signature(covered);
+            transitions.put(key, next);
+        }
+        return next;
+    }
+
+    private int signature(BitSet covered) {
+        Integer known = signatureOf.get(covered);
+        if (known != null) return known;
+        int added = signatures.size();
+        signatures.add(covered);
+        signatureOf.put(covered, added);
+        clicks = Arrays.copyOf(clicks, added + 1);
+        clickCosts = Arrays.copyOf(clickCosts, added + 1);
+        visits = Arrays.copyOf(visits, added + 1);
+        conversions = Arrays.copyOf(conversions, added + 1);
+        sketches = Arrays.copyOf(sketches, added + 1);
+        return added;
+    }
+
+    private void setUserSignature(int user, int signature) {
+        if (user >= userSignatures.length) {
+            userSignatures = Arrays.copyOf(userSignatures, Math.max(user + 1, userSignatures.length * 2));
+        }
+        userSignatures[user] = signature;
+    }
+
+    private static int[] grown(int[] hours, int hour) {
+        if (hours == null) return new int[hour + 1];
+        return hour < hours.length ? hours : Arrays.copyOf(hours, Math.max(hour + 1, hours.length * 2));
+    }
+
+    private static double[] grown(double[] hours, int hour) {
+        if (hours == null) return new double[hour + 1];
+        return hour < hours.length ? hours : Arrays.copyOf(hours, Math.max(hour + 1, hours.length * 2));
+    }
+}
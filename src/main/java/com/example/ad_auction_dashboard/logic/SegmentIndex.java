@@ -0,0 +1,162 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Bitmap indexes of the impressions by attribute value: per value, a RowBitmap of the rows that
+ * have it and a BitSet of the users (by ordinal) with at least one impression that has it. Values
+ * are the bits of a segment, so a filter's kept values are the bits its predicate leaves in.
+ *
+ * The users passing a filter on one attribute are the union of the user bitmaps of the values
+ * kept, no row being read. Filters on several attributes have to hold for one impression, which
+ * the user bitmaps cannot tell (a user with a News impression and a Female one need not have a
+ * Female News impression), so their rows are the intersection of each attribute's union of row
+ * bitmaps, a chunk at a time, and the users are read off those rows alone.
+ */
+final class SegmentIndex {
+
+    private static final int LANES = 4;
+    private static final int LANE_BITS = 8;
+    private static final String[] LANE_NAMES = {"Gender", "Age", "Income", "Context"};
+
+    // Per bit of a segment, or null for a value no impression has
+    private final RowBitmap[] rows = new RowBitmap[LANES * LANE_BITS];
+    private final BitSet[] users = new BitSet[LANES * LANE_BITS];
+    private int indexedRows;
+
+    /**
+     * Indexes the impression rows [from, to), skipping any already indexed
+     */
+    void addRows(ColumnarCampaign columns, int from, int to) {
+        for (int i = Math.max(from, indexedRows); i < to; i++) {
+            int user = columns.getImpressionUser(i);
+            for (int bits = columns.getSegment(i); bits != 0; bits &= bits - 1) {
+                int bit = Integer.numberOfTrailingZeros(bits);
+                if (rows[bit] == null) {
+                    rows[bit] = new RowBitmap();
+                    users[bit] = new BitSet();
+                }
+                rows[bit].add(i);
+                users[bit].set(user);
+            }
+        }
+        indexedRows = Math.max(indexedRows, to);
+    }
+
+    /**
+     * Adds the users with at least one indexed impression passing a filter to a set
+     */
+    void addUsers(SegmentPredicate filter, ColumnarCampaign columns, BitSet passing) {
+        int excluded = filter.getExcluded();
+        int filteredLanes = 0;
+        for (int lane = 0; lane < LANES; lane++) {
+            if (laneBits(excluded, lane) != 0) filteredLanes++;
+        }
+        if (filteredLanes <= 1) {
+            // Every impression has a value in each lane, so with no filter any lane will do
+            int lane = 0;
+            while (lane < LANES - 1 && laneBits(excluded, lane) == 0) lane++;
+            for (int bit : keptBits(excluded, lane)) {
+                passing.or(users[bit]);
+            }
+            return;
+        }
+
+        long[] matching = new long[RowBitmap.CHUNK_WORDS];
+        long[] kept = new long[RowBitmap.CHUNK_WORDS];
+        int chunks = indexedRows == 0 ? 0 : ((indexedRows - 1) >>> RowBitmap.CHUNK_BITS) + 1;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (!matchChunk(excluded, chunk, matching, kept)) continue;
+            int base = chunk << RowBitmap.CHUNK_BITS;
+            for (int w = 0; w < matching.length; w++) {
+                for (long word = matching[w]; word != 0; word &= word - 1) {
+                    passing.set(columns.getImpressionUser(base + w * 64 + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        }
+    }
+
+    // Leaves the rows of a chunk passing the filter in matching, the intersection over the
+    // filtered lanes of the union of their kept values; false if there are none
+    private boolean matchChunk(int excluded, int chunk, long[] matching, long[] kept) {
+        Arrays.fill(matching, -1L);
+        for (int lane = 0; lane < LANES; lane++) {
+            if (laneBits(excluded, lane) == 0) continue;
+            Arrays.fill(kept, 0L);
+            boolean any = false;
+            for (int bit : keptBits(excluded, lane)) {
+                any |= rows[bit].orChunkInto(chunk, kept);
+            }
+            if (!any) return false;
+            for (int w = 0; w < matching.length; w++) {
+                matching[w] &= kept[w];
+            }
+        }
+        return true;
+    }
+
+    // The bits of a lane's values that the filter keeps and some impression has
+    private int[] keptBits(int excluded, int lane) {
+        int[] bits = new int[LANE_BITS];
+        int count = 0;
+        for (int bit = lane * LANE_BITS; bit < (lane + 1) * LANE_BITS; bit++) {
+            if ((excluded & 1 << bit) == 0 && rows[bit] != null) {
+                bits[count++] = bit;
+            }
+        }
+        return Arrays.copyOf(bits, count);
+    }
+
+    private static int laneBits(int excluded, int lane) {
+        return (excluded >>> (lane * LANE_BITS)) & 0xFF;
+    }
+
+    int getIndexedRows() {
+        return indexedRows;
+    }
+
+    /**
+     * @return an estimate of the bytes held by the row bitmaps
+     */
+    long getRowIndexBytes() {
+        long bytes = 0;
+        for (RowBitmap bitmap : rows) {
+            if (bitmap != null) bytes += bitmap.getBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return an estimate of the bytes held by the user bitmaps
+     */
+    long getUserIndexBytes() {
+        long bytes = 0;
+        for (BitSet bitmap : users) {
+            if (bitmap != null) bytes += bitmapBytes(bitmap);
+        }
+        return bytes;
+    }
+
+    private static long bitmapBytes(BitSet bitmap) {
+        return 16 + 16 + bitmap.size() / 8;
+    }
+
+    /**
+     * The rows, users and estimated bytes of the bitmaps of each value, then the totals
+     */
+    String memoryReport() {
+        StringBuilder report = new StringBuilder();
+        for (int bit = 0; bit < rows.length; bit++) {
+            if (rows[bit] == null) continue;
+            String value = ColumnarCampaign.attributeValue(bit / LANE_BITS, bit % LANE_BITS);
+            report.append(String.format("%-8s %-13s %,12d rows %,12d bytes %,10d users %,10d bytes%n",
+                LANE_NAMES[bit / LANE_BITS], value.isEmpty() ? "(invalid)" : value,
+                rows[bit].cardinality(), rows[bit].getBytes(), users[bit].cardinality(), bitmapBytes(users[bit])));
+        }
+        report.append(String.format("Row bitmaps:  %,d bytes over %,d impressions (%.2f bytes a row)%n",
+            getRowIndexBytes(), indexedRows, indexedRows == 0 ? 0.0 : (double) getRowIndexBytes() / indexedRows));
+        report.append(String.format("User bitmaps: %,d bytes%n", getUserIndexBytes()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.util.BitSet;
+
+/**
+ * The audience and context filters compiled into one mask, tested against the segment of an
+ * impression: its gender, age, income and context packed into an int, each as one bit in an
+ * 8 bit lane of its own (bit ordinal of the ImpressionLog enum value, in lanes from the low
+ * byte in that order).
+ *
+ * An impression passes when none of its bits are excluded, so the check for a row is an and
+ * and a compare however many filters are set, with no display strings compared.
+ */
+public final class SegmentPredicate {
+
+    private static final int GENDER_SHIFT = 0;
+    private static final int AGE_SHIFT = 8;
+    private static final int INCOME_SHIFT = 16;
+    private static final int CONTEXT_SHIFT = 24;
+    private static final int LANE = 0xFF;
+
+    /**
+     * Passes every impression
+     */
+    public static final SegmentPredicate ALL = new SegmentPredicate(0);
+
+    // Bits of the values the filters leave out
+    private final int excluded;
+
+    private SegmentPredicate(int excluded) {
+        this.excluded = excluded;
+    }
+
+    /**
+     * Compiles filters given as the display values of the filter combo boxes
+     * @param gender the gender to keep, or null for any; likewise for the others. A value no
+     *               impression can have ("" being the invalid value) matches nothing.
+     */
+    public static SegmentPredicate of(String gender, String age, String income, String context) {
+        int excluded = 0;
+        if (gender != null) excluded |= exclusion(ColumnarCampaign.genderCode(gender), GENDER_SHIFT);
+        if (age != null) excluded |= exclusion(ColumnarCampaign.ageCode(age), AGE_SHIFT);
+        if (income != null) excluded |= exclusion(ColumnarCampaign.incomeCode(income), INCOME_SHIFT);
+        if (context != null) excluded |= exclusion(ColumnarCampaign.contextCode(context), CONTEXT_SHIFT);
+        return excluded == 0 ? ALL : new SegmentPredicate(excluded);
+    }
+
+    // Every bit of a lane but the kept value's
+    private static int exclusion(int code, int shift) {
+        int kept = code < 0 ? 0 : 1 << code;
+        return (LANE & ~kept) << shift;
+    }
+
+    /**
+     * Packs the enum ordinals of an impression's attributes into its segment
+     */
+    public static int segment(int gender, int age, int income, int context) {
+        return 1 << (gender + GENDER_SHIFT) | 1 << (age + AGE_SHIFT)
+            | 1 << (income + INCOME_SHIFT) | 1 << (context + CONTEXT_SHIFT);
+    }
+
+    public static int segment(ImpressionLog imp) {
+        return segment(imp.getGenderValue().ordinal(), imp.getAgeValue().ordinal(),
+            imp.getIncomeValue().ordinal(), imp.getContextValue().ordinal());
+    }
+
+    // Enum ordinals back out of a segment
+
+    public static int gender(int segment) { return ordinal(segment, GENDER_SHIFT); }
+    public static int age(int segment) { return ordinal(segment, AGE_SHIFT); }
+    public static int income(int segment) { return ordinal(segment, INCOME_SHIFT); }
+    public static int context(int segment) { return ordinal(segment, CONTEXT_SHIFT); }
+
+    private static int ordinal(int segment, int shift) {
+        return Integer.numberOfTrailingZeros((segment >>> shift) & LANE);
+    }
+
+    public boolean test(int segment) {
+        return (segment & excluded) == 0;
+    }
+
+    public boolean test(ImpressionLog imp) {
+        return imp != null && test(segment(imp));
+    }
+
+    /**
+     * Bits of the values the filters leave out, from which SegmentIndex picks the values kept
+     */
+    int getExcluded() {
+        return excluded;
+    }
+
+    /**
+     * True if no filter is set
+     */
+    public boolean isAll() {
+        return excluded == 0;
+    }
+
+    /**
+     * Adds the users (by ordinal) of the impressions in [from, to) that pass to a set, as the
+     * users whose clicks and server logs the filters keep
+     */
+    public void addUsers(ColumnarCampaign columns, int from, int to, BitSet users) {
+        for (int i = from; i < to; i++) {
+            if (test(columns.getSegment(i))) {
+                users.set(columns.getImpressionUser(i));
+            }
+        }
+    }
+}
@@ -15,6 +15,15 @@ public class ServerLog implements LogFile {
         this.setConversion(conversion);
     }
 
+    // Used by LogCsvTokenizer, which has already validated every field
+    ServerLog(LogDate entryDate, String id, LogDate exitDate, int pagesViewed, Boolean conversion){
+        this.entryDate = entryDate;
+        this.id = id;
+        this.exitDate = exitDate;
+        this.pagesViewed = pagesViewed;
+        this.conversion = conversion;
+    }
+
     public void setEntryDate(String entryDate) {
         this.entryDate = LogFile.convertDate(entryDate);
     }
@@ -1,19 +1,17 @@
 package com.example.ad_auction_dashboard.logic;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.IntConsumer;
 
 /**
  * TimeFilteredMetrics computes campaign metrics (impressions, clicks, uniques, etc.)
- * for a given time frame based on the static log arrays.
+ * for a given time frame based on the campaign's log columns (see ColumnarCampaign).
  * This class is intended for use in the time-chart scene,
  * where the user can filter by a start and end date, audience segments, and context.
  */
@@ -28,6 +26,9 @@ public class TimeFilteredMetrics {
     private String incomeFilter = null;
     private String contextFilter = null;
 
+    // The filters compiled for testing the segment of each impression
+    private SegmentPredicate segmentFilter = SegmentPredicate.ALL;
+
     // Inner class for cached metric values
     public static class ComputedMetrics {
         int numberOfImpressions, numberOfClicks, numberOfUniques, numberOfBounces, numberOfConversions;
@@ -46,105 +47,421 @@ public class TimeFilteredMetrics {
     }
 
     // Bounce criteria thresholds
-    private final int bouncePagesThreshold;
-    private final int bounceSecondsThreshold;
+    private int bouncePagesThreshold;
+    private int bounceSecondsThreshold;
+
+    // Precision of the HyperLogLog sketches uniques are estimated from, or 0 to count them exactly
+    private int uniquesPrecision;
+
+    // Campaign columns, and how many rows of each log the caches below have taken in
+    private final ColumnarCampaign columns;
+    private int impressionRows;
+    private int clickRows;
+    private int serverRows;
+
+    // How many of those rows are in date order, which filtered queries binary search for the
+    // slice of a time frame, only checking the dates of any rows after them one by one
+    private int sortedImpressionRows;
+    private int sortedClickRows;
+    private int sortedServerRows;
 
-    // Cached logs (from the campaign; assumed static)
-    private final ImpressionLog[] imps;
-    private final ServerLog[] srv;
-    private final ClickLog[] cls;
+    // Hourly caches, indexed by hours since the first hour of the campaign
+    private HourlySeries hourly = new HourlySeries();
 
-    // Hourly caches
-    private final Map<String, Integer> hourlyImpressionCache = new HashMap<>();
-    private final Map<String, Integer> hourlyClickCache = new HashMap<>();
-    private final Map<String, Set<String>> hourlyUniqueIdsCache = new HashMap<>();
-    private final Map<String, Integer> hourlyBounceCache = new HashMap<>();
-    private final Map<String, Integer> hourlyConversionCache = new HashMap<>();
-    private final Map<String, Double> hourlyCostCache = new HashMap<>();
+    // The same per audience segment, for filtered queries, built with the hourly caches
+    private SegmentCube cube;
 
-    // User-impressions mapping for efficient filtering
-    private Map<String, List<FilterAttributes>> userImpressionsMap = new HashMap<>();
+    // Users (by ordinal) with at least one impression passing the current filters,
+    // built on the first filtered query rather than kept as a list of every impression per user
+    private BitSet filteredUsers;
+
+    // Bitmaps of the impressions and users by attribute value, which filteredUsers is taken
+    // from, built on the first filtered query and kept up to date from then on
+    private SegmentIndex segmentIndex;
 
     // Flag to track if cache is initialized
     private boolean hourlyDataCached = false;
-    private boolean userImpressionsMapBuilt = false;
 
     public TimeFilteredMetrics(ImpressionLog[] imps, ServerLog[] srv, ClickLog[] cls,
                                int bouncePagesThreshold, int bounceSecondsThreshold) {
-        this.imps = imps;
-        this.srv = srv;
-        this.cls = cls;
+        this(ColumnarCampaign.of(imps, cls, srv), bouncePagesThreshold, bounceSecondsThreshold);
+    }
+
+    /**
+     * Computes over existing columns, e.g. those of CampaignMetrics.getColumns, without copying them.
+     * Rows appended to the columns elsewhere are taken in by refresh.
+     */
+    public TimeFilteredMetrics(ColumnarCampaign columns, int bouncePagesThreshold, int bounceSecondsThreshold) {
+        this.columns = columns;
         this.bouncePagesThreshold = bouncePagesThreshold;
         this.bounceSecondsThreshold = bounceSecondsThreshold;
 
         // Pre-cache hourly data for faster lookups
         initializeHourlyCaches();
-        buildUserImpressionsMap();
     }
-/*
-     * Build a memory-efficient index of user IDs to their impression attributes
- * instead of storing entire impression objects
- */
-    private void buildUserImpressionsMap() {
-        if (userImpressionsMapBuilt) return;
-
-        // Create a more memory-efficient map structure
-        // Instead of storing full ImpressionLog objects, we'll just store the filter attributes
-        Map<String, List<FilterAttributes>> efficientMap = new HashMap<>();
-
-        if (imps != null) {
-            for (ImpressionLog imp : imps) {
-                if (imp == null || imp.getId() == null) continue;
-
-                String userId = imp.getId();
-
-                // Create a lightweight object with just the fields needed for filtering
-                FilterAttributes attrs = new FilterAttributes(
-                    imp.getGender(),
-                    imp.getAge(),
-                    imp.getIncome(),
-                    imp.getContext()
-                );
-
-                // Add to our efficient map
-                if (!efficientMap.containsKey(userId)) {
-                    efficientMap.put(userId, new ArrayList<>());
+
+    /**
+     * Merges newly received logs into the columns and the hourly caches without rescanning
+     * the logs already loaded. Only the computed time-frame results are dropped, since any
+     * of them may cover the new hours. Synchronized with the compute methods so that a live
+     * refresh never runs while a chart is being computed.
+     */
+    public synchronized void appendLogs(ImpressionLog[] newImps, ServerLog[] newSrv, ClickLog[] newCls) {
+        columns.appendLogs(newImps, newCls, newSrv);
+        refresh();
+    }
+
+    /**
+     * Appends newly received logs through the campaign metrics whose columns these are, then
+     * takes them in. The append runs under this lock as well as the metrics' own, so it never
+     * runs while a filtered or chart computation here is reading the columns.
+     */
+    public synchronized void appendLogs(CampaignMetrics metrics, ImpressionLog[] newImps, ServerLog[] newSrv,
+                                        ClickLog[] newCls) {
+        metrics.appendLogs(newImps, newCls, newSrv);
+        refresh();
+    }
+
+    /**
+     * Takes in the rows appended to the columns since they were last read, for columns that
+     * are appended to through CampaignMetrics.appendLogs rather than through this class
+     */
+    public synchronized void refresh() {
+        int impressions = columns.getImpressionCount();
+        int clicks = columns.getClickCount();
+        int servers = columns.getServerLogCount();
+        if (hourlyDataCached) {
+            addToHourlyCaches(impressionRows, impressions, clickRows, clicks, serverRows, servers);
+            if (!cube.isStale()) {
+                addToSegmentCube(impressionRows, impressions, clickRows, clicks, serverRows, servers);
+            }
+        }
+        if (segmentIndex != null) {
+            segmentIndex.addRows(columns, impressionRows, impressions);
+        }
+        if (filteredUsers != null) {
+            addFilteredUsers(impressionRows, impressions);
+        }
+        impressionRows = impressions;
+        clickRows = clicks;
+        serverRows = servers;
+        updateSortedRows();
+        cache.clear();
+        granularCache.clear();
+    }
+
+    /**
+     * The distinct users who clicked in one hour, as ordinals in a growable int array rather
+     * than a set of boxed Integers. Duplicates are only removed when the hour is read. In the
+     * approximate uniques mode the hour also keeps a sketch of its users, made when first read.
+     */
+    private static final class HourlyUsers {
+        private int[] users = new int[4];
+        private int size;
+        private int distinct;
+        private HyperLogLog sketch;
+
+        void add(int user) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+            }
+            users[size++] = user;
+            if (sketch != null) sketch.add(user);
+        }
+
+        void addTo(BitSet set) {
+            removeDuplicates();
+            for (int i = 0; i < size; i++) {
+                set.set(users[i]);
+            }
+        }
+
+        void addTo(HyperLogLog merged) {
+            if (sketch == null || sketch.getPrecision() != merged.getPrecision()) {
+                removeDuplicates();
+                sketch = new HyperLogLog(merged.getPrecision());
+                for (int i = 0; i < size; i++) {
+                    sketch.add(users[i]);
                 }
-                efficientMap.get(userId).add(attrs);
             }
+            merged.merge(sketch);
+        }
+
+        void dropSketch() {
+            sketch = null;
         }
 
-        // Replace the heavy map with our efficient one
-        this.userImpressionsMap = efficientMap;
-        userImpressionsMapBuilt = true;
+        private void removeDuplicates() {
+            if (distinct < size) {
+                Arrays.sort(users, 0, size);
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (kept == 0 || users[kept - 1] != users[i]) {
+                        users[kept++] = users[i];
+                    }
+                }
+                size = kept;
+                distinct = kept;
+            }
+        }
     }
 
+    /**
+     * The totals of each hour in arrays indexed by hours since the first hour with a row, with
+     * prefix sums of the counts and costs, and of the bounces under the current criteria, so
+     * that those of any run of hours are the difference of two sums. The arrays grow at either end as rows of earlier or later hours come in, up
+     * to MAX_HOURS; an hour further out than that leaves the series incomplete, and queries
+     * then count rows rather than hours.
+     */
+    private static final class HourlySeries {
+        // Over a century of hours, which no campaign comes near without a mistyped date
+        private static final int MAX_HOURS = 1 << 20;
+
+        private long firstHour;
+        private int hours;
+        private boolean complete = true;
+
+        private int[] impressions = new int[0];
+        private int[] clicks = new int[0];
+        private int[] conversions = new int[0];
+        private double[] costs = new double[0];
+        private HourlyUsers[] users = new HourlyUsers[0];
+        // Visits by hour since the epoch, from which bounces are counted under the current criteria
+        private final HourlyVisits visits = new HourlyVisits();
+
+        // Totals of the hours before each index, worked out again after rows are added
+        private int[] impressionSums;
+        private int[] clickSums;
+        private int[] conversionSums;
+        private double[] costSums;
+
+        void addImpression(long date, float cost) {
+            int hour = index(date);
+            if (hour < 0) return;
+            impressions[hour]++;
+            costs[hour] += cost;
+        }
+
+        void addClick(long date, int user, float cost) {
+            int hour = index(date);
+            if (hour < 0) return;
+            clicks[hour]++;
+            if (users[hour] == null) users[hour] = new HourlyUsers();
+            users[hour].add(user);
+            costs[hour] += cost;
+        }
+
+        void addVisit(long entry, long exit, int pages, boolean conversion) {
+            int hour = index(entry);
+            if (hour < 0) return;
+            visits.add(firstHour + hour, pages, exit - entry);
+            if (conversion) conversions[hour]++;
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        boolean isEmpty() {
+            return hours == 0;
+        }
+
+        long getFirstHour() {
+            return firstHour;
+        }
+
+        // Index of the hour of a date, growing the arrays to take it, or -1 if it is too far out
+        private int index(long epochSecond) {
+            long hour = Math.floorDiv(epochSecond, 3600);
+            if (hours == 0) {
+                firstHour = hour;
+            }
+            long from = Math.min(firstHour, hour);
+            long to = Math.max(firstHour + hours, hour + 1);
+            if (to - from > MAX_HOURS) {
+                complete = false;
+                return -1;
+            }
+            if (from < firstHour || to > firstHour + hours) {
+                resize((int) (firstHour - from), (int) (to - from));
+                firstHour = from;
+            }
+            impressionSums = null;
+            return (int) (hour - firstHour);
+        }
 
+        // Moves the hours along by shift and makes room for length hours in all
+        private void resize(int shift, int length) {
+            if (shift > 0 || length > impressions.length) {
+                int capacity = Math.max(length, Math.min(MAX_HOURS, impressions.length * 2));
+                impressions = moved(impressions, shift, capacity);
+                clicks = moved(clicks, shift, capacity);
+                conversions = moved(conversions, shift, capacity);
+                double[] movedCosts = new double[capacity];
+                System.arraycopy(costs, 0, movedCosts, shift, hours);
+                costs = movedCosts;
+                HourlyUsers[] movedUsers = new HourlyUsers[capacity];
+                System.arraycopy(users, 0, movedUsers, shift, hours);
+                users = movedUsers;
+            }
+            hours = length;
+        }
+
+        private int[] moved(int[] values, int shift, int capacity) {
+            int[] moved = new int[capacity];
+            System.arraycopy(values, 0, moved, shift, hours);
+            return moved;
+        }
+
+        private void updateSums() {
+            if (impressionSums != null) return;
+            int[] impressionTotals = new int[hours + 1];
+            int[] clickTotals = new int[hours + 1];
+            int[] conversionTotals = new int[hours + 1];
+            double[] costTotals = new double[hours + 1];
+            for (int i = 0; i < hours; i++) {
+                impressionTotals[i + 1] = impressionTotals[i] + impressions[i];
+                clickTotals[i + 1] = clickTotals[i] + clicks[i];
+                conversionTotals[i + 1] = conversionTotals[i] + conversions[i];
+                costTotals[i + 1] = costTotals[i] + costs[i];
+            }
+            clickSums = clickTotals;
+            conversionSums = conversionTotals;
+            costSums = costTotals;
+            impressionSums = impressionTotals;
+        }
+
+        // First index of the hours from a time on, clamped to the series
+        private int lower(LocalDateTime start) {
+            long hour = Math.floorDiv(start.toEpochSecond(ZoneOffset.UTC), 3600);
+            return (int) Math.max(0, Math.min(hours, hour - firstHour));
+        }
+
+        // Index after the hour of a time, clamped to the series
+        private int upper(LocalDateTime end) {
+            long hour = Math.floorDiv(end.toEpochSecond(ZoneOffset.UTC), 3600);
+            return (int) Math.max(0, Math.min(hours, hour - firstHour + 1));
+        }
+
+        // The hours from the hour of start to the hour of end, both included, as the hash map
+        // keyed by hour did
+
+        int impressions(LocalDateTime start, LocalDateTime end) {
+            updateSums();
+            return difference(impressionSums, start, end);
+        }
+
+        int clicks(LocalDateTime start, LocalDateTime end) {
+            updateSums();
+            return difference(clickSums, start, end);
+        }
+
+        int conversions(LocalDateTime start, LocalDateTime end) {
+            updateSums();
+            return difference(conversionSums, start, end);
+        }
+
+        double cost(LocalDateTime start, LocalDateTime end) {
+            updateSums();
+            int from = lower(start);
+            int to = upper(end);
+            return to <= from ? 0 : costSums[to] - costSums[from];
+        }
+
+        private int difference(int[] sums, LocalDateTime start, LocalDateTime end) {
+            int from = lower(start);
+            int to = upper(end);
+            return to <= from ? 0 : sums[to] - sums[from];
+        }
+
+        void addUsers(LocalDateTime start, LocalDateTime end, BitSet set) {
+            for (int i = lower(start), to = upper(end); i < to; i++) {
+                if (users[i] != null) users[i].addTo(set);
+            }
+        }
+
+        void addUsers(LocalDateTime start, LocalDateTime end, HyperLogLog sketch) {
+            for (int i = lower(start), to = upper(end); i < to; i++) {
+                if (users[i] != null) users[i].addTo(sketch);
+            }
+        }
+
+        void dropSketches() {
+            for (int i = 0; i < hours; i++) {
+                if (users[i] != null) users[i].dropSketch();
+            }
+        }
+
+        int bounces(LocalDateTime start, LocalDateTime end, int pagesThreshold, int secondsThreshold) {
+            return visits.bounces(firstHour + lower(start), firstHour + upper(end), pagesThreshold, secondsThreshold);
+        }
+    }
 
     /**
-     * A lightweight class to store only the attributes needed for filtering
-     * Uses much less memory than storing entire ImpressionLog objects
+     * Changes the bounce criteria, as CampaignMetrics.setBounceCriteria does. The hourly caches
+     * and the segment cube keep every visit whatever the criteria, so only the computed time
+     * frames are dropped, and the bounces are summed under the new criteria when next asked for.
+     * @throws IllegalArgumentException if either threshold is negative
      */
-    private static class FilterAttributes {
-        final String gender;
-        final String age;
-        final String income;
-        final String context;
-
-        FilterAttributes(String gender, String age, String income, String context) {
-            this.gender = gender;
-            this.age = age;
-            this.income = income;
-            this.context = context;
+    public synchronized void setBounceCriteria(int pagesThreshold, int secondsThreshold) {
+        if (pagesThreshold < 0 || secondsThreshold < 0) {
+            throw new IllegalArgumentException("Bounce criteria must be non-negative.");
         }
+        this.bouncePagesThreshold = pagesThreshold;
+        this.bounceSecondsThreshold = secondsThreshold;
+        cache.clear();
+        granularCache.clear();
+    }
+
+    public int getBouncePagesThreshold() { return bouncePagesThreshold; }
+    public int getBounceSecondsThreshold() { return bounceSecondsThreshold; }
+
+    /**
+     * Estimates uniques from HyperLogLog sketches of each hour's clicking users (and of each
+     * audience segment's, under filters), merged over the time frame, instead of gathering the
+     * users themselves. The sketches are made as the hours are first read.
+     * @param errorTarget the relative standard error to aim for, e.g. 0.01; the sketches are of
+     *                    the smallest precision within it, down to an error of about 0.4%
+     * @throws IllegalArgumentException if the target is not between 0 and 1
+     */
+    public synchronized void useApproximateUniques(double errorTarget) {
+        setUniquesPrecision(HyperLogLog.precisionFor(errorTarget));
     }
+
+    /**
+     * Counts uniques exactly again, as by default
+     */
+    public synchronized void useExactUniques() {
+        setUniquesPrecision(0);
+    }
+
+    private void setUniquesPrecision(int precision) {
+        if (precision == uniquesPrecision) return;
+        uniquesPrecision = precision;
+        hourly.dropSketches();
+        cube.markStale();
+        cache.clear();
+        granularCache.clear();
+    }
+
+    public boolean isApproximateUniques() {
+        return uniquesPrecision > 0;
+    }
+
+    /**
+     * @return the relative standard error of the uniques, or 0 when they are exact
+     */
+    public double getUniquesError() {
+        return uniquesPrecision == 0 ? 0 : HyperLogLog.standardError(uniquesPrecision);
+    }
+
     /**
      * Set a filter for gender
      * @param gender The gender to filter by, or null to clear the filter
      */
     public void setGenderFilter(String gender) {
         this.genderFilter = gender;
-        clearCaches();
+        clearFilteredResults();
     }
 
     /**
@@ -153,7 +470,7 @@ public class TimeFilteredMetrics {
      */
     public void setAgeFilter(String age) {
         this.ageFilter = age;
-        clearCaches();
+        clearFilteredResults();
     }
 
     /**
@@ -162,7 +479,7 @@ public class TimeFilteredMetrics {
      */
     public void setIncomeFilter(String income) {
         this.incomeFilter = income;
-        clearCaches();
+        clearFilteredResults();
     }
 
     /**
@@ -171,7 +488,7 @@ public class TimeFilteredMetrics {
      */
     public void setContextFilter(String context) {
         this.contextFilter = context;
-        clearCaches();
+        clearFilteredResults();
     }
 
 
@@ -179,54 +496,79 @@ public class TimeFilteredMetrics {
      * Check if an impression log passes all current filters
      */
     public boolean passesFilters(ImpressionLog imp) {
-        if (imp == null) return false;
+        return segmentFilter.test(imp);
+    }
 
-        if (genderFilter != null && !genderFilter.equals(imp.getGender())) {
-            return false;
-        }
-        if (ageFilter != null && !ageFilter.equals(imp.getAge())) {
-            return false;
-        }
-        if (incomeFilter != null && !incomeFilter.equals(imp.getIncome())) {
-            return false;
-        }
-        if (contextFilter != null && !contextFilter.equals(imp.getContext())) {
-            return false;
-        }
-        return true;
+    /**
+     * The current filters, as tested against each impression
+     */
+    public SegmentPredicate getSegmentFilter() {
+        return segmentFilter;
     }
 
     /**
      * Check if a user passes filters using our memory-efficient index
      */
     public boolean userPassesFilters(String userId) {
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
+        if (!hasFilters()) {
             return true; // No filters active
         }
+        int user = columns.findUser(userId);
+        return user >= 0 && filteredUser(user);
+    }
 
-        // Make sure the index is built
-        if (!userImpressionsMapBuilt) {
-            buildUserImpressionsMap();
+    /**
+     * Check if a user, by ordinal in the columns returned by getColumns, passes filters
+     */
+    public boolean userPassesFilters(int user) {
+        if (!hasFilters()) {
+            return true;
         }
+        return filteredUser(user);
+    }
 
-        // Get the user's impression attributes
-        List<FilterAttributes> userAttrs = userImpressionsMap.get(userId);
-        if (userAttrs == null || userAttrs.isEmpty()) {
-            return false;
+    private boolean filteredUser(int user) {
+        if (filteredUsers == null) {
+            filteredUsers = new BitSet(columns.getUserCount());
+            segmentIndex().addUsers(segmentFilter, columns, filteredUsers);
         }
+        return filteredUsers.get(user);
+    }
 
-        // Check if any of the user's impressions pass all active filters
-        for (FilterAttributes attrs : userAttrs) {
-            if ((genderFilter == null || genderFilter.equals(attrs.gender)) &&
-                (ageFilter == null || ageFilter.equals(attrs.age)) &&
-                (incomeFilter == null || incomeFilter.equals(attrs.income)) &&
-                (contextFilter == null || contextFilter.equals(attrs.context))) {
-                return true;
-            }
+    private SegmentIndex segmentIndex() {
+        if (segmentIndex == null) {
+            segmentIndex = new SegmentIndex();
+            segmentIndex.addRows(columns, 0, impressionRows);
         }
+        return segmentIndex;
+    }
+
+    /**
+     * The rows, users and estimated memory of the bitmap indexes behind the filters, per
+     * attribute value and in total, building them if no filter has yet
+     */
+    public synchronized String getSegmentIndexMemoryReport() {
+        return segmentIndex().memoryReport();
+    }
+
+    private void addFilteredUsers(int from, int to) {
+        segmentFilter.addUsers(columns, from, to, filteredUsers);
+    }
+
+    private boolean hasFilters() {
+        return !segmentFilter.isAll();
+    }
+
+    private boolean impressionPassesFilters(int row) {
+        return segmentFilter.test(columns.getSegment(row));
+    }
 
-        return false;
+    // Filters only change which rows are counted, the hourly caches hold every row
+    private synchronized void clearFilteredResults() {
+        segmentFilter = SegmentPredicate.of(genderFilter, ageFilter, incomeFilter, contextFilter);
+        cache.clear();
+        granularCache.clear();
+        filteredUsers = null;
     }
 
     /**
@@ -235,74 +577,102 @@ public class TimeFilteredMetrics {
     private void initializeHourlyCaches() {
         if (hourlyDataCached) return;
 
+        impressionRows = columns.getImpressionCount();
+        clickRows = columns.getClickCount();
+        serverRows = columns.getServerLogCount();
+        updateSortedRows();
+        addToHourlyCaches(0, impressionRows, 0, clickRows, 0, serverRows);
+        buildSegmentCube();
+        hourlyDataCached = true;
+    }
+
+    // Starts the cube from the first hour of the campaign, which the hourly caches have found
+    private void buildSegmentCube() {
+        cube = hourly.isEmpty() ? new SegmentCube(uniquesPrecision)
+            : new SegmentCube(hourly.getFirstHour(), uniquesPrecision);
+        addToSegmentCube(0, impressionRows, 0, clickRows, 0, serverRows);
+    }
+
+    // Impressions go first, so that clicks and server logs find their users' segments
+    private void addToSegmentCube(int impFrom, int impTo, int clickFrom, int clickTo, int serverFrom, int serverTo) {
+        for (int i = impFrom; i < impTo; i++) {
+            long date = columns.getImpressionDate(i);
+            if (ColumnarCampaign.isDate(date)) {
+                cube.addImpression(date, columns.getImpressionUser(i), columns.getSegment(i),
+                    columns.getImpressionCost(i));
+            }
+        }
+        for (int i = clickFrom; i < clickTo; i++) {
+            long date = columns.getClickDate(i);
+            if (ColumnarCampaign.isDate(date)) {
+                cube.addClick(date, columns.getClickUser(i), columns.getClickCost(i));
+            }
+        }
+        for (int i = serverFrom; i < serverTo; i++) {
+            long entry = columns.getEntryDate(i);
+            if (ColumnarCampaign.isDate(entry)) {
+                cube.addVisit(entry, columns.getServerUser(i), columns.getExitDate(i), columns.getPagesViewed(i),
+                    columns.getConversion(i));
+            }
+        }
+    }
+
+    // The cube, built again from the rows if they have left it stale
+    private SegmentCube segmentCube() {
+        if (cube.isStale()) {
+            buildSegmentCube();
+        }
+        return cube;
+    }
+
+    private void updateSortedRows() {
+        sortedImpressionRows = Math.min(columns.getTimeSortedImpressions(), impressionRows);
+        sortedClickRows = Math.min(columns.getTimeSortedClicks(), clickRows);
+        sortedServerRows = Math.min(columns.getTimeSortedServerLogs(), serverRows);
+    }
+
+    private void addToHourlyCaches(int impFrom, int impTo, int clickFrom, int clickTo, int serverFrom, int serverTo) {
         // Process impression logs
-        if (imps != null) {
-            for (ImpressionLog imp : imps) {
-                LogDate ld = imp.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    String hourKey = time.truncatedTo(ChronoUnit.HOURS).toString();
-
-                    // Update impression count
-                    hourlyImpressionCache.put(hourKey,
-                        hourlyImpressionCache.getOrDefault(hourKey, 0) + 1);
-
-                    // Update cost
-                    hourlyCostCache.put(hourKey,
-                        hourlyCostCache.getOrDefault(hourKey, 0.0) + imp.getImpressionCost());
-                }
+        for (int i = impFrom; i < impTo; i++) {
+            long date = columns.getImpressionDate(i);
+            if (ColumnarCampaign.isDate(date)) {
+                hourly.addImpression(date, columns.getImpressionCost(i));
             }
         }
 
         // Process click logs
-        if (cls != null) {
-            for (ClickLog click : cls) {
-                LogDate ld = click.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    String hourKey = time.truncatedTo(ChronoUnit.HOURS).toString();
-
-                    // Update click count
-                    hourlyClickCache.put(hourKey,
-                        hourlyClickCache.getOrDefault(hourKey, 0) + 1);
-
-                    // Track unique IDs
-                    hourlyUniqueIdsCache.putIfAbsent(hourKey, new HashSet<>());
-                    hourlyUniqueIdsCache.get(hourKey).add(click.getId());
-
-                    // Update cost
-                    hourlyCostCache.put(hourKey,
-                        hourlyCostCache.getOrDefault(hourKey, 0.0) + click.getClickCost());
-                }
+        for (int i = clickFrom; i < clickTo; i++) {
+            long date = columns.getClickDate(i);
+            if (ColumnarCampaign.isDate(date)) {
+                hourly.addClick(date, columns.getClickUser(i), columns.getClickCost(i));
             }
         }
 
-        // Process server logs
-        if (srv != null) {
-            for (ServerLog server : srv) {
-                if (!isValidLog(server)) continue;
-
-                LocalDateTime entryTime = toLocalDateTime(server.getEntryDate());
-                String hourKey = entryTime.truncatedTo(ChronoUnit.HOURS).toString();
+        // Process server logs, indexing each visit for bounces under any criteria
+        for (int i = serverFrom; i < serverTo; i++) {
+            if (!isValidServerRow(i)) continue;
+            hourly.addVisit(columns.getEntryDate(i), columns.getExitDate(i), columns.getPagesViewed(i),
+                columns.getConversion(i));
+        }
+    }
 
-                // Check for bounce
-                LocalDateTime exitTime = toLocalDateTime(server.getExitDate());
-                long diffSeconds = Duration.between(entryTime, exitTime).getSeconds();
+    // Unfiltered queries add up whole hours, unless a row was too far out to be in them
+    private boolean usesHourlyCaches() {
+        return !hasFilters() && hourly.isComplete();
+    }
 
-                if (server.getPagesViewed() <= bouncePagesThreshold || diffSeconds <= bounceSecondsThreshold) {
-                    hourlyBounceCache.put(hourKey,
-                        hourlyBounceCache.getOrDefault(hourKey, 0) + 1);
-                }
+    // Filtered queries add up the cube for any whole hours, on the same condition
+    private boolean usesSegmentCube(long fromHour, long toHour) {
+        return hasFilters() && hourly.isComplete() && fromHour < toHour;
+    }
 
-                // Check for conversion
-                if (server.getConversion()) {
-                    hourlyConversionCache.put(hourKey,
-                        hourlyConversionCache.getOrDefault(hourKey, 0) + 1);
-                }
-            }
-        }
+    private boolean isValidServerRow(int row) {
+        return ColumnarCampaign.isDate(columns.getEntryDate(row)) && ColumnarCampaign.isDate(columns.getExitDate(row));
+    }
 
-        hourlyDataCached = true;
+    private boolean isBounce(int row) {
+        long diffSeconds = columns.getExitDate(row) - columns.getEntryDate(row);
+        return columns.getPagesViewed(row) <= bouncePagesThreshold || diffSeconds <= bounceSecondsThreshold;
     }
 
     /**
@@ -343,7 +713,7 @@ public class TimeFilteredMetrics {
      * Computes metrics for a time frame and updates currentMetrics.
      * Uses caching to avoid recomputing previously requested data.
      */
-    public void computeForTimeFrame(LocalDateTime start, LocalDateTime end, String granularity) {
+    public synchronized void computeForTimeFrame(LocalDateTime start, LocalDateTime end, String granularity) {
         String cacheKey = generateCacheKey(start, end, granularity);
 
         if (cache.containsKey(cacheKey)) {
@@ -398,7 +768,7 @@ public class TimeFilteredMetrics {
      * Computes metrics for time buckets based on the specified granularity.
      * Uses caching to avoid recomputing previously requested data.
      */
-    public Map<String, ComputedMetrics> computeForTimeFrameWithGranularity(
+    public synchronized Map<String, ComputedMetrics> computeForTimeFrameWithGranularity(
         LocalDateTime start,
         LocalDateTime end,
         String granularity) {
@@ -510,23 +880,38 @@ public class TimeFilteredMetrics {
 
     // FILTERING METHODS - UPDATED TO INCLUDE AUDIENCE AND CONTEXT FILTERS
 
+    // With filters, the whole hours of a time frame are added up from the segment cube, and
+    // only the rows of the part hours either side of them are scanned
+
     public int filterImpressions(LocalDateTime start, LocalDateTime end) {
         // If no audience or context filters, use cached hourly data for speed
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
-            return getCountFromHourlyCache(start, end, hourlyImpressionCache);
+        if (usesHourlyCaches()) {
+            return hourly.impressions(start, end);
+        }
+
+        long from = firstSecond(start);
+        long to = lastSecond(end);
+        long fromHour = firstWholeHour(from);
+        long toHour = endOfWholeHours(to);
+        if (usesSegmentCube(fromHour, toHour)) {
+            return segmentCube().impressions(segmentFilter, fromHour, toHour)
+                + scanImpressions(from, fromHour * 3600 - 1) + scanImpressions(toHour * 3600, to);
         }
+        return scanImpressions(from, to);
+    }
 
+    private int scanImpressions(long from, long to) {
         int count = 0;
-        if (imps != null) {
-            for (ImpressionLog i : imps) {
-                LogDate ld = i.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    if (!time.isBefore(start) && !time.isAfter(end) && passesFilters(i)) {
-                        count++;
-                    }
-                }
+        int last = firstImpressionFrom(to + 1);
+        for (int i = firstImpressionFrom(from); i < last; i++) {
+            if (impressionPassesFilters(i)) {
+                count++;
+            }
+        }
+        for (int i = sortedImpressionRows; i < impressionRows; i++) {
+            long date = columns.getImpressionDate(i);
+            if (date >= from && date <= to && impressionPassesFilters(i)) {
+                count++;
             }
         }
         return count;
@@ -534,88 +919,130 @@ public class TimeFilteredMetrics {
 
     public int filterClicks(LocalDateTime start, LocalDateTime end) {
         // If no audience or context filters, use cached hourly data for speed
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
-            return getCountFromHourlyCache(start, end, hourlyClickCache);
+        if (usesHourlyCaches()) {
+            return hourly.clicks(start, end);
         }
 
+        long from = firstSecond(start);
+        long to = lastSecond(end);
+        long fromHour = firstWholeHour(from);
+        long toHour = endOfWholeHours(to);
+        if (usesSegmentCube(fromHour, toHour)) {
+            return segmentCube().clicks(segmentFilter, fromHour, toHour)
+                + scanClicks(from, fromHour * 3600 - 1) + scanClicks(toHour * 3600, to);
+        }
+        return scanClicks(from, to);
+    }
+
+    private int scanClicks(long from, long to) {
         int count = 0;
-        if (cls != null) {
-            for (ClickLog c : cls) {
-                LogDate ld = c.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    if (!time.isBefore(start) && !time.isAfter(end) && userPassesFilters(c.getId())) {
-                        count++;
-                    }
-                }
+        int last = firstClickFrom(to + 1);
+        for (int i = firstClickFrom(from); i < last; i++) {
+            if (userPassesFilters(columns.getClickUser(i))) {
+                count++;
+            }
+        }
+        for (int i = sortedClickRows; i < clickRows; i++) {
+            long date = columns.getClickDate(i);
+            if (date >= from && date <= to && userPassesFilters(columns.getClickUser(i))) {
+                count++;
             }
         }
         return count;
     }
 
     public int filterUniques(LocalDateTime start, LocalDateTime end) {
-        // If no audience or context filters, use hourly caches
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
-            Set<String> uniqueIds = new HashSet<>();
+        if (isApproximateUniques()) {
+            return approximateUniques(start, end);
+        }
 
+        // If no audience or context filters, use hourly caches
+        if (usesHourlyCaches()) {
             // Gather all unique IDs from relevant hours
-            LocalDateTime current = start.truncatedTo(ChronoUnit.HOURS);
-            LocalDateTime endHour = end.truncatedTo(ChronoUnit.HOURS);
-
-            while (!current.isAfter(endHour)) {
-                String hourKey = current.toString();
-                Set<String> hourlyIds = hourlyUniqueIdsCache.get(hourKey);
-                if (hourlyIds != null) {
-                    uniqueIds.addAll(hourlyIds);
-                }
-                current = current.plusHours(1);
-            }
-
-            return uniqueIds.size();
+            BitSet uniqueUsers = new BitSet(columns.getUserCount());
+            hourly.addUsers(start, end, uniqueUsers);
+            return uniqueUsers.cardinality();
         }
 
         // With filters, we need to check each click
-        Set<String> uniqueIds = new HashSet<>();
-        if (cls != null) {
-            for (ClickLog c : cls) {
-                LogDate ld = c.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    if (!time.isBefore(start) && !time.isAfter(end) && userPassesFilters(c.getId())) {
-                        uniqueIds.add(c.getId());
-                    }
-                }
-            }
+        BitSet uniqueUsers = new BitSet();
+        scanUniques(firstSecond(start), lastSecond(end), uniqueUsers::set);
+        return uniqueUsers.cardinality();
+    }
+
+    // The sketches of the whole hours merged, from the segment cube under filters, with the
+    // clicking users of any part hours added one by one
+    private int approximateUniques(LocalDateTime start, LocalDateTime end) {
+        HyperLogLog sketch = new HyperLogLog(uniquesPrecision);
+        if (usesHourlyCaches()) {
+            hourly.addUsers(start, end, sketch);
+            return sketch.estimate();
+        }
+
+        long from = firstSecond(start);
+        long to = lastSecond(end);
+        long fromHour = firstWholeHour(from);
+        long toHour = endOfWholeHours(to);
+        if (usesSegmentCube(fromHour, toHour)) {
+            segmentCube().addUsers(segmentFilter, fromHour, toHour, sketch);
+            scanUniques(from, fromHour * 3600 - 1, sketch::add);
+            scanUniques(toHour * 3600, to, sketch::add);
+        } else {
+            scanUniques(from, to, sketch::add);
         }
+        return sketch.estimate();
+    }
 
-        return uniqueIds.size();
+    private void scanUniques(long from, long to, IntConsumer users) {
+        int last = firstClickFrom(to + 1);
+        for (int i = firstClickFrom(from); i < last; i++) {
+            int user = columns.getClickUser(i);
+            if (userPassesFilters(user)) {
+                users.accept(user);
+            }
+        }
+        for (int i = sortedClickRows; i < clickRows; i++) {
+            long date = columns.getClickDate(i);
+            int user = columns.getClickUser(i);
+            if (date >= from && date <= to && userPassesFilters(user)) {
+                users.accept(user);
+            }
+        }
     }
 
     public int filterBounces(LocalDateTime start, LocalDateTime end) {
         // If no audience or context filters, use cached hourly data for speed
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
-            return getCountFromHourlyCache(start, end, hourlyBounceCache);
+        if (usesHourlyCaches()) {
+            return hourly.bounces(start, end, bouncePagesThreshold, bounceSecondsThreshold);
         }
 
-        int bounces = 0;
-        if (srv != null) {
-            for (ServerLog s : srv) {
-                if (!isValidLog(s)) continue;
-
-                LocalDateTime entry = toLocalDateTime(s.getEntryDate());
-                if (entry.isBefore(start) || entry.isAfter(end)) continue;
+        long from = firstSecond(start);
+        long to = lastSecond(end);
+        long fromHour = firstWholeHour(from);
+        long toHour = endOfWholeHours(to);
+        if (usesSegmentCube(fromHour, toHour)) {
+            return segmentCube().bounces(segmentFilter, fromHour, toHour, bouncePagesThreshold, bounceSecondsThreshold)
+                + scanBounces(from, fromHour * 3600 - 1) + scanBounces(toHour * 3600, to);
+        }
+        return scanBounces(from, to);
+    }
 
-                if (!userPassesFilters(s.getId())) continue;
+    private int scanBounces(long from, long to) {
+        int bounces = 0;
+        int last = firstServerRowFrom(to + 1);
+        for (int i = firstServerRowFrom(from); i < last; i++) {
+            if (isValidServerRow(i) && userPassesFilters(columns.getServerUser(i)) && isBounce(i)) {
+                bounces++;
+            }
+        }
+        for (int i = sortedServerRows; i < serverRows; i++) {
+            if (!isValidServerRow(i)) continue;
 
-                LocalDateTime exit = toLocalDateTime(s.getExitDate());
-                long diffSeconds = Duration.between(entry, exit).getSeconds();
+            long entry = columns.getEntryDate(i);
+            if (entry < from || entry > to) continue;
 
-                if (s.getPagesViewed() <= bouncePagesThreshold || diffSeconds <= bounceSecondsThreshold) {
-                    bounces++;
-                }
+            if (userPassesFilters(columns.getServerUser(i)) && isBounce(i)) {
+                bounces++;
             }
         }
 
@@ -624,22 +1051,34 @@ public class TimeFilteredMetrics {
 
     public int filterConversions(LocalDateTime start, LocalDateTime end) {
         // If no audience or context filters, use cached hourly data for speed
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
-            return getCountFromHourlyCache(start, end, hourlyConversionCache);
+        if (usesHourlyCaches()) {
+            return hourly.conversions(start, end);
+        }
+
+        long from = firstSecond(start);
+        long to = lastSecond(end);
+        long fromHour = firstWholeHour(from);
+        long toHour = endOfWholeHours(to);
+        if (usesSegmentCube(fromHour, toHour)) {
+            return segmentCube().conversions(segmentFilter, fromHour, toHour)
+                + scanConversions(from, fromHour * 3600 - 1) + scanConversions(toHour * 3600, to);
         }
+        return scanConversions(from, to);
+    }
 
+    private int scanConversions(long from, long to) {
         int conversions = 0;
-        if (srv != null) {
-            for (ServerLog s : srv) {
-                LogDate ld = s.getEntryDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime entry = toLocalDateTime(ld);
-                    if (!entry.isBefore(start) && !entry.isAfter(end) &&
-                        s.getConversion() && userPassesFilters(s.getId())) {
-                        conversions++;
-                    }
-                }
+        int last = firstServerRowFrom(to + 1);
+        for (int i = firstServerRowFrom(from); i < last; i++) {
+            if (columns.getConversion(i) && userPassesFilters(columns.getServerUser(i))) {
+                conversions++;
+            }
+        }
+        for (int i = sortedServerRows; i < serverRows; i++) {
+            long entry = columns.getEntryDate(i);
+            if (entry >= from && entry <= to &&
+                columns.getConversion(i) && userPassesFilters(columns.getServerUser(i))) {
+                conversions++;
             }
         }
 
@@ -648,71 +1087,88 @@ public class TimeFilteredMetrics {
 
     public double filterTotalCost(LocalDateTime start, LocalDateTime end) {
         // If no audience or context filters, use cached hourly data for speed
-        if (genderFilter == null && ageFilter == null &&
-            incomeFilter == null && contextFilter == null) {
-            double totalCost = 0.0;
-
-            LocalDateTime current = start.truncatedTo(ChronoUnit.HOURS);
-            LocalDateTime endHour = end.truncatedTo(ChronoUnit.HOURS);
-
-            while (!current.isAfter(endHour)) {
-                String hourKey = current.toString();
-                totalCost += hourlyCostCache.getOrDefault(hourKey, 0.0);
-                current = current.plusHours(1);
-            }
+        if (usesHourlyCaches()) {
+            return hourly.cost(start, end);
+        }
 
-            return totalCost;
+        long from = firstSecond(start);
+        long to = lastSecond(end);
+        long fromHour = firstWholeHour(from);
+        long toHour = endOfWholeHours(to);
+        if (usesSegmentCube(fromHour, toHour)) {
+            return segmentCube().cost(segmentFilter, fromHour, toHour)
+                + scanTotalCost(from, fromHour * 3600 - 1) + scanTotalCost(toHour * 3600, to);
         }
+        return scanTotalCost(from, to);
+    }
 
-        // With filters, we need to compute costs directly
+    private double scanTotalCost(long from, long to) {
         double totalCost = 0;
 
         // Impression costs
-        if (imps != null) {
-            for (ImpressionLog i : imps) {
-                LogDate ld = i.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    if (!time.isBefore(start) && !time.isAfter(end) && passesFilters(i)) {
-                        totalCost += i.getImpressionCost();
-                    }
-                }
+        int lastImpression = firstImpressionFrom(to + 1);
+        for (int i = firstImpressionFrom(from); i < lastImpression; i++) {
+            if (impressionPassesFilters(i)) {
+                totalCost += columns.getImpressionCost(i);
+            }
+        }
+        for (int i = sortedImpressionRows; i < impressionRows; i++) {
+            long date = columns.getImpressionDate(i);
+            if (date >= from && date <= to && impressionPassesFilters(i)) {
+                totalCost += columns.getImpressionCost(i);
             }
         }
 
         // Click costs
-        if (cls != null) {
-            for (ClickLog c : cls) {
-                LogDate ld = c.getDate();
-                if (ld != null && ld.getExists()) {
-                    LocalDateTime time = toLocalDateTime(ld);
-                    if (!time.isBefore(start) && !time.isAfter(end) && userPassesFilters(c.getId())) {
-                        totalCost += c.getClickCost();
-                    }
-                }
+        int lastClick = firstClickFrom(to + 1);
+        for (int i = firstClickFrom(from); i < lastClick; i++) {
+            if (userPassesFilters(columns.getClickUser(i))) {
+                totalCost += columns.getClickCost(i);
+            }
+        }
+        for (int i = sortedClickRows; i < clickRows; i++) {
+            long date = columns.getClickDate(i);
+            if (date >= from && date <= to && userPassesFilters(columns.getClickUser(i))) {
+                totalCost += columns.getClickCost(i);
             }
         }
 
         return totalCost;
     }
 
-    /**
-     * Helper method to get count from hourly cache between specified dates
-     */
-    private int getCountFromHourlyCache(LocalDateTime start, LocalDateTime end, Map<String, Integer> cache) {
-        int count = 0;
+    // Hours since the epoch of the first whole hour from an epoch second on, and of the hour
+    // after the last whole hour up to one, so the whole hours of [from, to] are [first, end)
 
-        LocalDateTime current = start.truncatedTo(ChronoUnit.HOURS);
-        LocalDateTime endHour = end.truncatedTo(ChronoUnit.HOURS);
+    private static long firstWholeHour(long from) {
+        return Math.floorDiv(from + 3599, 3600);
+    }
 
-        while (!current.isAfter(endHour)) {
-            // Important: this must match how the cache was populated in initializeHourlyCaches
-            String hourKey = current.toString();
-            count += cache.getOrDefault(hourKey, 0);
-            current = current.plusHours(1);
-        }
+    private static long endOfWholeHours(long to) {
+        return Math.floorDiv(to + 1, 3600);
+    }
 
-        return count;
+    // First of the date-ordered rows of each log at or after an epoch second, so the rows of
+    // [from, to] are the slice up to the first row from to + 1
+
+    private int firstImpressionFrom(long epochSecond) {
+        return ColumnarCampaign.firstRowFrom(columns::getImpressionDate, sortedImpressionRows, epochSecond);
+    }
+
+    private int firstClickFrom(long epochSecond) {
+        return ColumnarCampaign.firstRowFrom(columns::getClickDate, sortedClickRows, epochSecond);
+    }
+
+    private int firstServerRowFrom(long epochSecond) {
+        return ColumnarCampaign.firstRowFrom(columns::getEntryDate, sortedServerRows, epochSecond);
+    }
+
+    // Rows are whole seconds, so a row is at or after start from the first whole second at or after it
+    private static long firstSecond(LocalDateTime start) {
+        return start.toEpochSecond(ZoneOffset.UTC) + (start.getNano() > 0 ? 1 : 0);
+    }
+
+    private static long lastSecond(LocalDateTime end) {
+        return end.toEpochSecond(ZoneOffset.UTC);
     }
 
     // Utility Methods
@@ -739,15 +1195,12 @@ public class TimeFilteredMetrics {
     public double getBounceRate() { return currentMetrics.bounceRate; }
 
     // Helper method to clear caches if needed
-    public void clearCaches() {
+    public synchronized void clearCaches() {
         cache.clear();
         granularCache.clear();
-        hourlyImpressionCache.clear();
-        hourlyClickCache.clear();
-        hourlyUniqueIdsCache.clear();
-        hourlyBounceCache.clear();
-        hourlyConversionCache.clear();
-        hourlyCostCache.clear();
+        filteredUsers = null;
+        segmentIndex = null;
+        hourly = new HourlySeries();
         hourlyDataCached = false;
 
         // Reinitialize hourly caches
@@ -0,0 +1,190 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives every distinct user ID a dense int ordinal (0, 1, 2... in order of first appearance),
+ * so the logs can refer to users by ordinal and sets of users can be BitSets.
+ *
+ * IDs are decimal numbers, so each one is parsed once into a long and looked up in an open
+ * addressing table of ordinals: about 20 bytes per user, against over 100 for a String and a
+ * boxed Integer in a HashMap entry. IDs that do not survive the round trip through a long
+ * (empty, with leading zeros, or too large) keep their text in a small map on the side, so two
+ * IDs get the same ordinal exactly when their strings are equal.
+ */
+public final class UserIdDictionary {
+
+    private static final int INITIAL_TABLE_SIZE = 1024;
+    private static final String MAX_LONG = Long.toString(Long.MAX_VALUE);
+
+    // The long of each ordinal, or -1 - index into otherIds for an ID kept as text
+    private long[] ids = new long[INITIAL_TABLE_SIZE / 2];
+    private int size;
+
+    // Ordinal + 1 of the ID hashed to each slot, 0 for an empty slot, at most half full
+    private int[] table = new int[INITIAL_TABLE_SIZE];
+
+    private final Map<String, Integer> otherOrdinals = new HashMap<>();
+    private final List<String> otherIds = new ArrayList<>();
+
+    /**
+     * @return the ordinal of the ID, adding it if it has not been seen before
+     */
+    public int ordinal(String id) {
+        long value = parse(id);
+        return value >= 0 ? ordinal(value) : otherOrdinal(id);
+    }
+
+    /**
+     * Byte version of ordinal(String) for the raw rows read by LogCsvTokenizer, which only
+     * creates a String for IDs that are not plain numbers
+     */
+    int ordinal(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > MAX_LONG.length() || (bytes[start] == '0' && length > 1)) {
+            return ordinal(new String(bytes, start, length, StandardCharsets.ISO_8859_1));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            // Non-digits, and 19 digit IDs above Long.MAX_VALUE, are kept as text
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return ordinal(new String(bytes, start, length, StandardCharsets.ISO_8859_1));
+            }
+            value = value * 10 + digit;
+        }
+        return ordinal(value);
+    }
+
+    /**
+     * @return the ordinal of the ID, or -1 if it has not been seen
+     */
+    public int find(String id) {
+        long value = parse(id);
+        if (value < 0) {
+            Integer ordinal = otherOrdinals.get(id);
+            return ordinal == null ? -1 : ordinal;
+        }
+        int mask = table.length - 1;
+        for (int slot = hash(value) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (ids[table[slot] - 1] == value) {
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the ID that has the given ordinal in another dictionary
+     * @return its ordinal in this dictionary
+     */
+    int ordinal(UserIdDictionary other, int otherOrdinal) {
+        long value = other.ids[otherOrdinal];
+        return value >= 0 ? ordinal(value) : otherOrdinal(other.otherIds.get((int) (-1 - value)));
+    }
+
+    public String getId(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("No user with ordinal " + ordinal);
+        }
+        long value = ids[ordinal];
+        return value >= 0 ? Long.toString(value) : otherIds.get((int) (-1 - value));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate bytes held by the dictionary
+     */
+    public long getMemoryBytes() {
+        long other = 0;
+        for (String id : otherIds) {
+            other += 80 + id.length();
+        }
+        return ids.length * 8L + table.length * 4L + other;
+    }
+
+    private int ordinal(long value) {
+        int mask = table.length - 1;
+        int slot = hash(value) & mask;
+        while (table[slot] != 0) {
+            if (ids[table[slot] - 1] == value) {
+                return table[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int ordinal = add(value);
+        table[slot] = ordinal + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return ordinal;
+    }
+
+    private int otherOrdinal(String id) {
+        Integer ordinal = otherOrdinals.get(id);
+        if (ordinal == null) {
+            ordinal = add(-1L - otherIds.size());
+            otherOrdinals.put(id, ordinal);
+            otherIds.add(id);
+        }
+        return ordinal;
+    }
+
+    private int add(long value) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[size] = value;
+        return size++;
+    }
+
+    private void rehash() {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (ids[ordinal] < 0) continue;
+            int slot = hash(ids[ordinal]) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = ordinal + 1;
+        }
+        table = grown;
+    }
+
+    // Mixes all 64 bits (the MurmurHash3 finalizer), since sequential IDs would cluster otherwise
+    private static int hash(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+
+    // The ID as a long if it is written exactly as Long.toString would write it, otherwise -1
+    private static long parse(String id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_LONG.length() || (id.charAt(0) == '0' && length > 1)) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        if (length == MAX_LONG.length() && id.compareTo(MAX_LONG) > 0) {
+            return -1;
+        }
+        return Long.parseLong(id);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.ad_auction_dashboard.logic;
 
 import com.example.ad_auction_dashboard.controller.ChartSceneController;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -11,9 +12,14 @@ public class UserSession {
     private String previousScene;
     private CampaignMetrics currentCampaignMetrics;
     private String currentStyle;
+    private LogDirectoryWatcher liveWatcher;
+    // Database ID of the current campaign, or -1 if it has not been saved
+    private int savedCampaignId = -1;
 
     private ChartSceneController controller;
     private Map<String, String> filterSettings = new HashMap<>();
+    // Error target of approximate uniques, or 0 for exact uniques; kept when filters are reset
+    private double uniquesErrorTarget = 0;
 
     private UserSession() {}
 
@@ -75,6 +81,47 @@ public class UserSession {
         return this.currentCampaignMetrics;
     }
 
+    // Live tail of the folder the current campaign was loaded from, or null if it is not live
+    public void setLiveWatcher(LogDirectoryWatcher watcher) {
+        if (this.liveWatcher != null && this.liveWatcher != watcher) {
+            try {
+                this.liveWatcher.close();
+            } catch (IOException e) {
+                System.err.println("Error stopping live log watcher: " + e.getMessage());
+            }
+        }
+        this.liveWatcher = watcher;
+    }
+
+    public LogDirectoryWatcher getLiveWatcher() {
+        return this.liveWatcher;
+    }
+
+    public void setSavedCampaignId(int campaignId) {
+        this.savedCampaignId = campaignId;
+    }
+
+    public int getSavedCampaignId() {
+        return this.savedCampaignId;
+    }
+
+    public void setUniquesErrorTarget(double errorTarget) {
+        this.uniquesErrorTarget = errorTarget;
+    }
+
+    public double getUniquesErrorTarget() {
+        return this.uniquesErrorTarget;
+    }
+
+    // Puts the uniques mode chosen in the metric scene on the metrics of another scene
+    public void applyUniquesMode(TimeFilteredMetrics metrics) {
+        if (uniquesErrorTarget > 0) {
+            metrics.useApproximateUniques(uniquesErrorTarget);
+        } else {
+            metrics.useExactUniques();
+        }
+    }
+
     public void setFilterSetting(String key, String value) {
         filterSettings.put(key, value);
     }
@@ -99,6 +146,8 @@ public class UserSession {
         currentUser = null;
         previousScene = null;
         currentCampaignMetrics = null;
+        savedCampaignId = -1;
+        setLiveWatcher(null);
         filterSettings.clear();
     }
 }
\ No newline at end of file
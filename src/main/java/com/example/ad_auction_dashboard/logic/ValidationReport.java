@@ -0,0 +1,305 @@
+package com.example.ad_auction_dashboard.logic;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collects what ingestion rejected: how many rows of each log had a bad value in each field,
+ * how many rows were dropped for having the wrong number of columns, and a capped sample of the
+ * offending rows with their line numbers. Rows with a bad field are still loaded (with the field
+ * marked invalid, as before), only rows with the wrong column count are dropped.
+ *
+ * Each parser counts into its own Tally without any locking, and the tally is merged into the
+ * report once the parser has finished its input, so parallel parsers never contend per row.
+ * If a rejected rows file is given, every offending row is also written to it as
+ * "Source,Line,Rejected Fields,Row".
+ */
+public class ValidationReport implements Closeable {
+
+    public static final int SAMPLE_LIMIT = 20;
+
+    // Rejected rows a tally holds before writing them out, when its line numbers are final
+    private static final int FLUSH_THRESHOLD = 4096;
+
+    public enum Field {
+        COLUMNS("Column count"),
+        DATE("Date"),
+        ID("ID"),
+        GENDER("Gender"),
+        AGE("Age"),
+        INCOME("Income"),
+        CONTEXT("Context"),
+        COST("Cost"),
+        EXIT_DATE("Exit Date"),
+        PAGES_VIEWED("Pages Viewed"),
+        CONVERSION("Conversion");
+
+        private final String label;
+
+        Field(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    private static final LogCsvTokenizer.LogType[] LOG_TYPES = LogCsvTokenizer.LogType.values();
+
+    private final Path rejectedRowsFile;
+    private final long[][] rejectedFields = new long[LOG_TYPES.length][FIELDS.length];
+    private final long[] rowsRead = new long[LOG_TYPES.length];
+    private final long[] rowsRejected = new long[LOG_TYPES.length];
+    private final List<Rejection> samples = new ArrayList<>();
+    private BufferedWriter rejectedRowsWriter;
+
+    /**
+     * A report that only keeps counters and samples
+     */
+    public ValidationReport() {
+        this(null);
+    }
+
+    /**
+     * @param rejectedRowsFile file every rejected row is written to, or null for none
+     */
+    public ValidationReport(Path rejectedRowsFile) {
+        this.rejectedRowsFile = rejectedRowsFile;
+    }
+
+    /**
+     * Starts counting one input whose line numbers are those of the file itself
+     */
+    public Tally newTally(String source, LogCsvTokenizer.LogType type) {
+        return new Tally(this, source, type, true);
+    }
+
+    /**
+     * Starts counting a chunk of a file whose line numbers are only known relative to the chunk.
+     * The chunk is held until add gives its position in the file.
+     */
+    Tally newChunkTally(String source, LogCsvTokenizer.LogType type) {
+        return new Tally(this, source, type, false);
+    }
+
+    /**
+     * Merges a finished tally into the report
+     * @param lineOffset lines in the file before the tally's first line
+     */
+    public synchronized void add(Tally tally, long lineOffset) {
+        int type = tally.type.ordinal();
+        for (int field = 0; field < FIELDS.length; field++) {
+            rejectedFields[type][field] += tally.rejectedFields[field];
+        }
+        rowsRead[type] += tally.rowsRead;
+        rowsRejected[type] += tally.rowsRejected;
+        for (Rejection sample : tally.samples) {
+            if (samples.size() >= SAMPLE_LIMIT) break;
+            samples.add(sample.shift(lineOffset));
+        }
+        writeRejections(tally, lineOffset);
+    }
+
+    private synchronized void writeRejections(Tally tally, long lineOffset) {
+        if (tally.pending.isEmpty()) return;
+        try {
+            if (rejectedRowsWriter == null) {
+                rejectedRowsWriter = Files.newBufferedWriter(rejectedRowsFile, StandardCharsets.UTF_8);
+                rejectedRowsWriter.write("Source,Line,Rejected Fields,Row");
+                rejectedRowsWriter.newLine();
+            }
+            for (Rejection rejection : tally.pending) {
+                rejectedRowsWriter.write(tally.source + "," + (rejection.line + lineOffset) + ","
+                    + rejection.describeFields(";") + "," + rejection.row);
+                rejectedRowsWriter.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing rejected rows: " + e.getMessage());
+        }
+        tally.pending.clear();
+    }
+
+    public synchronized long getRowsRead(LogCsvTokenizer.LogType type) {
+        return rowsRead[type.ordinal()];
+    }
+
+    /**
+     * Rows of the given log with at least one rejected field or the wrong column count
+     */
+    public synchronized long getRowsRejected(LogCsvTokenizer.LogType type) {
+        return rowsRejected[type.ordinal()];
+    }
+
+    public synchronized long getRejectedCount(LogCsvTokenizer.LogType type, Field field) {
+        return rejectedFields[type.ordinal()][field.ordinal()];
+    }
+
+    public synchronized List<Rejection> getSamples() {
+        return Collections.unmodifiableList(new ArrayList<>(samples));
+    }
+
+    public synchronized boolean hasRejections() {
+        for (long rejected : rowsRejected) {
+            if (rejected > 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts per log and field followed by the sampled rows, for showing once loading has finished
+     */
+    public synchronized String getSummary() {
+        if (!hasRejections()) {
+            return "No invalid rows found.";
+        }
+        StringBuilder summary = new StringBuilder();
+        for (LogCsvTokenizer.LogType type : LOG_TYPES) {
+            int t = type.ordinal();
+            if (rowsRejected[t] == 0) continue;
+            summary.append(String.format("%s log: %,d of %,d rows rejected%n",
+                displayName(type), rowsRejected[t], rowsRead[t]));
+            for (Field field : FIELDS) {
+                long count = rejectedFields[t][field.ordinal()];
+                if (count > 0) {
+                    summary.append(String.format("  %s: %,d%n", field.getLabel(), count));
+                }
+            }
+        }
+        summary.append("Examples:");
+        for (Rejection sample : samples) {
+            summary.append(String.format("%n  %s line %d (%s): %s",
+                sample.source, sample.line, sample.describeFields(", "), sample.row));
+        }
+        if (rejectedRowsFile != null) {
+            summary.append(String.format("%nAll rejected rows were written to %s", rejectedRowsFile));
+        }
+        return summary.toString();
+    }
+
+    private static String displayName(LogCsvTokenizer.LogType type) {
+        String name = type.name();
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (rejectedRowsWriter != null) {
+            rejectedRowsWriter.close();
+            rejectedRowsWriter = null;
+        }
+    }
+
+    /**
+     * Counts for one input, written by a single parser thread
+     */
+    public static final class Tally {
+        private final ValidationReport report;
+        private final String source;
+        private final LogCsvTokenizer.LogType type;
+        private final boolean linesFinal;
+        private final long[] rejectedFields = new long[FIELDS.length];
+        private final List<Rejection> samples = new ArrayList<>();
+        private final List<Rejection> pending = new ArrayList<>();
+        private long rowsRead;
+        private long rowsRejected;
+
+        private Tally(ValidationReport report, String source, LogCsvTokenizer.LogType type, boolean linesFinal) {
+            this.report = report;
+            this.source = source;
+            this.type = type;
+            this.linesFinal = linesFinal;
+        }
+
+        void countRow() {
+            rowsRead++;
+        }
+
+        /**
+         * Records a row with at least one rejected field
+         * @param fields bits of the rejected Fields
+         * @param row the raw row, only asked for if it is going to be kept
+         */
+        void reject(int fields, long line, Supplier<String> row) {
+            rowsRejected++;
+            for (int field = 0; field < FIELDS.length; field++) {
+                if ((fields & (1 << field)) != 0) {
+                    rejectedFields[field]++;
+                }
+            }
+            boolean sample = samples.size() < SAMPLE_LIMIT;
+            boolean keep = report.rejectedRowsFile != null;
+            if (!sample && !keep) return;
+
+            Rejection rejection = new Rejection(source, line, fields, row.get());
+            if (sample) samples.add(rejection);
+            if (keep) {
+                pending.add(rejection);
+                if (linesFinal && pending.size() >= FLUSH_THRESHOLD) {
+                    report.writeRejections(this, 0);
+                }
+            }
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+    }
+
+    /**
+     * One rejected row
+     */
+    public static final class Rejection {
+        private final String source;
+        private final long line;
+        private final int fields;
+        private final String row;
+
+        private Rejection(String source, long line, int fields, String row) {
+            this.source = source;
+            this.line = line;
+            this.fields = fields;
+            this.row = row;
+        }
+
+        private Rejection shift(long lineOffset) {
+            return lineOffset == 0 ? this : new Rejection(source, line + lineOffset, fields, row);
+        }
+
+        public String getSource() { return source; }
+        public long getLine() { return line; }
+        public String getRow() { return row; }
+
+        public boolean isRejected(Field field) {
+            return (fields & field.bit()) != 0;
+        }
+
+        String describeFields(String separator) {
+            StringBuilder description = new StringBuilder();
+            for (Field field : FIELDS) {
+                if (isRejected(field)) {
+                    if (description.length() > 0) description.append(separator);
+                    description.append(field.getLabel());
+                }
+            }
+            return description.toString();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.ad_auction_dashboard.Benchmarks;
+
+import com.example.ad_auction_dashboard.logic.Campaign;
+import com.example.ad_auction_dashboard.logic.CampaignMetrics;
+import com.example.ad_auction_dashboard.logic.ClickLog;
+import com.example.ad_auction_dashboard.logic.ColumnarCampaign;
+import com.example.ad_auction_dashboard.logic.ImpressionLog;
+import com.example.ad_auction_dashboard.logic.LogDate;
+import com.example.ad_auction_dashboard.logic.ServerLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the CampaignMetrics constructor, which takes every total in one pass per log, against
+ * the separate passes it used to make (one per metric, and six more for the date range with a
+ * LocalDateTime per row), and checks that both give the same totals. Then compares aggregating
+ * the campaign as columns on one thread against aggregating them on the common ForkJoinPool.
+ * Run with: java -Xmx4g -cp target/classes:target/test-classes com.example.ad_auction_dashboard.Benchmarks.CampaignMetricsBenchmark [impressions]
+ */
+public class CampaignMetricsBenchmark {
+
+    private static final String[] GENDERS = {"Male", "Female"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54"};
+    private static final String[] INCOMES = {"Low", "Medium", "High"};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel"};
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Campaign campaign = generateCampaign(rows);
+        System.out.printf("Campaign: %,d impressions, %,d clicks, %,d server logs%n", rows,
+            campaign.getClickLogs().length, campaign.getServerLogs().length);
+
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            LegacyTotals legacy = new LegacyTotals(campaign);
+            report("separate passes", round, rows, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            CampaignMetrics metrics = new CampaignMetrics(campaign);
+            report("one pass per log", round, rows, System.nanoTime() - start);
+
+            if (!legacy.matches(metrics)) {
+                throw new AssertionError("Totals differ from the separate passes");
+            }
+        }
+
+        ColumnarCampaign columns = ColumnarCampaign.of(campaign.getImpressionLogs(), campaign.getClickLogs(),
+            campaign.getServerLogs());
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            CampaignMetrics sequential = new CampaignMetrics(columns, null);
+            report("columns, 1 thread", round, rows, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            CampaignMetrics parallel = new CampaignMetrics(columns, pool);
+            report("columns, fork/join x" + pool.getParallelism(), round, rows, System.nanoTime() - start);
+
+            if (sequential.getNumberOfUniques() != parallel.getNumberOfUniques()
+                || Math.abs(sequential.getTotalCost() - parallel.getTotalCost()) > 1e-6 * sequential.getTotalCost()) {
+                throw new AssertionError("Parallel totals differ from the sequential ones");
+            }
+        }
+    }
+
+    private static void report(String name, int round, int rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("round %d  %-22s %,14.0f impressions/sec  (%.2f s)%n", round, name, rows / seconds, seconds);
+    }
+
+    /**
+     * The totals as the constructor used to compute them
+     */
+    private static final class LegacyTotals {
+        private final int uniques;
+        private int bounces;
+        private int conversions;
+        private double totalCost;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        LegacyTotals(Campaign campaign) {
+            ImpressionLog[] imps = campaign.getImpressionLogs();
+            ClickLog[] cls = campaign.getClickLogs();
+            ServerLog[] srv = campaign.getServerLogs();
+            start = findDate(imps, cls, srv, true);
+            end = findDate(imps, cls, srv, false);
+
+            Set<String> ids = new HashSet<>();
+            for (ClickLog c : cls) {
+                ids.add(c.getId());
+            }
+            uniques = ids.size();
+            for (ServerLog s : srv) {
+                LogDate entryLd = s.getEntryDate();
+                LogDate exitLd = s.getExitDate();
+                if (entryLd == null || exitLd == null || !entryLd.getExists() || !exitLd.getExists()) {
+                    continue;
+                }
+                long diffSeconds = Duration.between(toLocalDateTime(entryLd), toLocalDateTime(exitLd)).getSeconds();
+                if (s.getPagesViewed() <= 1 || diffSeconds <= 4) {
+                    bounces++;
+                }
+            }
+            for (ServerLog s : srv) {
+                if (s.getConversion()) {
+                    conversions++;
+                }
+            }
+            for (ImpressionLog i : imps) {
+                totalCost += i.getImpressionCost();
+            }
+            for (ClickLog c : cls) {
+                totalCost += c.getClickCost();
+            }
+        }
+
+        // One pass per log for the start, and another three for the end
+        private static LocalDateTime findDate(ImpressionLog[] imps, ClickLog[] cls, ServerLog[] srv, boolean earliest) {
+            LocalDateTime found = null;
+            for (ImpressionLog imp : imps) {
+                found = pick(found, imp.getDate(), earliest);
+            }
+            for (ClickLog cl : cls) {
+                found = pick(found, cl.getDate(), earliest);
+            }
+            for (ServerLog s : srv) {
+                found = pick(found, s.getEntryDate(), earliest);
+            }
+            return found;
+        }
+
+        private static LocalDateTime pick(LocalDateTime found, LogDate ld, boolean earliest) {
+            if (ld == null || !ld.getExists()) return found;
+            LocalDateTime dt = toLocalDateTime(ld);
+            if (found == null || (earliest ? dt.isBefore(found) : dt.isAfter(found))) {
+                return dt;
+            }
+            return found;
+        }
+
+        private static LocalDateTime toLocalDateTime(LogDate ld) {
+            return LocalDateTime.of(ld.getYear(), ld.getMonth(), ld.getDay(), ld.getHour(), ld.getMinute(), ld.getSecond());
+        }
+
+        boolean matches(CampaignMetrics metrics) {
+            return uniques == metrics.getNumberOfUniques() && bounces == metrics.getNumberOfBounces()
+                && conversions == metrics.getNumberOfConversions() && totalCost == metrics.getTotalCost()
+                && start.equals(metrics.getCampaignStartDate()) && end.equals(metrics.getCampaignEndDate());
+        }
+    }
+
+    private static Campaign generateCampaign(int rows) {
+        Random random = new Random(42);
+        // A user pool a tenth the size of the log, so that users come back as they do in real logs
+        String[] users = new String[Math.max(1, rows / 10)];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = Long.toString(Math.abs(random.nextLong()));
+        }
+        ImpressionLog[] impressions = new ImpressionLog[rows];
+        ClickLog[] clicks = new ClickLog[rows / 20];
+        ServerLog[] serverLogs = new ServerLog[rows / 20];
+        for (int i = 0; i < rows; i++) {
+            impressions[i] = new ImpressionLog(timestamp(i), users[random.nextInt(users.length)],
+                GENDERS[random.nextInt(GENDERS.length)], AGES[random.nextInt(AGES.length)],
+                INCOMES[random.nextInt(INCOMES.length)], CONTEXTS[random.nextInt(CONTEXTS.length)],
+                String.format("%.6f", random.nextDouble() * 0.01));
+        }
+        for (int i = 0; i < clicks.length; i++) {
+            String id = impressions[i * 20].getId();
+            clicks[i] = new ClickLog(timestamp(i * 20 + 5), id, String.format("%.6f", random.nextDouble() * 15));
+            String exit = random.nextInt(10) == 0 ? "n/a" : timestamp(i * 20 + 5 + random.nextInt(300));
+            serverLogs[i] = new ServerLog(timestamp(i * 20 + 5), id, exit,
+                Integer.toString(1 + random.nextInt(9)), random.nextBoolean() ? "Yes" : "No");
+        }
+        return new Campaign(impressions, clicks, serverLogs);
+    }
+
+    private static String timestamp(int second) {
+        return String.format("2015-01-%02d %02d:%02d:%02d", 1 + (second / 86400) % 28,
+            (second / 3600) % 24, (second / 60) % 60, second % 60);
+    }
+}
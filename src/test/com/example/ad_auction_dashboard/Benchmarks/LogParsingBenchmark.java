@@ -0,0 +1,96 @@
+package com.example.ad_auction_dashboard.Benchmarks;
+
+import com.example.ad_auction_dashboard.logic.ImpressionLog;
+import com.example.ad_auction_dashboard.logic.LogCsvTokenizer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares impression rows/sec of the String.split based parsing that openZip used to do
+ * against the byte-level LogCsvTokenizer.
+ * Run with: java -cp target/classes:target/test-classes com.example.ad_auction_dashboard.Benchmarks.LogParsingBenchmark [rows]
+ */
+public class LogParsingBenchmark {
+
+    private static final String[] GENDERS = {"Male", "Female"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54"};
+    private static final String[] INCOMES = {"Low", "Medium", "High"};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel"};
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        byte[] csv = generateImpressions(rows);
+        System.out.printf("Impression log: %,d rows, %,d bytes%n", rows, csv.length);
+
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            int parsed = parseWithSplit(csv);
+            report("String.split + setters", round, parsed, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            parsed = parseWithTokenizer(csv);
+            report("LogCsvTokenizer", round, parsed, System.nanoTime() - start);
+        }
+    }
+
+    private static int parseWithSplit(byte[] csv) throws IOException {
+        List<ImpressionLog> logs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 7) {
+                    logs.add(new ImpressionLog(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]));
+                }
+            }
+        }
+        return logs.size();
+    }
+
+    private static int parseWithTokenizer(byte[] csv) throws IOException {
+        List<ImpressionLog> logs = new ArrayList<>();
+        try (LogCsvTokenizer tokenizer = new LogCsvTokenizer(new ByteArrayInputStream(csv))) {
+            tokenizer.readHeader();
+            while (tokenizer.nextRow()) {
+                if (tokenizer.getFieldCount() == 7) {
+                    logs.add(tokenizer.toImpressionLog());
+                }
+            }
+        }
+        return logs.size();
+    }
+
+    private static void report(String name, int round, int rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("round %d  %-24s %,12.0f rows/sec  (%.2f s)%n", round, name, rows / seconds, seconds);
+    }
+
+    private static byte[] generateImpressions(int rows) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(rows * 80);
+        sb.append(LogCsvTokenizer.IMPRESSION_HEADER).append('\n');
+        for (int i = 0; i < rows; i++) {
+            int second = i % 60;
+            int minute = (i / 60) % 60;
+            int hour = (i / 3600) % 24;
+            int day = 1 + (i / 86400) % 28;
+            sb.append(String.format("2015-01-%02d %02d:%02d:%02d,", day, hour, minute, second))
+                .append(Math.abs(random.nextLong())).append(',')
+                .append(GENDERS[random.nextInt(GENDERS.length)]).append(',')
+                .append(AGES[random.nextInt(AGES.length)]).append(',')
+                .append(INCOMES[random.nextInt(INCOMES.length)]).append(',')
+                .append(CONTEXTS[random.nextInt(CONTEXTS.length)]).append(',')
+                .append(String.format("%.6f", random.nextDouble() * 0.01)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
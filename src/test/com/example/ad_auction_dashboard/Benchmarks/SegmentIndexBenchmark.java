@@ -0,0 +1,85 @@
+package com.example.ad_auction_dashboard.Benchmarks;
+
+import com.example.ad_auction_dashboard.logic.ClickLog;
+import com.example.ad_auction_dashboard.logic.ColumnarCampaign;
+import com.example.ad_auction_dashboard.logic.ImpressionLog;
+import com.example.ad_auction_dashboard.logic.SegmentPredicate;
+import com.example.ad_auction_dashboard.logic.ServerLog;
+import com.example.ad_auction_dashboard.logic.TimeFilteredMetrics;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Compares finding the users who pass a filter by scanning every impression's segment against
+ * taking them from the bitmap indexes of TimeFilteredMetrics, for filters on one attribute (the
+ * user bitmaps alone) and on two (the row bitmaps), and prints the memory the indexes take for a
+ * campaign of millions of distinct users.
+ * Run with: java -Xmx4g -cp target/classes:target/test-classes com.example.ad_auction_dashboard.Benchmarks.SegmentIndexBenchmark [impressions]
+ */
+public class SegmentIndexBenchmark {
+
+    private static final String[] GENDERS = {"Male", "Female"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54"};
+    private static final String[] INCOMES = {"Low", "Medium", "High"};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel"};
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        ColumnarCampaign columns = generateColumns(rows);
+        System.out.printf("Campaign: %,d impressions, %,d users%n", rows, columns.getUserCount());
+
+        TimeFilteredMetrics metrics = new TimeFilteredMetrics(columns, 1, 4);
+        long start = System.nanoTime();
+        String report = metrics.getSegmentIndexMemoryReport();
+        System.out.printf("Indexes built in %.2f s%n%s", (System.nanoTime() - start) / 1e9, report);
+
+        String[][] filters = {{null, "Blog"}, {"Female", "Blog"}};
+        for (int round = 1; round <= 3; round++) {
+            for (String[] filter : filters) {
+                String name = filter[0] == null ? "one attribute" : "two attributes";
+                SegmentPredicate predicate = SegmentPredicate.of(filter[0], null, null, filter[1]);
+
+                start = System.nanoTime();
+                BitSet scanned = new BitSet(columns.getUserCount());
+                predicate.addUsers(columns, 0, columns.getImpressionCount(), scanned);
+                report("scan, " + name, round, System.nanoTime() - start);
+
+                metrics.setGenderFilter(filter[0]);
+                metrics.setContextFilter(filter[1]);
+                start = System.nanoTime();
+                metrics.userPassesFilters(0);
+                report("bitmaps, " + name, round, System.nanoTime() - start);
+
+                for (int user = scanned.nextSetBit(0); user >= 0; user = scanned.nextSetBit(user + 1)) {
+                    if (!metrics.userPassesFilters(user)) {
+                        throw new AssertionError("Bitmaps miss user " + user);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void report(String name, int round, long nanos) {
+        System.out.printf("round %d  %-24s %8.1f ms%n", round, name, nanos / 1e6);
+    }
+
+    private static ColumnarCampaign generateColumns(int rows) {
+        Random random = new Random(42);
+        // Half as many users as impressions, each with fixed demographics and varying contexts
+        int users = Math.max(1, rows / 2);
+        ImpressionLog[] impressions = new ImpressionLog[rows];
+        for (int i = 0; i < rows; i++) {
+            int user = random.nextInt(users);
+            impressions[i] = new ImpressionLog(timestamp(i), Integer.toString(user),
+                GENDERS[user % GENDERS.length], AGES[user % AGES.length], INCOMES[user % INCOMES.length],
+                CONTEXTS[random.nextInt(CONTEXTS.length)], String.format("%.6f", random.nextDouble() * 0.01));
+        }
+        return ColumnarCampaign.of(impressions, new ClickLog[0], new ServerLog[0]);
+    }
+
+    private static String timestamp(int second) {
+        return String.format("2015-01-%02d %02d:%02d:%02d", 1 + (second / 86400) % 28,
+            (second / 3600) % 24, (second / 60) % 60, second % 60);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ad_auction_dashboard.Benchmarks;
+
+import com.example.ad_auction_dashboard.logic.Campaign;
+import com.example.ad_auction_dashboard.logic.ClickLog;
+import com.example.ad_auction_dashboard.logic.FileHandler;
+import com.example.ad_auction_dashboard.logic.ImpressionLog;
+import com.example.ad_auction_dashboard.logic.ServerLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares reopening a campaign from its binary snapshot against writing it, and reports the
+ * snapshot size per impression.
+ * Run with: java -cp target/classes:target/test-classes com.example.ad_auction_dashboard.Benchmarks.SnapshotBenchmark [impressions]
+ */
+public class SnapshotBenchmark {
+
+    private static final String[] GENDERS = {"Male", "Female"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54"};
+    private static final String[] INCOMES = {"Low", "Medium", "High"};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel"};
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Campaign campaign = generateCampaign(rows);
+        File snapshot = File.createTempFile("campaign", ".snapshot");
+        snapshot.deleteOnExit();
+        FileHandler fileHandler = new FileHandler();
+
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            fileHandler.saveSnapshot(campaign, snapshot.getAbsolutePath());
+            double saveSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            Campaign reopened = fileHandler.openSnapshot(snapshot.getAbsolutePath());
+            double openSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("round %d  save %.2f s  open %.2f s  (%,d impressions, %.1f bytes/impression)%n",
+                round, saveSeconds, openSeconds, reopened.getImpressionLogs().length,
+                (double) snapshot.length() / rows);
+        }
+    }
+
+    private static Campaign generateCampaign(int rows) {
+        Random random = new Random(42);
+        ImpressionLog[] impressions = new ImpressionLog[rows];
+        ClickLog[] clicks = new ClickLog[rows / 20];
+        ServerLog[] serverLogs = new ServerLog[rows / 20];
+        for (int i = 0; i < rows; i++) {
+            impressions[i] = new ImpressionLog(timestamp(i), Long.toString(Math.abs(random.nextLong())),
+                GENDERS[random.nextInt(GENDERS.length)], AGES[random.nextInt(AGES.length)],
+                INCOMES[random.nextInt(INCOMES.length)], CONTEXTS[random.nextInt(CONTEXTS.length)],
+                String.format("%.6f", random.nextDouble() * 0.01));
+        }
+        for (int i = 0; i < clicks.length; i++) {
+            String id = impressions[i * 20].getId();
+            clicks[i] = new ClickLog(timestamp(i * 20 + 5), id, String.format("%.6f", random.nextDouble() * 15));
+            serverLogs[i] = new ServerLog(timestamp(i * 20 + 5), id, timestamp(i * 20 + 5 + random.nextInt(300)),
+                Integer.toString(1 + random.nextInt(9)), random.nextBoolean() ? "Yes" : "No");
+        }
+        return new Campaign(impressions, clicks, serverLogs);
+    }
+
+    private static String timestamp(int second) {
+        return String.format("2015-01-%02d %02d:%02d:%02d", 1 + (second / 86400) % 28,
+            (second / 3600) % 24, (second / 60) % 60, second % 60);
+    }
+}
@@ -5,6 +5,9 @@ import com.example.ad_auction_dashboard.logic.*;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
 public class DateBoundaryTest {
 
     @Test
@@ -43,4 +46,53 @@ public class DateBoundaryTest {
         assertEquals(1, log2.getDay(), "Year should have been changed to 1 from -1");
     }
 
+    @Test
+    @DisplayName("Century Leap Day follows the Gregorian rule")
+    void centuryLeapDay(){
+        LogDate log1 = new LogDate(1900, 2, 29, 10, 10, 10);
+        LogDate log2 = new LogDate(2000, 2, 29, 10, 10, 10);
+        assertEquals(-1, log1.getDay(), "1900 is not a leap year");
+        assertEquals(29, log2.getDay(), "2000 is a leap year");
+        assertEquals(LogDate.INVALID, LogDate.parseEpochSecond("1900-02-29 10:10:10"));
+    }
+
+    @Test
+    @DisplayName("Epoch second parsing matches LocalDateTime")
+    void epochSecondMatchesLocalDateTime(){
+        LocalDateTime[] dates = {
+            LocalDateTime.of(1000, 1, 1, 0, 0, 0),
+            LocalDateTime.of(1970, 1, 1, 0, 0, 0),
+            LocalDateTime.of(2000, 2, 29, 23, 59, 59),
+            LocalDateTime.of(2015, 1, 1, 12, 1, 21),
+            LocalDateTime.of(2024, 12, 31, 0, 0, 1),
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59)
+        };
+        for (LocalDateTime date : dates){
+            String text = date.toLocalDate() + " " + String.format("%02d:%02d:%02d", date.getHour(), date.getMinute(), date.getSecond());
+            long epochSecond = LogDate.parseEpochSecond(text);
+            assertEquals(date.toEpochSecond(ZoneOffset.UTC), epochSecond, "Epoch second of " + text);
+
+            LogDate logDate = LogDate.fromEpochSecond(epochSecond);
+            assertEquals(text, logDate.getDate(), "Round trip of " + text);
+            assertEquals(epochSecond, logDate.toEpochSecond());
+            assertEquals(text, LogFile.convertDate(text).getDate());
+        }
+    }
+
+    @Test
+    @DisplayName("Epoch second parsing returns sentinels for n/a and invalid dates")
+    void epochSecondSentinels(){
+        assertEquals(LogDate.NOT_AVAILABLE, LogDate.parseEpochSecond("n/a"));
+        assertEquals(LogDate.INVALID, LogDate.parseEpochSecond("2015-01-01T12:00:00"));
+        assertEquals(LogDate.INVALID, LogDate.parseEpochSecond("2015-13-01 12:00:00"));
+        assertEquals(LogDate.INVALID, LogDate.parseEpochSecond("2015-02-29 12:00:00"));
+        assertEquals(LogDate.INVALID, LogDate.parseEpochSecond("2015-01-01 24:00:00"));
+        assertEquals(LogDate.INVALID, LogDate.parseEpochSecond("2015-01-0a 12:00:00"));
+        assertFalse(LogDate.fromEpochSecond(LogDate.NOT_AVAILABLE).getExists());
+        assertNull(LogDate.fromEpochSecond(LogDate.INVALID));
+
+        // Out of range fields are still flagged by convertDate the way the constructor does
+        assertTrue(LogFile.convertDate("2015-13-01 12:00:00").getInvalid());
+        assertNull(LogFile.convertDate("2015-01-0a 12:00:00"));
+    }
 }
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class CampaignDatabaseComponentTest {
@@ -132,4 +133,36 @@ public class CampaignDatabaseComponentTest {
         assertEquals(originalEnd.toLocalDate(), savedCampaign.getEndDate().toLocalDate(),
             "Saved campaign end date should match original");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testAppendLogs() {
+        savedCampaignId = CampaignDatabase.saveCampaign(testMetrics, testCampaignName, testUserId);
+        assertTrue(savedCampaignId > 0, "Campaign should be saved");
+
+        ImpressionLog[] newImpressions = {
+            new ImpressionLog("2023-03-02 09:00:00", "1002", "Female", "25-34", "High", "Shopping", "0.200000")
+        };
+        ClickLog[] newClicks = {new ClickLog("2023-03-02 09:01:00", "1002", "2.000000")};
+        ServerLog[] newServerLogs = {
+            new ServerLog("2023-03-02 09:01:10", "1002", "2023-03-02 09:01:12", "1", "No")
+        };
+        testMetrics.appendLogs(newImpressions, newClicks, newServerLogs);
+
+        assertTrue(CampaignDatabase.appendLogs(savedCampaignId, testMetrics, newImpressions, newClicks, newServerLogs),
+            "Appending logs should succeed");
+
+        Campaign loadedCampaign = CampaignDatabase.loadCampaign(savedCampaignId);
+        assertNotNull(loadedCampaign);
+        assertEquals(2, loadedCampaign.getImpressionLogs().length, "Only the new impression should be added");
+        assertEquals(2, loadedCampaign.getClickLogs().length);
+        assertEquals(2, loadedCampaign.getServerLogs().length);
+
+        Map<String, Double> storedMetrics = CampaignDatabase.getMetricsDirectlyFromDatabase(savedCampaignId);
+        assertEquals(2.0, storedMetrics.get("impressions"));
+        assertEquals(2.0, storedMetrics.get("uniques"));
+        assertEquals(1.0, storedMetrics.get("bounces"));
+
+        CampaignDatabase.CampaignInfo info = CampaignDatabase.getCampaignById(savedCampaignId);
+        assertEquals(2, info.getEndDate().getDayOfMonth(), "End date should move to the appended day");
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests sampled preview loading and the estimates scaled up from it
+ */
+public class CampaignPreviewTest {
+
+    @Test
+    @DisplayName("Preview estimates bracket the metrics of the full load")
+    void testPreviewEstimatesContainFullMetrics(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 60000, 6000);
+        FileHandler fileHandler = new FileHandler();
+
+        CampaignPreview preview = fileHandler.openZipPreview(zip.toString(), 0.05, new IngestionJob(), new Random(5));
+        assertNotNull(preview);
+        assertEquals(60000, preview.getTotalImpressions(), "Every row should be counted");
+        assertEquals(6000, preview.getTotalClicks());
+        assertEquals(6000, preview.getTotalServerLogs());
+        int sampled = preview.getImpressionLogs().length;
+        assertTrue(sampled > 2400 && sampled < 3600, "About 5% of the impressions should be sampled, got " + sampled);
+        assertEquals(1000, preview.getClickLogs().length, "Small logs keep the minimum sample");
+
+        CampaignMetrics full = new CampaignMetrics(fileHandler.openZip(zip.toString()));
+        PreviewMetrics estimated = new PreviewMetrics(preview);
+
+        assertEquals(full.getNumberOfImpressions(), estimated.getNumberOfImpressions());
+        assertEquals(full.getNumberOfClicks(), estimated.getNumberOfClicks());
+        assertEquals(full.getCTR(), estimated.getCTR(), 1e-12);
+        assertTrue(estimated.getCTREstimate().isExact());
+
+        assertContains(estimated.getTotalCostEstimate(), full.getTotalCost(), "total cost");
+        assertContains(estimated.getCPCEstimate(), full.getCPC(), "CPC");
+        assertContains(estimated.getCPMEstimate(), full.getCPM(), "CPM");
+        assertContains(estimated.getCPAEstimate(), full.getCPA(), "CPA");
+        assertContains(estimated.getBounceRateEstimate(), full.getBounceRate(), "bounce rate");
+        assertFalse(estimated.getCPAEstimate().isExact());
+    }
+
+    @Test
+    @DisplayName("A preview of a log smaller than the minimum sample is exact")
+    void testSmallPreviewIsExact(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 800, 80);
+        FileHandler fileHandler = new FileHandler();
+
+        CampaignPreview preview = fileHandler.openZipPreview(zip.toString(), 0.01, new IngestionJob(), new Random(3));
+        assertEquals(800, preview.getImpressionLogs().length);
+        PreviewMetrics estimated = new PreviewMetrics(preview);
+        CampaignMetrics full = new CampaignMetrics(fileHandler.openZip(zip.toString()));
+
+        assertTrue(estimated.getTotalCostEstimate().isExact());
+        assertEquals(full.getTotalCost(), estimated.getTotalCost(), 1e-9);
+        assertEquals(full.getNumberOfConversions(), estimated.getNumberOfConversions());
+        assertEquals(full.getBounceRate(), estimated.getBounceRate(), 1e-12);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> fileHandler.openZipPreview(zip.toString(), 0, new IngestionJob(), new Random()));
+    }
+
+    @Test
+    @DisplayName("Malformed rows are left out of the totals, including the rows the sampler skips")
+    void testPreviewTotalsSkipMalformedRows(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 60000, 6000, 10);
+        FileHandler fileHandler = new FileHandler();
+
+        CampaignPreview preview = fileHandler.openZipPreview(zip.toString(), 0.05, new IngestionJob(), new Random(7));
+        assertEquals(60000, preview.getTotalImpressions(), "Only well formed rows should be counted");
+        assertEquals(6000, preview.getTotalClicks());
+        assertEquals(6000, preview.getTotalServerLogs());
+
+        CampaignMetrics full = new CampaignMetrics(fileHandler.openZip(zip.toString()));
+        PreviewMetrics estimated = new PreviewMetrics(preview);
+        assertEquals(full.getNumberOfImpressions(), estimated.getNumberOfImpressions());
+        assertEquals(full.getNumberOfClicks(), estimated.getNumberOfClicks());
+        assertEquals(full.getCTR(), estimated.getCTR(), 1e-12);
+    }
+
+    private static void assertContains(PreviewMetrics.Estimate estimate, double actual, String metric) {
+        assertTrue(estimate.getLower() <= actual && actual <= estimate.getUpper(),
+            metric + " " + actual + " should be within [" + estimate.getLower() + ", " + estimate.getUpper() + "]");
+    }
+
+    private static Path writeCampaignZip(Path dir, int impressions, int clicks) throws IOException {
+        return writeCampaignZip(dir, impressions, clicks, 0);
+    }
+
+    // Adds a row with too few fields before every malformedEvery-th impression, if malformedEvery > 0
+    private static Path writeCampaignZip(Path dir, int impressions, int clicks, int malformedEvery) throws IOException {
+        Random random = new Random(42);
+        StringBuilder impressionCsv = new StringBuilder(LogCsvTokenizer.IMPRESSION_HEADER).append('\n');
+        for (int i = 0; i < impressions; i++) {
+            if (malformedEvery > 0 && i % malformedEvery == 0) {
+                impressionCsv.append(timestamp(i)).append(',').append(1000 + i).append(",Male\n");
+            }
+            impressionCsv.append(timestamp(i)).append(',').append(1000 + i).append(",Male,25-34,High,Blog,")
+                .append(String.format("%.6f", random.nextDouble() * 0.01)).append('\n');
+        }
+        StringBuilder clickCsv = new StringBuilder(LogCsvTokenizer.CLICK_HEADER).append('\n');
+        StringBuilder serverCsv = new StringBuilder(LogCsvTokenizer.SERVER_HEADER).append('\n');
+        for (int i = 0; i < clicks; i++) {
+            int second = i * (impressions / clicks);
+            clickCsv.append(timestamp(second)).append(',').append(1000 + i).append(',')
+                .append(String.format("%.6f", random.nextDouble() * 15)).append('\n');
+            serverCsv.append(timestamp(second)).append(',').append(1000 + i).append(',')
+                .append(timestamp(second + random.nextInt(60))).append(',').append(1 + random.nextInt(9))
+                .append(',').append(random.nextInt(10) == 0 ? "Yes" : "No").append('\n');
+        }
+
+        Path zip = dir.resolve("campaign.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
+            writeEntry(out, "impression_log.csv", impressionCsv);
+            writeEntry(out, "click_log.csv", clickCsv);
+            writeEntry(out, "server_log.csv", serverCsv);
+        }
+        return zip;
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, CharSequence csv) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    private static String timestamp(int second) {
+        return String.format("2015-01-%02d %02d:%02d:%02d", 1 + (second / 86400) % 28,
+            (second / 3600) % 24, (second / 60) % 60, second % 60);
+    }
+}
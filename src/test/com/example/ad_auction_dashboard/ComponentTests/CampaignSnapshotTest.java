@@ -0,0 +1,116 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests that a campaign reopened from a binary snapshot is identical to the one saved
+ */
+public class CampaignSnapshotTest {
+
+    @Test
+    @DisplayName("Snapshot round trip keeps every field, including invalid ones")
+    void testSnapshotRoundTrip(@TempDir Path tempDir) {
+        Campaign campaign = new Campaign(
+            new ImpressionLog[] {
+                new ImpressionLog("2015-01-01 12:00:02", "4620864431353617408", "Male", "25-34", "High", "Blog", "0.001713"),
+                new ImpressionLog("2015-01-01 11:59:00", "9223372036854775807", "Female", "<25", "Low", "Social Media", "0.000000"),
+                new ImpressionLog("2015-02-29 12:00:04", "0042", "Other", ">54", "Medium", "Travel", "1.5"),
+                new ImpressionLog("2015-01-01 24:00:04", "12ab", "Female", "45-54", "Rich", "Hobbies", "-0.5"),
+                new ImpressionLog("n/a", "99999999999999999999", "Male", "35-44", "Low", "Shopping", "12"),
+                new ImpressionLog("not a date", "", "Male", "35-44", "Low", "News", "0.1")
+            },
+            new ClickLog[] {
+                new ClickLog("2015-01-01 12:01:21", "8895519749317550080", "11.794442"),
+                new ClickLog("2014-12-31 23:59:59", "0", "abc")
+            },
+            new ServerLog[] {
+                new ServerLog("2015-01-01 12:01:21", "8895519749317550080", "2015-01-01 12:05:13", "7", "No"),
+                new ServerLog("2015-01-01 12:01:21", "1", "n/a", "10", "Yes"),
+                new ServerLog("2015-01-01 12:01:21", "123", "2015-01-01 12:05:13", "0", "Maybe")
+            });
+
+        FileHandler fileHandler = new FileHandler();
+        String snapshot = tempDir.resolve("campaign.snapshot").toString();
+        assertTrue(fileHandler.saveSnapshot(campaign, snapshot), "Snapshot should be written");
+        Campaign reopened = fileHandler.openSnapshot(snapshot);
+        assertNotNull(reopened, "Snapshot should be reopened");
+
+        assertEquals(campaign.getImpressionLogs().length, reopened.getImpressionLogs().length);
+        for (int i = 0; i < campaign.getImpressionLogs().length; i++) {
+            ImpressionLog expected = campaign.getImpressionLogs()[i];
+            ImpressionLog actual = reopened.getImpressionLogs()[i];
+            assertDatesEqual(expected.getDate(), actual.getDate());
+            assertEquals(expected.getId(), actual.getId(), "ID of impression " + i);
+            assertEquals(expected.getGender(), actual.getGender());
+            assertEquals(expected.getAge(), actual.getAge());
+            assertEquals(expected.getIncome(), actual.getIncome());
+            assertEquals(expected.getContext(), actual.getContext());
+            assertEquals(expected.getImpressionCost(), actual.getImpressionCost());
+        }
+
+        assertEquals(campaign.getClickLogs().length, reopened.getClickLogs().length);
+        for (int i = 0; i < campaign.getClickLogs().length; i++) {
+            assertEquals(campaign.getClickLogs()[i].getLogAsString(), reopened.getClickLogs()[i].getLogAsString());
+        }
+
+        assertEquals(campaign.getServerLogs().length, reopened.getServerLogs().length);
+        for (int i = 0; i < campaign.getServerLogs().length; i++) {
+            ServerLog expected = campaign.getServerLogs()[i];
+            ServerLog actual = reopened.getServerLogs()[i];
+            assertDatesEqual(expected.getEntryDate(), actual.getEntryDate());
+            assertDatesEqual(expected.getExitDate(), actual.getExitDate());
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getPagesViewed(), actual.getPagesViewed());
+            assertEquals(expected.getConversion(), actual.getConversion());
+        }
+    }
+
+    @Test
+    @DisplayName("Empty campaigns and files that are not snapshots")
+    void testEmptyAndInvalidSnapshots(@TempDir Path tempDir) throws IOException {
+        FileHandler fileHandler = new FileHandler();
+        String snapshot = tempDir.resolve("empty.snapshot").toString();
+        assertTrue(fileHandler.saveSnapshot(new Campaign(new ImpressionLog[0], null, new ServerLog[0]), snapshot));
+        Campaign reopened = fileHandler.openSnapshot(snapshot);
+        assertNotNull(reopened);
+        assertEquals(0, reopened.getImpressionLogs().length);
+        assertEquals(0, reopened.getClickLogs().length);
+        assertEquals(0, reopened.getServerLogs().length);
+
+        File csv = tempDir.resolve("click_log.csv").toFile();
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write("Date,ID,Click Cost\n2015-01-01 12:01:21,1,1.500000\n");
+        }
+        assertNull(fileHandler.openSnapshot(csv.getAbsolutePath()), "A CSV is not a snapshot");
+        assertNull(fileHandler.openSnapshot(tempDir.resolve("missing.snapshot").toString()));
+
+        // A snapshot cut short is rejected rather than partly read
+        byte[] bytes = Files.readAllBytes(Path.of(snapshot));
+        Path truncated = tempDir.resolve("truncated.snapshot");
+        Files.write(truncated, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(fileHandler.openSnapshot(truncated.toString()));
+    }
+
+    private static void assertDatesEqual(LogDate expected, LogDate actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getExists(), actual.getExists());
+        assertEquals(expected.getInvalid(), actual.getInvalid());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getDay(), actual.getDay());
+    }
+}
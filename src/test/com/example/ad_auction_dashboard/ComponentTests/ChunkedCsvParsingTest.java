@@ -0,0 +1,80 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Tests that parsing a single CSV in fork/join chunks gives exactly the sequential result
+ */
+public class ChunkedCsvParsingTest {
+
+    private static final String[] GENDERS = {"Male", "Female"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54"};
+    private static final String[] INCOMES = {"Low", "Medium", "High"};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel"};
+
+    @Test
+    @DisplayName("Chunked impression parsing keeps every row in file order")
+    void testChunkedImpressionsMatchSequential(@TempDir Path tempDir) throws IOException {
+        File csv = tempDir.resolve("impression_log.csv").toFile();
+        Random random = new Random(7);
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write("Date,ID,Gender,Age,Income,Context,Impression Cost\n");
+            for (int i = 0; i < 5000; i++) {
+                if (i % 997 == 0) {
+                    // Rows with the wrong number of fields are skipped in every chunk
+                    writer.write("2015-01-01 12:00:00,broken row\n");
+                }
+                writer.write(String.format("2015-01-%02d %02d:%02d:%02d,%d,%s,%s,%s,%s,%.6f",
+                    1 + i % 28, i % 24, i % 60, (i * 7) % 60, Math.abs(random.nextLong()),
+                    GENDERS[random.nextInt(GENDERS.length)], AGES[random.nextInt(AGES.length)],
+                    INCOMES[random.nextInt(INCOMES.length)], CONTEXTS[random.nextInt(CONTEXTS.length)],
+                    random.nextDouble() * 0.01));
+                if (i < 4999) {
+                    writer.write("\n");
+                }
+            }
+        }
+
+        FileHandler fileHandler = new FileHandler();
+        LogFile[] sequential = fileHandler.openIndividualCSV(csv.getAbsolutePath(), 1);
+        assertEquals(5000, sequential.length);
+
+        for (int chunks : new int[] {2, 7, 64}) {
+            LogFile[] chunked = fileHandler.openIndividualCSV(csv.getAbsolutePath(), chunks);
+            assertTrue(chunked instanceof ImpressionLog[], "Chunked parsing should return impression logs");
+            assertEquals(sequential.length, chunked.length, "Row count with " + chunks + " chunks");
+            for (int i = 0; i < sequential.length; i++) {
+                assertEquals(((ImpressionLog) sequential[i]).getLogAsString(),
+                    ((ImpressionLog) chunked[i]).getLogAsString(), "Row " + i + " with " + chunks + " chunks");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Chunked parsing handles more chunks than rows")
+    void testMoreChunksThanRows(@TempDir Path tempDir) throws IOException {
+        File csv = tempDir.resolve("click_log.csv").toFile();
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write("Date,ID,Click Cost\n" +
+                "2015-01-01 12:01:21,1,1.500000\n" +
+                "2015-01-01 12:02:21,2,2.500000\n");
+        }
+
+        LogFile[] clicks = new FileHandler().openIndividualCSV(csv.getAbsolutePath(), 16);
+        assertTrue(clicks instanceof ClickLog[]);
+        assertEquals(2, clicks.length);
+        assertEquals("1", ((ClickLog) clicks[0]).getId());
+        assertEquals("2", ((ClickLog) clicks[1]).getId());
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests that metrics computed on a columnar campaign match those computed on log objects
+ */
+public class ColumnarCampaignTest {
+
+    private static final String[] GENDERS = {"Male", "Female", "Unknown"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54"};
+    private static final String[] INCOMES = {"Low", "Medium", "High"};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel"};
+
+    @Test
+    @DisplayName("Columnar loading gives exactly the metrics of loading log objects")
+    void testColumnarMetricsMatchObjects(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 20000, 2000);
+        FileHandler fileHandler = new FileHandler();
+        Campaign campaign = fileHandler.openZip(zip.toString());
+        ColumnarCampaign columns = fileHandler.openZipColumnar(zip.toString());
+        assertNotNull(columns);
+        assertEquals(20000, columns.getImpressionCount());
+        assertEquals(2000, columns.getClickCount());
+        assertEquals(2000, columns.getServerLogCount());
+
+        CampaignMetrics expected = new CampaignMetrics(campaign);
+        CampaignMetrics actual = new CampaignMetrics(columns);
+        assertSameMetrics(expected, actual);
+
+        expected.setBounceCriteria(3, 30);
+        actual.setBounceCriteria(3, 30);
+        assertEquals(expected.getNumberOfBounces(), actual.getNumberOfBounces());
+        assertEquals(expected.getBounceRate(), actual.getBounceRate());
+
+        // Converting back gives the same logs
+        ImpressionLog[] impressions = columns.toImpressionLogs();
+        for (int i = 0; i < impressions.length; i += 997) {
+            assertEquals(campaign.getImpressionLogs()[i].getLogAsString(), impressions[i].getLogAsString());
+        }
+        assertEquals(campaign.getServerLogs()[7].getLogAsString(), columns.toServerLogs()[7].getLogAsString());
+    }
+
+    @Test
+    @DisplayName("Filtered time frames over shared columns follow appended logs")
+    void testTimeFilteredMetricsOnColumns(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 20000, 2000);
+        FileHandler fileHandler = new FileHandler();
+        Campaign campaign = fileHandler.openZip(zip.toString());
+        CampaignMetrics metrics = new CampaignMetrics(fileHandler.openZipColumnar(zip.toString()));
+
+        TimeFilteredMetrics fromObjects = new TimeFilteredMetrics(campaign.getImpressionLogs(),
+            campaign.getServerLogs(), campaign.getClickLogs(), 1, 4);
+        TimeFilteredMetrics fromColumns = new TimeFilteredMetrics(metrics.getColumns(), 1, 4);
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 2, 30, 0);
+        LocalDateTime end = LocalDateTime.of(2015, 1, 1, 4, 15, 0);
+        for (TimeFilteredMetrics tfm : new TimeFilteredMetrics[]{fromObjects, fromColumns}) {
+            tfm.setGenderFilter("Female");
+            tfm.setContextFilter("Social Media");
+            tfm.computeForTimeFrame(start, end, "Hourly");
+        }
+        assertTrue(fromColumns.getNumberOfImpressions() > 0);
+        assertEquals(countImpressions(campaign, start, end), fromColumns.getNumberOfImpressions());
+        assertEquals(fromObjects.getNumberOfClicks(), fromColumns.getNumberOfClicks());
+        assertEquals(fromObjects.getNumberOfUniques(), fromColumns.getNumberOfUniques());
+        assertEquals(fromObjects.getNumberOfBounces(), fromColumns.getNumberOfBounces());
+        assertEquals(fromObjects.getTotalCost(), fromColumns.getTotalCost());
+
+        // Appending through the metrics reaches the time frames once they refresh
+        ImpressionLog late = new ImpressionLog("2015-01-01 03:00:00", "1", "Female", "<25", "Low", "Social Media", "0.5");
+        metrics.appendLogs(new ImpressionLog[]{late}, null, null);
+        fromColumns.refresh();
+        fromColumns.computeForTimeFrame(start, end, "Hourly");
+        assertEquals(fromObjects.getNumberOfImpressions() + 1, fromColumns.getNumberOfImpressions());
+        assertEquals(20001, metrics.getNumberOfImpressions());
+    }
+
+    @Test
+    @DisplayName("Off-heap columns give exactly the metrics of heap columns")
+    void testOffHeapColumnsMatchHeap(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 20000, 2000);
+        FileHandler fileHandler = new FileHandler();
+        ColumnarCampaign heap = fileHandler.openZipColumnar(zip.toString());
+        ColumnarCampaign offHeap = fileHandler.openZipOffHeap(zip.toString(), new IngestionJob());
+        assertFalse(heap instanceof OffHeapCampaign);
+        assertTrue(offHeap instanceof OffHeapCampaign);
+        assertEquals(heap.getUserCount(), offHeap.getUserCount());
+        assertSameMetrics(new CampaignMetrics(heap), new CampaignMetrics(offHeap));
+
+        // Appends through the same accessors, from objects and from other columns
+        OffHeapCampaign columns = new OffHeapCampaign(tempDir.resolve("columns"));
+        columns.appendLogs(heap.toImpressionLogs(), heap.toClickLogs(), heap.toServerLogs());
+        columns.appendLogs(null, heap.toClickLogs(), null);
+        assertEquals(20000, columns.getImpressionCount());
+        assertEquals(4000, columns.getClickCount());
+        assertEquals(heap.getUserId(heap.getClickUser(5)), columns.getUserId(columns.getClickUser(2005)));
+        assertEquals(heap.toServerLogs()[49].getLogAsString(), columns.toServerLogs()[49].getLogAsString());
+
+        TimeFilteredMetrics fromHeap = new TimeFilteredMetrics(heap, 1, 4);
+        TimeFilteredMetrics fromOffHeap = new TimeFilteredMetrics(offHeap, 1, 4);
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2015, 1, 1, 5, 0, 0);
+        for (TimeFilteredMetrics tfm : new TimeFilteredMetrics[]{fromHeap, fromOffHeap}) {
+            tfm.setAgeFilter("25-34");
+            tfm.computeForTimeFrame(start, end, "Hourly");
+        }
+        assertEquals(fromHeap.getNumberOfImpressions(), fromOffHeap.getNumberOfImpressions());
+        assertEquals(fromHeap.getNumberOfUniques(), fromOffHeap.getNumberOfUniques());
+        assertEquals(fromHeap.getTotalCost(), fromOffHeap.getTotalCost());
+    }
+
+    @Test
+    @DisplayName("Logs are sorted by date and time frames are found by binary search")
+    void testTimeSortedRanges() {
+        ImpressionLog[] imps = new ImpressionLog[]{
+            new ImpressionLog("2015-01-03 10:00:00", "1", "Female", "<25", "Low", "News", "1.0"),
+            new ImpressionLog("2015-01-01 10:00:00", "2", "Female", "<25", "Low", "News", "2.0"),
+            new ImpressionLog("not a date", "3", "Female", "<25", "Low", "News", "4.0"),
+            new ImpressionLog("2015-01-02 10:00:00", "4", "Male", "<25", "Low", "News", "8.0"),
+            new ImpressionLog("2015-01-01 10:00:00", "5", "Female", "<25", "Low", "News", "16.0")
+        };
+        ColumnarCampaign columns = ColumnarCampaign.of(imps, new ClickLog[0], new ServerLog[0]);
+        assertEquals(5, columns.getTimeSortedImpressions());
+        // Invalid dates first, then by date keeping the order of rows of the same second
+        assertEquals("3", columns.getUserId(columns.getImpressionUser(0)));
+        assertEquals("2", columns.getUserId(columns.getImpressionUser(1)));
+        assertEquals("5", columns.getUserId(columns.getImpressionUser(2)));
+        assertEquals("1", columns.getUserId(columns.getImpressionUser(4)));
+        long day2 = LocalDateTime.of(2015, 1, 2, 0, 0).toEpochSecond(java.time.ZoneOffset.UTC);
+        assertEquals(3, ColumnarCampaign.firstRowFrom(columns::getImpressionDate, 5, day2));
+
+        TimeFilteredMetrics tfm = new TimeFilteredMetrics(columns, 1, 4);
+        tfm.setGenderFilter("Female");
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2015, 1, 2, 23, 59, 59);
+        assertEquals(2, tfm.filterImpressions(start, end));
+        assertEquals(18.0, tfm.filterTotalCost(start, end));
+
+        // Older rows appended after the sorted ones are still counted
+        tfm.appendLogs(new ImpressionLog[]{
+            new ImpressionLog("2015-01-02 12:00:00", "6", "Female", "<25", "Low", "News", "32.0"),
+            new ImpressionLog("2014-12-31 12:00:00", "7", "Female", "<25", "Low", "News", "64.0")
+        }, null, null);
+        assertEquals(5, columns.getTimeSortedImpressions());
+        assertEquals(3, tfm.filterImpressions(start, end));
+        assertEquals(50.0, tfm.filterTotalCost(start, end));
+        assertEquals(4, tfm.filterImpressions(start.minusDays(1), end));
+    }
+
+    @Test
+    @DisplayName("Off-heap logs longer than a sort run are sorted exactly like heap logs")
+    void testOffHeapSortMatchesHeap(@TempDir Path tempDir) {
+        Random random = new Random(11);
+        int rows = 3 * 65536 + 1234;
+        ImpressionLog[] imps = new ImpressionLog[rows];
+        for (int i = 0; i < rows; i++) {
+            // Few distinct seconds so many rows tie, and some rows with no valid date at all
+            String date = i % 997 == 0 ? "not a date" : timestamp(random.nextInt(5000));
+            imps[i] = new ImpressionLog(date, Integer.toString(i), GENDERS[i % 2], "<25", "Low", "News", "0.5");
+        }
+        ColumnarCampaign heap = ColumnarCampaign.of(imps, new ClickLog[0], new ServerLog[0]);
+        OffHeapCampaign offHeap = new OffHeapCampaign(tempDir);
+        offHeap.appendLogs(imps, new ClickLog[0], new ServerLog[0]);
+        heap.sortByTime();
+        offHeap.sortByTime();
+
+        assertEquals(rows, offHeap.getTimeSortedImpressions());
+        for (int i = 0; i < rows; i++) {
+            assertEquals(heap.getImpressionDate(i), offHeap.getImpressionDate(i));
+            assertEquals(heap.getUserId(heap.getImpressionUser(i)), offHeap.getUserId(offHeap.getImpressionUser(i)),
+                "Rows of the same date should keep their order, row " + i);
+            assertEquals(heap.getSegment(i), offHeap.getSegment(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel aggregation gives the same metrics on any number of workers")
+    void testParallelMetricsAreDeterministic(@TempDir Path tempDir) throws IOException {
+        Path zip = writeCampaignZip(tempDir, 300000, 75000);
+        ColumnarCampaign columns = new FileHandler().openZipColumnar(zip.toString());
+        CampaignMetrics sequential = new CampaignMetrics(columns, null);
+
+        CampaignMetrics expected = null;
+        for (int parallelism : new int[]{1, 2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                CampaignMetrics parallel = new CampaignMetrics(columns, pool);
+                if (expected == null) {
+                    expected = parallel;
+                }
+                assertSameMetrics(expected, parallel);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        assertEquals(sequential.getNumberOfUniques(), expected.getNumberOfUniques());
+        assertEquals(sequential.getNumberOfBounces(), expected.getNumberOfBounces());
+        assertEquals(sequential.getNumberOfConversions(), expected.getNumberOfConversions());
+        assertEquals(sequential.getTotalCost(), expected.getTotalCost(), 1e-6);
+        assertEquals(sequential.getCampaignStartDate(), expected.getCampaignStartDate());
+        assertEquals(sequential.getCampaignEndDate(), expected.getCampaignEndDate());
+        // Campaigns under a million rows are still aggregated on the calling thread
+        assertSameMetrics(sequential, new CampaignMetrics(columns));
+    }
+
+    private static int countImpressions(Campaign campaign, LocalDateTime start, LocalDateTime end) {
+        int count = 0;
+        for (ImpressionLog log : campaign.getImpressionLogs()) {
+            LogDate date = log.getDate();
+            LocalDateTime time = LocalDateTime.of(date.getYear(), date.getMonth(), date.getDay(),
+                date.getHour(), date.getMinute(), date.getSecond());
+            if (!time.isBefore(start) && !time.isAfter(end)
+                && log.getGender().equals("Female") && log.getContext().equals("Social Media")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertSameMetrics(CampaignMetrics expected, CampaignMetrics actual) {
+        assertEquals(expected.getNumberOfImpressions(), actual.getNumberOfImpressions());
+        assertEquals(expected.getNumberOfClicks(), actual.getNumberOfClicks());
+        assertEquals(expected.getNumberOfUniques(), actual.getNumberOfUniques());
+        assertEquals(expected.getNumberOfBounces(), actual.getNumberOfBounces());
+        assertEquals(expected.getNumberOfConversions(), actual.getNumberOfConversions());
+        assertEquals(expected.getTotalCost(), actual.getTotalCost());
+        assertEquals(expected.getCTR(), actual.getCTR());
+        assertEquals(expected.getCPC(), actual.getCPC());
+        assertEquals(expected.getCPA(), actual.getCPA());
+        assertEquals(expected.getCPM(), actual.getCPM());
+        assertEquals(expected.getBounceRate(), actual.getBounceRate());
+        assertEquals(expected.getCampaignStartDate(), actual.getCampaignStartDate());
+        assertEquals(expected.getCampaignEndDate(), actual.getCampaignEndDate());
+    }
+
+    private static Path writeCampaignZip(Path dir, int impressions, int clicks) throws IOException {
+        Random random = new Random(7);
+        StringBuilder impressionCsv = new StringBuilder(LogCsvTokenizer.IMPRESSION_HEADER).append('\n');
+        for (int i = 0; i < impressions; i++) {
+            impressionCsv.append(timestamp(i)).append(',').append(1000 + random.nextInt(impressions / 4)).append(',')
+                .append(GENDERS[random.nextInt(GENDERS.length)]).append(',')
+                .append(AGES[random.nextInt(AGES.length)]).append(',')
+                .append(INCOMES[random.nextInt(INCOMES.length)]).append(',')
+                .append(CONTEXTS[random.nextInt(CONTEXTS.length)]).append(',')
+                .append(String.format("%.6f", random.nextDouble() * 0.01)).append('\n');
+        }
+        StringBuilder clickCsv = new StringBuilder(LogCsvTokenizer.CLICK_HEADER).append('\n');
+        StringBuilder serverCsv = new StringBuilder(LogCsvTokenizer.SERVER_HEADER).append('\n');
+        for (int i = 0; i < clicks; i++) {
+            int second = i * (impressions / clicks);
+            String id = Integer.toString(1000 + random.nextInt(impressions / 4));
+            clickCsv.append(timestamp(second)).append(',').append(id).append(',')
+                .append(String.format("%.6f", random.nextDouble() * 15)).append('\n');
+            String exit = i % 50 == 0 ? "n/a" : timestamp(second + random.nextInt(60));
+            serverCsv.append(timestamp(second)).append(',').append(id).append(',').append(exit)
+                .append(',').append(1 + random.nextInt(9))
+                .append(',').append(random.nextInt(10) == 0 ? "Yes" : "No").append('\n');
+        }
+
+        Path zip = dir.resolve("campaign.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
+            writeEntry(out, "impression_log.csv", impressionCsv);
+            writeEntry(out, "click_log.csv", clickCsv);
+            writeEntry(out, "server_log.csv", serverCsv);
+        }
+        return zip;
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, CharSequence csv) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    private static String timestamp(int second) {
+        return String.format("2015-01-%02d %02d:%02d:%02d", 1 + (second / 86400) % 28,
+            (second / 3600) % 24, (second / 60) % 60, second % 60);
+    }
+}
@@ -13,6 +13,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -84,6 +87,79 @@ public class InputComponentTest {
         assertEquals(1.0, metrics.getCTR(), 0.0001, "CTR should be calculated correctly");
     }
 
+    @Test
+    @DisplayName("Test streaming a memory-mapped CSV")
+    void testStreamIndividualCSV(@TempDir Path tempDir) throws IOException {
+        File serverCsv = createServerCsv(tempDir);
+
+        try (Stream<LogFile> logs = fileHandler.streamIndividualCSV(serverCsv.getAbsolutePath())) {
+            List<LogFile> streamed = logs.collect(Collectors.toList());
+            assertEquals(2, streamed.size(), "Both server rows should be streamed");
+            assertEquals("1001", ((ServerLog) streamed.get(0)).getId());
+            assertEquals(Boolean.FALSE, ((ServerLog) streamed.get(1)).getConversion());
+        }
+
+        File headerOnly = tempDir.resolve("empty_click_log.csv").toFile();
+        try (FileWriter writer = new FileWriter(headerOnly)) {
+            writer.write("Date,ID,Click Cost\n");
+        }
+        LogFile[] noClicks = fileHandler.openIndividualCSV(headerOnly.getAbsolutePath());
+        assertTrue(noClicks instanceof ClickLog[], "A header-only click log should still give click logs");
+        assertEquals(0, noClicks.length);
+    }
+
+    @Test
+    @DisplayName("Test parallel ZIP loading matches sequential loading")
+    void testParallelZipMatchesSequential(@TempDir Path tempDir) throws IOException {
+        File zipFile = createTestZipFile(tempDir);
+
+        Campaign sequential = fileHandler.openZip(zipFile.getAbsolutePath());
+        Campaign parallel = fileHandler.openZipParallel(zipFile.getAbsolutePath());
+        assertNotNull(parallel, "Campaign should be created from ZIP file in parallel mode");
+
+        assertEquals(sequential.getImpressionLogs().length, parallel.getImpressionLogs().length);
+        assertEquals(sequential.getClickLogs().length, parallel.getClickLogs().length);
+        assertEquals(sequential.getServerLogs().length, parallel.getServerLogs().length);
+        for (int i = 0; i < sequential.getImpressionLogs().length; i++) {
+            assertEquals(sequential.getImpressionLogs()[i].getLogAsString(),
+                parallel.getImpressionLogs()[i].getLogAsString(), "Impression rows should keep their order");
+        }
+        for (int i = 0; i < sequential.getClickLogs().length; i++) {
+            assertEquals(sequential.getClickLogs()[i].getLogAsString(),
+                parallel.getClickLogs()[i].getLogAsString(), "Click rows should keep their order");
+        }
+        for (int i = 0; i < sequential.getServerLogs().length; i++) {
+            assertEquals(sequential.getServerLogs()[i].getLogAsString(),
+                parallel.getServerLogs()[i].getLogAsString(), "Server rows should keep their order");
+        }
+    }
+
+    @Test
+    @DisplayName("Test ZIP loading reports progress and can be cancelled")
+    void testIngestionJobProgressAndCancel(@TempDir Path tempDir) throws IOException {
+        File zipFile = createTestZipFile(tempDir);
+
+        IngestionJob job = new IngestionJob();
+        Campaign campaign = fileHandler.openZipParallel(zipFile.getAbsolutePath(), job);
+        assertNotNull(campaign);
+        assertEquals(3, job.getProgress().size(), "Every entry in the ZIP should be tracked");
+        long rows = 0;
+        for (IngestionJob.Progress progress : job.getProgress()) {
+            assertTrue(progress.isDone());
+            assertTrue(progress.getBytesRead() > 0, "Bytes read should be counted for " + progress.getLogType());
+            assertEquals(1.0, progress.getFraction());
+            rows += progress.getRows();
+        }
+        assertEquals(campaign.getImpressionLogs().length + campaign.getClickLogs().length
+            + campaign.getServerLogs().length, rows);
+
+        IngestionJob cancelled = new IngestionJob();
+        cancelled.cancel();
+        assertNull(fileHandler.openZipParallel(zipFile.getAbsolutePath(), cancelled),
+            "A cancelled load should not return a partial campaign");
+        assertNull(fileHandler.openZip(zipFile.getAbsolutePath(), cancelled));
+    }
+
     @Test
     @DisplayName("Test input validation with metrics impact")
     void testInputValidationWithMetricsImpact() {
@@ -0,0 +1,138 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that the byte-level tokenizer builds exactly the same logs as the String based setters
+ */
+public class LogCsvTokenizerTest {
+
+    @Test
+    @DisplayName("Impression rows match the String constructor, including invalid fields")
+    void testImpressionRowsMatchStringParsing() throws IOException {
+        String[] rows = {
+            "2015-01-01 12:00:02,4620864431353617408,Male,25-34,High,Blog,0.001713",
+            "2015-01-01 12:00:04,3615460412428453888,Female,<25,Low,Social Media,0.000000",
+            "2015-02-29 12:00:04,12ab,Other,>54,Medium,Travel,1.5",
+            "2015-01-01 24:00:04,,Female,45-54,Rich,Hobbies,-0.5",
+            "n/a,99,Male,35-44,Low,Shopping,12",
+            "not a date,99,Male,35-44,Low,News,0.123456789012345678901",
+            "2015-01-01 12:00:04,99,Male,35-44,Low,Media,0.1"
+        };
+        List<ImpressionLog> tokenized = new ArrayList<>();
+        try (LogCsvTokenizer tokenizer = tokenizer(LogCsvTokenizer.IMPRESSION_HEADER, rows, 64)) {
+            assertEquals(LogCsvTokenizer.LogType.IMPRESSION, tokenizer.readHeader());
+            while (tokenizer.nextRow()) {
+                assertEquals(7, tokenizer.getFieldCount());
+                tokenized.add(tokenizer.toImpressionLog());
+            }
+        }
+
+        assertEquals(rows.length, tokenized.size());
+        for (int i = 0; i < rows.length; i++) {
+            String[] parts = rows[i].split(",");
+            ImpressionLog expected = new ImpressionLog(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
+            ImpressionLog actual = tokenized.get(i);
+            assertDatesEqual(expected.getDate(), actual.getDate());
+            assertEquals(expected.getId(), actual.getId(), "ID of row " + i);
+            assertEquals(expected.getGender(), actual.getGender(), "Gender of row " + i);
+            assertEquals(expected.getAge(), actual.getAge(), "Age of row " + i);
+            assertEquals(expected.getIncome(), actual.getIncome(), "Income of row " + i);
+            assertEquals(expected.getContext(), actual.getContext(), "Context of row " + i);
+            assertEquals(expected.getImpressionCost(), actual.getImpressionCost(), "Cost of row " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Click and server rows match the String constructors")
+    void testClickAndServerRowsMatchStringParsing() throws IOException {
+        String[] clickRows = {
+            "2015-01-01 12:01:21,8895519749317550080,11.794442",
+            "2015-01-01 12:01:21,8895519749317550080,11.7944421",
+            "2015-01-01 12:01:21,8895519749317550080,0.000000",
+            "2015-01-01 12:01:21,x,abc"
+        };
+        try (LogCsvTokenizer tokenizer = tokenizer(LogCsvTokenizer.CLICK_HEADER, clickRows, 1 << 16)) {
+            assertEquals(LogCsvTokenizer.LogType.CLICK, tokenizer.readHeader());
+            for (String row : clickRows) {
+                assertTrue(tokenizer.nextRow());
+                String[] parts = row.split(",");
+                ClickLog expected = new ClickLog(parts[0], parts[1], parts[2]);
+                ClickLog actual = tokenizer.toClickLog();
+                assertEquals(expected.getLogAsString(), actual.getLogAsString());
+            }
+            assertFalse(tokenizer.nextRow());
+        }
+
+        String[] serverRows = {
+            "2015-01-01 12:01:21,8895519749317550080,2015-01-01 12:05:13,7,No",
+            "2015-01-01 12:01:21,8895519749317550080,n/a,10,Yes",
+            "2015-01-01 12:01:21,123,2015-01-01 12:05:13,0,Maybe"
+        };
+        try (LogCsvTokenizer tokenizer = tokenizer(LogCsvTokenizer.SERVER_HEADER, serverRows, 64)) {
+            assertEquals(LogCsvTokenizer.LogType.SERVER, tokenizer.readHeader());
+            for (String row : serverRows) {
+                assertTrue(tokenizer.nextRow());
+                String[] parts = row.split(",");
+                ServerLog expected = new ServerLog(parts[0], parts[1], parts[2], parts[3], parts[4]);
+                ServerLog actual = tokenizer.toServerLog();
+                assertDatesEqual(expected.getEntryDate(), actual.getEntryDate());
+                assertDatesEqual(expected.getExitDate(), actual.getExitDate());
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getPagesViewed(), actual.getPagesViewed());
+                assertEquals(expected.getConversion(), actual.getConversion());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Field counts follow String.split, and CRLF line endings are accepted")
+    void testFieldCountingAndLineEndings() throws IOException {
+        String csv = "Date,ID,Click Cost\r\n" +
+            "2015-01-01 12:01:21,1,1.5,,\r\n" +
+            "2015-01-01 12:01:21,1,1.5,extra\r\n" +
+            "\r\n" +
+            "2015-01-01 12:01:21,1\r\n";
+        try (LogCsvTokenizer tokenizer = new LogCsvTokenizer(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 64)) {
+            assertEquals(LogCsvTokenizer.LogType.CLICK, tokenizer.readHeader());
+            assertTrue(tokenizer.nextRow());
+            assertEquals(3, tokenizer.getFieldCount(), "Trailing empty fields are ignored");
+            assertEquals(1.5f, tokenizer.toClickLog().getClickCost());
+            assertTrue(tokenizer.nextRow());
+            assertEquals(4, tokenizer.getFieldCount());
+            assertTrue(tokenizer.nextRow());
+            assertEquals(0, tokenizer.getFieldCount());
+            assertTrue(tokenizer.nextRow());
+            assertEquals(2, tokenizer.getFieldCount());
+            assertEquals(5, tokenizer.getLineNumber());
+            assertFalse(tokenizer.nextRow());
+        }
+    }
+
+    private static LogCsvTokenizer tokenizer(String header, String[] rows, int bufferSize) {
+        String csv = header + "\n" + String.join("\n", rows);
+        return new LogCsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+
+    private static void assertDatesEqual(LogDate expected, LogDate actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getExists(), actual.getExists());
+        assertEquals(expected.getInvalid(), actual.getInvalid());
+        assertEquals(expected.getDate(), actual.getDate());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests following a folder of growing log files
+ */
+public class LogDirectoryWatcherTest {
+
+    private static final String CLICK_HEADER = "Date,ID,Click Cost\n";
+
+    @Test
+    @DisplayName("Only complete lines appended since the previous read are returned")
+    void testReadAppendedCompleteLines(@TempDir Path tempDir) throws IOException {
+        Path clicks = tempDir.resolve("click_log.csv");
+        Path impressions = tempDir.resolve("impression_log.csv");
+        Files.writeString(clicks, CLICK_HEADER
+            + "2015-01-01 12:01:21,1,1.500000\n"
+            + "2015-01-01 12:02:21,2,2.500000\n");
+        Files.writeString(impressions, "Date,ID,Gender,Age,Income,Context,Impression Cost\n"
+            + "2015-01-01 12:00:02,1,Male,25-34,High,Blog,0.001713\n");
+
+        try (LogDirectoryWatcher watcher = new LogDirectoryWatcher(tempDir)) {
+            Campaign first = watcher.readAppended();
+            assertNotNull(first, "The first read should return the existing logs");
+            assertEquals(2, first.getClickLogs().length);
+            assertEquals(1, first.getImpressionLogs().length);
+            assertNull(watcher.readAppended(), "Nothing has been appended yet");
+
+            // A row still being written is held back until its line is complete
+            append(clicks, "2015-01-01 12:03:21,3,3.500000\n2015-01-01 12:04");
+            Campaign second = watcher.readAppended();
+            assertNotNull(second);
+            assertEquals(1, second.getClickLogs().length);
+            assertEquals("3", second.getClickLogs()[0].getId());
+            assertEquals(0, second.getImpressionLogs().length);
+
+            append(clicks, ":21,4,4.500000\n");
+            Campaign third = watcher.readAppended();
+            assertNotNull(third);
+            assertEquals(1, third.getClickLogs().length);
+            assertEquals("4", third.getClickLogs()[0].getId());
+            assertEquals(4.5, third.getClickLogs()[0].getClickCost(), 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("A truncated file is read again from its header")
+    void testTruncatedFileIsReread(@TempDir Path tempDir) throws IOException {
+        Path clicks = tempDir.resolve("click_log.csv");
+        Files.writeString(clicks, CLICK_HEADER
+            + "2015-01-01 12:01:21,1,1.500000\n"
+            + "2015-01-01 12:02:21,2,2.500000\n");
+
+        try (LogDirectoryWatcher watcher = new LogDirectoryWatcher(tempDir)) {
+            assertEquals(2, watcher.readAppended().getClickLogs().length);
+
+            Files.writeString(clicks, CLICK_HEADER + "2015-01-02 12:01:21,9,1.000000\n");
+            Campaign reread = watcher.readAppended();
+            assertNotNull(reread);
+            assertEquals(1, reread.getClickLogs().length);
+            assertEquals("9", reread.getClickLogs()[0].getId());
+        }
+    }
+
+    @Test
+    @DisplayName("The watch thread queues new logs for takeAppended")
+    void testWatchThreadQueuesAppendedLogs(@TempDir Path tempDir) throws Exception {
+        Path clicks = tempDir.resolve("click_log.csv");
+        Files.writeString(clicks, CLICK_HEADER + "2015-01-01 12:01:21,1,1.500000\n");
+
+        try (LogDirectoryWatcher watcher = new LogDirectoryWatcher(tempDir, 50)) {
+            assertEquals(1, watcher.readAppended().getClickLogs().length);
+            watcher.start();
+
+            append(clicks, "2015-01-01 12:02:21,2,2.500000\n");
+            Files.writeString(tempDir.resolve("server_log.csv"), "Entry Date,ID,Exit Date,Pages Viewed,Conversion\n"
+                + "2015-01-01 12:02:21,2,2015-01-01 12:05:13,7,No\n");
+
+            int clickCount = 0;
+            int serverCount = 0;
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((clickCount < 1 || serverCount < 1) && System.currentTimeMillis() < deadline) {
+                Campaign appended = watcher.takeAppended();
+                if (appended != null) {
+                    clickCount += appended.getClickLogs().length;
+                    serverCount += appended.getServerLogs().length;
+                }
+                Thread.sleep(20);
+            }
+            assertEquals(1, clickCount, "The appended click should be queued once");
+            assertEquals(1, serverCount, "The new server log file should be picked up");
+        }
+    }
+
+    @Test
+    @DisplayName("A read that keeps failing is reported to the error listener once")
+    void testWatchThreadReportsErrorOnce(@TempDir Path tempDir) throws Exception {
+        Path folder = Files.createDirectory(tempDir.resolve("logs"));
+        List<IOException> errors = new CopyOnWriteArrayList<>();
+
+        try (LogDirectoryWatcher watcher = new LogDirectoryWatcher(folder, 20)) {
+            watcher.setErrorListener(errors::add);
+            watcher.start();
+            Files.delete(folder);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (errors.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            // Several more retries fail the same way
+            Thread.sleep(200);
+            assertEquals(1, errors.size(), "The missing folder should be reported once, not on every retry");
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -135,4 +135,88 @@ public class MetricsCalculationTest {
         // Unique IDs: "1" and "2" => 2 unique clicks
         assertEquals(2, metrics.getNumberOfUniques());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test one pass over the logs gives the same totals as the columns")
+    public void testSinglePassTotalsMatchColumns() {
+        ImpressionLog[] imps = {
+            new ImpressionLog("2025-03-16 05:28:06", "1", "Male", "25-34", "High", "Blog", "0.001632"),
+            new ImpressionLog("2025-03-15 23:59:59", "2", "Female", "35-44", "Medium", "News", "0.002000"),
+            new ImpressionLog("2025-03-17 00:00:01", "3", "Female", "<25", "Low", "Travel", "0.003100")
+        };
+        ClickLog[] cls = {
+            new ClickLog("2025-03-16 05:29:00", "1", "0.500000"),
+            new ClickLog("2025-03-16 05:29:30", "2", "0.750000"),
+            new ClickLog("2025-03-16 05:31:00", "1", "1.250000")
+        };
+        ServerLog[] srvs = {
+            new ServerLog("2025-03-16 05:29:01", "1", "2025-03-16 05:29:04", "5", "No"),
+            new ServerLog("2025-03-16 05:29:31", "2", "n/a", "1", "Yes"),
+            new ServerLog("2025-03-16 05:31:01", "1", "2025-03-16 05:40:00", "1", "Yes"),
+            new ServerLog("2025-03-17 08:00:00", "1", "2025-03-17 08:10:00", "4", "No")
+        };
+
+        CampaignMetrics metrics = new CampaignMetrics(new Campaign(imps, cls, srvs));
+        CampaignMetrics columnar = new CampaignMetrics(ColumnarCampaign.of(imps, cls, srvs));
+
+        assertEquals(3, metrics.getNumberOfImpressions());
+        assertEquals(3, metrics.getNumberOfClicks());
+        assertEquals(2, metrics.getNumberOfUniques());
+        // A 3 second visit and a single page visit; the visit with no exit is never a bounce
+        assertEquals(2, metrics.getNumberOfBounces());
+        assertEquals(2, metrics.getNumberOfConversions());
+        assertEquals(java.time.LocalDateTime.of(2025, 3, 15, 23, 59, 59), metrics.getCampaignStartDate());
+        assertEquals(java.time.LocalDateTime.of(2025, 3, 17, 8, 0, 0), metrics.getCampaignEndDate());
+
+        assertEquals(metrics.getNumberOfImpressions(), columnar.getNumberOfImpressions());
+        assertEquals(metrics.getNumberOfUniques(), columnar.getNumberOfUniques());
+        assertEquals(metrics.getNumberOfBounces(), columnar.getNumberOfBounces());
+        assertEquals(metrics.getNumberOfConversions(), columnar.getNumberOfConversions());
+        assertEquals(metrics.getTotalCost(), columnar.getTotalCost(), 0.0);
+        assertEquals(metrics.getCampaignStartDate(), columnar.getCampaignStartDate());
+        assertEquals(metrics.getCampaignEndDate(), columnar.getCampaignEndDate());
+
+        metrics.setBounceCriteria(0, 10);
+        columnar.setBounceCriteria(0, 10);
+        assertEquals(1, metrics.getNumberOfBounces());
+        assertEquals(1, columnar.getNumberOfBounces());
+    }
+
+    @Test
+    @DisplayName("Test bounce counts follow any criteria without reloading the logs")
+    public void testBounceCriteriaFromIndex() {
+        java.util.Random random = new java.util.Random(3);
+        ServerLog[] srvs = new ServerLog[2000];
+        for (int i = 0; i < srvs.length; i++) {
+            int second = i * 37;
+            String entry = String.format("2025-03-%02d %02d:%02d:%02d", 1 + second / 86400, (second / 3600) % 24,
+                (second / 60) % 60, second % 60);
+            int stay = second + random.nextInt(i % 3 == 0 ? 40 : 2000);
+            String exit = i % 97 == 0 ? "n/a" : String.format("2025-03-%02d %02d:%02d:%02d", 1 + stay / 86400,
+                (stay / 3600) % 24, (stay / 60) % 60, stay % 60);
+            srvs[i] = new ServerLog(entry, Integer.toString(i % 300), exit,
+                Integer.toString(1 + random.nextInt(i % 5 == 0 ? 60 : 6)), "No");
+        }
+        CampaignMetrics metrics = new CampaignMetrics(new Campaign(new ImpressionLog[0], new ClickLog[0], srvs));
+        TimeFilteredMetrics filtered = new TimeFilteredMetrics(metrics.getColumns(), 1, 4);
+        java.time.LocalDateTime start = metrics.getCampaignStartDate();
+        java.time.LocalDateTime end = metrics.getCampaignEndDate();
+
+        // Criteria inside both grids, inside only the campaign grid, and outside both
+        int[][] criteria = {{1, 4}, {0, 0}, {3, 30}, {6, 62}, {7, 63}, {12, 300}, {30, 510}, {31, 511}, {45, 5000}};
+        for (int[] c : criteria) {
+            int expected = 0;
+            for (ServerLog s : srvs) {
+                if (!s.getExitDate().getExists()) continue;
+                long stay = s.getExitDate().toEpochSecond() - s.getEntryDate().toEpochSecond();
+                if (s.getPagesViewed() <= c[0] || stay <= c[1]) expected++;
+            }
+            metrics.setBounceCriteria(c[0], c[1]);
+            filtered.setBounceCriteria(c[0], c[1]);
+            filtered.computeForTimeFrame(start, end, "Daily");
+            assertEquals(expected, metrics.getNumberOfBounces(), c[0] + " pages, " + c[1] + " seconds");
+            assertEquals(expected, filtered.getNumberOfBounces(), c[0] + " pages, " + c[1] + " seconds");
+        }
+        assertThrows(IllegalArgumentException.class, () -> filtered.setBounceCriteria(-1, 4));
+    }
+}
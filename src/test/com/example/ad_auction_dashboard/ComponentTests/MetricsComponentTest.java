@@ -233,6 +233,81 @@ public class MetricsComponentTest {
         assertEquals(1, detectedEnd.getDayOfMonth(), "Campaign end day should be 1");
     }
 
+    @Test
+    @DisplayName("Test appending a day of logs matches building the metrics from all logs")
+    void testMetricsComponentAppendLogs() {
+        ImpressionLog[] nextDayImpressions = {
+            new ImpressionLog("2023-03-02 09:15:00", "1005", "Female", "<25", "Low", "Travel", "0.111111"),
+            new ImpressionLog("2023-03-02 10:40:00", "1001", "Male", "<25", "Medium", "News", "0.222222")
+        };
+        ClickLog[] nextDayClicks = {
+            new ClickLog("2023-03-02 09:16:00", "1005", "0.300000"),
+            new ClickLog("2023-03-02 10:41:00", "1001", "0.400000")
+        };
+        ServerLog[] nextDayServerLogs = {
+            new ServerLog("2023-03-02 09:16:05", "1005", "2023-03-02 09:16:07", "1", "No"),
+            new ServerLog("2023-03-02 10:41:05", "1001", "2023-03-02 10:50:00", "3", "Yes")
+        };
+
+        // Build the expected state from every log at once
+        Campaign fullCampaign = new Campaign(
+            concat(testCampaign.getImpressionLogs(), nextDayImpressions),
+            concat(testCampaign.getClickLogs(), nextDayClicks),
+            concat(testCampaign.getServerLogs(), nextDayServerLogs));
+        CampaignMetrics fullMetrics = new CampaignMetrics(fullCampaign);
+        TimeFilteredMetrics fullFiltered = new TimeFilteredMetrics(fullCampaign.getImpressionLogs(),
+            fullCampaign.getServerLogs(), fullCampaign.getClickLogs(),
+            fullMetrics.getBouncePagesThreshold(), fullMetrics.getBounceSecondsThreshold());
+
+        // Warm the time-frame cache so the append has something to invalidate
+        filteredMetrics.computeForTimeFrame(campaignStart, campaignEnd.plusDays(1), "Daily");
+        metrics.appendLogs(nextDayImpressions, nextDayClicks, nextDayServerLogs);
+        filteredMetrics.appendLogs(nextDayImpressions, nextDayServerLogs, nextDayClicks);
+
+        assertEquals(fullMetrics.getNumberOfImpressions(), metrics.getNumberOfImpressions());
+        assertEquals(fullMetrics.getNumberOfClicks(), metrics.getNumberOfClicks());
+        assertEquals(fullMetrics.getNumberOfUniques(), metrics.getNumberOfUniques());
+        assertEquals(fullMetrics.getNumberOfBounces(), metrics.getNumberOfBounces());
+        assertEquals(fullMetrics.getNumberOfConversions(), metrics.getNumberOfConversions());
+        assertEquals(fullMetrics.getTotalCost(), metrics.getTotalCost(), 1e-9);
+        assertEquals(fullMetrics.getCTR(), metrics.getCTR(), 1e-9);
+        assertEquals(fullMetrics.getBounceRate(), metrics.getBounceRate(), 1e-9);
+        assertEquals(fullMetrics.getCampaignEndDate(), metrics.getCampaignEndDate());
+        assertEquals(7, metrics.getImpressionLogs().length, "Appended logs should be added to the campaign");
+        assertEquals(7, testCampaign.getImpressionLogs().length);
+
+        LocalDateTime end = campaignEnd.plusDays(1);
+        fullFiltered.computeForTimeFrame(campaignStart, end, "Daily");
+        filteredMetrics.computeForTimeFrame(campaignStart, end, "Daily");
+        assertEquals(fullFiltered.getNumberOfImpressions(), filteredMetrics.getNumberOfImpressions());
+        assertEquals(fullFiltered.getNumberOfClicks(), filteredMetrics.getNumberOfClicks());
+        assertEquals(fullFiltered.getNumberOfUniques(), filteredMetrics.getNumberOfUniques());
+        assertEquals(fullFiltered.getNumberOfBounces(), filteredMetrics.getNumberOfBounces());
+        assertEquals(fullFiltered.getNumberOfConversions(), filteredMetrics.getNumberOfConversions());
+        assertEquals(fullFiltered.getTotalCost(), filteredMetrics.getTotalCost(), 1e-9);
+
+        Map<String, TimeFilteredMetrics.ComputedMetrics> fullHourly =
+            fullFiltered.computeForTimeFrameWithGranularity(campaignStart, end, "Hourly");
+        Map<String, TimeFilteredMetrics.ComputedMetrics> appendedHourly =
+            filteredMetrics.computeForTimeFrameWithGranularity(campaignStart, end, "Hourly");
+        assertEquals(fullHourly.keySet(), appendedHourly.keySet());
+        for (String hour : fullHourly.keySet()) {
+            assertEquals(fullHourly.get(hour).getNumberOfImpressions(), appendedHourly.get(hour).getNumberOfImpressions(), hour);
+            assertEquals(fullHourly.get(hour).getNumberOfClicks(), appendedHourly.get(hour).getNumberOfClicks(), hour);
+        }
+
+        // Newly appended impressions take part in demographic filtering
+        filteredMetrics.setContextFilter("Travel");
+        filteredMetrics.computeForTimeFrame(campaignStart, end, "Daily");
+        assertEquals(1, filteredMetrics.getNumberOfImpressions());
+    }
+
+    private static <T> T[] concat(T[] first, T[] second) {
+        T[] combined = java.util.Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, combined, first.length, second.length);
+        return combined;
+    }
+
     @Test
     @DisplayName("Test Metrics Component Bounce Criteria Configuration")
     void testMetricsComponentBounceCriteriaConfiguration() {
@@ -286,4 +361,44 @@ public class MetricsComponentTest {
         assertEquals(dailyImpressionSum, hourlyImpressionSum,
             "Total impressions should match across granularities");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Log views read the loaded logs without copying them")
+    void testLogViewsDoNotCopy() {
+        java.util.List<ImpressionLog> impressions = metrics.getImpressionLogView();
+        assertEquals(testCampaign.getImpressionLogs().length, impressions.size());
+        assertSame(testCampaign.getImpressionLogs()[2], impressions.get(2), "Object logs should be viewed in place");
+        assertThrows(UnsupportedOperationException.class, () -> impressions.set(0, null));
+
+        // A columnar campaign makes the log of a row only when it is read
+        CampaignMetrics columnar = new CampaignMetrics(ColumnarCampaign.from(testCampaign));
+        java.util.List<ClickLog> clicks = columnar.getClickLogView();
+        assertEquals(metrics.getClickLogView().size(), clicks.size());
+        for (int i = 0; i < clicks.size(); i++) {
+            assertEquals(testCampaign.getClickLogs()[i].getLogAsString(), clicks.get(i).getLogAsString());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> clicks.get(clicks.size()));
+        assertThrows(UnsupportedOperationException.class, () -> columnar.getServerLogView().remove(0));
+    }
+
+    @Test
+    @DisplayName("Repeated appends keep the earlier logs in place and show only the logs held")
+    void testRepeatedAppendsGrowInPlace() {
+        ImpressionLog first = testCampaign.getImpressionLogView().get(0);
+        for (int day = 2; day <= 9; day++) {
+            String date = "2023-03-0" + day + " 09:00:00";
+            metrics.appendLogs(
+                new ImpressionLog[]{new ImpressionLog(date, "200" + day, "Male", "<25", "Low", "News", "0.100000")},
+                new ClickLog[]{new ClickLog(date, "200" + day, "0.200000")},
+                new ServerLog[0]);
+        }
+
+        java.util.List<ImpressionLog> impressions = metrics.getImpressionLogView();
+        assertEquals(13, impressions.size(), "The view should stop at the last appended log");
+        assertSame(first, impressions.get(0));
+        assertEquals("2023-03-09 09:00:00", impressions.get(12).getDate().getDate());
+        assertEquals(12, metrics.getClickLogs().length);
+        assertEquals(4, metrics.getServerLogView().size());
+        assertEquals(13, metrics.getNumberOfImpressions());
+    }
+}
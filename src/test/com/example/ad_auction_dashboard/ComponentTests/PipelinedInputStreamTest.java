@@ -0,0 +1,103 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests the inflate/parse pipeline and the .csv.gz support built on it
+ */
+public class PipelinedInputStreamTest {
+
+    @Test
+    @DisplayName("Pipelined reads return exactly the source bytes")
+    void testPipelinedBytesMatchSource() throws IOException {
+        byte[] source = new byte[100_003];
+        new Random(3).nextBytes(source);
+
+        // Small blocks and a small pool force the reader to wait for the parser many times
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try (InputStream in = new PipelinedInputStream(new ByteArrayInputStream(source), 1000, 2)) {
+            byte[] buffer = new byte[777];
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) >= 0) {
+                copy.write(buffer, 0, read);
+            }
+            assertEquals(-1, in.read(), "End of stream should be repeated");
+        }
+        assertArrayEquals(source, copy.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Failures on the reading thread are thrown to the parser")
+    void testSourceFailuresAreRethrown() {
+        InputStream failing = new InputStream() {
+            private int count = 0;
+
+            @Override
+            public int read() {
+                if (count++ == 5000) {
+                    throw new CancellationException("Ingestion cancelled");
+                }
+                return 'a';
+            }
+        };
+        assertThrows(CancellationException.class, () -> {
+            try (InputStream in = new PipelinedInputStream(failing, 1024, 2)) {
+                while (in.read() >= 0) {
+                    // Drain until the failure arrives
+                }
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Compressed CSVs give the same logs as plain CSVs")
+    void testCompressedCsvMatchesPlain(@TempDir Path tempDir) throws IOException {
+        StringBuilder csv = new StringBuilder(LogCsvTokenizer.SERVER_HEADER).append('\n');
+        for (int i = 0; i < 20000; i++) {
+            csv.append(String.format("2015-01-%02d %02d:%02d:%02d,%d,2015-01-%02d %02d:%02d:%02d,%d,%s%n",
+                1 + i % 28, i % 24, i % 60, (i * 7) % 60, i,
+                1 + i % 28, i % 24, (i + 3) % 60, (i * 7) % 60, 1 + i % 9, i % 3 == 0 ? "Yes" : "No"));
+        }
+
+        File plain = tempDir.resolve("server_log.csv").toFile();
+        try (Writer writer = new FileWriter(plain)) {
+            writer.write(csv.toString());
+        }
+        File compressed = tempDir.resolve("server_log.csv.gz").toFile();
+        try (Writer writer = new OutputStreamWriter(
+            new GZIPOutputStream(new FileOutputStream(compressed)), StandardCharsets.UTF_8)) {
+            writer.write(csv.toString());
+        }
+
+        FileHandler fileHandler = new FileHandler();
+        LogFile[] expected = fileHandler.openIndividualCSV(plain.getAbsolutePath());
+        LogFile[] actual = fileHandler.openIndividualCSV(compressed.getAbsolutePath());
+        assertTrue(actual instanceof ServerLog[], "A compressed server log should give server logs");
+        assertEquals(20000, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(((ServerLog) expected[i]).getLogAsString(), ((ServerLog) actual[i]).getLogAsString());
+        }
+
+        assertEquals(0, fileHandler.openIndividualCSV(tempDir.resolve("missing.csv.gz").toString()).length);
+    }
+}
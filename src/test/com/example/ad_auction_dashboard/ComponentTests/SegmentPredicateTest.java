@@ -0,0 +1,67 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+/**
+ * Tests the filters compiled into a mask over packed impression segments
+ */
+public class SegmentPredicateTest {
+
+    private static final String[] GENDERS = {"Male", "Female", "", "Other"};
+    private static final String[] AGES = {"<25", "25-34", "35-44", "45-54", ">54", ""};
+    private static final String[] INCOMES = {"Low", "Medium", "High", ""};
+    private static final String[] CONTEXTS = {"News", "Shopping", "Social Media", "Blog", "Hobbies", "Travel", ""};
+
+    @Test
+    @DisplayName("The predicate keeps exactly the impressions the display values match")
+    void testPredicateMatchesStringComparison() {
+        ImpressionLog[] imps = new ImpressionLog[GENDERS.length * AGES.length];
+        for (int i = 0; i < imps.length; i++) {
+            imps[i] = new ImpressionLog("2015-01-01 12:00:00", Integer.toString(i), GENDERS[i % GENDERS.length],
+                AGES[i % AGES.length], INCOMES[i % INCOMES.length], CONTEXTS[i % CONTEXTS.length], "0.1");
+        }
+        for (String gender : new String[]{null, "Female", ""}) {
+            for (String age : new String[]{null, "25-34", "Unknown"}) {
+                for (String context : new String[]{null, "Social Media", "Travel"}) {
+                    SegmentPredicate predicate = SegmentPredicate.of(gender, age, "Low", context);
+                    for (ImpressionLog imp : imps) {
+                        boolean expected = (gender == null || gender.equals(imp.getGender()))
+                            && (age == null || age.equals(imp.getAge()))
+                            && "Low".equals(imp.getIncome())
+                            && (context == null || context.equals(imp.getContext()));
+                        assertEquals(expected, predicate.test(imp));
+                        assertEquals(expected, predicate.test(SegmentPredicate.segment(imp)));
+                    }
+                }
+            }
+        }
+        assertTrue(SegmentPredicate.of(null, null, null, null).isAll());
+        assertFalse(SegmentPredicate.ALL.test(null));
+    }
+
+    @Test
+    @DisplayName("Segments pack and unpack the enum ordinals of an impression")
+    void testSegmentsRoundTrip() {
+        ImpressionLog imp = new ImpressionLog("2015-01-01 12:00:00", "1", "Female", ">54", "High", "Travel", "0.1");
+        int segment = SegmentPredicate.segment(imp);
+        assertEquals(4, Integer.bitCount(segment), "One bit for each attribute");
+        assertTrue(SegmentPredicate.of("Female", ">54", "High", "Travel").test(segment));
+        assertFalse(SegmentPredicate.of("Female", ">54", "High", "News").test(segment));
+
+        ColumnarCampaign columns = ColumnarCampaign.of(new ImpressionLog[]{imp,
+            new ImpressionLog("2015-01-01 12:00:01", "2", "Male", ">54", "High", "Travel", "0.1")}, null, null);
+        assertEquals(segment, columns.getSegment(0));
+        assertEquals(imp.getLogAsString(), columns.toImpressionLog(0).getLogAsString());
+
+        BitSet users = new BitSet();
+        SegmentPredicate.of("Male", ">54", null, null).addUsers(columns, 0, 2, users);
+        assertEquals(1, users.cardinality());
+        assertTrue(users.get(columns.findUser("2")));
+    }
+}
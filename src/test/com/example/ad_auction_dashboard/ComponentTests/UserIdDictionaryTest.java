@@ -0,0 +1,120 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests the dense ordinals given to user IDs
+ */
+public class UserIdDictionaryTest {
+
+    @Test
+    @DisplayName("Equal IDs share an ordinal and different IDs never do")
+    void testOrdinalsFollowStringEquality() {
+        UserIdDictionary users = new UserIdDictionary();
+        assertEquals(0, users.ordinal("8895519749317550080"));
+        assertEquals(1, users.ordinal("7"));
+        assertEquals(2, users.ordinal("007"));
+        assertEquals(3, users.ordinal(""));
+        assertEquals(4, users.ordinal("99999999999999999999"));
+        assertEquals(5, users.ordinal("abc"));
+
+        assertEquals(1, users.ordinal("7"));
+        assertEquals(2, users.ordinal("007"));
+        assertEquals(4, users.ordinal("99999999999999999999"));
+        assertEquals(6, users.size());
+
+        assertEquals("007", users.getId(2));
+        assertEquals("", users.getId(3));
+        assertEquals("8895519749317550080", users.getId(0));
+        assertEquals(5, users.find("abc"));
+        assertEquals(-1, users.find("8"));
+        assertEquals(-1, users.find("07"));
+        assertThrows(IndexOutOfBoundsException.class, () -> users.getId(6));
+    }
+
+    @Test
+    @DisplayName("Ordinals stay dense and stable as the table grows")
+    void testOrdinalsAreDense() {
+        UserIdDictionary users = new UserIdDictionary();
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(i, users.ordinal(Long.toString(4000000000000000000L + i * 7919L)));
+        }
+        for (int i = 0; i < 100000; i += 37) {
+            String id = Long.toString(4000000000000000000L + i * 7919L);
+            assertEquals(i, users.find(id));
+            assertEquals(id, users.getId(i));
+        }
+        assertEquals(100000, users.size());
+        assertTrue(users.getMemoryBytes() < 100000 * 32L);
+    }
+
+    @Test
+    @DisplayName("Uniques counted by ordinal match distinct click IDs")
+    void testUniquesMatchDistinctIds() {
+        ClickLog[] clicks = {
+            new ClickLog("2015-01-01 12:00:00", "12", "1.0"),
+            new ClickLog("2015-01-01 12:00:01", "012", "1.0"),
+            new ClickLog("2015-01-01 12:00:02", "12", "1.0"),
+            new ClickLog("2015-01-01 12:00:03", "34", "1.0")
+        };
+        CampaignMetrics metrics = new CampaignMetrics(new Campaign(new ImpressionLog[0], clicks, new ServerLog[0]));
+        assertEquals(3, metrics.getNumberOfUniques());
+    }
+
+    @Test
+    @DisplayName("19 digit IDs read into columns are kept as numbers, and IDs past Long.MAX_VALUE as text")
+    void testTokenizedNineteenDigitIds(@TempDir Path tempDir) throws IOException {
+        int users = 5000;
+        StringBuilder impressionCsv = new StringBuilder(LogCsvTokenizer.IMPRESSION_HEADER).append('\n');
+        StringBuilder clickCsv = new StringBuilder(LogCsvTokenizer.CLICK_HEADER).append('\n');
+        for (int i = 0; i < users * 2; i++) {
+            String id = Long.toString(8895519749317550080L + (i % users) * 104729L);
+            impressionCsv.append("2015-01-01 12:00:00,").append(id).append(",Male,25-34,High,Blog,0.001713\n");
+            clickCsv.append("2015-01-01 12:00:01,").append(id).append(",11.794442\n");
+        }
+        String maxId = Long.toString(Long.MAX_VALUE);
+        impressionCsv.append("2015-01-01 12:00:02,").append(maxId).append(",Male,25-34,High,Blog,0.001713\n");
+        impressionCsv.append("2015-01-01 12:00:03,9223372036854775808,Male,25-34,High,Blog,0.001713\n");
+        impressionCsv.append("2015-01-01 12:00:04,9999999999999999999,Male,25-34,High,Blog,0.001713\n");
+
+        Path zip = tempDir.resolve("campaign.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
+            writeEntry(out, "impression_log.csv", impressionCsv);
+            writeEntry(out, "click_log.csv", clickCsv);
+            writeEntry(out, "server_log.csv", LogCsvTokenizer.SERVER_HEADER + "\n");
+        }
+
+        FileHandler fileHandler = new FileHandler();
+        ColumnarCampaign columns = fileHandler.openZipColumnar(zip.toString());
+        assertNotNull(columns);
+        assertEquals(users + 3, columns.getUserCount(), "Repeated 19 digit IDs should share an ordinal");
+        assertEquals(columns.getImpressionUser(3), columns.getImpressionUser(users + 3));
+        assertEquals(maxId, columns.getUserId(columns.getImpressionUser(users * 2)));
+        assertEquals("9223372036854775808", columns.getUserId(columns.getImpressionUser(users * 2 + 1)));
+        assertEquals("9999999999999999999", columns.getUserId(columns.getImpressionUser(users * 2 + 2)));
+        assertEquals(columns.getImpressionUser(7), columns.findUser(Long.toString(8895519749317550080L + 7 * 104729L)));
+        assertTrue(columns.getUserDictionaryBytes() < users * 32L,
+            "19 digit IDs should not be kept as text, took " + columns.getUserDictionaryBytes() + " bytes");
+
+        CampaignMetrics expected = new CampaignMetrics(fileHandler.openZip(zip.toString()));
+        assertEquals(expected.getNumberOfUniques(), new CampaignMetrics(columns).getNumberOfUniques());
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, CharSequence csv) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+}
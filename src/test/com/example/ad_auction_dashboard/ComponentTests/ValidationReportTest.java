@@ -0,0 +1,108 @@
+package com.example.ad_auction_dashboard.ComponentTests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.ad_auction_dashboard.logic.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests the counters, samples and rejected rows file of ingestion validation
+ */
+public class ValidationReportTest {
+
+    @Test
+    @DisplayName("Rejected fields are counted with their file line numbers across chunks")
+    void testChunkedCsvValidation(@TempDir Path tempDir) throws IOException {
+        StringBuilder csv = new StringBuilder(LogCsvTokenizer.CLICK_HEADER).append('\n');
+        for (int i = 0; i < 3000; i++) {
+            if (i == 500) {
+                csv.append("2015-01-01 25:00:00,7,1.000000\n");
+            } else if (i == 1700) {
+                csv.append("2015-01-01 12:00:00,abc,1.5\n");
+            } else if (i == 2900) {
+                csv.append("2015-01-01 12:00:00,8\n");
+            } else {
+                csv.append(String.format("2015-01-01 12:%02d:%02d,%d,%d.500000%n", i / 60 % 60, i % 60, i, i % 10));
+            }
+        }
+        Path clicks = tempDir.resolve("click_log.csv");
+        Files.writeString(clicks, csv.toString());
+        Path rejectedRows = tempDir.resolve("rejected.csv");
+
+        ValidationReport report = new ValidationReport(rejectedRows);
+        LogFile[] logs = new FileHandler().openIndividualCSV(clicks.toString(), 4, report);
+        report.close();
+
+        // Only the row with too few columns is dropped
+        assertEquals(2999, logs.length);
+        assertEquals(3000, report.getRowsRead(LogCsvTokenizer.LogType.CLICK));
+        assertEquals(3, report.getRowsRejected(LogCsvTokenizer.LogType.CLICK));
+        assertEquals(1, report.getRejectedCount(LogCsvTokenizer.LogType.CLICK, ValidationReport.Field.DATE));
+        assertEquals(1, report.getRejectedCount(LogCsvTokenizer.LogType.CLICK, ValidationReport.Field.ID));
+        assertEquals(1, report.getRejectedCount(LogCsvTokenizer.LogType.CLICK, ValidationReport.Field.COLUMNS));
+        assertEquals(0, report.getRejectedCount(LogCsvTokenizer.LogType.CLICK, ValidationReport.Field.COST));
+
+        List<ValidationReport.Rejection> samples = report.getSamples();
+        assertEquals(3, samples.size());
+        assertEquals(502, samples.get(0).getLine(), "Header is line 1, so row 500 is line 502");
+        assertTrue(samples.get(0).isRejected(ValidationReport.Field.DATE));
+        assertEquals(1702, samples.get(1).getLine());
+        assertEquals("2015-01-01 12:00:00,abc,1.5", samples.get(1).getRow());
+        assertEquals(2902, samples.get(2).getLine());
+
+        List<String> written = Files.readAllLines(rejectedRows, StandardCharsets.UTF_8);
+        assertEquals("Source,Line,Rejected Fields,Row", written.get(0));
+        assertEquals("click_log.csv,1702,ID,2015-01-01 12:00:00,abc,1.5", written.get(2));
+        assertEquals(4, written.size());
+    }
+
+    @Test
+    @DisplayName("Zip loads count into the job's report and sample a capped number of rows")
+    void testZipValidationSamplesAreCapped(@TempDir Path tempDir) throws IOException {
+        Path zip = tempDir.resolve("campaign.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
+            StringBuilder impressions = new StringBuilder(LogCsvTokenizer.IMPRESSION_HEADER).append('\n');
+            for (int i = 0; i < 100; i++) {
+                String gender = i % 2 == 0 ? "Unknown" : "Male";
+                impressions.append("2015-01-01 12:00:00,").append(i).append(',').append(gender)
+                    .append(",25-34,High,Blog,0.001713\n");
+            }
+            out.putNextEntry(new ZipEntry("impression_log.csv"));
+            out.write(impressions.toString().getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+
+            out.putNextEntry(new ZipEntry("server_log.csv"));
+            out.write((LogCsvTokenizer.SERVER_HEADER + "\n"
+                + "2015-01-01 12:01:21,1,n/a,7,No\n"
+                + "2015-01-01 12:01:21,2,2015-01-01 12:05:13,0,Maybe\n").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        IngestionJob job = new IngestionJob();
+        Campaign campaign = new FileHandler().openZip(zip.toString(), job);
+        assertNotNull(campaign);
+        assertEquals(100, campaign.getImpressionLogs().length, "Rows with a bad field are still loaded");
+
+        ValidationReport report = job.getValidationReport();
+        assertTrue(report.hasRejections());
+        assertEquals(50, report.getRejectedCount(LogCsvTokenizer.LogType.IMPRESSION, ValidationReport.Field.GENDER));
+        // An exit date of n/a is allowed, the pages and conversion of the second row are not
+        assertEquals(1, report.getRowsRejected(LogCsvTokenizer.LogType.SERVER));
+        assertEquals(0, report.getRejectedCount(LogCsvTokenizer.LogType.SERVER, ValidationReport.Field.EXIT_DATE));
+        assertEquals(1, report.getRejectedCount(LogCsvTokenizer.LogType.SERVER, ValidationReport.Field.PAGES_VIEWED));
+        assertEquals(1, report.getRejectedCount(LogCsvTokenizer.LogType.SERVER, ValidationReport.Field.CONVERSION));
+        assertEquals(ValidationReport.SAMPLE_LIMIT, report.getSamples().size());
+        assertTrue(report.getSummary().contains("Impression log: 50 of 100 rows rejected"));
+    }
+}
@@ -325,4 +325,38 @@ public class EnhancedFilterTest {
         assertEquals(10, timeFilteredMetrics.getNumberOfImpressions(),
             "Should have all 10 impressions after resetting all filters");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test users pass combined filters through one impression")
+    void testCombinedFiltersNeedOneImpression() {
+        // User 1002 has a Male impression and a Blog one, but no Male Blog impression
+        timeFilteredMetrics.appendLogs(new ImpressionLog[]{
+            new ImpressionLog("2023-03-01 15:00:00", "1001", "Male", "<25", "Low", "Blog", "0.100000"),
+            new ImpressionLog("2023-03-01 15:10:00", "1002", "Female", "<25", "High", "Blog", "0.100000")
+        }, null, null);
+
+        timeFilteredMetrics.setContextFilter("Blog");
+        assertTrue(timeFilteredMetrics.userPassesFilters("1001"));
+        assertTrue(timeFilteredMetrics.userPassesFilters("1002"));
+        assertFalse(timeFilteredMetrics.userPassesFilters("1004"));
+
+        timeFilteredMetrics.setGenderFilter("Male");
+        assertTrue(timeFilteredMetrics.userPassesFilters("1001"));
+        assertFalse(timeFilteredMetrics.userPassesFilters("1002"));
+        assertTrue(timeFilteredMetrics.userPassesFilters("1003"));
+        assertFalse(timeFilteredMetrics.userPassesFilters("1008"));
+
+        // Rows appended once the indexes are built are taken in
+        timeFilteredMetrics.appendLogs(new ImpressionLog[]{
+            new ImpressionLog("2023-03-01 15:20:00", "1004", "Male", "45-54", "Low", "Blog", "0.100000")
+        }, null, null);
+        assertTrue(timeFilteredMetrics.userPassesFilters("1004"));
+        timeFilteredMetrics.setIncomeFilter("High");
+        assertTrue(timeFilteredMetrics.userPassesFilters("1003"));
+        assertFalse(timeFilteredMetrics.userPassesFilters("1004"));
+
+        String report = timeFilteredMetrics.getSegmentIndexMemoryReport();
+        assertTrue(report.contains("Blog"), report);
+        assertTrue(report.contains("over 13 impressions"), report);
+    }
+}
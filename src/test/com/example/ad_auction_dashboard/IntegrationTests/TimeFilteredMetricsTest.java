@@ -392,4 +392,179 @@ public class TimeFilteredMetricsTest {
         assertEquals(0, timeFilteredMetrics.getNumberOfConversions(), "Should have 0 conversions in hour 11");
     }
 
+    @Test
+    void testHourlyTotalsFollowEarlierAndFarOutRows() {
+        LocalDateTime dayStart = LocalDateTime.of(2023, 3, 1, 0, 0, 0);
+        LocalDateTime dayEnd = LocalDateTime.of(2023, 3, 1, 23, 59, 59);
+        timeFilteredMetrics.computeForTimeFrame(dayStart, dayEnd, "Daily");
+        int impressions = timeFilteredMetrics.getNumberOfImpressions();
+        double cost = timeFilteredMetrics.getTotalCost();
+
+        // Rows of hours before the first one are taken in at the front
+        timeFilteredMetrics.appendLogs(new ImpressionLog[]{
+            new ImpressionLog("2023-02-27 06:15:00", "1008", "Male", "<25", "Low", "News", "0.500000")
+        }, null, new ClickLog[]{
+            new ClickLog("2023-02-27 06:20:00", "1008", "2.000000")
+        });
+        timeFilteredMetrics.computeForTimeFrame(dayStart, dayEnd, "Daily");
+        assertEquals(impressions, timeFilteredMetrics.getNumberOfImpressions());
+        assertEquals(cost, timeFilteredMetrics.getTotalCost(), 1e-9);
+
+        LocalDateTime earlyHour = LocalDateTime.of(2023, 2, 27, 6, 0, 0);
+        timeFilteredMetrics.computeForTimeFrame(earlyHour, dayEnd, "Daily");
+        assertEquals(impressions + 1, timeFilteredMetrics.getNumberOfImpressions());
+        assertEquals(cost + 2.5, timeFilteredMetrics.getTotalCost(), 1e-9);
+        // Only the hour of the end counts, not the minutes within it
+        timeFilteredMetrics.computeForTimeFrame(earlyHour, earlyHour, "Hourly");
+        assertEquals(1, timeFilteredMetrics.getNumberOfImpressions());
+        assertEquals(1, timeFilteredMetrics.getNumberOfClicks());
+        assertEquals(1, timeFilteredMetrics.getNumberOfUniques());
+
+        // A row more than a century out is still counted
+        timeFilteredMetrics.appendLogs(new ImpressionLog[]{
+            new ImpressionLog("2150-01-01 00:00:00", "1009", "Male", "<25", "Low", "News", "0.100000")
+        }, null, null);
+        timeFilteredMetrics.computeForTimeFrame(earlyHour, dayEnd, "Daily");
+        assertEquals(impressions + 1, timeFilteredMetrics.getNumberOfImpressions());
+        assertEquals(cost + 2.5, timeFilteredMetrics.getTotalCost(), 1e-9);
+        timeFilteredMetrics.computeForTimeFrame(earlyHour, LocalDateTime.of(2150, 1, 1, 0, 0, 0), "Daily");
+        assertEquals(impressions + 2, timeFilteredMetrics.getNumberOfImpressions());
+    }
+
+    @Test
+    void testFilteredTotalsOverWholeAndPartHours() {
+        // Whole hours 10 to 13 come from the segment cube, 09:59:30 and 14:00 to 14:30 from the rows
+        LocalDateTime start = LocalDateTime.of(2023, 3, 1, 9, 59, 30);
+        LocalDateTime end = LocalDateTime.of(2023, 3, 1, 14, 30, 0);
+        timeFilteredMetrics.setContextFilter("News");
+        assertEquals(2, timeFilteredMetrics.filterImpressions(start, end));
+        assertEquals(1, timeFilteredMetrics.filterClicks(start, end));
+        assertEquals(1, timeFilteredMetrics.filterBounces(start, end));
+        assertEquals(0, timeFilteredMetrics.filterConversions(start, end));
+        assertEquals(0.123456 + 0.567890 + 1.23, timeFilteredMetrics.filterTotalCost(start, end), 1e-5);
+
+        // A News impression of user 1002 brings in their earlier click and conversion
+        timeFilteredMetrics.appendLogs(new ImpressionLog[]{
+            new ImpressionLog("2023-03-01 14:20:00", "1002", "Female", "25-34", "High", "News", "0.100000")
+        }, null, null);
+        assertEquals(3, timeFilteredMetrics.filterImpressions(start, end));
+        assertEquals(2, timeFilteredMetrics.filterClicks(start, end));
+        assertEquals(1, timeFilteredMetrics.filterBounces(start, end));
+        assertEquals(1, timeFilteredMetrics.filterConversions(start, end));
+        assertEquals(0.123456 + 0.567890 + 1.23 + 0.1 + 1.45, timeFilteredMetrics.filterTotalCost(start, end), 1e-5);
+
+        // Bounces follow the criteria, and the other filters narrow the users down
+        timeFilteredMetrics.setBounceCriteria(5, 0);
+        assertEquals(2, timeFilteredMetrics.filterBounces(start, end));
+        timeFilteredMetrics.setGenderFilter("Male");
+        assertEquals(1, timeFilteredMetrics.filterBounces(start, end));
+        assertEquals(1, timeFilteredMetrics.filterClicks(start, end));
+        assertEquals(0, timeFilteredMetrics.filterConversions(start, end));
+    }
+
+    @Test
+    void testBouncesUnderAnyCriteriaWithAndWithoutFilters() {
+        // Visits of up to 9 pages and 1000 seconds over two days, from users of both genders
+        java.util.Random random = new java.util.Random(3);
+        java.time.format.DateTimeFormatter format = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        int users = 400;
+        ImpressionLog[] imps = new ImpressionLog[users];
+        ServerLog[] visits = new ServerLog[4000];
+        int[] pages = new int[visits.length];
+        int[] seconds = new int[visits.length];
+        int[] hours = new int[visits.length];
+        for (int i = 0; i < users; i++) {
+            imps[i] = new ImpressionLog("2023-03-02 00:00:00", Integer.toString(i), i % 2 == 0 ? "Male" : "Female",
+                "<25", "Low", "News", "0.100000");
+        }
+        for (int i = 0; i < visits.length; i++) {
+            hours[i] = random.nextInt(48);
+            pages[i] = 1 + random.nextInt(9);
+            seconds[i] = random.nextInt(1000);
+            LocalDateTime entry = LocalDateTime.of(2023, 3, 2, 0, 0).plusHours(hours[i]).plusMinutes(random.nextInt(60));
+            visits[i] = new ServerLog(entry.format(format), Integer.toString(i % users),
+                entry.plusSeconds(seconds[i]).format(format), Integer.toString(pages[i]), "No");
+        }
+        TimeFilteredMetrics metrics = new TimeFilteredMetrics(imps, visits, new ClickLog[0], 1, 4);
+        LocalDateTime start = LocalDateTime.of(2023, 3, 2, 5, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 3, 3, 20, 59, 59);
+
+        int[][] criteria = {{1, 4}, {7, 400}, {25, 2000}, {3, 700}, {1, 4}};
+        for (int[] c : criteria) {
+            metrics.setBounceCriteria(c[0], c[1]);
+            for (String gender : new String[]{null, "Male"}) {
+                metrics.setGenderFilter(gender);
+                int expected = 0;
+                for (int i = 0; i < visits.length; i++) {
+                    boolean passes = gender == null || (i % users) % 2 == 0;
+                    if (passes && hours[i] >= 5 && hours[i] <= 44 && (pages[i] <= c[0] || seconds[i] <= c[1])) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, metrics.filterBounces(start, end),
+                    "Bounces under " + c[0] + " pages, " + c[1] + " seconds, gender " + gender);
+            }
+        }
+    }
+
+    @Test
+    void testApproximateUniquesWithinErrorOfExact() {
+        // 20,000 users, half of them Male, clicking over ten hours
+        int users = 20000;
+        ImpressionLog[] imps = new ImpressionLog[users];
+        ClickLog[] clicks = new ClickLog[users];
+        for (int i = 0; i < users; i++) {
+            String time = String.format("2023-03-02 %02d:%02d:%02d", 8 + i % 10, i / 60 % 60, i % 60);
+            imps[i] = new ImpressionLog(time, Integer.toString(i), i % 2 == 0 ? "Male" : "Female",
+                "<25", "Low", "News", "0.100000");
+            clicks[i] = new ClickLog(time, Integer.toString(i), "1.000000");
+        }
+        TimeFilteredMetrics metrics = new TimeFilteredMetrics(imps, new ServerLog[0], clicks, 1, 4);
+        LocalDateTime start = LocalDateTime.of(2023, 3, 2, 9, 30, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 3, 2, 16, 45, 0);
+        LocalDateTime dayStart = LocalDateTime.of(2023, 3, 2, 0, 0, 0);
+        LocalDateTime dayEnd = LocalDateTime.of(2023, 3, 2, 23, 59, 59);
+
+        int exactDay = metrics.filterUniques(dayStart, dayEnd);
+        metrics.setGenderFilter("Male");
+        int exactMale = metrics.filterUniques(start, end);
+        metrics.setGenderFilter(null);
+        assertEquals(users, exactDay);
+        assertFalse(metrics.isApproximateUniques());
+        assertEquals(0, metrics.getUniquesError());
+
+        metrics.useApproximateUniques(0.01);
+        assertTrue(metrics.isApproximateUniques());
+        double error = metrics.getUniquesError();
+        assertTrue(error <= 0.01 && error > 0.005, "error " + error);
+        assertEquals(exactDay, metrics.filterUniques(dayStart, dayEnd), 4 * error * exactDay);
+        metrics.setGenderFilter("Male");
+        assertEquals(exactMale, metrics.filterUniques(start, end), 4 * error * exactMale);
+
+        metrics.useExactUniques();
+        assertEquals(exactMale, metrics.filterUniques(start, end));
+        assertThrows(IllegalArgumentException.class, () -> metrics.useApproximateUniques(0));
+    }
+
+    @Test
+    void testFilteredClicksOfUserWhoseFirstImpressionIsAppended() {
+        LocalDateTime dayStart = LocalDateTime.of(2023, 3, 5, 0, 0, 0);
+        LocalDateTime dayEnd = LocalDateTime.of(2023, 3, 5, 23, 59, 59);
+        ImpressionLog other = new ImpressionLog("2023-03-05 09:00:00", "1", "Female", "<25", "Low", "News", "0.100000");
+        ClickLog click = new ClickLog("2023-03-05 10:00:00", "2", "1.000000");
+        ImpressionLog appended = new ImpressionLog("2023-03-05 11:00:00", "2", "Male", "<25", "Low", "News", "0.100000");
+
+        // The click is counted before user 2 has any impression
+        TimeFilteredMetrics appending = new TimeFilteredMetrics(new ImpressionLog[]{other}, new ServerLog[0],
+            new ClickLog[]{click}, 1, 4);
+        appending.appendLogs(new ImpressionLog[]{appended}, null, null);
+        appending.setGenderFilter("Male");
+
+        TimeFilteredMetrics loaded = new TimeFilteredMetrics(new ImpressionLog[]{other, appended}, new ServerLog[0],
+            new ClickLog[]{click}, 1, 4);
+        loaded.setGenderFilter("Male");
+
+        assertEquals(1, loaded.filterClicks(dayStart, dayEnd));
+        assertEquals(1, appending.filterClicks(dayStart, dayEnd));
+    }
 }